@@ -0,0 +1,105 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.jakarta.JakartaTransformer;
+
+/**
+ * Measure the bytes allocated by complete runs of the jakarta transformer.
+ * <p>
+ * Unlike the JMH benchmarks, which measure actions, each run creates a new
+ * transformer, loads the default jakarta rules, and transforms an input file
+ * to an output file, on the main thread. The bytes which the main thread
+ * allocates are read before and after each run. The minimum allocation and
+ * the minimum time of the second half of the runs are displayed.
+ * <p>
+ * Usage: <code>AllocationHarness [input [runs]]</code>. A synthetic jar of
+ * 1000 entries is used when no input is specified. See
+ * {@link BenchmarkRules#createJar(int)}. Ten runs are made by default.
+ */
+public class AllocationHarness {
+	public static final int	DEFAULT_RUNS			= 10;
+	public static final int	DEFAULT_ENTRY_COUNT		= 1000;
+
+	public static void main(String[] args) throws Exception {
+		File inputFile;
+		if (args.length > 0) {
+			inputFile = new File(args[0]);
+		} else {
+			inputFile = File.createTempFile("allocation", ".jar");
+			inputFile.deleteOnExit();
+			Files.write(inputFile.toPath(), BenchmarkRules.createJar(DEFAULT_ENTRY_COUNT));
+		}
+		int runs = ((args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_RUNS);
+
+		String inputName = inputFile.getName();
+		int extensionStart = inputName.lastIndexOf('.');
+		String extension = ((extensionStart == -1) ? "" : inputName.substring(extensionStart));
+		File outputFile = File.createTempFile("allocation", extension);
+		outputFile.deleteOnExit();
+
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+		long threadId = Thread.currentThread()
+			.getId();
+
+		PrintStream nullStream = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// Discard
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				// Discard
+			}
+		});
+
+		long minAllocated = Long.MAX_VALUE;
+		long minElapsed = Long.MAX_VALUE;
+
+		for (int runNo = 0; runNo < runs; runNo++) {
+			long startAllocated = threadBean.getThreadAllocatedBytes(threadId);
+			long startTime = System.nanoTime();
+
+			Transformer transformer = new Transformer(nullStream, nullStream);
+			transformer.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+			transformer.setArgs(new String[] {
+				inputFile.getPath(), outputFile.getPath(), "-o", "-q"
+			});
+			int rc = transformer.run();
+			if (rc != Transformer.SUCCESS_RC) {
+				throw new IllegalStateException("Transform of [ " + inputFile + " ] failed [ " + rc + " ]");
+			}
+
+			long allocated = threadBean.getThreadAllocatedBytes(threadId) - startAllocated;
+			long elapsed = System.nanoTime() - startTime;
+
+			// Skip the first half of the runs, during which classes are
+			// loaded and compiled.
+			if (runNo >= runs / 2) {
+				minAllocated = Math.min(minAllocated, allocated);
+				minElapsed = Math.min(minElapsed, elapsed);
+			}
+		}
+
+		System.out.println("Input [ " + inputFile + " ] Runs [ " + runs + " ] Allocated [ " + (minAllocated / 1024)
+			+ " KB ] Elapsed [ " + (minElapsed / 1000000) + " ms ]");
+	}
+}
@@ -0,0 +1,210 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.jakarta.JakartaTransformer;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * Rules, actions, and input data shared by the benchmarks.
+ * <p>
+ * The rules are the default jakarta rules. Text substitutions use the package
+ * renames, and are selected for ".txt" resources.
+ */
+public class BenchmarkRules {
+	public static final Logger	LOGGER			= NOPLogger.NOP_LOGGER;
+
+	/** Classes which are changed by the jakarta rules. */
+	public static final String[]	CHANGED_CLASSES	= {
+		"javax/servlet/http/HttpServlet.class", "javax/servlet/GenericServlet.class",
+		"javax/servlet/http/HttpServletRequestWrapper.class", "javax/servlet/ServletContext.class"
+	};
+
+	/** A class which is not changed by the jakarta rules. */
+	public static final String	UNCHANGED_CLASS	= "org/eclipse/transformer/util/ByteData.class";
+
+	public static final String	MANIFEST_TEXT	= "Manifest-Version: 1.0\r\n"
+		+ "Bundle-ManifestVersion: 2\r\n" + "Bundle-SymbolicName: benchmark.bundle\r\n"
+		+ "Bundle-Version: 1.0.0\r\n"
+		+ "Export-Package: benchmark.web;uses:=\"javax.servlet,javax.servlet.http\";version=\"1.0.0\"\r\n"
+		+ "Import-Package: javax.servlet;version=\"[4.0,5)\",javax.servlet.annotation;version=\"[4.0,5)\",\r\n"
+		+ " javax.servlet.descriptor;version=\"[4.0,5)\",javax.servlet.http;version=\"[4.0,5)\",\r\n"
+		+ " javax.annotation;version=\"[1.3,2)\",org.slf4j;version=\"[1.7,2)\"\r\n" + "\r\n";
+
+	public static final String	TEXT_LINE		= "javax.servlet.http.HttpServlet is configured using "
+		+ "javax.servlet.ServletConfig, and not using org.example.Config.\n";
+
+	public static Map<String, String> loadRules(String resourceRef) throws IOException {
+		URL rulesUrl = JakartaTransformer.class.getResource(resourceRef);
+		if (rulesUrl == null) {
+			throw new IllegalStateException("Rules resource [ " + resourceRef + " ] not found");
+		}
+		Properties properties = FileUtils.loadProperties(rulesUrl);
+
+		Map<String, String> rules = new HashMap<>(properties.size());
+		for (String key : properties.stringPropertyNames()) {
+			rules.put(key, properties.getProperty(key));
+		}
+		return rules;
+	}
+
+	public static SignatureRuleImpl createSignatureRule() throws IOException {
+		Map<String, String> renames = loadRules(JakartaTransformer.DEFAULT_RENAMES_REFERENCE);
+		Map<String, String> versions = loadRules(JakartaTransformer.DEFAULT_VERSIONS_REFERENCE);
+		Map<String, String> directStrings = loadRules(JakartaTransformer.DEFAULT_DIRECT_REFERENCE);
+
+		Map<String, Map<String, String>> textUpdates = Collections.singletonMap("*.txt", renames);
+
+		return new SignatureRuleImpl(LOGGER, renames, versions, null, textUpdates, directStrings, null);
+	}
+
+	public static CompositeActionImpl createRootAction(SignatureRuleImpl signatureRule) {
+		CompositeActionImpl rootAction = new CompositeActionImpl(LOGGER, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(LOGGER, Collections.emptySet(), Collections.emptySet()), signatureRule);
+
+		ClassActionImpl classAction = rootAction.addUsing(ClassActionImpl::new);
+		ServiceLoaderConfigActionImpl serviceConfigAction = rootAction.addUsing(ServiceLoaderConfigActionImpl::new);
+		ManifestActionImpl manifestAction = rootAction.addUsing(ManifestActionImpl::newManifestAction);
+		TextActionImpl textAction = rootAction.addUsing(TextActionImpl::new);
+		JarActionImpl jarAction = rootAction.addUsing(JarActionImpl::new);
+		NullActionImpl nullAction = rootAction.addUsing(NullActionImpl::new);
+
+		jarAction.addAction(classAction);
+		jarAction.addAction(serviceConfigAction);
+		jarAction.addAction(manifestAction);
+		jarAction.addAction(textAction);
+		jarAction.addAction(nullAction);
+
+		return rootAction;
+	}
+
+	public static <A> A getAction(CompositeActionImpl rootAction, Class<A> actionType) {
+		return rootAction.getActions()
+			.stream()
+			.filter(actionType::isInstance)
+			.map(actionType::cast)
+			.findFirst()
+			.orElseThrow(() -> new IllegalStateException("No action [ " + actionType.getName() + " ]"));
+	}
+
+	public static byte[] readResource(String resourceRef) throws IOException {
+		try (InputStream inputStream = BenchmarkRules.class.getClassLoader()
+			.getResourceAsStream(resourceRef)) {
+			if (inputStream == null) {
+				throw new IOException("Resource [ " + resourceRef + " ] not found");
+			}
+			ByteData resourceData = FileUtils.read(resourceRef, inputStream);
+			return Arrays.copyOfRange(resourceData.data, resourceData.offset,
+				resourceData.offset + resourceData.length);
+		}
+	}
+
+	public static String createText(int lineCount) {
+		StringBuilder text = new StringBuilder(lineCount * TEXT_LINE.length());
+		for (int lineNo = 0; lineNo < lineCount; lineNo++) {
+			text.append(TEXT_LINE);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Create a synthetic jar. The jar has a manifest, and a mix of changed
+	 * classes, unchanged classes, service configuration files, text files, and
+	 * data files.
+	 *
+	 * @param entryCount The count of entries, not including the manifest.
+	 * @return The bytes of the jar.
+	 * @throws IOException Thrown if the jar could not be created.
+	 */
+	public static byte[] createJar(int entryCount) throws IOException {
+		byte[][] changedClasses = new byte[CHANGED_CLASSES.length][];
+		for (int classNo = 0; classNo < CHANGED_CLASSES.length; classNo++) {
+			changedClasses[classNo] = readResource(CHANGED_CLASSES[classNo]);
+		}
+		byte[] unchangedClass = readResource(UNCHANGED_CLASS);
+		byte[] textBytes = createText(20).getBytes(UTF_8);
+		byte[] dataBytes = new byte[4096];
+		for (int byteNo = 0; byteNo < dataBytes.length; byteNo++) {
+			dataBytes[byteNo] = (byte) (byteNo * 31);
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+			zipOutput.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+			zipOutput.write(MANIFEST_TEXT.getBytes(UTF_8));
+			zipOutput.closeEntry();
+
+			for (int entryNo = 0; entryNo < entryCount; entryNo++) {
+				String entryName;
+				byte[] entryBytes;
+				switch (entryNo % 8) {
+					case 0 :
+					case 1 :
+					case 2 :
+						// Classes are placed under a sub-path, and are
+						// relocated to the transformed class name.
+						entryName = "benchmark/copy" + entryNo + "/" + CHANGED_CLASSES[entryNo % changedClasses.length];
+						entryBytes = changedClasses[entryNo % changedClasses.length];
+						break;
+					case 3 :
+					case 4 :
+						entryName = "benchmark/copy" + entryNo + "/" + UNCHANGED_CLASS;
+						entryBytes = unchangedClass;
+						break;
+					case 5 :
+						entryName = "META-INF/services/javax.servlet.ServletContainerInitializer" + entryNo;
+						entryBytes = ("benchmark.web.Initializer" + entryNo + "\n").getBytes(UTF_8);
+						break;
+					case 6 :
+						entryName = "benchmark/text/notes" + entryNo + ".txt";
+						entryBytes = textBytes;
+						break;
+					default :
+						entryName = "benchmark/data/data" + entryNo + ".bin";
+						entryBytes = dataBytes;
+						break;
+				}
+				zipOutput.putNextEntry(new ZipEntry(entryName));
+				zipOutput.write(entryBytes);
+				zipOutput.closeEntry();
+			}
+		}
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,64 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the transformation of single classes.
+ * <p>
+ * Changed classes are fully parsed and rewritten. Unchanged classes are
+ * usually rejected by the constant pool prescan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassActionBenchmark {
+	@Param({
+		"javax/servlet/http/HttpServlet.class", "javax/servlet/ServletContext.class", BenchmarkRules.UNCHANGED_CLASS
+	})
+	public String			className;
+
+	private ClassActionImpl	classAction;
+	private ByteData		classData;
+
+	@Setup
+	public void setup() throws IOException {
+		classAction = BenchmarkRules.getAction(BenchmarkRules.createRootAction(BenchmarkRules.createSignatureRule()),
+			ClassActionImpl.class);
+		byte[] classBytes = BenchmarkRules.readResource(className);
+		classData = new ByteData(className, classBytes);
+	}
+
+	@Benchmark
+	public ByteData apply() {
+		return classAction.apply(className, classData);
+	}
+}
@@ -0,0 +1,107 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end benchmark of the transformation of synthetic jars.
+ * <p>
+ * Jars are transformed both as streams and as files. See
+ * {@link BenchmarkRules#createJar(int)} for the content of the jars.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JarActionBenchmark {
+	private static final String	JAR_NAME	= "benchmark.jar";
+
+	@Param({
+		"100", "1000"
+	})
+	public int					entryCount;
+
+	@Param({
+		"1", "4"
+	})
+	public int					threads;
+
+	private JarActionImpl		jarAction;
+	private ExecutorService		executor;
+
+	private byte[]				jarBytes;
+	private File				inputFile;
+	private File				outputFile;
+
+	@Setup
+	public void setup() throws IOException {
+		jarAction = BenchmarkRules.getAction(BenchmarkRules.createRootAction(BenchmarkRules.createSignatureRule()),
+			JarActionImpl.class);
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads);
+			jarAction.setExecutor(executor, threads * 2);
+		}
+
+		jarBytes = BenchmarkRules.createJar(entryCount);
+
+		inputFile = File.createTempFile("benchmark", ".jar");
+		outputFile = File.createTempFile("benchmark", ".jar");
+		Files.write(inputFile.toPath(), jarBytes);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		inputFile.delete();
+		outputFile.delete();
+	}
+
+	@Benchmark
+	public int applyStream() throws TransformException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(jarBytes.length);
+		jarAction.apply(JAR_NAME, new ByteArrayInputStream(jarBytes), jarBytes.length, output);
+		return output.size();
+	}
+
+	@Benchmark
+	public long applyFile() throws TransformException {
+		jarAction.apply(JAR_NAME, inputFile, outputFile);
+		return outputFile.length();
+	}
+}
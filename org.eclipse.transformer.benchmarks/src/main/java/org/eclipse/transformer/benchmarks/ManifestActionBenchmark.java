@@ -0,0 +1,58 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the transformation of a bundle manifest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManifestActionBenchmark {
+	private static final String	MANIFEST_NAME	= "META-INF/MANIFEST.MF";
+
+	private ManifestActionImpl	manifestAction;
+	private ByteData			manifestData;
+
+	@Setup
+	public void setup() throws IOException {
+		manifestAction = BenchmarkRules.getAction(BenchmarkRules.createRootAction(BenchmarkRules.createSignatureRule()),
+			ManifestActionImpl.class);
+		manifestData = new ByteData(MANIFEST_NAME, BenchmarkRules.MANIFEST_TEXT.getBytes(UTF_8));
+	}
+
+	@Benchmark
+	public ByteData apply() {
+		return manifestAction.apply(MANIFEST_NAME, manifestData);
+	}
+}
@@ -0,0 +1,109 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the transformation of descriptors and signatures.
+ * <p>
+ * The inputs are cycled through a set of distinct values. With a cache
+ * capacity of one, every transformation misses the cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureRuleBenchmark {
+	private static final int	INPUT_COUNT	= 64;
+
+	@Param({
+		"1", "65536"
+	})
+	public int					cacheCapacity;
+
+	private SignatureRuleImpl	signatureRule;
+
+	private String[]			descriptors;
+	private String[]			classSignatures;
+	private String[]			fieldSignatures;
+	private String[]			methodSignatures;
+
+	private int					nextInput;
+
+	@Setup
+	public void setup() throws IOException {
+		SignatureRuleImpl jakartaRule = BenchmarkRules.createSignatureRule();
+		signatureRule = new SignatureRuleImpl(BenchmarkRules.LOGGER, jakartaRule.getPackageRenames(),
+			jakartaRule.getPackageVersions(), null, null, null, null, cacheCapacity);
+
+		descriptors = new String[INPUT_COUNT];
+		classSignatures = new String[INPUT_COUNT];
+		fieldSignatures = new String[INPUT_COUNT];
+		methodSignatures = new String[INPUT_COUNT];
+
+		for (int inputNo = 0; inputNo < INPUT_COUNT; inputNo++) {
+			String type = "Lbenchmark/Type" + inputNo + ";";
+			descriptors[inputNo] = "(Ljavax/servlet/http/HttpServletRequest;Ljavax/servlet/http/HttpServletResponse;"
+				+ type + ")V";
+			classSignatures[inputNo] = "<T:Ljava/lang/Object;>Ljava/lang/Object;Ljavax/servlet/Filter;"
+				+ "Ljava/util/Comparator<" + type + ">;";
+			fieldSignatures[inputNo] = "Ljava/util/Map<Ljava/lang/String;Ljava/util/List<"
+				+ "Ljavax/servlet/ServletRegistration;>;>;" + type;
+			methodSignatures[inputNo] = "<T::Ljava/util/EventListener;>(Ljava/lang/Class<TT;>;" + type
+				+ ")Ljavax/servlet/ServletRegistration$Dynamic;";
+		}
+	}
+
+	private int next() {
+		int inputNo = nextInput;
+		nextInput = (inputNo + 1) % INPUT_COUNT;
+		return inputNo;
+	}
+
+	@Benchmark
+	public String transformDescriptor() {
+		return signatureRule.transformDescriptor(descriptors[next()]);
+	}
+
+	@Benchmark
+	public String transformClassSignature() {
+		return signatureRule.transform(classSignatures[next()], SignatureType.CLASS);
+	}
+
+	@Benchmark
+	public String transformFieldSignature() {
+		return signatureRule.transform(fieldSignatures[next()], SignatureType.FIELD);
+	}
+
+	@Benchmark
+	public String transformMethodSignature() {
+		return signatureRule.transform(methodSignatures[next()], SignatureType.METHOD);
+	}
+}
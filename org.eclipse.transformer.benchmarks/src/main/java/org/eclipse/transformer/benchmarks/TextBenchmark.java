@@ -0,0 +1,80 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of package renames and text substitutions of text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextBenchmark {
+	private static final String	TEXT_NAME	= "benchmark/notes.txt";
+
+	@Param({
+		"1", "100", "10000"
+	})
+	public int					lineCount;
+
+	private SignatureRuleImpl	signatureRule;
+	private TextActionImpl		textAction;
+
+	private String				text;
+	private ByteData			textData;
+
+	@Setup
+	public void setup() throws IOException {
+		signatureRule = BenchmarkRules.createSignatureRule();
+		textAction = BenchmarkRules.getAction(BenchmarkRules.createRootAction(signatureRule), TextActionImpl.class);
+
+		text = BenchmarkRules.createText(lineCount);
+		textData = new ByteData(TEXT_NAME, text.getBytes(UTF_8));
+	}
+
+	@Benchmark
+	public String replacePackages() {
+		return signatureRule.replacePackages(text);
+	}
+
+	@Benchmark
+	public String replaceText() {
+		return signatureRule.replaceText(TEXT_NAME, text);
+	}
+
+	@Benchmark
+	public ByteData textAction() {
+		return textAction.apply(TEXT_NAME, textData);
+	}
+}
@@ -0,0 +1,211 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.jakarta;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+// Request:
+//   int MAGIC
+//   UTF token: The token of the daemon, as read from its token file
+//   byte request type: REQUEST_TRANSFORM or REQUEST_STOP
+//   UTF working directory
+//   int argument count
+//   UTF argument (repeated)
+//
+// Response, as a sequence of frames:
+//   byte FRAME_OUT, int length, bytes: Bytes written to the system output
+//   byte FRAME_ERR, int length, bytes: Bytes written to the system error
+//   byte FRAME_RC, int return code: Last frame of the response
+
+final class DaemonProtocol {
+	private DaemonProtocol() {
+		// Constants and helpers only.
+	}
+
+	/** Marker which starts every request: "TRD2". */
+	static final int	MAGIC				= 0x54524432;
+
+	static final byte	REQUEST_TRANSFORM	= 'T';
+	static final byte	REQUEST_STOP		= 'S';
+
+	static final byte	FRAME_OUT			= 'O';
+	static final byte	FRAME_ERR			= 'E';
+	static final byte	FRAME_RC			= 'R';
+
+	/** Longest frame which is accepted. */
+	static final int	MAX_FRAME_LENGTH	= 1024 * 1024;
+
+	/**
+	 * Output stream which writes bytes as frames of a response. Several frame
+	 * streams may write to the same response: Frames are written while holding
+	 * the lock of the response stream.
+	 */
+	static class FrameOutputStream extends OutputStream {
+		FrameOutputStream(DataOutputStream response, byte frameType) {
+			this.response = response;
+			this.frameType = frameType;
+		}
+
+		private final DataOutputStream	response;
+		private final byte				frameType;
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {
+				(byte) b
+			}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			while (length > 0) {
+				int frameLength = Math.min(length, MAX_FRAME_LENGTH);
+				synchronized (response) {
+					response.writeByte(frameType);
+					response.writeInt(frameLength);
+					response.write(bytes, offset, frameLength);
+				}
+				offset += frameLength;
+				length -= frameLength;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (response) {
+				response.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+
+	static void writeError(DataOutputStream response, String message, int rc) throws IOException {
+		byte[] messageBytes = (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+		synchronized (response) {
+			response.writeByte(FRAME_ERR);
+			response.writeInt(messageBytes.length);
+			response.write(messageBytes);
+		}
+		writeRc(response, rc);
+	}
+
+	static void writeRc(DataOutputStream response, int rc) throws IOException {
+		synchronized (response) {
+			response.writeByte(FRAME_RC);
+			response.writeInt(rc);
+			response.flush();
+		}
+	}
+
+	//
+
+	// A daemon accepts only requests which present its token. The token is
+	// written to a file which only the user who started the daemon can read,
+	// which limits the use of the daemon to that user.
+
+	/** Count of random bytes of a token. */
+	static final int TOKEN_BYTES = 32;
+
+	static String newToken() {
+		byte[] tokenBytes = new byte[TOKEN_BYTES];
+		new SecureRandom().nextBytes(tokenBytes);
+		StringBuilder token = new StringBuilder(TOKEN_BYTES * 2);
+		for (byte tokenByte : tokenBytes) {
+			token.append(Character.forDigit((tokenByte >> 4) & 0xF, 16))
+				.append(Character.forDigit(tokenByte & 0xF, 16));
+		}
+		return token.toString();
+	}
+
+	/**
+	 * Tell if a token matches the token of the daemon. The comparison takes
+	 * the same time regardless of where the tokens differ.
+	 */
+	static boolean isToken(String token, String daemonToken) {
+		return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+			daemonToken.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Write a token file which only the current user can read and write. An
+	 * existing token file is replaced. The file is created as a new file,
+	 * which prevents writing the token through a link which was placed at the
+	 * location of the token file.
+	 */
+	static void writeToken(File tokenFile, String token) throws IOException {
+		Path tokenPath = tokenFile.toPath();
+		Path parentPath = tokenPath.toAbsolutePath()
+			.getParent();
+		if (!Files.isDirectory(parentPath)) {
+			if (isPosix(parentPath.getParent())) {
+				Files.createDirectories(parentPath,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			} else {
+				Files.createDirectories(parentPath);
+			}
+		}
+
+		Files.deleteIfExists(tokenPath);
+		if (isPosix(parentPath)) {
+			Files.createFile(tokenPath,
+				PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} else {
+			Files.createFile(tokenPath);
+			File file = tokenPath.toFile();
+			file.setReadable(false, false);
+			file.setReadable(true, true);
+			file.setWritable(false, false);
+			file.setWritable(true, true);
+		}
+		Files.write(tokenPath, token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static boolean isPosix(Path path) {
+		Path usePath = path;
+		while ((usePath != null) && !Files.exists(usePath)) {
+			usePath = usePath.getParent();
+		}
+		if (usePath == null) {
+			return false;
+		}
+		try {
+			return Files.getFileStore(usePath)
+				.supportsFileAttributeView("posix");
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read a token file.
+	 *
+	 * @throws java.nio.file.NoSuchFileException Thrown if the token file
+	 *             does not exist, which usually means that no daemon is
+	 *             running.
+	 */
+	static String readToken(File tokenFile) throws IOException {
+		return new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8).trim();
+	}
+}
@@ -11,6 +11,8 @@
 
 package org.eclipse.transformer.jakarta;
 
+import java.net.ConnectException;
+import java.nio.file.NoSuchFileException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,6 +24,20 @@ import org.osgi.annotation.bundle.Header;
 public class JakartaTransformer {
 
 	public static void main(String[] args) throws Exception {
+		// When a daemon port is set, the transformation is run by the daemon.
+		// The transformation is run in this process if no daemon is
+		// listening on the port, or if the daemon has no token file.
+		Integer daemonPort = TransformerClient.getConfiguredPort();
+		if (daemonPort != null) {
+			try {
+				@SuppressWarnings("unused")
+				int rc = new TransformerClient(daemonPort.intValue()).run(args, System.out, System.err);
+				return;
+			} catch (ConnectException | NoSuchFileException e) {
+				System.err.println("Transformer daemon is not listening on port [ " + daemonPort + " ]");
+			}
+		}
+
 		Transformer jTrans = new Transformer(System.out, System.err);
 		jTrans.setOptionDefaults(JakartaTransformer.class, getOptionDefaults());
 		jTrans.setArgs(args);
@@ -0,0 +1,170 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.jakarta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Client of {@link TransformerDaemon}. The client sends a transformer command
+ * line to the daemon, and copies the output of the transformation to the
+ * output streams of the client.
+ * <p>
+ * Each request carries the token of the daemon, which the client reads from
+ * the token file of the daemon. Only the user who started the daemon can read
+ * the token file.
+ */
+public class TransformerClient {
+	/**
+	 * System property which enables the use of a daemon by
+	 * {@link JakartaTransformer#main(String[])}. The value is the port of the
+	 * daemon.
+	 */
+	public static final String PORT_PROPERTY = "org.eclipse.transformer.daemon.port";
+
+	/**
+	 * Answer the daemon port which is set by the port system property.
+	 *
+	 * @return The daemon port. Null if no daemon is to be used.
+	 * @throws NumberFormatException Thrown if the port is not a number.
+	 */
+	public static Integer getConfiguredPort() {
+		String portText = System.getProperty(PORT_PROPERTY);
+		if ((portText == null) || portText.trim()
+			.isEmpty()) {
+			return null;
+		}
+		return Integer.valueOf(portText.trim());
+	}
+
+	/**
+	 * System property which sets the directory of the daemon token files.
+	 * When not set, token files are placed in the ".transformer" directory of
+	 * the home directory of the user.
+	 */
+	public static final String TOKEN_DIRECTORY_PROPERTY = "org.eclipse.transformer.daemon.tokenDirectory";
+
+	/**
+	 * Answer the token file of the daemon which listens on a port.
+	 *
+	 * @param port The port of the daemon.
+	 * @return The token file of the daemon.
+	 */
+	public static File getTokenFile(int port) {
+		String tokenDirectory = System.getProperty(TOKEN_DIRECTORY_PROPERTY);
+		if ((tokenDirectory == null) || tokenDirectory.trim()
+			.isEmpty()) {
+			tokenDirectory = new File(System.getProperty("user.home"), ".transformer").getPath();
+		}
+		return new File(tokenDirectory, "daemon-" + port + ".token");
+	}
+
+	public TransformerClient(int port) {
+		this(port, getTokenFile(port));
+	}
+
+	public TransformerClient(int port, File tokenFile) {
+		this.port = port;
+		this.tokenFile = tokenFile;
+	}
+
+	private final int	port;
+	private final File	tokenFile;
+
+	public int getPort() {
+		return port;
+	}
+
+	public File getTokenFile() {
+		return tokenFile;
+	}
+
+	/**
+	 * Run a transformation using the daemon.
+	 *
+	 * @param args The transformer command line. Relative paths are resolved
+	 *            against the working directory of the client.
+	 * @param sysOut Stream to which to copy the output of the transformation.
+	 * @param sysErr Stream to which to copy the errors of the transformation.
+	 * @return The return code of the transformation.
+	 * @throws java.net.ConnectException Thrown if no daemon is listening on
+	 *             the port of the client.
+	 * @throws java.nio.file.NoSuchFileException Thrown if the token file of
+	 *             the daemon does not exist.
+	 * @throws IOException Thrown if the daemon failed to complete the
+	 *             transformation.
+	 */
+	public int run(String[] args, PrintStream sysOut, PrintStream sysErr) throws IOException {
+		return send(DaemonProtocol.REQUEST_TRANSFORM, args, sysOut, sysErr);
+	}
+
+	/**
+	 * Stop the daemon. Transformations which are in progress are completed.
+	 *
+	 * @throws IOException Thrown if the daemon could not be stopped.
+	 */
+	public void stop() throws IOException {
+		send(DaemonProtocol.REQUEST_STOP, new String[0], System.out, System.err);
+	}
+
+	protected int send(byte requestType, String[] args, PrintStream sysOut, PrintStream sysErr) throws IOException {
+		String token = DaemonProtocol.readToken(tokenFile);
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			request.writeInt(DaemonProtocol.MAGIC);
+			request.writeUTF(token);
+			request.writeByte(requestType);
+			request.writeUTF(System.getProperty("user.dir"));
+			request.writeInt(args.length);
+			for (String arg : args) {
+				request.writeUTF(arg);
+			}
+			request.flush();
+
+			DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			byte[] frameBytes = new byte[8 * 1024];
+			while (true) {
+				byte frameType = response.readByte(); // throws EOFException
+				if (frameType == DaemonProtocol.FRAME_RC) {
+					sysOut.flush();
+					sysErr.flush();
+					return response.readInt();
+				}
+
+				int frameLength = response.readInt();
+				if ((frameLength < 0) || (frameLength > DaemonProtocol.MAX_FRAME_LENGTH)) {
+					throw new IOException("Incorrect frame length [ " + frameLength + " ]");
+				}
+				if (frameLength > frameBytes.length) {
+					frameBytes = new byte[frameLength];
+				}
+				response.readFully(frameBytes, 0, frameLength);
+
+				if (frameType == DaemonProtocol.FRAME_OUT) {
+					sysOut.write(frameBytes, 0, frameLength);
+				} else if (frameType == DaemonProtocol.FRAME_ERR) {
+					sysErr.write(frameBytes, 0, frameLength);
+				} else {
+					throw new IOException("Incorrect frame type [ " + frameType + " ]");
+				}
+			}
+		}
+	}
+}
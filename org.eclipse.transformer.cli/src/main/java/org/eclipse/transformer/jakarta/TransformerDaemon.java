@@ -0,0 +1,386 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.jakarta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+import org.eclipse.transformer.RuleSet;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.Transformer.AppOption;
+import org.eclipse.transformer.util.BoundedCache;
+
+/**
+ * Long running transformer, which accepts transformation requests from
+ * {@link TransformerClient}.
+ * <p>
+ * The daemon listens on a loopback address only. Each request is a
+ * transformer command line, which is run by the daemon as the user which
+ * started the daemon. The daemon generates a random token when it is started,
+ * and writes the token to a file which only that user can read. Requests which
+ * do not present the token are rejected. The token file is removed when the
+ * daemon is closed. Relative paths of the request, including the paths of a
+ * batch file, are resolved against the working directory of the client.
+ * Watch requests are rejected. The output of the transformation, including
+ * its logging, is streamed to the client, followed by the return code of the
+ * transformation.
+ * <p>
+ * Rules are kept between requests, keyed by the rules options of the
+ * requests. Requests which select the same rules share the rules and their
+ * signature caches.
+ */
+public class TransformerDaemon implements Closeable {
+	/** Port used by the daemon and the client when no port is specified. */
+	public static final int		DEFAULT_PORT			= 9911;
+
+	/** Count of rule sets which are kept by the daemon. */
+	public static final int		RULE_SETS_CAPACITY		= 16;
+
+	/** Time allowed for a client to send a request, in milliseconds. */
+	public static final int		REQUEST_TIMEOUT			= 30 * 1000;
+
+	private static final String	TRANSFORMER_ENCODING	= "UTF-8";
+
+	public static void main(String[] args) throws Exception {
+		int port = ((args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+		int threads = ((args.length > 1) ? Integer.parseInt(args[1])
+			: Runtime.getRuntime()
+				.availableProcessors());
+
+		try (TransformerDaemon daemon = new TransformerDaemon(JakartaTransformer.class,
+			JakartaTransformer.getOptionDefaults(), port, threads)) {
+			System.out.println("Transformer daemon listening on [ " + daemon.getAddress() + " ] Token file [ "
+				+ daemon.getTokenFile() + " ]");
+			daemon.serve();
+		}
+	}
+
+	public TransformerDaemon(Class<?> optionLoader, Map<AppOption, String> optionDefaults, int port, int threads)
+		throws IOException {
+		this(optionLoader, optionDefaults, port, threads, null);
+	}
+
+	/**
+	 * Create a daemon.
+	 *
+	 * @param optionLoader Class used to load the default rules.
+	 * @param optionDefaults Default rules options.
+	 * @param port The port on which to listen. Zero selects any free port.
+	 * @param threads The count of requests which are run concurrently.
+	 * @param tokenFile The file to which the token of the daemon is written.
+	 *            Null to use {@link TransformerClient#getTokenFile(int)}.
+	 * @throws IOException Thrown if the daemon could not listen on the port,
+	 *             or if the token file could not be written.
+	 */
+	public TransformerDaemon(Class<?> optionLoader, Map<AppOption, String> optionDefaults, int port, int threads,
+		File tokenFile) throws IOException {
+
+		this.optionLoader = optionLoader;
+		this.optionDefaults = optionDefaults;
+
+		this.ruleSets = new BoundedCache<>("Rule sets", RULE_SETS_CAPACITY, 1);
+
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+		this.token = DaemonProtocol.newToken();
+		this.tokenFile = ((tokenFile == null) ? TransformerClient.getTokenFile(getPort()) : tokenFile);
+		try {
+			DaemonProtocol.writeToken(this.tokenFile, this.token);
+		} catch (IOException e) {
+			serverSocket.close();
+			throw e;
+		}
+
+		this.executor = Executors.newFixedThreadPool(threads, (Runnable runnable) -> {
+			Thread thread = new Thread(runnable, "transformer-daemon");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private final Class<?>					optionLoader;
+	private final Map<AppOption, String>	optionDefaults;
+
+	private final ServerSocket				serverSocket;
+	private final String					token;
+	private final File						tokenFile;
+	private final ExecutorService			executor;
+	private volatile boolean				isClosed;
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public File getTokenFile() {
+		return tokenFile;
+	}
+
+	public String getAddress() {
+		return serverSocket.getInetAddress()
+			.getHostAddress() + ':' + getPort();
+	}
+
+	/**
+	 * Accept requests until the daemon is closed, either by
+	 * {@link #close()}, or by a stop request.
+	 *
+	 * @throws IOException Thrown if accepting a request failed.
+	 */
+	public void serve() throws IOException {
+		while (!isClosed) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (SocketException e) {
+				if (isClosed) {
+					break;
+				}
+				throw e;
+			}
+			executor.execute(() -> handle(socket));
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		isClosed = true;
+		try {
+			Files.deleteIfExists(tokenFile.toPath());
+		} finally {
+			serverSocket.close();
+			executor.shutdown();
+		}
+	}
+
+	protected void handle(Socket socket) {
+		try (Socket useSocket = socket) {
+			useSocket.setSoTimeout(REQUEST_TIMEOUT);
+
+			DataInputStream request = new DataInputStream(new BufferedInputStream(useSocket.getInputStream()));
+			DataOutputStream response = new DataOutputStream(new BufferedOutputStream(useSocket.getOutputStream()));
+
+			if (request.readInt() != DaemonProtocol.MAGIC) {
+				return;
+			}
+			if (!DaemonProtocol.isToken(request.readUTF(), token)) {
+				DaemonProtocol.writeError(response, "Request rejected: Incorrect daemon token",
+					Transformer.PARSE_ERROR_RC);
+				return;
+			}
+			byte requestType = request.readByte();
+			File workingDirectory = new File(request.readUTF());
+			int argCount = request.readInt();
+			if ((argCount < 0) || (argCount > DaemonProtocol.MAX_FRAME_LENGTH)) {
+				return;
+			}
+			String[] args = new String[argCount];
+			for (int argNo = 0; argNo < argCount; argNo++) {
+				args[argNo] = request.readUTF();
+			}
+
+			if (requestType == DaemonProtocol.REQUEST_STOP) {
+				DaemonProtocol.writeRc(response, Transformer.SUCCESS_RC);
+				close();
+				return;
+			} else if (requestType != DaemonProtocol.REQUEST_TRANSFORM) {
+				return;
+			}
+
+			int rc;
+			try (PrintStream sysOut = newPrintStream(response, DaemonProtocol.FRAME_OUT);
+				PrintStream sysErr = newPrintStream(response, DaemonProtocol.FRAME_ERR)) {
+				try {
+					rc = transform(workingDirectory, args, sysOut, sysErr);
+				} catch (RuntimeException e) {
+					sysErr.println("Unexpected failure:");
+					e.printStackTrace(sysErr);
+					rc = Transformer.TRANSFORM_ERROR_RC;
+				}
+			}
+			DaemonProtocol.writeRc(response, rc);
+
+		} catch (IOException e) {
+			// The client went away, or sent an incomplete request: There is
+			// no one to which to report the failure.
+		}
+	}
+
+	private static PrintStream newPrintStream(DataOutputStream response, byte frameType)
+		throws UnsupportedEncodingException {
+		return new PrintStream(
+			new BufferedOutputStream(new DaemonProtocol.FrameOutputStream(response, frameType)), true,
+			TRANSFORMER_ENCODING);
+	}
+
+	//
+
+	private final BoundedCache<String, RuleSet> ruleSets;
+
+	/**
+	 * Answer the rule sets which are kept by the daemon. The cache statistics
+	 * tell how many requests used kept rules.
+	 *
+	 * @return The rule sets which are kept by the daemon.
+	 */
+	public BoundedCache<String, RuleSet> getRuleSets() {
+		return ruleSets;
+	}
+
+	/**
+	 * Run a transformation. Rules which were kept from an earlier
+	 * transformation are used if the transformation selects the same rules.
+	 *
+	 * @param workingDirectory The directory against which relative paths of
+	 *            the arguments are resolved.
+	 * @param args The transformer command line.
+	 * @param sysOut The stream to which the transformation writes output.
+	 * @param sysErr The stream to which the transformation writes errors.
+	 * @return The return code of the transformation.
+	 */
+	public int transform(File workingDirectory, String[] args, PrintStream sysOut, PrintStream sysErr) {
+		Transformer transformer = new Transformer(sysOut, sysErr);
+		transformer.setOptionDefaults(optionLoader, optionDefaults);
+		// Requests are run concurrently: Each request logs to its own
+		// streams, using its own logging options.
+		transformer.setIsolatedLogging(true);
+
+		// Relative paths of a batch file are resolved against the working
+		// directory of the client, as are the paths of the command line.
+		transformer.setBatchDirectory(workingDirectory);
+
+		String rulesKey;
+		try {
+			String[] resolvedArgs = resolveArgs(workingDirectory, args);
+			if (hasOption(resolvedArgs, AppOption.WATCH)) {
+				// A watch never completes: It would hold a request thread
+				// until the daemon process ends.
+				sysErr.println("The daemon does not accept watch requests");
+				return Transformer.PARSE_ERROR_RC;
+			}
+			transformer.setArgs(resolvedArgs);
+			transformer.setParsedArgs();
+			rulesKey = transformer.getRulesKey();
+		} catch (ParseException e) {
+			// Let the transformer report the parse failure.
+			transformer.setArgs(args);
+			rulesKey = null;
+		}
+
+		if (rulesKey != null) {
+			transformer.setRuleSet(ruleSets.get(rulesKey));
+		}
+
+		int rc;
+		try {
+			rc = transformer.run();
+		} finally {
+			transformer.closeLogger();
+		}
+
+		RuleSet lastRuleSet = transformer.getLastRuleSet();
+		if ((rulesKey != null) && (lastRuleSet != null)) {
+			ruleSets.put(rulesKey, lastRuleSet);
+		}
+		return rc;
+	}
+
+	//
+
+	private static final AppOption[]	PATH_OPTIONS	= {
+		AppOption.RULES_SELECTIONS, AppOption.RULES_RENAMES, AppOption.RULES_VERSIONS, AppOption.RULES_BUNDLES,
+		AppOption.RULES_DIRECT, AppOption.RULES_MASTER_TEXT, AppOption.RULES_PER_CLASS_CONSTANT,
+		AppOption.RULES_COMPILED, AppOption.COMPILE_RULES, AppOption.LOG_PROPERTY_FILE, AppOption.LOG_FILE,
+		AppOption.CACHE_DIRECTORY, AppOption.BATCH, AppOption.TIMINGS
+	};
+
+	// A URL scheme. Single letters are not matched, as these are usually
+	// windows drive letters.
+	private static final Pattern		URL_PATTERN		= Pattern.compile("[a-zA-Z][a-zA-Z0-9+.-]+:.*");
+
+	/**
+	 * Resolve the paths of a command line against a working directory. The
+	 * input and output arguments and the values of options which name files
+	 * are resolved.
+	 *
+	 * @param workingDirectory The directory against which to resolve paths.
+	 * @param args The command line.
+	 * @return The command line with resolved paths.
+	 * @throws ParseException Thrown if the command line cannot be parsed.
+	 */
+	public static String[] resolveArgs(File workingDirectory, String[] args) throws ParseException {
+		CommandLine parsedArgs = new DefaultParser().parse(AppOption.build(), args);
+
+		List<String> resolvedArgs = new ArrayList<>(args.length);
+		for (String arg : parsedArgs.getArgs()) {
+			resolvedArgs.add(resolvePath(workingDirectory, arg));
+		}
+
+		for (Option option : parsedArgs.getOptions()) {
+			resolvedArgs.add('-' + option.getOpt());
+			String[] values = option.getValues();
+			if (values == null) {
+				continue;
+			}
+			boolean isPath = isPathOption(option.getOpt());
+			for (String value : values) {
+				resolvedArgs.add(isPath ? resolvePath(workingDirectory, value) : value);
+			}
+		}
+
+		return resolvedArgs.toArray(new String[0]);
+	}
+
+	private static boolean hasOption(String[] args, AppOption option) throws ParseException {
+		return new DefaultParser().parse(AppOption.build(), args)
+			.hasOption(option.getShortTag());
+	}
+
+	private static boolean isPathOption(String shortTag) {
+		for (AppOption pathOption : PATH_OPTIONS) {
+			if (pathOption.getShortTag()
+				.equals(shortTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String resolvePath(File workingDirectory, String path) {
+		if (new File(path).isAbsolute() || URL_PATTERN.matcher(path)
+			.matches()) {
+			return path;
+		}
+		return new File(workingDirectory, path).getPath();
+	}
+}
@@ -11,13 +11,30 @@
 
 package transformer.test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.eclipse.transformer.BatchResult;
+import org.eclipse.transformer.RuleSet;
 import org.eclipse.transformer.Transformer;
 import org.eclipse.transformer.Transformer.TransformOptions;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
 import org.eclipse.transformer.action.impl.JavaActionImpl;
 import org.eclipse.transformer.action.impl.ManifestActionImpl;
 import org.eclipse.transformer.jakarta.JakartaTransformer;
@@ -67,6 +84,160 @@ class TestCommandLine {
 		options.setLogging();
 	}
 
+	@Test
+	void testSharedRules() throws Exception {
+		String inputFileName = STATIC_CONTENT_DIR + '/' + "A.java";
+		String outputFileName = DYNAMIC_CONTENT_DIR + '/' + "A.java";
+
+		Transformer t = new Transformer(System.out, System.err);
+		t.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+
+		String[] args = new String[] {
+			inputFileName, outputFileName, "-o"
+		};
+
+		t.setArgs(args);
+		assertEquals(Transformer.SUCCESS_RC, t.run(), "first transform failed");
+		RuleSet ruleSet = t.getLastRuleSet();
+		assertNotNull(ruleSet, "rules not recorded");
+
+		// A second transform which is given the rules of the first transform
+		// uses those rules instead of loading new rules.
+		t.setRuleSet(ruleSet);
+		t.setArgs(args);
+		assertEquals(Transformer.SUCCESS_RC, t.run(), "second transform failed");
+		assertSame(ruleSet, t.getLastRuleSet(), "rules not shared");
+		assertTrue((new File(outputFileName)).exists(), "output file not created");
+	}
+
+	@Test
+	void testBatch() throws Exception {
+		String batchFileName = DYNAMIC_CONTENT_DIR + '/' + "batch.properties";
+		try (PrintWriter batchWriter = new PrintWriter(batchFileName, "UTF-8")) {
+			batchWriter.println(STATIC_CONTENT_DIR + "/A.java=" + DYNAMIC_CONTENT_DIR + "/batch/A.java");
+			batchWriter.println(STATIC_CONTENT_DIR + "/MANIFEST.MF=" + DYNAMIC_CONTENT_DIR + "/batch/MANIFEST.MF");
+		}
+
+		Transformer t = new Transformer(System.out, System.err);
+		t.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+		t.setArgs(new String[] {
+			"-b", batchFileName, "-th", "2", "-o"
+		});
+		assertEquals(Transformer.SUCCESS_RC, t.run(), "batch failed");
+
+		List<BatchResult> results = t.getLastBatchResults();
+		assertEquals(2, results.size(), "incorrect batch results " + results);
+		for (BatchResult result : results) {
+			assertTrue(result.isSuccess(), "batch input failed " + result);
+			assertTrue((new File(result.getOutputName())).exists(), "output file not created " + result);
+		}
+		assertEquals(2, t.getLastBatchChanges()
+			.getAllResources(), "incorrect batch changes");
+	}
+
+	@Test
+	void testBatchTimings() throws Exception {
+		String timingsDirName = DYNAMIC_CONTENT_DIR + '/' + "timings";
+		TestUtils.verifyDirectory(timingsDirName, TestUtils.DO_CREATE, "timings");
+
+		String batchFileName = timingsDirName + '/' + "batch.properties";
+		int inputCount = 4;
+		try (PrintWriter batchWriter = new PrintWriter(batchFileName, "UTF-8")) {
+			for (int inputNo = 0; inputNo < inputCount; inputNo++) {
+				File inputFile = new File(timingsDirName, "input" + inputNo + ".jar");
+				writeServiceJar(inputFile);
+				batchWriter.println(inputFile.getPath() + "=" + timingsDirName + "/output" + inputNo + ".jar");
+			}
+		}
+
+		// Timings of earlier runs are replaced.
+		File timingsFile = new File(timingsDirName, "timings.json");
+		Files.write(timingsFile.toPath(), "stale\n".getBytes(StandardCharsets.UTF_8));
+
+		Transformer t = new Transformer(System.out, System.err);
+		t.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+		t.setArgs(new String[] {
+			"-b", batchFileName, "-th", "2", "-tm", timingsFile.getPath(), "-o"
+		});
+		assertEquals(Transformer.SUCCESS_RC, t.run(), "batch failed");
+
+		// The timings of every input are written, in the order of the inputs.
+		List<String> timingsLines = Files.readAllLines(timingsFile.toPath(), StandardCharsets.UTF_8);
+		assertEquals(inputCount, timingsLines.size(), "incorrect timings " + timingsLines);
+		for (int inputNo = 0; inputNo < inputCount; inputNo++) {
+			assertTrue(timingsLines.get(inputNo)
+				.contains("input" + inputNo + ".jar"), "incorrect timings " + timingsLines.get(inputNo));
+		}
+	}
+
+	private void writeServiceJar(File jarFile) throws IOException {
+		try (ZipOutputStream zipOutput = new ZipOutputStream(new FileOutputStream(jarFile))) {
+			zipOutput.putNextEntry(new ZipEntry("META-INF/services/javax.servlet.Service"));
+			zipOutput.write("javax.servlet.ServiceImpl\n".getBytes(StandardCharsets.UTF_8));
+			zipOutput.closeEntry();
+		}
+	}
+
+	@Test
+	void testCachedTransform() throws Exception {
+		String cacheDirName = DYNAMIC_CONTENT_DIR + '/' + "cache";
+		TestUtils.verifyDirectory(cacheDirName, TestUtils.DO_CREATE, "cache");
+		File resultsDir = new File(cacheDirName, "results");
+		if (resultsDir.isDirectory()) {
+			for (File resultFile : resultsDir.listFiles()) {
+				resultFile.delete();
+			}
+		}
+
+		File inputFile = new File(cacheDirName, "input.jar");
+		writeServiceJar(inputFile);
+		File outputFile = new File(cacheDirName, "output.jar");
+
+		String[] args = new String[] {
+			inputFile.getPath(), outputFile.getPath(), "-o", "-cd", resultsDir.getPath()
+		};
+
+		// The first run transforms the input, and stores the result.
+		ByteArrayOutputStream firstLog = new ByteArrayOutputStream();
+		Transformer firstTransformer = newLoggedTransformer(firstLog);
+		firstTransformer.setArgs(args);
+		assertEquals(Transformer.SUCCESS_RC, firstTransformer.run(), "first transform failed");
+		assertFalse(firstLog.toString()
+			.contains("Cache hit"), "unexpected cache hit " + firstLog);
+		byte[] firstOutput = Files.readAllBytes(outputFile.toPath());
+		ContainerChangesImpl firstChanges = (ContainerChangesImpl) firstTransformer.getLastActiveChanges();
+
+		// The second run restores the result, and displays the restored
+		// changes.
+		assertTrue(outputFile.delete(), "output file not deleted");
+		ByteArrayOutputStream secondLog = new ByteArrayOutputStream();
+		Transformer secondTransformer = newLoggedTransformer(secondLog);
+		secondTransformer.setArgs(args);
+		assertEquals(Transformer.SUCCESS_RC, secondTransformer.run(), "second transform failed");
+		assertTrue(secondLog.toString()
+			.contains("Cache hit"), "no cache hit " + secondLog);
+		assertArrayEquals(firstOutput, Files.readAllBytes(outputFile.toPath()), "restored output differs");
+
+		ContainerChangesImpl secondChanges = (ContainerChangesImpl) secondTransformer.getLastActiveChanges();
+		assertEquals(firstChanges.getAllResources(), secondChanges.getAllResources(), "resources differ");
+		assertEquals(1, secondChanges.getAllChanged(), "incorrect changes");
+		assertEquals(firstChanges.getAllChanged(), secondChanges.getAllChanged(), "changes differ");
+
+		String report = "input.jar ] as [ " + outputFile.getAbsolutePath() + " ]: Changed";
+		assertTrue(firstLog.toString()
+			.contains(report), "change report not displayed " + firstLog);
+		assertTrue(secondLog.toString()
+			.contains(report), "restored change report not displayed " + secondLog);
+	}
+
+	private Transformer newLoggedTransformer(ByteArrayOutputStream log) {
+		PrintStream logStream = new PrintStream(log, true);
+		Transformer t = new Transformer(logStream, logStream);
+		t.setOptionDefaults(JakartaTransformer.class, JakartaTransformer.getOptionDefaults());
+		t.setIsolatedLogging(true);
+		return t;
+	}
+
 	private void verifyAction(String actionClassName, String inputFileName, String outputFileName) throws Exception {
 		Transformer t = new Transformer(System.out, System.err);
 
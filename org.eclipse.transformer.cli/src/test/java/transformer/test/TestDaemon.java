@@ -0,0 +1,154 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.jakarta.JakartaTransformer;
+import org.eclipse.transformer.jakarta.TransformerClient;
+import org.eclipse.transformer.jakarta.TransformerDaemon;
+import org.junit.jupiter.api.Test;
+
+class TestDaemon {
+
+	private static final String	STATIC_CONTENT_DIR	= "src/test/data/command-line";
+	private static final String	DYNAMIC_CONTENT_DIR	= "target/test/data/daemon";
+
+	@Test
+	void testDaemon() throws Exception {
+		TestUtils.verifyDirectory(DYNAMIC_CONTENT_DIR, TestUtils.DO_CREATE, "dynamic content");
+
+		File tokenFile = new File(DYNAMIC_CONTENT_DIR, "daemon.token");
+		TransformerDaemon daemon = new TransformerDaemon(JakartaTransformer.class,
+			JakartaTransformer.getOptionDefaults(), 0, 2, tokenFile);
+		Thread daemonThread = new Thread(() -> {
+			try {
+				daemon.serve();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, "test-daemon");
+		daemonThread.start();
+
+		try {
+			assertTrue(tokenFile.exists(), "token file not created");
+
+			// Requests without the daemon token are rejected, including stop
+			// requests.
+
+			File wrongTokenFile = new File(DYNAMIC_CONTENT_DIR, "wrong.token");
+			Files.write(wrongTokenFile.toPath(), "wrong".getBytes(StandardCharsets.UTF_8));
+			TransformerClient wrongClient = new TransformerClient(daemon.getPort(), wrongTokenFile);
+
+			String rejectedOutputFileName = DYNAMIC_CONTENT_DIR + '/' + "rejected.java";
+			new File(rejectedOutputFileName).delete();
+			ByteArrayOutputStream errors = new ByteArrayOutputStream();
+			int rejectedRc = wrongClient.run(new String[] {
+				STATIC_CONTENT_DIR + '/' + "A.java", rejectedOutputFileName, "-o"
+			}, System.out, new PrintStream(errors, true));
+			assertEquals(Transformer.PARSE_ERROR_RC, rejectedRc, "request not rejected");
+			assertTrue(errors.toString()
+				.contains("Incorrect daemon token"), "rejection not reported");
+			assertTrue(!(new File(rejectedOutputFileName)).exists(), "rejected request was run");
+
+			wrongClient.stop();
+			assertTrue(daemonThread.isAlive(), "daemon stopped by a rejected request");
+
+			TransformerClient client = new TransformerClient(daemon.getPort(), tokenFile);
+
+			// Each request logs to its own streams, using its own logging
+			// options: The first request turns off logging, which must not
+			// change the logging of the second request.
+			for (int requestNo = 0; requestNo < 2; requestNo++) {
+				String outputFileName = DYNAMIC_CONTENT_DIR + '/' + "A" + requestNo + ".java";
+				String[] logArgs = ((requestNo == 0) ? new String[] {
+					"-ll", "off"
+				} : new String[0]);
+
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				PrintStream outputStream = new PrintStream(output, true);
+				int rc = client.run(concat(new String[] {
+					STATIC_CONTENT_DIR + '/' + "A.java", outputFileName, "-o"
+				}, logArgs), outputStream, outputStream);
+
+				assertEquals(Transformer.SUCCESS_RC, rc, "transform failed");
+				assertTrue(output.toString()
+					.contains("Copyright"), "output not streamed");
+				assertEquals(requestNo != 0, output.toString()
+					.contains("A" + requestNo + ".java ]: Changed"), "incorrect change report " + output);
+				assertTrue((new File(outputFileName)).exists(), "output file not created");
+			}
+
+			// Failures are reported to the client.
+			ByteArrayOutputStream failureErrors = new ByteArrayOutputStream();
+			int failureRc = client.run(new String[] {
+				STATIC_CONTENT_DIR + '/' + "Missing.java", DYNAMIC_CONTENT_DIR + '/' + "Missing.java", "-o"
+			}, System.out, new PrintStream(failureErrors, true));
+			assertEquals(Transformer.TRANSFORM_ERROR_RC, failureRc, "missing input not detected");
+			assertTrue(failureErrors.toString()
+				.contains("Input does not exist"), "failure not reported " + failureErrors);
+
+			// Watch requests are rejected.
+			ByteArrayOutputStream watchErrors = new ByteArrayOutputStream();
+			int watchRc = client.run(new String[] {
+				STATIC_CONTENT_DIR, DYNAMIC_CONTENT_DIR + '/' + "watch", "-w"
+			}, System.out, new PrintStream(watchErrors, true));
+			assertEquals(Transformer.PARSE_ERROR_RC, watchRc, "watch request not rejected");
+			assertTrue(watchErrors.toString()
+				.contains("does not accept watch requests"), "watch rejection not reported " + watchErrors);
+
+			// Later requests use the rules of the first request.
+			assertEquals(2, daemon.getRuleSets()
+				.getHits(), "rules not kept");
+
+			// Relative paths of a batch file are resolved against the
+			// working directory of the request.
+			File requestDirectory = new File(DYNAMIC_CONTENT_DIR, "request");
+			TestUtils.verifyDirectory(requestDirectory.getPath(), TestUtils.DO_CREATE, "request");
+			Files.copy(new File(STATIC_CONTENT_DIR, "A.java").toPath(), new File(requestDirectory, "A.java").toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+			File batchOutputFile = new File(requestDirectory, "batch/A.java");
+			batchOutputFile.delete();
+			Files.write(new File(requestDirectory, "batch.properties").toPath(),
+				"A.java=batch/A.java\n".getBytes(StandardCharsets.UTF_8));
+			int batchRc = daemon.transform(requestDirectory.getAbsoluteFile(), new String[] {
+				"-b", "batch.properties", "-o"
+			}, System.out, System.err);
+			assertEquals(Transformer.SUCCESS_RC, batchRc, "batch request failed");
+			assertTrue(batchOutputFile.exists(), "batch output not created in the request directory");
+
+			client.stop();
+			daemonThread.join(10000);
+			assertTrue(!daemonThread.isAlive(), "daemon not stopped");
+			assertTrue(!tokenFile.exists(), "token file not removed");
+
+		} finally {
+			daemon.close();
+		}
+	}
+
+	private static String[] concat(String[] args, String[] moreArgs) {
+		String[] allArgs = Arrays.copyOf(args, args.length + moreArgs.length);
+		System.arraycopy(moreArgs, 0, allArgs, args.length, moreArgs.length);
+		return allArgs;
+	}
+}
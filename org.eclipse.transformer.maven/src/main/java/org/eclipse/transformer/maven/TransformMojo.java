@@ -67,9 +67,15 @@ public class TransformMojo extends AbstractMojo {
 	@Parameter(defaultValue = "transformed")
 	private String				classifier;
 
+	@Parameter(defaultValue = "1", property = "transformer-plugin.threads")
+	private int					threads;
+
 	@Parameter(defaultValue = "${project.build.directory}", required = true)
 	private File				outputDirectory;
 
+	@Parameter(property = "transformer-plugin.cacheDirectory")
+	private File				cacheDirectory;
+
 	@Component
 	private MavenProjectHelper	projectHelper;
 
@@ -84,9 +90,13 @@ public class TransformMojo extends AbstractMojo {
 	public void execute() throws MojoFailureException {
 		final Transformer transformer = getTransformer();
 
+		// Rules are loaded by the first transformation, and are reused,
+		// with their caches, by later transformations.
+
 		final Artifact[] sourceArtifacts = getSourceArtifacts();
 		for (final Artifact sourceArtifact : sourceArtifacts) {
 			transform(transformer, sourceArtifact);
+			transformer.setRuleSet(transformer.getLastRuleSet());
 		}
 	}
 
@@ -117,6 +127,16 @@ public class TransformMojo extends AbstractMojo {
 			args.add("-o");
 		}
 
+		if (this.threads > 1) {
+			args.add("-th");
+			args.add(Integer.toString(this.threads));
+		}
+
+		if (this.cacheDirectory != null) {
+			args.add("-cd");
+			args.add(this.cacheDirectory.getAbsolutePath());
+		}
+
 		transformer.setArgs(args.toArray(new String[0]));
 		int rc = transformer.run();
 
@@ -205,4 +225,12 @@ public class TransformMojo extends AbstractMojo {
 	void setOutputDirectory(File outputDirectory) {
 		this.outputDirectory = outputDirectory;
 	}
+
+	void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	void setCacheDirectory(File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
 }
@@ -0,0 +1,124 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer;
+
+import org.eclipse.transformer.action.Changes;
+
+/**
+ * Result of the transformation of one input of a batch.
+ */
+public class BatchResult {
+	public BatchResult(String inputName, String outputName, String actionName, int rc, Changes changes,
+		Throwable failure) {
+		this(inputName, outputName, actionName, rc, changes, failure, null);
+	}
+
+	public BatchResult(String inputName, String outputName, String actionName, int rc, Changes changes,
+		Throwable failure, String timings) {
+		this.inputName = inputName;
+		this.outputName = outputName;
+		this.actionName = actionName;
+		this.rc = rc;
+		this.changes = changes;
+		this.failure = failure;
+		this.timings = timings;
+	}
+
+	private final String	inputName;
+	private final String	outputName;
+
+	public String getInputName() {
+		return inputName;
+	}
+
+	/**
+	 * Answer the name of the output of the input. Answer null if the output
+	 * name was not specified, in which case the output name was generated
+	 * from the input name.
+	 *
+	 * @return The name of the output of the input.
+	 */
+	public String getOutputName() {
+		return outputName;
+	}
+
+	private final String actionName;
+
+	/**
+	 * Answer the name of the action which was selected for the input. Answer
+	 * null if no action was selected.
+	 *
+	 * @return The name of the action which was selected for the input.
+	 */
+	public String getActionName() {
+		return actionName;
+	}
+
+	//
+
+	private final int		rc;
+	private final Changes	changes;
+	private final Throwable	failure;
+
+	/**
+	 * Answer the return code of the transformation of the input. This is one
+	 * of the return codes of {@link Transformer#run()}.
+	 *
+	 * @return The return code of the transformation of the input.
+	 */
+	public int getRc() {
+		return rc;
+	}
+
+	public boolean isSuccess() {
+		return (rc == Transformer.SUCCESS_RC);
+	}
+
+	/**
+	 * Answer the changes made by the transformation of the input. Answer null
+	 * if the input was not transformed.
+	 *
+	 * @return The changes made by the transformation of the input.
+	 */
+	public Changes getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Answer the exception which caused the transformation of the input to
+	 * fail. Answer null if the transformation succeeded, or failed without an
+	 * exception.
+	 *
+	 * @return The exception which caused the transformation to fail.
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	private final String timings;
+
+	/**
+	 * Answer the timings of the transformation of the input, as they are
+	 * written to the timings file. Answer null if no timings file was
+	 * specified, or if the input was not transformed.
+	 *
+	 * @return The timings of the transformation of the input.
+	 */
+	public String getTimings() {
+		return timings;
+	}
+
+	@Override
+	public String toString() {
+		return "Batch result [ " + inputName + " ] [ " + outputName + " ]: " + Transformer.RC_DESCRIPTIONS[rc];
+	}
+}
@@ -0,0 +1,227 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.transformer.action.BundleData;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.TransformCache;
+import org.slf4j.Logger;
+
+/**
+ * Compiled transformation rules.
+ * <p>
+ * A rule set holds the rules data which was loaded for a transformation, and
+ * the selection and signature rules which were compiled from that data. The
+ * rules data is not modified after the rule set is created.
+ * <p>
+ * A rule set may be used by many transformations, including transformations
+ * which run concurrently. Transformations which use the same rule set share
+ * the signature caches of the rule set.
+ */
+public class RuleSet {
+	public RuleSet(Logger logger, Set<String> includes, Set<String> excludes, boolean invert,
+		Map<String, String> packageRenames, Map<String, String> packageVersions,
+		Map<String, BundleData> bundleUpdates, Map<String, String> masterSubstitutionRefs,
+		Map<String, Map<String, String>> masterTextUpdates, Map<String, String> directStrings,
+		Map<String, Map<String, String>> perClassConstantStrings) {
+
+		this.includes = copySet(includes);
+		this.excludes = copySet(excludes);
+		this.invert = invert;
+		this.packageRenames = copyMap(packageRenames);
+		this.packageVersions = copyMap(packageVersions);
+		this.bundleUpdates = copyMap(bundleUpdates);
+		this.masterSubstitutionRefs = copyMap(masterSubstitutionRefs);
+		this.masterTextUpdates = copyMaps(masterTextUpdates);
+		this.directStrings = copyMap(directStrings);
+		this.perClassConstantStrings = copyMaps(perClassConstantStrings);
+
+		this.selectionRule = new SelectionRuleImpl(logger, this.includes, this.excludes);
+		this.signatureRule = new SignatureRuleImpl(logger, this.packageRenames, this.packageVersions,
+			this.bundleUpdates, this.masterTextUpdates, this.directStrings, this.perClassConstantStrings);
+
+		this.fingerprint = computeFingerprint();
+	}
+
+	private static Set<String> copySet(Set<String> set) {
+		return ((set == null) ? null : Collections.unmodifiableSet(new HashSet<>(set)));
+	}
+
+	private static <V> Map<String, V> copyMap(Map<String, V> map) {
+		return ((map == null) ? null : Collections.unmodifiableMap(new HashMap<>(map)));
+	}
+
+	private static Map<String, Map<String, String>> copyMaps(Map<String, Map<String, String>> maps) {
+		if (maps == null) {
+			return null;
+		}
+		Map<String, Map<String, String>> copy = new HashMap<>(maps.size());
+		for (Map.Entry<String, Map<String, String>> mapEntry : maps.entrySet()) {
+			copy.put(mapEntry.getKey(), copyMap(mapEntry.getValue()));
+		}
+		return Collections.unmodifiableMap(copy);
+	}
+
+	//
+
+	private final Set<String>						includes;
+	private final Set<String>						excludes;
+	private final boolean							invert;
+	private final Map<String, String>				packageRenames;
+	private final Map<String, String>				packageVersions;
+	private final Map<String, BundleData>			bundleUpdates;
+	private final Map<String, String>				masterSubstitutionRefs;
+	private final Map<String, Map<String, String>>	masterTextUpdates;
+	private final Map<String, String>				directStrings;
+	private final Map<String, Map<String, String>>	perClassConstantStrings;
+
+	public Set<String> getIncludes() {
+		return includes;
+	}
+
+	public Set<String> getExcludes() {
+		return excludes;
+	}
+
+	public boolean isInvert() {
+		return invert;
+	}
+
+	public Map<String, String> getPackageRenames() {
+		return packageRenames;
+	}
+
+	public Map<String, String> getPackageVersions() {
+		return packageVersions;
+	}
+
+	public Map<String, BundleData> getBundleUpdates() {
+		return bundleUpdates;
+	}
+
+	public Map<String, String> getMasterSubstitutionRefs() {
+		return masterSubstitutionRefs;
+	}
+
+	public Map<String, Map<String, String>> getMasterTextUpdates() {
+		return masterTextUpdates;
+	}
+
+	public Map<String, String> getDirectStrings() {
+		return directStrings;
+	}
+
+	public Map<String, Map<String, String>> getPerClassConstantStrings() {
+		return perClassConstantStrings;
+	}
+
+	//
+
+	private final SelectionRuleImpl	selectionRule;
+	private final SignatureRuleImpl	signatureRule;
+
+	public SelectionRuleImpl getSelectionRule() {
+		return selectionRule;
+	}
+
+	public SignatureRuleImpl getSignatureRule() {
+		return signatureRule;
+	}
+
+	//
+
+	private final String fingerprint;
+
+	/**
+	 * Answer a fingerprint of the rules data. The fingerprint is not sensitive
+	 * to the order in which rules were loaded.
+	 *
+	 * @return A fingerprint of the rules data.
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	private String computeFingerprint() {
+		StringBuilder rulesText = new StringBuilder();
+
+		appendRule(rulesText, "includes", includes);
+		appendRule(rulesText, "excludes", excludes);
+		appendRule(rulesText, "renames", packageRenames);
+		appendRule(rulesText, "versions", packageVersions);
+		appendRule(rulesText, "bundles", bundleUpdates);
+		appendRule(rulesText, "direct", directStrings);
+		appendRule(rulesText, "text", masterTextUpdates);
+		appendRule(rulesText, "perClassConstant", perClassConstantStrings);
+
+		MessageDigest digest = TransformCache.createDigest();
+		return TransformCache.toHex(digest.digest(rulesText.toString()
+			.getBytes(UTF_8)));
+	}
+
+	static void appendRule(StringBuilder rulesText, String ruleName, Object ruleData) {
+		rulesText.append(ruleName)
+			.append('=');
+		appendRuleData(rulesText, ruleData);
+		rulesText.append('\n');
+	}
+
+	private static void appendRuleData(StringBuilder rulesText, Object ruleData) {
+		// Values are length prefixed and collections are sorted, so that
+		// the text is unambiguous.
+		if (ruleData == null) {
+			rulesText.append('-');
+
+		} else if (ruleData instanceof Map) {
+			Map<String, Object> sortedData = new TreeMap<>();
+			for (Map.Entry<?, ?> dataEntry : ((Map<?, ?>) ruleData).entrySet()) {
+				sortedData.put(String.valueOf(dataEntry.getKey()), dataEntry.getValue());
+			}
+			rulesText.append('{');
+			for (Map.Entry<String, Object> dataEntry : sortedData.entrySet()) {
+				appendRuleData(rulesText, dataEntry.getKey());
+				appendRuleData(rulesText, dataEntry.getValue());
+			}
+			rulesText.append('}');
+
+		} else if (ruleData instanceof Set) {
+			Set<String> sortedData = new TreeSet<>();
+			for (Object dataElement : (Set<?>) ruleData) {
+				sortedData.add(String.valueOf(dataElement));
+			}
+			rulesText.append('[');
+			for (String dataElement : sortedData) {
+				appendRuleData(rulesText, dataElement);
+			}
+			rulesText.append(']');
+
+		} else {
+			String dataText = ((ruleData instanceof BundleData) ? ((BundleData) ruleData).getPrintString()
+				: ruleData.toString());
+			rulesText.append(dataText.length())
+				.append(':')
+				.append(dataText);
+		}
+	}
+}
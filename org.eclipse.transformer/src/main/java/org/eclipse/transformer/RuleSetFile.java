@@ -0,0 +1,298 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.transformer.action.BundleData;
+import org.eclipse.transformer.action.impl.BundleDataImpl;
+import org.slf4j.Logger;
+
+/**
+ * Binary storage of compiled transformation rules.
+ * <p>
+ * A compiled rules file holds the rules data of a rule set after the rules
+ * properties files were loaded and processed: Package renames are already
+ * inverted, bundle updates are already parsed, and text and per class
+ * constant substitutions are already loaded from the files which the master
+ * properties files reference. Reading a compiled rules file does not access
+ * any other file.
+ * <p>
+ * Compiled rules files are read fully, and are decoded without parsing any
+ * properties. The file format is specific to the transformer, and is not an
+ * interchange format: A file which has a different format version is
+ * rejected.
+ */
+public class RuleSetFile {
+	/** Marker which starts every compiled rules file: "TRRS". */
+	public static final int		MAGIC			= 0x54525253;
+
+	/** Format version of compiled rules files. */
+	public static final int		FORMAT_VERSION	= 1;
+
+	/** Conventional extension of compiled rules files. */
+	public static final String	EXTENSION		= ".rules";
+
+	private static final int	NULL_COUNT		= -1;
+
+	private RuleSetFile() {
+		// Static helpers only.
+	}
+
+	//
+
+	/**
+	 * Write the rules data of a rule set to a compiled rules file.
+	 *
+	 * @param ruleSet The rule set which is to be written.
+	 * @param file The file which is to be written.
+	 * @throws IOException Thrown if the file could not be written.
+	 */
+	public static void write(RuleSet ruleSet, File file) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(
+			new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			writeString(output, ruleSet.getFingerprint());
+
+			output.writeBoolean(ruleSet.isInvert());
+			writeSet(output, ruleSet.getIncludes());
+			writeSet(output, ruleSet.getExcludes());
+			writeMap(output, ruleSet.getPackageRenames());
+			writeMap(output, ruleSet.getPackageVersions());
+			writeBundles(output, ruleSet.getBundleUpdates());
+			writeMap(output, ruleSet.getMasterSubstitutionRefs());
+			writeMaps(output, ruleSet.getMasterTextUpdates());
+			writeMap(output, ruleSet.getDirectStrings());
+			writeMaps(output, ruleSet.getPerClassConstantStrings());
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(NULL_COUNT);
+		} else {
+			byte[] bytes = value.getBytes(UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	private static void writeSet(DataOutputStream output, Set<String> set) throws IOException {
+		if (set == null) {
+			output.writeInt(NULL_COUNT);
+			return;
+		}
+		output.writeInt(set.size());
+		for (String element : set) {
+			writeString(output, element);
+		}
+	}
+
+	private static void writeMap(DataOutputStream output, Map<String, String> map) throws IOException {
+		if (map == null) {
+			output.writeInt(NULL_COUNT);
+			return;
+		}
+		output.writeInt(map.size());
+		for (Map.Entry<String, String> mapEntry : map.entrySet()) {
+			writeString(output, mapEntry.getKey());
+			writeString(output, mapEntry.getValue());
+		}
+	}
+
+	private static void writeMaps(DataOutputStream output, Map<String, Map<String, String>> maps)
+		throws IOException {
+		if (maps == null) {
+			output.writeInt(NULL_COUNT);
+			return;
+		}
+		output.writeInt(maps.size());
+		for (Map.Entry<String, Map<String, String>> mapsEntry : maps.entrySet()) {
+			writeString(output, mapsEntry.getKey());
+			writeMap(output, mapsEntry.getValue());
+		}
+	}
+
+	private static void writeBundles(DataOutputStream output, Map<String, BundleData> bundles) throws IOException {
+		if (bundles == null) {
+			output.writeInt(NULL_COUNT);
+			return;
+		}
+		output.writeInt(bundles.size());
+		for (Map.Entry<String, BundleData> bundleEntry : bundles.entrySet()) {
+			BundleData bundleData = bundleEntry.getValue();
+			writeString(output, bundleEntry.getKey());
+			writeString(output, bundleData.getSymbolicName());
+			writeString(output, bundleData.getVersion());
+			output.writeBoolean(bundleData.getAddName());
+			writeString(output, bundleData.getName());
+			output.writeBoolean(bundleData.getAddDescription());
+			writeString(output, bundleData.getDescription());
+		}
+	}
+
+	//
+
+	/**
+	 * Read a rule set from a compiled rules file.
+	 *
+	 * @param logger The logger used by the rules of the rule set.
+	 * @param file The file which is to be read.
+	 * @return The rule set which was read from the file.
+	 * @throws IOException Thrown if the file could not be read, or is not a
+	 *             compiled rules file of the current format version.
+	 */
+	public static RuleSet read(Logger logger, File file) throws IOException {
+		// The file is read fully, not mapped: The rules are decoded right
+		// away, and, on windows, a mapped file cannot be rewritten until the
+		// mapping is collected.
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+		try {
+			return new Reader(buffer).readRuleSet(logger, file);
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Incorrectly formatted compiled rules [ " + file.getAbsolutePath() + " ]", e);
+		}
+	}
+
+	private static class Reader {
+		Reader(ByteBuffer buffer) {
+			this.buffer = buffer;
+			this.bytes = new byte[256];
+		}
+
+		private final ByteBuffer	buffer;
+		private byte[]				bytes;
+
+		RuleSet readRuleSet(Logger logger, File file) throws IOException {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a compiled rules file [ " + file.getAbsolutePath() + " ]");
+			}
+			int formatVersion = buffer.getInt();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Compiled rules file [ " + file.getAbsolutePath() + " ] has format version [ "
+					+ formatVersion + " ]; expected [ " + FORMAT_VERSION + " ]");
+			}
+			String fingerprint = readString();
+
+			boolean invert = (buffer.get() != 0);
+			Set<String> includes = readSet();
+			Set<String> excludes = readSet();
+			Map<String, String> packageRenames = readMap();
+			Map<String, String> packageVersions = readMap();
+			Map<String, BundleData> bundleUpdates = readBundles();
+			Map<String, String> masterSubstitutionRefs = readMap();
+			Map<String, Map<String, String>> masterTextUpdates = readMaps();
+			Map<String, String> directStrings = readMap();
+			Map<String, Map<String, String>> perClassConstantStrings = readMaps();
+
+			RuleSet ruleSet = new RuleSet(logger, includes, excludes, invert, packageRenames, packageVersions,
+				bundleUpdates, masterSubstitutionRefs, masterTextUpdates, directStrings, perClassConstantStrings);
+
+			if (!ruleSet.getFingerprint()
+				.equals(fingerprint)) {
+				throw new IOException("Compiled rules file [ " + file.getAbsolutePath() + " ] is corrupt");
+			}
+			return ruleSet;
+		}
+
+		private int readCount() {
+			int count = buffer.getInt();
+			if ((count < NULL_COUNT) || (count > buffer.remaining())) {
+				throw new IllegalArgumentException("Incorrect count [ " + count + " ]");
+			}
+			return count;
+		}
+
+		private String readString() {
+			int length = readCount();
+			if (length == NULL_COUNT) {
+				return null;
+			}
+			if (length > bytes.length) {
+				bytes = new byte[length];
+			}
+			buffer.get(bytes, 0, length);
+			return new String(bytes, 0, length, UTF_8);
+		}
+
+		private Set<String> readSet() {
+			int count = readCount();
+			if (count == NULL_COUNT) {
+				return null;
+			}
+			Set<String> set = new HashSet<>(count);
+			for (int elementNo = 0; elementNo < count; elementNo++) {
+				set.add(readString());
+			}
+			return set;
+		}
+
+		private Map<String, String> readMap() {
+			int count = readCount();
+			if (count == NULL_COUNT) {
+				return null;
+			}
+			Map<String, String> map = new HashMap<>(count);
+			for (int entryNo = 0; entryNo < count; entryNo++) {
+				map.put(readString(), readString());
+			}
+			return map;
+		}
+
+		private Map<String, Map<String, String>> readMaps() {
+			int count = readCount();
+			if (count == NULL_COUNT) {
+				return null;
+			}
+			Map<String, Map<String, String>> maps = new HashMap<>(count);
+			for (int entryNo = 0; entryNo < count; entryNo++) {
+				maps.put(readString(), readMap());
+			}
+			return maps;
+		}
+
+		private Map<String, BundleData> readBundles() {
+			int count = readCount();
+			if (count == NULL_COUNT) {
+				return null;
+			}
+			Map<String, BundleData> bundles = new HashMap<>(count);
+			for (int entryNo = 0; entryNo < count; entryNo++) {
+				String key = readString();
+				String symbolicName = readString();
+				String version = readString();
+				boolean addName = (buffer.get() != 0);
+				String name = readString();
+				boolean addDescription = (buffer.get() != 0);
+				String description = readString();
+				bundles.put(key,
+					new BundleDataImpl(symbolicName, version, addName, name, addDescription, description));
+			}
+			return bundles;
+		}
+	}
+}
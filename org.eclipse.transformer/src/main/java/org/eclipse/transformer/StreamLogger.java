@@ -0,0 +1,308 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MarkerIgnoringBase;
+import org.slf4j.helpers.MessageFormatter;
+import org.slf4j.spi.LocationAwareLogger;
+
+/**
+ * Logger which writes to a print stream, in the format used by the simple
+ * logger.
+ * <p>
+ * Unlike simple loggers, which are configured using system properties, and
+ * which write to one stream per process, stream loggers are configured when
+ * they are created. Transformers which run concurrently in one process use
+ * stream loggers to write their logging to their own streams.
+ */
+public class StreamLogger extends MarkerIgnoringBase implements Closeable {
+	private static final long	serialVersionUID	= 1L;
+
+	public static final int		LOG_LEVEL_OFF		= LocationAwareLogger.ERROR_INT + 10;
+
+	/**
+	 * Answer the log level which is named by a level string, as used by the
+	 * simple logger: One of "trace", "debug", "info", "warn", "error", or
+	 * "off". Answer the "info" level for a null or unknown level string.
+	 *
+	 * @param levelText The name of a log level.
+	 * @return The log level which has the name.
+	 */
+	public static int toLevel(String levelText) {
+		if (levelText != null) {
+			switch (levelText.toLowerCase()) {
+				case "trace" :
+					return LocationAwareLogger.TRACE_INT;
+				case "debug" :
+					return LocationAwareLogger.DEBUG_INT;
+				case "info" :
+					return LocationAwareLogger.INFO_INT;
+				case "warn" :
+					return LocationAwareLogger.WARN_INT;
+				case "error" :
+					return LocationAwareLogger.ERROR_INT;
+				case "off" :
+					return LOG_LEVEL_OFF;
+				default :
+					break;
+			}
+		}
+		return LocationAwareLogger.INFO_INT;
+	}
+
+	/**
+	 * Create a stream logger.
+	 *
+	 * @param name The name of the logger.
+	 * @param level The level of the logger. See {@link #toLevel(String)}.
+	 * @param stream The stream to which to write.
+	 * @param ownStream True or false telling if the stream is to be closed
+	 *            when the logger is closed.
+	 */
+	public StreamLogger(String name, int level, PrintStream stream, boolean ownStream) {
+		this.name = name;
+		this.level = level;
+		this.stream = stream;
+		this.ownStream = ownStream;
+	}
+
+	private final int			level;
+	private final PrintStream	stream;
+	private final boolean		ownStream;
+
+	public int getLevel() {
+		return level;
+	}
+
+	@Override
+	public void close() {
+		if (ownStream) {
+			stream.close();
+		}
+	}
+
+	//
+
+	protected boolean isLevelEnabled(int testLevel) {
+		return (testLevel >= level);
+	}
+
+	private static String levelName(int useLevel) {
+		switch (useLevel) {
+			case LocationAwareLogger.TRACE_INT :
+				return "TRACE";
+			case LocationAwareLogger.DEBUG_INT :
+				return "DEBUG";
+			case LocationAwareLogger.INFO_INT :
+				return "INFO";
+			case LocationAwareLogger.WARN_INT :
+				return "WARN";
+			default :
+				return "ERROR";
+		}
+	}
+
+	protected void log(int useLevel, String message, Throwable th) {
+		if (!isLevelEnabled(useLevel)) {
+			return;
+		}
+
+		String line = '[' + Thread.currentThread()
+			.getName() + "] " + levelName(useLevel) + ' ' + name + " - " + message;
+
+		synchronized (stream) {
+			stream.println(line);
+			if (th != null) {
+				th.printStackTrace(stream);
+			}
+			stream.flush();
+		}
+	}
+
+	protected void log(int useLevel, FormattingTuple tuple) {
+		log(useLevel, tuple.getMessage(), tuple.getThrowable());
+	}
+
+	protected void formatAndLog(int useLevel, String format, Object arg) {
+		if (isLevelEnabled(useLevel)) {
+			log(useLevel, MessageFormatter.format(format, arg));
+		}
+	}
+
+	protected void formatAndLog(int useLevel, String format, Object arg1, Object arg2) {
+		if (isLevelEnabled(useLevel)) {
+			log(useLevel, MessageFormatter.format(format, arg1, arg2));
+		}
+	}
+
+	protected void formatAndLog(int useLevel, String format, Object... args) {
+		if (isLevelEnabled(useLevel)) {
+			log(useLevel, MessageFormatter.arrayFormat(format, args));
+		}
+	}
+
+	//
+
+	@Override
+	public boolean isTraceEnabled() {
+		return isLevelEnabled(LocationAwareLogger.TRACE_INT);
+	}
+
+	@Override
+	public void trace(String msg) {
+		log(LocationAwareLogger.TRACE_INT, msg, null);
+	}
+
+	@Override
+	public void trace(String format, Object arg) {
+		formatAndLog(LocationAwareLogger.TRACE_INT, format, arg);
+	}
+
+	@Override
+	public void trace(String format, Object arg1, Object arg2) {
+		formatAndLog(LocationAwareLogger.TRACE_INT, format, arg1, arg2);
+	}
+
+	@Override
+	public void trace(String format, Object... arguments) {
+		formatAndLog(LocationAwareLogger.TRACE_INT, format, arguments);
+	}
+
+	@Override
+	public void trace(String msg, Throwable t) {
+		log(LocationAwareLogger.TRACE_INT, msg, t);
+	}
+
+	@Override
+	public boolean isDebugEnabled() {
+		return isLevelEnabled(LocationAwareLogger.DEBUG_INT);
+	}
+
+	@Override
+	public void debug(String msg) {
+		log(LocationAwareLogger.DEBUG_INT, msg, null);
+	}
+
+	@Override
+	public void debug(String format, Object arg) {
+		formatAndLog(LocationAwareLogger.DEBUG_INT, format, arg);
+	}
+
+	@Override
+	public void debug(String format, Object arg1, Object arg2) {
+		formatAndLog(LocationAwareLogger.DEBUG_INT, format, arg1, arg2);
+	}
+
+	@Override
+	public void debug(String format, Object... arguments) {
+		formatAndLog(LocationAwareLogger.DEBUG_INT, format, arguments);
+	}
+
+	@Override
+	public void debug(String msg, Throwable t) {
+		log(LocationAwareLogger.DEBUG_INT, msg, t);
+	}
+
+	@Override
+	public boolean isInfoEnabled() {
+		return isLevelEnabled(LocationAwareLogger.INFO_INT);
+	}
+
+	@Override
+	public void info(String msg) {
+		log(LocationAwareLogger.INFO_INT, msg, null);
+	}
+
+	@Override
+	public void info(String format, Object arg) {
+		formatAndLog(LocationAwareLogger.INFO_INT, format, arg);
+	}
+
+	@Override
+	public void info(String format, Object arg1, Object arg2) {
+		formatAndLog(LocationAwareLogger.INFO_INT, format, arg1, arg2);
+	}
+
+	@Override
+	public void info(String format, Object... arguments) {
+		formatAndLog(LocationAwareLogger.INFO_INT, format, arguments);
+	}
+
+	@Override
+	public void info(String msg, Throwable t) {
+		log(LocationAwareLogger.INFO_INT, msg, t);
+	}
+
+	@Override
+	public boolean isWarnEnabled() {
+		return isLevelEnabled(LocationAwareLogger.WARN_INT);
+	}
+
+	@Override
+	public void warn(String msg) {
+		log(LocationAwareLogger.WARN_INT, msg, null);
+	}
+
+	@Override
+	public void warn(String format, Object arg) {
+		formatAndLog(LocationAwareLogger.WARN_INT, format, arg);
+	}
+
+	@Override
+	public void warn(String format, Object arg1, Object arg2) {
+		formatAndLog(LocationAwareLogger.WARN_INT, format, arg1, arg2);
+	}
+
+	@Override
+	public void warn(String format, Object... arguments) {
+		formatAndLog(LocationAwareLogger.WARN_INT, format, arguments);
+	}
+
+	@Override
+	public void warn(String msg, Throwable t) {
+		log(LocationAwareLogger.WARN_INT, msg, t);
+	}
+
+	@Override
+	public boolean isErrorEnabled() {
+		return isLevelEnabled(LocationAwareLogger.ERROR_INT);
+	}
+
+	@Override
+	public void error(String msg) {
+		log(LocationAwareLogger.ERROR_INT, msg, null);
+	}
+
+	@Override
+	public void error(String format, Object arg) {
+		formatAndLog(LocationAwareLogger.ERROR_INT, format, arg);
+	}
+
+	@Override
+	public void error(String format, Object arg1, Object arg2) {
+		formatAndLog(LocationAwareLogger.ERROR_INT, format, arg1, arg2);
+	}
+
+	@Override
+	public void error(String format, Object... arguments) {
+		formatAndLog(LocationAwareLogger.ERROR_INT, format, arguments);
+	}
+
+	@Override
+	public void error(String msg, Throwable t) {
+		log(LocationAwareLogger.ERROR_INT, msg, t);
+	}
+}
@@ -11,21 +11,39 @@
 
 package org.eclipse.transformer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -44,12 +62,15 @@ import org.eclipse.transformer.action.impl.ActionImpl;
 import org.eclipse.transformer.action.impl.BundleDataImpl;
 import org.eclipse.transformer.action.impl.ClassActionImpl;
 import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.ContainerActionImpl;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
 import org.eclipse.transformer.action.impl.DirectoryActionImpl;
 import org.eclipse.transformer.action.impl.EarActionImpl;
 import org.eclipse.transformer.action.impl.InputBufferImpl;
 import org.eclipse.transformer.action.impl.JarActionImpl;
 import org.eclipse.transformer.action.impl.JavaActionImpl;
 import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.NestedArchiveMemo;
 import org.eclipse.transformer.action.impl.NullActionImpl;
 import org.eclipse.transformer.action.impl.PropertiesActionImpl;
 import org.eclipse.transformer.action.impl.RarActionImpl;
@@ -60,7 +81,11 @@ import org.eclipse.transformer.action.impl.TextActionImpl;
 import org.eclipse.transformer.action.impl.WarActionImpl;
 // import org.eclipse.transformer.action.impl.XmlActionImpl;
 import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.BoundedCache;
+import org.eclipse.transformer.util.DirectoryWatcher;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.TransformCache;
+import org.eclipse.transformer.util.Utf8Cache;
 import org.slf4j.Logger;
 
 import aQute.lib.io.IO;
@@ -315,7 +340,34 @@ public class Transformer {
 
 		RULES_PER_CLASS_CONSTANT("tp", "per-class-constant", "Transformation per class constant string replacements",
 			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
-			!OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP);
+			!OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+		THREADS("th", "threads", "Count of threads used to transform archive entries", OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+		CACHE_DIRECTORY("cd", "cacheDirectory", "Directory of cached transformation results",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+		RULES_COMPILED("rc", "compiledRules", "Compiled transformation rules file; replaces all other rules",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		COMPILE_RULES("cr", "compileRules", "Compile the transformation rules to a file, without transforming",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+		BATCH("b", "batch", "Properties file mapping batch inputs to batch outputs", OptionSettings.HAS_ARG,
+			!OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		BATCH_GLOB("bg", "batchGlob", "Pattern selecting batch inputs from the input directory",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+		INCREMENTAL("in", "incremental", "Transform only new and modified files of directories",
+			!OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+		WATCH("w", "watch", "Transform changes to a directory input until stopped; implies incremental",
+			!OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+		TIMINGS("tm", "timings", "Write the timings of transformed resources as JSON to a file",
+			OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
+		NESTED_MEMO("nm", "nestedMemo", "Reuse the outputs of repeated nested archives, which are kept in memory",
+			!OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS, !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP);
 
 		private AppOption(String shortTag, String longTag, String description, boolean hasArg, boolean hasArgs,
 			boolean hasArgCount, int argCount,
@@ -509,6 +561,155 @@ public class Transformer {
 		return lastActiveChanges;
 	}
 
+	private RuleSet					ruleSet;
+	private RuleSet					lastRuleSet;
+
+	private boolean					isolatedLogging;
+
+	/**
+	 * Set whether the logging of the transformer is isolated. Isolated
+	 * logging is configured from the options of the transformer, and not
+	 * from system properties, and is written to the output and error streams
+	 * of the transformer, or to the log file which is named by the options.
+	 * <p>
+	 * Transformers which are run concurrently in one process must isolate
+	 * their logging.
+	 *
+	 * @param isolatedLogging True or false telling if the logging of the
+	 *            transformer is isolated.
+	 */
+	public void setIsolatedLogging(boolean isolatedLogging) {
+		this.isolatedLogging = isolatedLogging;
+	}
+
+	public boolean isIsolatedLogging() {
+		return isolatedLogging;
+	}
+
+	private File					batchDirectory;
+
+	/**
+	 * Set the directory against which relative inputs and outputs of a batch
+	 * file are resolved.
+	 *
+	 * @param batchDirectory The directory against which relative batch paths
+	 *            are resolved. Null to leave relative batch paths relative to
+	 *            the working directory of the process.
+	 */
+	public void setBatchDirectory(File batchDirectory) {
+		this.batchDirectory = batchDirectory;
+	}
+
+	public File getBatchDirectory() {
+		return batchDirectory;
+	}
+
+	/**
+	 * Set compiled rules which are to be used by transformations. When set,
+	 * the rules options are ignored, and rules are not loaded.
+	 * <p>
+	 * Transformations which use the same rules share the signature caches of
+	 * the rules.
+	 *
+	 * @param ruleSet The rules which are to be used. Null to load rules using
+	 *            the rules options.
+	 */
+	public void setRuleSet(RuleSet ruleSet) {
+		this.ruleSet = ruleSet;
+	}
+
+	public RuleSet getRuleSet() {
+		return ruleSet;
+	}
+
+	/**
+	 * Answer the rules which were used by the last transformation.
+	 *
+	 * @return The rules which were used by the last transformation. Null if
+	 *         no transformation has completed.
+	 */
+	public RuleSet getLastRuleSet() {
+		return lastRuleSet;
+	}
+
+	private static final AppOption[] RULES_OPTIONS = {
+		AppOption.RULES_SELECTIONS, AppOption.RULES_RENAMES, AppOption.RULES_VERSIONS, AppOption.RULES_BUNDLES,
+		AppOption.RULES_DIRECT, AppOption.RULES_MASTER_TEXT, AppOption.RULES_PER_CLASS_CONSTANT,
+		AppOption.RULES_COMPILED
+	};
+
+	/**
+	 * Answer a key of the rules which are selected by the parsed arguments.
+	 * Transformations which have the same key and the same option defaults
+	 * load the same rules, and may share the rules using
+	 * {@link #setRuleSet(RuleSet)}.
+	 * <p>
+	 * The key covers the values of the rules options, and the last modified
+	 * time and length of the files named by the rules options. Changes to
+	 * files which are referenced by the named files, for example, to the
+	 * substitution files of a text master file, do not change the key.
+	 *
+	 * @return A key of the rules which are selected by the parsed arguments.
+	 */
+	public String getRulesKey() {
+		StringBuilder rulesKey = new StringBuilder();
+
+		for (AppOption rulesOption : RULES_OPTIONS) {
+			String rulesRef = getOptionValue(rulesOption, DO_NORMALIZE);
+			rulesKey.append(rulesOption.getShortTag())
+				.append('=');
+			if (rulesRef != null) {
+				rulesKey.append(rulesRef);
+				File rulesFile = new File(rulesRef);
+				if (rulesFile.isFile()) {
+					rulesKey.append('@')
+						.append(rulesFile.lastModified())
+						.append(':')
+						.append(rulesFile.length());
+				}
+			}
+			rulesKey.append('\n');
+		}
+
+		String[] immediateArgs = getParsedArgs().getOptionValues(AppOption.RULES_IMMEDIATE_DATA.getShortTag());
+		rulesKey.append(AppOption.RULES_IMMEDIATE_DATA.getShortTag())
+			.append('=')
+			.append(Arrays.toString(immediateArgs))
+			.append('\n');
+		rulesKey.append(AppOption.INVERT.getShortTag())
+			.append('=')
+			.append(hasOption(AppOption.INVERT))
+			.append('\n');
+
+		return rulesKey.toString();
+	}
+
+	private List<BatchResult>		lastBatchResults;
+	private ContainerChangesImpl	lastBatchChanges;
+
+	/**
+	 * Answer the results of the inputs of the last batch transformation, in
+	 * the order of the input names.
+	 *
+	 * @return The results of the inputs of the last batch transformation.
+	 *         Null if no batch transformation has completed.
+	 */
+	public List<BatchResult> getLastBatchResults() {
+		return lastBatchResults;
+	}
+
+	/**
+	 * Answer the changes of the last batch transformation. Each input is
+	 * recorded as a resource of the batch, and the changes of each input are
+	 * added as nested changes.
+	 *
+	 * @return The changes of the last batch transformation. Null if no batch
+	 *         transformation has completed.
+	 */
+	public ContainerChangesImpl getLastBatchChanges() {
+		return lastBatchChanges;
+	}
+
 	/**
 	 * Set default resource references for the several 'RULE" options. Values
 	 * are located relative to the option loader class.
@@ -904,12 +1105,27 @@ public class Transformer {
 
 	//
 
-	private Logger logger;
+	private TransformerLoggerFactory	loggerFactory;
+	private Logger						logger;
 
 	public Logger getLogger() {
 		return logger;
 	}
 
+	/**
+	 * Close the logger of the transformer. This closes the log file of
+	 * isolated logging.
+	 */
+	public void closeLogger() {
+		if (logger instanceof Closeable) {
+			try {
+				((Closeable) logger).close();
+			} catch (IOException e) {
+				errorPrint("Failed to close logger: %s", e);
+			}
+		}
+	}
+
 	public void info(String message, Object... parms) {
 		getLogger().info(message, parms);
 	}
@@ -940,17 +1156,20 @@ public class Transformer {
 	public boolean	toSysErr;
 
 	protected void detectLogFile() {
-		toSysOut = TransformerLoggerFactory.logToSysOut();
+		String logFile = ((loggerFactory == null) ? System.getProperty(LoggerProperty.LOG_FILE.getPropertyName())
+			: loggerFactory.getLoggingProperty(LoggerProperty.LOG_FILE.getPropertyName()));
+
+		toSysOut = TransformerLoggerFactory.logToSysOut(logFile);
 		if (toSysOut) {
 			outputPrint("Logging is to System.out\n");
 		}
 
-		toSysErr = TransformerLoggerFactory.logToSysErr();
+		toSysErr = TransformerLoggerFactory.logToSysErr(logFile);
 		if (toSysOut) {
 			outputPrint("Logging is to System.err\n");
 		}
 
-		outputPrint("Log file [ " + System.getProperty(LoggerProperty.LOG_FILE.getPropertyName()) + " ]");
+		outputPrint("Log file [ " + logFile + " ]");
 	}
 
 	public void dual_info(String message, Object... parms) {
@@ -1032,11 +1251,25 @@ public class Transformer {
 		public String							outputPath;
 		public File								outputFile;
 		public Map<String, Map<String, String>> perClassConstantStrings;
+
+		public int								threads	= 1;
+		public ExecutorService					executor;
+
+		public File								cacheDirectory;
+		public TransformCache					cache;
+		public Changes							cachedChanges;
+
+		/**
+		 * Timings of a batch input are not written by the input: They are
+		 * kept, and are written once all inputs of the batch are complete.
+		 */
+		public boolean							isBatchInput;
+		public String							batchTimings;
 		//
 
 		public void setLogging() throws TransformException {
-			logger = new TransformerLoggerFactory(Transformer.this).createLogger(); // throws
-																					// TransformException
+			loggerFactory = new TransformerLoggerFactory(Transformer.this);
+			logger = loggerFactory.createLogger(); // throws TransformException
 
 			if (hasOption(AppOption.LOG_TERSE)) {
 				isTerse = true;
@@ -1081,6 +1314,21 @@ public class Transformer {
 		}
 
 		public boolean setRules() throws IOException, URISyntaxException, IllegalArgumentException {
+			RuleSet useRuleSet = getRuleSet();
+			if (useRuleSet != null) {
+				setRules(useRuleSet);
+				dual_info("Precompiled rules are in use");
+				return true;
+			}
+
+			String compiledRulesName = getOptionValue(AppOption.RULES_COMPILED, DO_NORMALIZE);
+			if (compiledRulesName != null) {
+				File compiledRulesFile = new File(compiledRulesName);
+				setRules(RuleSetFile.read(logger, compiledRulesFile)); // throws IOException
+				dual_info("Compiled rules [ %s ] are in use", compiledRulesFile.getAbsolutePath());
+				return true;
+			}
+
 			ImmediateRuleData[] immediateData = getImmediateData();
 			if (immediateData == null) {
 				return false;
@@ -1230,6 +1478,47 @@ public class Transformer {
 			return validateRules(packageRenames, packageVersions, orphanedFinalPackages);
 		}
 
+		/**
+		 * Load the transformation rules and write them to the compiled rules
+		 * file named by the compile rules option.
+		 *
+		 * @return True or false telling if the rules were compiled.
+		 * @throws IOException Thrown if the rules could not be loaded or
+		 *             written.
+		 * @throws URISyntaxException Thrown if a rules reference is not valid.
+		 */
+		public boolean compileRules() throws IOException, URISyntaxException {
+			if (!setRules()) {
+				return false;
+			}
+
+			File compiledRulesFile = new File(getOptionValue(AppOption.COMPILE_RULES, DO_NORMALIZE));
+			RuleSetFile.write(getRules(), compiledRulesFile); // throws IOException
+			dual_info("Compiled rules [ %s ]", compiledRulesFile.getAbsolutePath());
+			return true;
+		}
+
+		/**
+		 * Use compiled rules. The rules data of the options is set from the
+		 * compiled rules.
+		 *
+		 * @param useRules The compiled rules which are to be used.
+		 */
+		public void setRules(RuleSet useRules) {
+			rules = useRules;
+
+			includes = useRules.getIncludes();
+			excludes = useRules.getExcludes();
+			invert = useRules.isInvert();
+			packageRenames = useRules.getPackageRenames();
+			packageVersions = useRules.getPackageVersions();
+			bundleUpdates = useRules.getBundleUpdates();
+			masterSubstitutionRefs = useRules.getMasterSubstitutionRefs();
+			masterTextUpdates = useRules.getMasterTextUpdates();
+			directStrings = useRules.getDirectStrings();
+			perClassConstantStrings = useRules.getPerClassConstantStrings();
+		}
+
 		protected void processImmediateData(
 			ImmediateRuleData[] immediateData, String masterTextRef,
 			Set<String> orphanedFinalVersions)
@@ -1521,27 +1810,37 @@ public class Transformer {
 			}
 		}
 
-		private SelectionRuleImpl selectionRules;
+		private RuleSet rules;
 
-		protected SelectionRuleImpl getSelectionRule() {
-			if (selectionRules == null) {
-				selectionRules = new SelectionRuleImpl(logger, includes, excludes);
+		/**
+		 * Answer the compiled rules of the transformation. Unless compiled
+		 * rules were set, the rules are compiled from the rules data the first
+		 * time they are requested.
+		 *
+		 * @return The compiled rules of the transformation.
+		 */
+		public RuleSet getRules() {
+			if (rules == null) {
+				rules = new RuleSet(logger, includes, excludes, invert, packageRenames, packageVersions,
+					bundleUpdates, masterSubstitutionRefs, masterTextUpdates, directStrings,
+					perClassConstantStrings);
 			}
-			return selectionRules;
+			return rules;
 		}
 
-		private SignatureRuleImpl signatureRules;
+		protected SelectionRuleImpl getSelectionRule() {
+			return getRules().getSelectionRule();
+		}
 
 		protected SignatureRuleImpl getSignatureRule() {
-			if (signatureRules == null) {
-				signatureRules = new SignatureRuleImpl(logger, packageRenames, packageVersions, bundleUpdates,
-					masterTextUpdates, directStrings, perClassConstantStrings);
-			}
-			return signatureRules;
+			return getRules().getSignatureRule();
 		}
 
 		public boolean setInput() {
-			String useInputName = getInputFileNameFromCommandLine();
+			return setInput(getInputFileNameFromCommandLine());
+		}
+
+		public boolean setInput(String useInputName) {
 			if (useInputName == null) {
 				dual_error("No input file was specified");
 				return false;
@@ -1576,8 +1875,10 @@ public class Transformer {
 		// }
 
 		public boolean setOutput() {
-			String useOutputName = getOutputFileNameFromCommandLine();
+			return setOutput(getOutputFileNameFromCommandLine());
+		}
 
+		public boolean setOutput(String useOutputName) {
 			boolean isExplicit = (useOutputName != null);
 
 			if (isExplicit) {
@@ -1654,6 +1955,170 @@ public class Transformer {
 			return true;
 		}
 
+		public boolean setThreads() {
+			String threadsText = getOptionValue(AppOption.THREADS);
+			if (threadsText == null) {
+				return true;
+			}
+
+			int useThreads;
+			try {
+				useThreads = Integer.parseInt(threadsText.trim());
+			} catch (NumberFormatException e) {
+				dual_error("Threads [ %s ] is not a number", threadsText);
+				return false;
+			}
+			if (useThreads < 1) {
+				dual_error("Threads [ %s ] must be at least one", threadsText);
+				return false;
+			}
+
+			threads = useThreads;
+			if (threads > 1) {
+				dual_info("Threads   [ %s ]", Integer.valueOf(threads));
+			}
+			return true;
+		}
+
+		public boolean setCache() {
+			String cacheName = getOptionValue(AppOption.CACHE_DIRECTORY, DO_NORMALIZE);
+			if (cacheName == null) {
+				return true;
+			}
+
+			File useCacheDirectory = new File(cacheName);
+			if (!useCacheDirectory.isDirectory() && !useCacheDirectory.mkdirs()) {
+				dual_error("Cache directory [ %s ] could not be created", useCacheDirectory.getAbsolutePath());
+				return false;
+			}
+
+			cacheDirectory = useCacheDirectory;
+			cache = new TransformCache(useCacheDirectory);
+			dual_info("Cache     [ %s ]", useCacheDirectory.getAbsolutePath());
+			return true;
+		}
+
+		/**
+		 * Answer a fingerprint of the rules which are used by the
+		 * transformation. The fingerprint covers the transformer version, the
+		 * accepted action, and all of the rules data, which is not sensitive
+		 * to the order in which rules were loaded.
+		 *
+		 * @return A fingerprint of the transformation rules.
+		 */
+		public String getRulesFingerprint() {
+			StringBuilder rulesText = new StringBuilder();
+
+			RuleSet.appendRule(rulesText, "version", getBuildProperties().getProperty(SHORT_VERSION_PROPERTY_NAME));
+			RuleSet.appendRule(rulesText, "action", acceptedAction.getName());
+			RuleSet.appendRule(rulesText, "rules", getRules().getFingerprint());
+
+			MessageDigest digest = TransformCache.createDigest();
+			return TransformCache.toHex(digest.digest(rulesText.toString()
+				.getBytes(UTF_8)));
+		}
+
+		/**
+		 * Answer the key used to cache the transformation result. Answer null
+		 * if the result is not to be cached. Only archives which are
+		 * transformed into files are cached.
+		 *
+		 * @return The key used to cache the transformation result.
+		 */
+		protected String getCacheKey() {
+			if ((cache == null) || !(acceptedAction instanceof ContainerActionImpl) || !inputFile.isFile()) {
+				return null;
+			}
+			try {
+				return cache.getKey(inputFile, getRulesFingerprint());
+			} catch (IOException e) {
+				dual_error("Failed to compute cache key of [ " + inputPath + " ]", e);
+				return null;
+			}
+		}
+
+		protected Changes restoreCached(String cacheKey) {
+			Properties summary;
+			try {
+				summary = cache.restore(cacheKey, outputFile);
+			} catch (IOException e) {
+				dual_error("Failed to restore cached output [ " + cacheKey + " ]", e);
+				return null;
+			}
+			if (summary == null) {
+				if (isVerbose) {
+					dual_info("Cache miss [ %s ]", cacheKey);
+				}
+				return null;
+			}
+
+			ContainerChangesImpl changes;
+			try {
+				changes = ContainerChangesImpl.loadSummary(summary);
+			} catch (IllegalArgumentException e) {
+				dual_error("Cached summary [ " + cacheKey + " ] is not valid", e);
+				return null;
+			}
+			changes.setInputResourceName(inputName);
+			changes.setOutputResourceName(outputName);
+
+			dual_info("Cache hit [ %s ]", cacheKey);
+			return changes;
+		}
+
+		protected void storeCached(String cacheKey, Changes changes) {
+			if (!(changes instanceof ContainerChangesImpl)) {
+				return;
+			}
+			Properties summary = new Properties();
+			((ContainerChangesImpl) changes).storeSummary(summary);
+			try {
+				cache.store(cacheKey, outputFile, summary);
+			} catch (IOException e) {
+				dual_error("Failed to store cached output [ " + cacheKey + " ]", e);
+			}
+		}
+
+		/**
+		 * Answer the executor used to transform archive entries. Answer null
+		 * if entries are to be transformed on the calling thread.
+		 *
+		 * @return The executor used to transform archive entries.
+		 */
+		protected ExecutorService getExecutor() {
+			if ((executor == null) && (threads > 1)) {
+				executor = Executors.newFixedThreadPool(threads, (Runnable runnable) -> {
+					Thread thread = new Thread(runnable, "transformer-worker");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			return executor;
+		}
+
+		public void shutdownExecutor() {
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+
+		private NestedArchiveMemo nestedMemo;
+
+		/**
+		 * Answer the memo of nested archives. Nested archives are memoized
+		 * only when requested, since memoized archives are held in memory.
+		 *
+		 * @return The memo of nested archives. Null if nested archives are
+		 *         not memoized.
+		 */
+		protected NestedArchiveMemo getNestedMemo() {
+			if ((nestedMemo == null) && hasOption(AppOption.NESTED_MEMO)) {
+				nestedMemo = new NestedArchiveMemo();
+			}
+			return nestedMemo;
+		}
+
 		public CompositeActionImpl getRootAction() {
 			if (rootAction == null) {
 				CompositeActionImpl useRootAction = new CompositeActionImpl(getLogger(), isTerse, isVerbose,
@@ -1744,6 +2209,33 @@ public class Transformer {
 				zipAction.addAction(textAction);
 				zipAction.addAction(nullAction);
 
+				NestedArchiveMemo useNestedMemo = getNestedMemo();
+				jarAction.setNestedMemo(useNestedMemo);
+				warAction.setNestedMemo(useNestedMemo);
+				rarAction.setNestedMemo(useNestedMemo);
+				earAction.setNestedMemo(useNestedMemo);
+				zipAction.setNestedMemo(useNestedMemo);
+
+				// Timings are recorded when verbose output is requested, or
+				// when a timings file is requested.
+
+				if (hasOption(AppOption.TIMINGS)) {
+					for (ActionImpl action : useRootAction.getActions()) {
+						action.setTimed(true);
+					}
+				}
+
+				ExecutorService useExecutor = getExecutor();
+				if (useExecutor != null) {
+					int maxPending = threads * 2;
+					directoryAction.setExecutor(useExecutor, maxPending);
+					jarAction.setExecutor(useExecutor, maxPending);
+					warAction.setExecutor(useExecutor, maxPending);
+					rarAction.setExecutor(useExecutor, maxPending);
+					earAction.setExecutor(useExecutor, maxPending);
+					zipAction.setExecutor(useExecutor, maxPending);
+				}
+
 				rootAction = useRootAction;
 			}
 
@@ -1777,34 +2269,343 @@ public class Transformer {
 		}
 
 		public void transform() throws TransformException {
+			String cacheKey = getCacheKey();
+
+			Changes changes = ((cacheKey == null) ? null : restoreCached(cacheKey));
+			if (changes != null) {
+				cachedChanges = changes;
+
+			} else {
+				if ((hasOption(AppOption.INCREMENTAL) || hasOption(AppOption.WATCH))
+					&& (acceptedAction instanceof DirectoryActionImpl)) {
+					((DirectoryActionImpl) acceptedAction).setManifestFingerprint(getRulesFingerprint());
+				}
 
-			acceptedAction.apply(inputName, inputFile, outputFile);
+				acceptedAction.apply(inputName, inputFile, outputFile);
+				changes = acceptedAction.getLastActiveChanges();
 
+				if (cacheKey != null) {
+					storeCached(cacheKey, changes);
+				}
+
+				if (isBatchInput) {
+					batchTimings = formatTimings(changes);
+				} else {
+					writeTimings(changes, false);
+				}
+			}
+
+			displayChanges(changes);
+		}
+
+		/**
+		 * Write the timings of changes to the timings file, if one was
+		 * specified. Timings are written as one JSON object per line.
+		 *
+		 * @param changes The changes which are to be written.
+		 * @param append True or false telling if the timings are to be
+		 *            appended to the timings file.
+		 */
+		protected void writeTimings(Changes changes, boolean append) {
+			String timings = formatTimings(changes);
+			if (timings != null) {
+				writeTimings(timings, append);
+			}
+		}
+
+		/**
+		 * Format the timings of changes, as they are written to the timings
+		 * file.
+		 *
+		 * @param changes The changes which are to be formatted.
+		 * @return The formatted timings. Null if no timings file was
+		 *         specified, or if the changes do not have timings.
+		 */
+		protected String formatTimings(Changes changes) {
+			if (!hasOption(AppOption.TIMINGS) || !(changes instanceof ContainerChangesImpl)) {
+				return null;
+			}
+			StringBuilder timings = new StringBuilder();
+			try {
+				((ContainerChangesImpl) changes).writeTimings(timings, inputPath, outputPath);
+			} catch (IOException e) {
+				dual_error("Failed to format timings [ " + inputPath + " ]", e);
+				return null;
+			}
+			return timings.toString();
+		}
+
+		/**
+		 * Write formatted timings to the timings file.
+		 *
+		 * @param timings The formatted timings.
+		 * @param append True or false telling if the timings are to be
+		 *            appended to the timings file.
+		 */
+		protected void writeTimings(String timings, boolean append) {
+			String timingsPath = getOptionValue(AppOption.TIMINGS, DO_NORMALIZE);
+
+			OpenOption[] openOptions = (append
+				? new OpenOption[] {
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND
+				}
+				: new OpenOption[] {
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+				});
+			try (Writer timingsWriter = Files.newBufferedWriter(Paths.get(timingsPath), UTF_8, openOptions)) {
+				timingsWriter.write(timings);
+			} catch (IOException e) {
+				dual_error("Failed to write timings [ " + timingsPath + " ]", e);
+			}
+		}
+
+		protected void displayChanges(Changes changes) {
 			if (isTerse) {
 				if (!toSysOut && !toSysErr) {
-					acceptedAction.getLastActiveChanges()
-						.displayTerse(getSystemOut(), inputPath, outputPath);
+					changes.displayTerse(getSystemOut(), inputPath, outputPath);
 				}
-				acceptedAction.getLastActiveChanges()
-					.displayTerse(getLogger(), inputPath, outputPath);
+				changes.displayTerse(getLogger(), inputPath, outputPath);
 			} else if (isVerbose) {
 				if (!toSysOut && !toSysErr) {
-					acceptedAction.getLastActiveChanges()
-						.displayVerbose(getSystemOut(), inputPath, outputPath);
+					changes.displayVerbose(getSystemOut(), inputPath, outputPath);
 				}
-				acceptedAction.getLastActiveChanges()
-					.displayVerbose(getLogger(), inputPath, outputPath);
+				changes.displayVerbose(getLogger(), inputPath, outputPath);
+				displayCaches();
 			} else {
 				if (!toSysOut && !toSysErr) {
-					acceptedAction.getLastActiveChanges()
-						.display(getSystemOut(), inputPath, outputPath);
+					changes.display(getSystemOut(), inputPath, outputPath);
+				}
+				changes.display(getLogger(), inputPath, outputPath);
+			}
+		}
+
+		public DirectoryWatcher watcher;
+
+		/**
+		 * Start watching the input directory. The watch is started before the
+		 * input is transformed, so that no changes are missed.
+		 *
+		 * @return True or false telling if the input is being watched.
+		 */
+		public boolean setWatcher() {
+			if (!(acceptedAction instanceof DirectoryActionImpl)) {
+				dual_error("Input [ %s ] cannot be watched: Only directories can be watched", inputPath);
+				return false;
+			}
+			if (outputFile.getAbsoluteFile()
+				.toPath()
+				.startsWith(inputFile.getAbsoluteFile()
+					.toPath())) {
+				dual_error("Input [ %s ] cannot be watched: The output [ %s ] is within the input", inputPath,
+					outputPath);
+				return false;
+			}
+			try {
+				watcher = new DirectoryWatcher(inputFile.toPath());
+			} catch (IOException e) {
+				dual_error("Failed to watch input [ " + inputPath + " ]", e);
+				return false;
+			}
+			return true;
+		}
+
+		public void closeWatcher() {
+			if (watcher != null) {
+				try {
+					watcher.close();
+				} catch (IOException e) {
+					dual_error("Failed to close watch of input [ " + inputPath + " ]", e);
 				}
-				acceptedAction.getLastActiveChanges()
-					.display(getLogger(), inputPath, outputPath);
+				watcher = null;
 			}
 		}
 
+		/**
+		 * Transform changed files of the watched input directory.
+		 *
+		 * @param changedPaths The changed files and directories.
+		 * @throws TransformException Thrown if the transformation failed.
+		 */
+		public void transformChanged(Set<Path> changedPaths) throws TransformException {
+			DirectoryActionImpl directoryAction = (DirectoryActionImpl) acceptedAction;
+			directoryAction.applyChanged(inputName, inputFile, outputFile, changedPaths);
+			writeTimings(directoryAction.getLastActiveChanges(), true);
+			displayChanges(directoryAction.getLastActiveChanges());
+		}
+
+		public void displayCaches() {
+			SignatureRuleImpl useSignatureRule = getSignatureRule();
+			displayCache(useSignatureRule.getBinaryTypesCache());
+			displayCache(useSignatureRule.getDescriptorsCache());
+			displayCache(useSignatureRule.getSignaturesCache());
+			displayCache(useSignatureRule.getUtf8ConstantsCache());
+
+			NestedArchiveMemo useNestedMemo = getNestedMemo();
+			if (useNestedMemo != null) {
+				dual_info("Nested archives Size [ %s ] Length [ %s ] Hits [ %s ] Misses [ %s ]", useNestedMemo.size(),
+					useNestedMemo.getTotalLength(), useNestedMemo.getHits(), useNestedMemo.getMisses());
+			}
+
+			InputBufferImpl useBuffer = getBuffer();
+			dual_info("Buffers Allocated [ %s ] Reused [ %s ] Retained [ %s ] Peak retained [ %s ] Capacity [ %s ]",
+				useBuffer.getAllocations(), useBuffer.getReuses(), useBuffer.getRetainedLength(),
+				useBuffer.getPeakRetainedLength(), useBuffer.getMaxRetainedLength());
+		}
+
+		protected void displayCache(BoundedCache<String, String> cache) {
+			dual_info("Cache [ %s ] Size [ %s ] Capacity [ %s ] Hits [ %s ] Misses [ %s ] Evictions [ %s ]",
+				cache.getName(), cache.size(), cache.getCapacity(), cache.getHits(), cache.getMisses(),
+				cache.getEvictions());
+		}
+
+		protected void displayCache(Utf8Cache cache) {
+			dual_info("Cache [ %s ] Size [ %s ] Capacity [ %s ] Hits [ %s ] Misses [ %s ] Evictions [ %s ]",
+				cache.getName(), cache.size(), cache.getCapacity(), cache.getHits(), cache.getMisses(),
+				cache.getEvictions());
+		}
+
+		public boolean isBatch() {
+			return (hasOption(AppOption.BATCH) || hasOption(AppOption.BATCH_GLOB));
+		}
+
+		/**
+		 * Answer the inputs and outputs of a batch transformation, in the
+		 * order of the input names.
+		 * <p>
+		 * Inputs and outputs are read from the batch properties file, as
+		 * property names and values. An empty value causes the output name
+		 * to be generated from the input name. Otherwise, inputs are the
+		 * files of the input directory which match the batch pattern, which
+		 * are transformed to the same relative locations in the output
+		 * directory.
+		 *
+		 * @return The inputs and outputs of the batch. Null if the batch
+		 *         options are not valid.
+		 * @throws IOException Thrown if the batch inputs could not be read.
+		 */
+		protected String resolveBatchPath(String batchPath) {
+			if ((batchDirectory == null) || new File(batchPath).isAbsolute()) {
+				return batchPath;
+			}
+			return new File(batchDirectory, batchPath).getPath();
+		}
+
+		public Map<String, String> getBatchPairs() throws IOException {
+			Map<String, String> pairs = new TreeMap<>();
+
+			String batchName = getOptionValue(AppOption.BATCH, DO_NORMALIZE);
+			if (batchName != null) {
+				File batchFile = new File(batchName);
+				if (!batchFile.isFile()) {
+					dual_error("Batch file does not exist [ %s ]", batchFile.getAbsolutePath());
+					return null;
+				}
+				dual_info("Batch     [ %s ]", batchFile.getAbsolutePath());
+
+				UTF8Properties batchProperties = FileUtils.createProperties();
+				try (InputStream batchStream = Files.newInputStream(batchFile.toPath())) {
+					batchProperties.load(batchStream);
+				}
+				for (String batchInputName : batchProperties.stringPropertyNames()) {
+					String batchOutputName = batchProperties.getProperty(batchInputName)
+						.trim();
+					pairs.put(resolveBatchPath(batchInputName),
+						(batchOutputName.isEmpty() ? null : resolveBatchPath(batchOutputName)));
+				}
+				return pairs;
+			}
+
+			String batchPattern = getOptionValue(AppOption.BATCH_GLOB);
+			String inputDirectoryName = getInputFileNameFromCommandLine();
+			String outputDirectoryName = getOutputFileNameFromCommandLine();
+			if ((inputDirectoryName == null) || (outputDirectoryName == null)) {
+				dual_error("Batch pattern [ %s ] requires an input directory and an output directory", batchPattern);
+				return null;
+			}
+
+			Path inputDirectory = Paths.get(FileUtils.normalize(inputDirectoryName));
+			Path outputDirectory = Paths.get(FileUtils.normalize(outputDirectoryName));
+			if (!Files.isDirectory(inputDirectory)) {
+				dual_error("Batch input directory does not exist [ %s ]", inputDirectory.toAbsolutePath());
+				return null;
+			}
+			dual_info("Batch     [ %s ] [ %s ]", inputDirectory.toAbsolutePath(), batchPattern);
+
+			PathMatcher matcher = inputDirectory.getFileSystem()
+				.getPathMatcher("glob:" + batchPattern);
+			try (Stream<Path> inputPaths = Files.walk(inputDirectory)) {
+				inputPaths.filter(Files::isRegularFile)
+					.forEach(inputPath -> {
+						Path relativePath = inputDirectory.relativize(inputPath);
+						if (matcher.matches(relativePath)) {
+							pairs.put(FileUtils.normalize(inputPath.toString()),
+								FileUtils.normalize(outputDirectory.resolve(relativePath)
+									.toString()));
+						}
+					});
+			}
+			return pairs;
+		}
+
+		/**
+		 * Transform one input of a batch. The input is transformed using new
+		 * transform options, which share the rules, the cache and the buffer
+		 * pool of these options. The input is transformed by the current
+		 * thread.
+		 *
+		 * @param batchInputName The name of the input.
+		 * @param batchOutputName The name of the output. Null to generate the
+		 *            output name from the input name.
+		 * @return The result of the transformation of the input.
+		 */
+		public BatchResult transformBatchInput(String batchInputName, String batchOutputName) {
+			TransformOptions inputOptions = createTransformOptions();
+			inputOptions.isBatchInput = true;
+			inputOptions.isVerbose = isVerbose;
+			inputOptions.isTerse = isTerse;
+			inputOptions.cacheDirectory = cacheDirectory;
+			inputOptions.cache = cache;
+			inputOptions.buffer = new InputBufferImpl(getBuffer());
+			inputOptions.setRules(getRules());
+
+			int rc;
+			Throwable failure = null;
+			if (!inputOptions.setInput(batchInputName)) {
+				rc = TRANSFORM_ERROR_RC;
+			} else if (!inputOptions.setOutput(batchOutputName)) {
+				rc = TRANSFORM_ERROR_RC;
+			} else if (!inputOptions.acceptAction()) {
+				rc = FILE_TYPE_ERROR_RC;
+			} else {
+				try {
+					File outputParent = inputOptions.outputFile.getAbsoluteFile()
+						.getParentFile();
+					if (!outputParent.isDirectory() && !outputParent.mkdirs()) {
+						throw new TransformException(
+							"Failed to create output directory [ " + outputParent.getAbsolutePath() + " ]");
+					}
+					inputOptions.transform();
+					rc = SUCCESS_RC;
+				} catch (TransformException e) {
+					dual_error("Transform failure [ " + batchInputName + " ]:", e);
+					failure = e;
+					rc = TRANSFORM_ERROR_RC;
+				} catch (Throwable th) {
+					dual_error("Unexpected failure [ " + batchInputName + " ]:", th);
+					failure = th;
+					rc = TRANSFORM_ERROR_RC;
+				}
+			}
+
+			String actionName = ((inputOptions.acceptedAction == null) ? null : inputOptions.acceptedAction.getName());
+			return new BatchResult(batchInputName, batchOutputName, actionName, rc,
+				inputOptions.getLastActiveChanges(), failure, inputOptions.batchTimings);
+		}
+
 		public Changes getLastActiveChanges() {
+			if (cachedChanges != null) {
+				return cachedChanges;
+			}
 			if (acceptedAction != null) {
 				return acceptedAction.getLastActiveChanges();
 			}
@@ -1842,6 +2643,26 @@ public class Transformer {
 		}
 		detectLogFile();
 
+		if (hasOption(AppOption.COMPILE_RULES)) {
+			boolean compiledRules;
+			try {
+				compiledRules = options.compileRules();
+			} catch (Exception e) {
+				dual_error("Exception compiling rules:", e);
+				return RULES_ERROR_RC;
+			}
+			if (!compiledRules) {
+				dual_error("Transformation rules cannot be compiled");
+				return RULES_ERROR_RC;
+			}
+			lastRuleSet = options.getRules();
+			return SUCCESS_RC;
+		}
+
+		if (options.isBatch()) {
+			return runBatch(options);
+		}
+
 		if (!options.setInput()) {
 			return TRANSFORM_ERROR_RC;
 		}
@@ -1850,6 +2671,122 @@ public class Transformer {
 			return TRANSFORM_ERROR_RC;
 		}
 
+		if (!options.setThreads()) {
+			return PARSE_ERROR_RC;
+		}
+
+		if (!options.setCache()) {
+			return PARSE_ERROR_RC;
+		}
+
+		int rulesRc = setRules(options);
+		if (rulesRc != SUCCESS_RC) {
+			return rulesRc;
+		}
+
+		if (!options.acceptAction()) {
+			dual_error("No action selected");
+			return FILE_TYPE_ERROR_RC;
+		}
+
+		if (hasOption(AppOption.WATCH) && !options.setWatcher()) {
+			return FILE_TYPE_ERROR_RC;
+		}
+
+		try {
+			options.transform(); // throws JakartaTransformException
+			lastActiveChanges = options.getLastActiveChanges();
+			lastRuleSet = options.getRules();
+
+			if (options.watcher != null) {
+				watch(options);
+			}
+		} catch (TransformException e) {
+			dual_error("Transform failure:", e);
+			return TRANSFORM_ERROR_RC;
+		} catch (Throwable th) {
+			dual_error("Unexpected failure:", th);
+			return TRANSFORM_ERROR_RC;
+		} finally {
+			options.closeWatcher();
+			options.shutdownExecutor();
+		}
+
+		return SUCCESS_RC;
+	}
+
+	private volatile DirectoryWatcher watcher;
+
+	/**
+	 * Tell if the transformer is watching its input.
+	 *
+	 * @return True or false telling if the transformer is watching its input.
+	 */
+	public boolean isWatching() {
+		return (watcher != null);
+	}
+
+	/**
+	 * Stop watching the input. This causes {@link #run()} to return.
+	 *
+	 * @throws IOException Thrown if the watch could not be stopped.
+	 */
+	public void stopWatching() throws IOException {
+		DirectoryWatcher useWatcher = watcher;
+		if (useWatcher != null) {
+			useWatcher.close();
+		}
+	}
+
+	/**
+	 * Transform changes to the input directory, until the watch is stopped,
+	 * either by {@link #stopWatching()}, or by interrupting the running
+	 * thread. Failures to transform changes are displayed, and do not stop
+	 * the watch.
+	 *
+	 * @param options The options of the watched transformation.
+	 */
+	protected void watch(TransformOptions options) {
+		DirectoryWatcher useWatcher = options.watcher;
+		dual_info("Watching [ %s ] Directories [ %s ]", options.inputPath, useWatcher.getWatchedCount());
+
+		watcher = useWatcher;
+		try {
+			while (true) {
+				Set<Path> changedPaths;
+				try {
+					changedPaths = useWatcher.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread()
+						.interrupt();
+					break;
+				} catch (IOException e) {
+					dual_error("Failed to watch changes:", e);
+					continue;
+				}
+				if (changedPaths == null) {
+					break;
+				}
+
+				if (options.isVerbose) {
+					dual_info("Changed paths [ %s ]", changedPaths.size());
+				}
+				try {
+					options.transformChanged(changedPaths);
+					lastActiveChanges = options.getLastActiveChanges();
+				} catch (TransformException e) {
+					dual_error("Transform failure:", e);
+				} catch (RuntimeException e) {
+					dual_error("Unexpected failure:", e);
+				}
+			}
+		} finally {
+			watcher = null;
+		}
+		dual_info("Stopped watching [ %s ]", options.inputPath);
+	}
+
+	protected int setRules(TransformOptions options) {
 		boolean loadedRules;
 		try {
 			loadedRules = options.setRules();
@@ -1864,23 +2801,119 @@ public class Transformer {
 		if (options.isVerbose) {
 			options.logRules();
 		}
+		return SUCCESS_RC;
+	}
 
-		if (!options.acceptAction()) {
-			dual_error("No action selected");
-			return FILE_TYPE_ERROR_RC;
+	/**
+	 * Transform the inputs of a batch. The rules are loaded once, and are
+	 * shared by all of the inputs. When several threads are specified, inputs
+	 * are transformed concurrently, each by a single thread.
+	 * <p>
+	 * All inputs are transformed, even if some inputs fail. The transformation
+	 * fails if any input fails.
+	 *
+	 * @param options The options of the batch.
+	 * @return The return code of the batch.
+	 */
+	protected int runBatch(TransformOptions options) {
+		if (!options.setThreads()) {
+			return PARSE_ERROR_RC;
 		}
 
+		if (!options.setCache()) {
+			return PARSE_ERROR_RC;
+		}
+
+		int rulesRc = setRules(options);
+		if (rulesRc != SUCCESS_RC) {
+			return rulesRc;
+		}
+
+		Map<String, String> pairs;
 		try {
-			options.transform(); // throws JakartaTransformException
-			lastActiveChanges = options.getLastActiveChanges();
-		} catch (TransformException e) {
-			dual_error("Transform failure:", e);
+			pairs = options.getBatchPairs();
+		} catch (IOException e) {
+			dual_error("Exception reading batch inputs:", e);
+			return PARSE_ERROR_RC;
+		}
+		if (pairs == null) {
+			return PARSE_ERROR_RC;
+		}
+		dual_info("Batch inputs [ %s ]", pairs.size());
+
+		List<BatchResult> results = new ArrayList<>(pairs.size());
+		try {
+			ExecutorService useExecutor = options.getExecutor();
+			if (useExecutor == null) {
+				for (Map.Entry<String, String> pair : pairs.entrySet()) {
+					results.add(options.transformBatchInput(pair.getKey(), pair.getValue()));
+				}
+			} else {
+				List<Future<BatchResult>> futures = new ArrayList<>(pairs.size());
+				for (Map.Entry<String, String> pair : pairs.entrySet()) {
+					futures.add(
+						useExecutor.submit(() -> options.transformBatchInput(pair.getKey(), pair.getValue())));
+				}
+				for (Future<BatchResult> future : futures) {
+					results.add(future.get());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			dual_error("Batch interrupted:", e);
 			return TRANSFORM_ERROR_RC;
-		} catch (Throwable th) {
-			dual_error("Unexpected failure:", th);
+		} catch (ExecutionException e) {
+			dual_error("Unexpected failure:", e.getCause());
 			return TRANSFORM_ERROR_RC;
+		} finally {
+			options.shutdownExecutor();
 		}
 
-		return SUCCESS_RC;
+		// Inputs may be transformed concurrently: Write the timings of all of
+		// the inputs once, in the order of the inputs.
+		if (hasOption(AppOption.TIMINGS)) {
+			StringBuilder batchTimings = new StringBuilder();
+			for (BatchResult result : results) {
+				if (result.getTimings() != null) {
+					batchTimings.append(result.getTimings());
+				}
+			}
+			options.writeTimings(batchTimings.toString(), false);
+		}
+
+		ContainerChangesImpl batchChanges = new ContainerChangesImpl();
+		batchChanges.setInputResourceName("batch");
+		batchChanges.setOutputResourceName("batch");
+
+		int failures = 0;
+		for (BatchResult result : results) {
+			Changes changes = result.getChanges();
+			if (changes != null) {
+				batchChanges.record(result.getActionName(), changes.hasChanges());
+				changes.addNestedInto(batchChanges);
+			} else {
+				batchChanges.record();
+			}
+			if (!result.isSuccess()) {
+				failures++;
+				dual_error("Batch input failed [ %s ]: %s", result.getInputName(), RC_DESCRIPTIONS[result.getRc()]);
+			} else if (options.isVerbose) {
+				dual_info("Batch input [ %s ]: %s", result.getInputName(), RC_DESCRIPTIONS[result.getRc()]);
+			}
+		}
+
+		if (!toSysOut && !toSysErr) {
+			batchChanges.displayVerbose(getSystemOut(), "batch", "batch");
+		}
+		batchChanges.displayVerbose(getLogger(), "batch", "batch");
+		dual_info("Batch inputs [ %s ] Succeeded [ %s ] Failed [ %s ]", results.size(), results.size() - failures,
+			failures);
+
+		lastBatchResults = results;
+		lastBatchChanges = batchChanges;
+		lastRuleSet = options.getRules();
+
+		return ((failures == 0) ? SUCCESS_RC : TRANSFORM_ERROR_RC);
 	}
 }
@@ -11,7 +11,11 @@
 
 package org.eclipse.transformer;
 
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
 import java.util.Map.Entry;
+import java.util.Properties;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -84,6 +88,7 @@ public class TransformerLoggerFactory {
 	public TransformerLoggerFactory(Transformer transformer) {
 		this.transformer = transformer;
 		this.settings = new LoggerSettings(this.transformer);
+		this.loggingProperties = (transformer.isIsolatedLogging() ? new Properties() : null);
 	}
 
 	public final Transformer transformer;
@@ -193,9 +198,41 @@ public class TransformerLoggerFactory {
 	public Logger createLogger() throws TransformException {
 		setLoggingProperties(); // throws TransformException
 		String logName = selectLoggerName();
+		if (loggingProperties != null) {
+			return createStreamLogger(logName); // throws TransformException
+		}
 		return LoggerFactory.getLogger(logName);
 	}
 
+	/**
+	 * Create a logger which writes to the log file of the logging
+	 * properties. Logging to "System.out" or "System.err", or logging when no
+	 * log file is set, is written to the corresponding stream of the
+	 * transformer.
+	 *
+	 * @param logName The name of the logger.
+	 * @return A logger which writes to the log file.
+	 * @throws TransformException Thrown if the log file could not be opened.
+	 */
+	protected StreamLogger createStreamLogger(String logName) throws TransformException {
+		int logLevel = StreamLogger.toLevel(getLoggingProperty(LoggerProperty.LOG_LEVEL_ROOT.getPropertyName()));
+
+		String logFile = getLoggingProperty(LoggerProperty.LOG_FILE.getPropertyName());
+		if (logToSysOut(logFile)) {
+			return new StreamLogger(logName, logLevel, transformer.getSystemOut(), false);
+		} else if (logToSysErr(logFile)) {
+			return new StreamLogger(logName, logLevel, transformer.getSystemErr(), false);
+		}
+
+		PrintStream logStream;
+		try {
+			logStream = new PrintStream(new FileOutputStream(logFile), true);
+		} catch (FileNotFoundException e) {
+			throw new TransformException("Failed to open log file [ " + logFile + " ]", e);
+		}
+		return new StreamLogger(logName, logLevel, logStream, true);
+	}
+
 	protected void setLoggingProperties() throws TransformException {
 		String logFilePropertyName = LoggerProperty.LOG_FILE.getPropertyName();
 		if (settings.logFileName != null) {
@@ -269,6 +306,27 @@ public class TransformerLoggerFactory {
 
 	//
 
+	/**
+	 * Logging properties of the transformer. Null if the logging of the
+	 * transformer is not isolated, in which case logging properties are
+	 * system properties.
+	 */
+	private final Properties loggingProperties;
+
+	/**
+	 * Answer the value of a logging property.
+	 *
+	 * @param propertyName The name of the logging property.
+	 * @return The value of the logging property. Null if the property is not
+	 *         set.
+	 */
+	public String getLoggingProperty(String propertyName) {
+		if (loggingProperties != null) {
+			return loggingProperties.getProperty(propertyName);
+		}
+		return System.getProperty(propertyName);
+	}
+
 	protected static final String SIMPLE_LOGGER_PROPERTY_PREFIX = "org.slf4j.simpleLogger.";
 
 	protected String completePropertyName(String propertyName) {
@@ -347,7 +405,7 @@ public class TransformerLoggerFactory {
 		// System.out.println("setLoggingProperty [ " + propertyName + " ] to [
 		// " + newPropertyValue + " ] ...");
 
-		String oldPropertyValue = System.getProperty(propertyName);
+		String oldPropertyValue = getLoggingProperty(propertyName);
 
 		// System.out.println("setLoggingProperty Old value [ " +
 		// oldPropertyValue + " ]");
@@ -357,7 +415,11 @@ public class TransformerLoggerFactory {
 				propertyName, newPropertyValue, oldPropertyValue);
 
 		} else {
-			System.setProperty(propertyName, newPropertyValue);
+			if (loggingProperties != null) {
+				loggingProperties.setProperty(propertyName, newPropertyValue);
+			} else {
+				System.setProperty(propertyName, newPropertyValue);
+			}
 
 			nonTerseOutput("Assigning logging property [ %s ] to [ %s ]", propertyName, newPropertyValue);
 		}
@@ -371,12 +433,18 @@ public class TransformerLoggerFactory {
 	}
 
 	public static boolean logToSysOut() {
-		String logFile = System.getProperty(LoggerProperty.LOG_FILE.getPropertyName());
+		return logToSysOut(System.getProperty(LoggerProperty.LOG_FILE.getPropertyName()));
+	}
+
+	public static boolean logToSysOut(String logFile) {
 		return ((logFile != null) && logFile.equals("System.out"));
 	}
 
 	public static boolean logToSysErr() {
-		String logFile = System.getProperty(LoggerProperty.LOG_FILE.getPropertyName());
+		return logToSysErr(System.getProperty(LoggerProperty.LOG_FILE.getPropertyName()));
+	}
+
+	public static boolean logToSysErr(String logFile) {
 		return ((logFile == null) || logFile.equals("System.err"));
 	}
 }
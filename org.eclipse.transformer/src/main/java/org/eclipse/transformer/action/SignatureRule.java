@@ -49,7 +49,7 @@ public interface SignatureRule {
 
 	/**
 	 * Replace a single package according to the package rename rules. Package
-	 * names must match exactly.
+	 * names must match exactly, or must be a sub-package of a wildcard rename.
 	 *
 	 * @param initialName The package name which is to be replaced.
 	 * @return The replacement for the initial package name. Null if no
@@ -60,7 +60,7 @@ public interface SignatureRule {
 	/**
 	 * Replace a single package according to the package rename rules. The
 	 * package name has '/' separators, not '.' separators. Package names must
-	 * match exactly.
+	 * match exactly, or must be a sub-package of a wildcard rename.
 	 *
 	 * @param initialName The package name which is to be replaced.
 	 * @return The replacement for the initial package name. Null if no
@@ -11,10 +11,17 @@
 
 package org.eclipse.transformer.action.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +33,7 @@ import org.eclipse.transformer.action.SignatureRule.SignatureType;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.KeywordMatcher;
 import org.slf4j.Logger;
 
 import aQute.bnd.signatures.ArrayTypeSignature;
@@ -40,6 +48,7 @@ import aQute.bnd.signatures.SimpleClassTypeSignature;
 import aQute.bnd.signatures.ThrowsSignature;
 import aQute.bnd.signatures.TypeArgument;
 import aQute.bnd.signatures.TypeParameter;
+import aQute.lib.io.ByteBufferInputStream;
 import aQute.lib.io.IO;
 
 public abstract class ActionImpl implements Action {
@@ -49,6 +58,7 @@ public abstract class ActionImpl implements Action {
 		this.logger = logger;
 		this.isTerse = isTerse;
 		this.isVerbose = isVerbose;
+		this.timed = isVerbose;
 
 		this.buffer = buffer;
 
@@ -69,8 +79,48 @@ public abstract class ActionImpl implements Action {
 	}
 
 	public <A extends ActionImpl> A createUsing(ActionInit<A> init) {
-		return init.apply(getLogger(), getIsTerse(), getIsVerbose(), getBuffer(), getSelectionRule(),
+		A action = init.apply(getLogger(), getIsTerse(), getIsVerbose(), getBuffer(), getSelectionRule(),
+			getSignatureRule());
+		action.setInit(init);
+		return action;
+	}
+
+	/**
+	 * The initializer which was used to create this action. Only set when the
+	 * action was created by {@link #createUsing(ActionInit)}. Used to create
+	 * copies of the action for use by worker threads.
+	 */
+	private ActionInit<? extends ActionImpl> init;
+
+	protected void setInit(ActionInit<? extends ActionImpl> init) {
+		this.init = init;
+	}
+
+	public ActionInit<? extends ActionImpl> getInit() {
+		return init;
+	}
+
+	/**
+	 * Create a copy of this action which has its own change recording and its
+	 * own input buffer, but which shares the rules of this action. Actions are
+	 * not thread safe: A copy is needed for each thread which is to apply the
+	 * action.
+	 *
+	 * @param useBuffer The input buffer to be used by the copy.
+	 * @return A copy of this action. Null if this action was not created
+	 *         using an initializer.
+	 */
+	public ActionImpl copyUsing(InputBufferImpl useBuffer) {
+		ActionInit<? extends ActionImpl> useInit = getInit();
+		if (useInit == null) {
+			return null;
+		}
+
+		ActionImpl copy = useInit.apply(getLogger(), getIsTerse(), getIsVerbose(), useBuffer, getSelectionRule(),
 			getSignatureRule());
+		copy.setInit(useInit);
+		copy.setTimed(isTimed());
+		return copy;
 	}
 
 	//
@@ -95,6 +145,30 @@ public abstract class ActionImpl implements Action {
 		getLogger().trace(message, parms);
 	}
 
+	// Logging is done for every resource. The fixed arity logging methods
+	// check the log level before allocating a parameter array. Callers
+	// which pass primitive values must check the log level before boxing
+	// the values.
+
+	public void debug(String message) {
+		getLogger().debug(message);
+	}
+
+	public void debug(String message, Object parm) {
+		getLogger().debug(message, parm);
+	}
+
+	public void debug(String message, Object parm1, Object parm2) {
+		getLogger().debug(message, parm1, parm2);
+	}
+
+	public void debug(String message, Object parm1, Object parm2, Object parm3) {
+		Logger useLogger = getLogger();
+		if (useLogger.isDebugEnabled()) {
+			useLogger.debug(message, parm1, parm2, parm3);
+		}
+	}
+
 	public void debug(String message, Object... parms) {
 		getLogger().debug(message, parms);
 	}
@@ -113,6 +187,24 @@ public abstract class ActionImpl implements Action {
 		}
 	}
 
+	public void verbose(String message, Object parm) {
+		if (getIsVerbose()) {
+			getLogger().info(message, parm);
+		}
+	}
+
+	public void verbose(String message, Object parm1, Object parm2) {
+		if (getIsVerbose()) {
+			getLogger().info(message, parm1, parm2);
+		}
+	}
+
+	public void verbose(String message, Object parm1, Object parm2, Object parm3) {
+		if (getIsVerbose()) {
+			getLogger().info(message, parm1, parm2, parm3);
+		}
+	}
+
 	public void verbose(String message, Object... parms) {
 		if (getIsVerbose()) {
 			info(message, parms);
@@ -160,6 +252,18 @@ public abstract class ActionImpl implements Action {
 		getBuffer().setInputBuffer(inputBuffer);
 	}
 
+	/**
+	 * Create an output stream which collects bytes into buffers taken from
+	 * the buffer pool. The stream must be closed to return its buffer to the
+	 * pool.
+	 *
+	 * @param initialLength The initial length of the output buffer.
+	 * @return A new output stream.
+	 */
+	protected PooledOutputStream newOutputStream(int initialLength) {
+		return new PooledOutputStream(getBuffer(), initialLength);
+	}
+
 	//
 
 	private final SelectionRuleImpl selectionRule;
@@ -441,6 +545,289 @@ public abstract class ActionImpl implements Action {
 		return false;
 	}
 
+	// Timings: The time spent on each resource, and the bytes allocated
+	// while transforming each resource, are only recorded when requested.
+	// Timings are recorded by default when verbose output is requested.
+
+	private boolean timed;
+
+	public boolean isTimed() {
+		return timed;
+	}
+
+	public void setTimed(boolean timed) {
+		this.timed = timed;
+	}
+
+	/**
+	 * Answer a start time for a timing.
+	 *
+	 * @return The current time, in nanoseconds. 0 if timings are not
+	 *         recorded.
+	 */
+	protected long timingStart() {
+		return (timed ? System.nanoTime() : 0L);
+	}
+
+	/**
+	 * Answer the time elapsed since a start time.
+	 *
+	 * @param startNanos A start time obtained from {@link #timingStart()}.
+	 * @return The time elapsed since the start time, in nanoseconds. 0 if
+	 *         timings are not recorded.
+	 */
+	protected long timingSince(long startNanos) {
+		return (timed ? (System.nanoTime() - startNanos) : 0L);
+	}
+
+	/**
+	 * Answer a count of allocated bytes for a timing.
+	 *
+	 * @return The count of bytes allocated by the current thread. -1 if
+	 *         timings are not recorded, or if the count is not available.
+	 */
+	protected long allocatedStart() {
+		return (timed ? ActionTimings.getAllocatedBytes() : -1L);
+	}
+
+	//
+
+	// Large data may be transformed as a stream, instead of being read
+	// entirely into memory. Actions which support this set a stream
+	// threshold and implement 'transformStream'.
+
+	/**
+	 * Default length above which data is transformed as a stream, for actions
+	 * which support streaming.
+	 */
+	public static final long	DEFAULT_STREAM_THRESHOLD	= 8L * 1024L * 1024L;
+
+	private long				streamThreshold				= -1L;
+
+	/**
+	 * Answer the length above which data is transformed as a stream.
+	 *
+	 * @return The length above which data is transformed as a stream. -1 if
+	 *         this action does not transform data as a stream.
+	 */
+	public long getStreamThreshold() {
+		return streamThreshold;
+	}
+
+	public void setStreamThreshold(long streamThreshold) {
+		if (streamThreshold != -1L) {
+			FileUtils.verifyArray(0, streamThreshold + 1);
+		}
+		this.streamThreshold = streamThreshold;
+	}
+
+	/**
+	 * Tell if data of a specified length is transformed as a stream.
+	 * Containers always use streams. Other actions use streams when the
+	 * length is more than the stream threshold.
+	 *
+	 * @param inputLength The length of the data. -1 if the length is not
+	 *            known.
+	 * @return True or false telling if the data is transformed as a stream.
+	 */
+	public boolean useStreams(long inputLength) {
+		if (useStreams()) {
+			return true;
+		}
+		return (streamThreshold != -1L) && (inputLength > streamThreshold);
+	}
+
+	/**
+	 * Answer the name of the output of data which is transformed as a stream.
+	 * The name must be determined before any data is written.
+	 *
+	 * @param inputName The name of the input data.
+	 * @return The name of the output data.
+	 */
+	public String getStreamOutputName(String inputName) {
+		return inputName;
+	}
+
+	/**
+	 * Read the head of data which has an unknown length. At most one byte
+	 * more than the stream threshold is read, which tells if the data is to
+	 * be transformed as a stream.
+	 * <p>
+	 * The head is read into a buffer which is taken from the buffer pool. The
+	 * buffer must be returned using {@link #releaseHead(ByteData)} once the
+	 * head is no longer used.
+	 *
+	 * @param inputName The name of the input data.
+	 * @param inputStream The stream from which to read the data.
+	 * @return The head of the data. Null if this action does not transform
+	 *         data as a stream.
+	 * @throws TransformException Thrown if the read failed.
+	 */
+	protected ByteData readHead(String inputName, InputStream inputStream) throws TransformException {
+		if (streamThreshold == -1L) {
+			return null;
+		}
+
+		int maxCount = (int) (streamThreshold + 1);
+		InputBufferImpl pool = getBuffer();
+		byte[] buffer = pool.takeBuffer(Math.min(maxCount, FileUtils.BUFFER_ADJUSTMENT));
+		int bytesUsed = 0;
+		try {
+			while (bytesUsed < maxCount) {
+				int readLimit = Math.min(buffer.length, maxCount);
+				if (bytesUsed == readLimit) {
+					byte[] nextBuffer = pool.takeBuffer(Math.min(maxCount, FileUtils.getGrowthLength(bytesUsed)));
+					System.arraycopy(buffer, 0, nextBuffer, 0, bytesUsed);
+					pool.releaseBuffer(buffer);
+					buffer = nextBuffer;
+					readLimit = Math.min(buffer.length, maxCount);
+				}
+				int bytesRead = inputStream.read(buffer, bytesUsed, readLimit - bytesUsed); // throws
+																							// IOException
+				if (bytesRead == -1) {
+					break;
+				}
+				bytesUsed += bytesRead;
+			}
+		} catch (IOException e) {
+			pool.releaseBuffer(buffer);
+			throw new TransformException("Failed to read raw bytes [ " + inputName + " ]", e);
+		}
+
+		return new ByteData(inputName, buffer, 0, bytesUsed);
+	}
+
+	/**
+	 * Return the buffer of a head to the buffer pool. The head must not be
+	 * used after being released.
+	 *
+	 * @param headData The head, as obtained from
+	 *            {@link #readHead(String, InputStream)}. Nothing is done if
+	 *            the head is null.
+	 */
+	protected void releaseHead(ByteData headData) {
+		if (headData != null) {
+			getBuffer().releaseBuffer(headData.data);
+		}
+	}
+
+	/**
+	 * Transform data as a stream. Record changes the same as when applying to
+	 * an input stream.
+	 *
+	 * @param inputName The name of the input data.
+	 * @param inputStream The stream from which to read the data.
+	 * @param outputStream The stream to which to write transformed data.
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	public void applyStream(String inputName, InputStream inputStream, OutputStream outputStream)
+		throws TransformException {
+
+		startRecording(inputName);
+		try {
+			basicApplyStream(inputName, inputStream, outputStream);
+		} finally {
+			stopRecording(inputName);
+		}
+	}
+
+	protected void basicApplyStream(String inputName, InputStream inputStream, OutputStream outputStream)
+		throws TransformException {
+
+		if (isDebugEnabled()) {
+			debug("[ {}.{} ]: Streaming [ {} ]", getClass().getSimpleName(), "apply", inputName);
+		}
+
+		setResourceNames(inputName, getStreamOutputName(inputName));
+
+		// Reads and writes are interleaved with the transform: All of the
+		// time is recorded as transform time.
+		long startNanos = timingStart();
+		long startAllocated = allocatedStart();
+		try {
+			transformStream(inputName, inputStream, outputStream);
+		} finally {
+			ChangesImpl useChanges = getActiveChanges();
+			useChanges.addTransformNanos(timingSince(startNanos));
+			useChanges.addAllocatedBytes(ActionTimings.getAllocatedSince(startAllocated));
+		}
+	}
+
+	/**
+	 * Transform data as a stream. The output name has already been set.
+	 * <p>
+	 * Actions which set a stream threshold override this to transform data
+	 * without reading all of the data into memory. By default, the data is
+	 * read into memory and transformed by {@link #apply(String, byte[], int)}.
+	 *
+	 * @param inputName The name of the input data.
+	 * @param inputStream The stream from which to read the data.
+	 * @param outputStream The stream to which to write transformed data. The
+	 *            stream must not be closed.
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	protected void transformStream(String inputName, InputStream inputStream, OutputStream outputStream)
+		throws TransformException {
+
+		ByteData inputData = read(inputName, inputStream, -1);
+		ByteData outputData = apply(inputName, inputData.data, inputData.length);
+		write(((outputData == null) ? inputData : outputData), outputStream);
+	}
+
+	/**
+	 * Transform data which has been read into memory using
+	 * {@link #transformStream(String, InputStream, OutputStream)}. Data is
+	 * transformed the same regardless of whether it is held in memory or is
+	 * streamed.
+	 *
+	 * @param inputName The name of the input data.
+	 * @param inputBytes The input data.
+	 * @param inputLength The length of the input data.
+	 * @return The transformed data. Null if no changes were made.
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	protected ByteData applyAsStream(String inputName, byte[] inputBytes, int inputLength)
+		throws TransformException {
+
+		setResourceNames(inputName, getStreamOutputName(inputName));
+
+		try (PooledOutputStream outputStream = newOutputStream(inputLength)) {
+			transformStream(inputName, new ByteBufferInputStream(inputBytes, 0, inputLength), outputStream);
+
+			if (!hasNonResourceNameChanges()) {
+				return null;
+			}
+
+			byte[] outputBytes = outputStream.toByteArray();
+			return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		}
+	}
+
+	/**
+	 * Replace keyword matches of streamed UTF-8 text. Record a replacement for
+	 * each line which has at least one match. Line terminators are kept.
+	 *
+	 * @param inputName The name of the input data.
+	 * @param matcher The matcher of the keywords.
+	 * @param filter Optional filter of keyword matches.
+	 * @param inputStream The stream from which to read the text.
+	 * @param outputStream The stream to which to write the replaced text. The
+	 *            stream is not closed.
+	 * @throws TransformException Thrown if the read or write failed.
+	 */
+	protected void replaceStream(String inputName, KeywordMatcher matcher, KeywordMatcher.MatchFilter filter,
+		InputStream inputStream, OutputStream outputStream) throws TransformException {
+
+		Reader reader = new InputStreamReader(inputStream, UTF_8);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+		try {
+			addReplacements(matcher.replace(reader, writer, filter)); // throws IOException
+			writer.flush(); // throws IOException
+		} catch (IOException e) {
+			throw new TransformException("Failed to transform [ " + inputName + " ]", e);
+		}
+	}
+
 	/**
 	 * Read bytes from an input stream. Answer byte data and a count of bytes
 	 * read.
@@ -513,51 +900,39 @@ public abstract class ActionImpl implements Action {
 	public InputStreamData basicApply(String inputName, InputStream inputStream, int inputCount)
 		throws TransformException {
 
-		String className = getClass().getSimpleName();
+		boolean isDebugEnabled = isDebugEnabled();
+		String className = (isDebugEnabled ? getClass().getSimpleName() : null);
 		String methodName = "apply";
 
-		debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
+		if (isDebugEnabled) {
+			debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
+		}
+		Object event = TransformEvents.RESOURCE.begin();
+		long readStart = timingStart();
 		ByteData inputData = read(inputName, inputStream, inputCount); // throws
 																		// JakartaTransformException
+		getActiveChanges().addReadNanos(timingSince(readStart));
 
-		if (isDebugEnabled()) {
-			byte[] altInputData;
-			if (inputData.length < inputData.data.length) {
-				altInputData = new byte[inputData.length];
-				System.arraycopy(inputData.data, 0, altInputData, 0, inputData.length);
-			} else {
-				altInputData = inputData.data;
-			}
-			debug("[ {}.{} ]: Obtained [ {} ] [ {} ] [ {} ]", className, methodName, inputName, inputData.length,
-				altInputData);
-		}
+		// The data is not logged: Only the name and length. Use the class
+		// action debug dump to log the bytes of classes.
 
-		ByteData outputData;
-		try {
-			outputData = apply(inputName, inputData.data, inputData.length);
-			// throws JakartaTransformException
-		} catch (Throwable th) {
-			error("Transform failure [ {} ]", th, inputName);
-			outputData = null;
+		if (isDebugEnabled) {
+			debug("[ {}.{} ]: Obtained [ {} ] [ {} ]", className, methodName, inputName, inputData.length);
 		}
 
+		ByteData outputData = timedApply(inputName, inputData);
+
 		if (outputData == null) {
-			debug("[ {}.{} ]: Null transform", className, methodName);
-			outputData = inputData;
-		} else {
-			if (isDebugEnabled()) {
-				byte[] altOutputData;
-				if (outputData.length < outputData.data.length) {
-					altOutputData = new byte[outputData.length];
-					System.arraycopy(outputData.data, 0, altOutputData, 0, outputData.length);
-				} else {
-					altOutputData = outputData.data;
-				}
-				debug("[ {}.{} ]: Active transform [ {} ] [ {} ] [ {} ]", className, methodName, outputData.name,
-					outputData.length, altOutputData);
+			if (isDebugEnabled) {
+				debug("[ {}.{} ]: Null transform", className, methodName);
 			}
+			outputData = inputData;
+		} else if (isDebugEnabled) {
+			debug("[ {}.{} ]: Active transform [ {} ] [ {} ]", className, methodName, outputData.name,
+				outputData.length);
 		}
 
+		commitEvent(event, inputName, inputData.length, outputData.length);
 		return new InputStreamData(outputData);
 	}
 
@@ -577,15 +952,102 @@ public abstract class ActionImpl implements Action {
 	public void basicApply(String inputName, InputStream inputStream, long inputCount, OutputStream outputStream)
 		throws TransformException {
 
-		int intInputCount = FileUtils.verifyArray(0, inputCount);
+		Object event = TransformEvents.RESOURCE.begin();
 
-		String className = getClass().getSimpleName();
+		if (useStreams(inputCount)) {
+			basicApplyStream(inputName, inputStream, outputStream);
+			commitEvent(event, inputName, inputCount, -1L);
+			return;
+		}
+
+		boolean isDebugEnabled = isDebugEnabled();
+		String className = (isDebugEnabled ? getClass().getSimpleName() : null);
 		String methodName = "apply";
 
-		debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
-		ByteData inputData = read(inputName, inputStream, intInputCount); // throws
-																			// JakartaTransformException
-		debug("[ {}.{} ]: Obtained [ {} ] [ {} ]", className, methodName, inputName, inputData.length);
+		if (isDebugEnabled) {
+			debug("[ {}.{} ]: Requested [ {} ] [ {} ]", className, methodName, inputName, inputCount);
+		}
+
+		// The head of data of an unknown length is read into a pooled buffer,
+		// which is released once the data is written.
+
+		long readStart = timingStart();
+		ByteData headData = null;
+		try {
+			ByteData inputData;
+			if ((inputCount == -1L) && (streamThreshold != -1L)) {
+				// The length is not known: Use the head of the data to decide
+				// whether to transform the data as a stream.
+				headData = readHead(inputName, inputStream);
+				if (headData.length > streamThreshold) {
+					getActiveChanges().addReadNanos(timingSince(readStart));
+					basicApplyStream(inputName, FileUtils.join(headData, inputStream), outputStream);
+					commitEvent(event, inputName, inputCount, -1L);
+					return;
+				}
+				inputData = headData;
+			} else {
+				int intInputCount = FileUtils.verifyArray(0, inputCount);
+				inputData = read(inputName, inputStream, intInputCount); // throws
+																		// JakartaTransformException
+			}
+			getActiveChanges().addReadNanos(timingSince(readStart));
+			if (isDebugEnabled) {
+				debug("[ {}.{} ]: Obtained [ {} ] [ {} ]", className, methodName, inputName, inputData.length);
+			}
+
+			ByteData outputData = timedApply(inputName, inputData);
+
+			if (outputData == null) {
+				if (isDebugEnabled) {
+					debug("[ {}.{} ]: Null transform", className, methodName);
+				}
+				outputData = inputData;
+			} else if (isDebugEnabled) {
+				debug("[ {}.{} ]: Active transform [ {} ] [ {} ]", className, methodName, outputData.name,
+					outputData.length);
+			}
+
+			long writeStart = timingStart();
+			write(outputData, outputStream); // throws JakartaTransformException
+			getActiveChanges().addWriteNanos(timingSince(writeStart));
+
+			commitEvent(event, inputName, inputData.length, outputData.length);
+		} finally {
+			releaseHead(headData);
+		}
+	}
+
+	/**
+	 * Complete a resource event of this action.
+	 *
+	 * @param event The event, as obtained from {@link TransformEvents#begin()}.
+	 *            Null if no event was begun.
+	 * @param inputName The name of the resource.
+	 * @param inputLength The length of the resource. -1 if not known.
+	 * @param outputLength The length of the transformed resource. -1 if not
+	 *            known.
+	 */
+	protected void commitEvent(Object event, String inputName, long inputLength, long outputLength) {
+		if (event != null) {
+			TransformEvents.RESOURCE.commit(event, inputName, getActionType(), inputLength, outputLength,
+				hasChanges());
+		}
+	}
+
+	/**
+	 * Apply this action to data which has already been read. Record the
+	 * time spent, the bytes allocated, and the input and output lengths in
+	 * the active changes.
+	 *
+	 * @param inputName A name associated with the input data.
+	 * @param inputData The input data.
+	 * @return The transformed data. Null if the transform failed or if no
+	 *         changes were made.
+	 */
+	protected ByteData timedApply(String inputName, ByteData inputData) {
+		long startNanos = timingStart();
+		long startAllocated = allocatedStart();
 
 		ByteData outputData;
 		try {
@@ -596,15 +1058,36 @@ public abstract class ActionImpl implements Action {
 			outputData = null;
 		}
 
-		if (outputData == null) {
-			debug("[ {}.{} ]: Null transform", className, methodName);
-			outputData = inputData;
-		} else {
-			debug("[ {}.{} ]: Active transform [ {} ] [ {} ]", className, methodName, outputData.name,
-				outputData.length);
-		}
+		ChangesImpl useChanges = getActiveChanges();
+		useChanges.addTransformNanos(timingSince(startNanos));
+		useChanges.addAllocatedBytes(ActionTimings.getAllocatedSince(startAllocated));
+		useChanges.setLengths(inputData.length, ((outputData == null) ? inputData : outputData).length);
 
-		write(outputData, outputStream); // throws JakartaTransformException
+		return outputData;
+	}
+
+	/**
+	 * Apply this action to data which has already been read. Record changes
+	 * the same as when applying to an input stream.
+	 *
+	 * @param inputName A name associated with the input data.
+	 * @param inputData The input data.
+	 * @return The transformed data. The input data if no changes were made.
+	 */
+	public ByteData apply(String inputName, ByteData inputData) {
+		startRecording(inputName);
+		try {
+			Object event = TransformEvents.RESOURCE.begin();
+			ByteData outputData = timedApply(inputName, inputData);
+			if (outputData == null) {
+				outputData = inputData;
+			}
+			commitEvent(event, inputName, inputData.length, outputData.length);
+			return outputData;
+
+		} finally {
+			stopRecording(inputName);
+		}
 	}
 
 	protected abstract ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException;
@@ -613,7 +1096,9 @@ public abstract class ActionImpl implements Action {
 	public void apply(String inputName, File inputFile, File outputFile) throws TransformException {
 
 		long inputLength = inputFile.length();
-		debug("Input [ {} ] Length [ {} ]", inputName, inputLength);
+		if (isDebugEnabled()) {
+			debug("Input [ {} ] Length [ {} ]", inputName, inputLength);
+		}
 
 		InputStream inputStream = openInputStream(inputFile);
 		try {
@@ -0,0 +1,460 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+
+/**
+ * Timings of the resources of a container.
+ * <p>
+ * Timings are totaled per action, and the slowest resources are kept. The
+ * time spent on a resource is split into the time spent reading the
+ * resource, the time spent transforming the resource, and the time spent
+ * writing the resource. A nested archive is recorded as a single resource,
+ * with the time spent on the nested archive as its transform time.
+ * <p>
+ * Timings are not thread safe: Timings are recorded by the thread which
+ * processes the container.
+ */
+public class ActionTimings {
+	/** Count of slowest resources which are kept. */
+	public static final int		SLOWEST_COUNT		= 10;
+
+	/** Action name used for resources which are copied without a transform. */
+	public static final String	COPY_ACTION_NAME	= "Copy";
+
+	// The bytes allocated by a thread are available from the HotSpot thread
+	// bean. That bean is obtained reflectively, since it is not available on
+	// all VMs. The bean is invoked through an exact method handle, which
+	// neither boxes the result nor allocates a parameter array.
+
+	private static final MethodHandle GET_ALLOCATED_BYTES;
+
+	static {
+		MethodHandle getAllocatedBytes = null;
+		try {
+			ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+			Class<?> hotSpotBean = Class.forName("com.sun.management.ThreadMXBean");
+			if (hotSpotBean.isInstance(threadBean)) {
+				Method isEnabled = hotSpotBean.getMethod("isThreadAllocatedMemoryEnabled");
+				if (((Boolean) isEnabled.invoke(threadBean)).booleanValue()) {
+					getAllocatedBytes = MethodHandles.publicLookup()
+						.unreflect(hotSpotBean.getMethod("getThreadAllocatedBytes", long.class))
+						.bindTo(threadBean)
+						.asType(MethodType.methodType(long.class, long.class));
+				}
+			}
+		} catch (Exception | LinkageError e) {
+			getAllocatedBytes = null;
+		}
+		GET_ALLOCATED_BYTES = getAllocatedBytes;
+	}
+
+	/**
+	 * Answer the count of bytes which have been allocated by the current
+	 * thread. The count is an estimate, and is only useful for computing
+	 * differences.
+	 *
+	 * @return The count of bytes allocated by the current thread. -1 if the
+	 *         count is not available.
+	 */
+	public static long getAllocatedBytes() {
+		if (GET_ALLOCATED_BYTES == null) {
+			return -1L;
+		}
+		try {
+			return (long) GET_ALLOCATED_BYTES.invokeExact(Thread.currentThread()
+				.getId());
+		} catch (Throwable th) {
+			return -1L;
+		}
+	}
+
+	/**
+	 * Answer the bytes allocated by the current thread since a prior count.
+	 *
+	 * @param priorBytes A count obtained from {@link #getAllocatedBytes()}.
+	 * @return The bytes allocated since the prior count. 0 if the count is
+	 *         not available.
+	 */
+	public static long getAllocatedSince(long priorBytes) {
+		if (priorBytes == -1L) {
+			return 0L;
+		}
+		long allocatedBytes = getAllocatedBytes();
+		return ((allocatedBytes == -1L) ? 0L : (allocatedBytes - priorBytes));
+	}
+
+	//
+
+	/**
+	 * The timing of one resource.
+	 */
+	public static class Entry {
+		public Entry(String name, String actionName, long readNanos, long transformNanos, long writeNanos,
+			long inputLength, long outputLength, long allocatedBytes) {
+			this.name = name;
+			this.actionName = actionName;
+			this.readNanos = readNanos;
+			this.transformNanos = transformNanos;
+			this.writeNanos = writeNanos;
+			this.inputLength = inputLength;
+			this.outputLength = outputLength;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		public final String	name;
+		public final String	actionName;
+		private long		readNanos;
+		private long		transformNanos;
+		private long		writeNanos;
+		public final long	inputLength;
+		public final long	outputLength;
+		public final long	allocatedBytes;
+
+		public long getReadNanos() {
+			return readNanos;
+		}
+
+		public long getTransformNanos() {
+			return transformNanos;
+		}
+
+		public long getWriteNanos() {
+			return writeNanos;
+		}
+
+		public long getTotalNanos() {
+			return readNanos + transformNanos + writeNanos;
+		}
+
+		public void addReadNanos(long nanos) {
+			readNanos += nanos;
+		}
+
+		public void addWriteNanos(long nanos) {
+			writeNanos += nanos;
+		}
+	}
+
+	private static final Comparator<Entry> BY_TOTAL = Comparator.comparingLong(Entry::getTotalNanos);
+
+	/**
+	 * The totals of the resources of one action.
+	 */
+	public static class Totals {
+		private int		count;
+		private long	readNanos;
+		private long	transformNanos;
+		private long	writeNanos;
+		private long	inputLength;
+		private long	outputLength;
+		private long	allocatedBytes;
+
+		public int getCount() {
+			return count;
+		}
+
+		public long getReadNanos() {
+			return readNanos;
+		}
+
+		public long getTransformNanos() {
+			return transformNanos;
+		}
+
+		public long getWriteNanos() {
+			return writeNanos;
+		}
+
+		public long getTotalNanos() {
+			return readNanos + transformNanos + writeNanos;
+		}
+
+		public long getInputLength() {
+			return inputLength;
+		}
+
+		public long getOutputLength() {
+			return outputLength;
+		}
+
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		public void add(Entry entry) {
+			count++;
+			readNanos += entry.readNanos;
+			transformNanos += entry.transformNanos;
+			writeNanos += entry.writeNanos;
+			inputLength += entry.inputLength;
+			outputLength += entry.outputLength;
+			allocatedBytes += entry.allocatedBytes;
+		}
+
+		public void add(Totals other) {
+			count += other.count;
+			readNanos += other.readNanos;
+			transformNanos += other.transformNanos;
+			writeNanos += other.writeNanos;
+			inputLength += other.inputLength;
+			outputLength += other.outputLength;
+			allocatedBytes += other.allocatedBytes;
+		}
+	}
+
+	//
+
+	public ActionTimings() {
+		this.totalsByAction = new TreeMap<>();
+		this.slowest = new PriorityQueue<>(SLOWEST_COUNT + 1, BY_TOTAL);
+	}
+
+	private final Map<String, Totals>	totalsByAction;
+	private final PriorityQueue<Entry>	slowest;
+
+	public boolean isEmpty() {
+		return totalsByAction.isEmpty();
+	}
+
+	public void clear() {
+		totalsByAction.clear();
+		slowest.clear();
+	}
+
+	public Map<String, Totals> getTotalsByAction() {
+		return Collections.unmodifiableMap(totalsByAction);
+	}
+
+	public Totals getAllTotals() {
+		Totals allTotals = new Totals();
+		for (Totals totals : totalsByAction.values()) {
+			allTotals.add(totals);
+		}
+		return allTotals;
+	}
+
+	/**
+	 * Answer the slowest resources, slowest first.
+	 *
+	 * @return The slowest resources.
+	 */
+	public List<Entry> getSlowest() {
+		List<Entry> entries = new ArrayList<>(slowest);
+		entries.sort(BY_TOTAL.reversed());
+		return entries;
+	}
+
+	public void record(Entry entry) {
+		totalsByAction.computeIfAbsent(entry.actionName, (String actionName) -> new Totals())
+			.add(entry);
+		addSlowest(entry);
+	}
+
+	private void addSlowest(Entry entry) {
+		if (slowest.size() < SLOWEST_COUNT) {
+			slowest.add(entry);
+		} else if (entry.getTotalNanos() > slowest.peek()
+			.getTotalNanos()) {
+			slowest.poll();
+			slowest.add(entry);
+		}
+	}
+
+	public void add(ActionTimings other) {
+		for (Map.Entry<String, Totals> otherTotals : other.totalsByAction.entrySet()) {
+			totalsByAction.computeIfAbsent(otherTotals.getKey(), (String actionName) -> new Totals())
+				.add(otherTotals.getValue());
+		}
+		for (Entry entry : other.slowest) {
+			addSlowest(entry);
+		}
+	}
+
+	//
+
+	private static final String	TOTALS_LINE		= "[ %22s ] [ %6s ] Read [ %9s ] Transform [ %9s ] Write [ %9s ]%s";
+	private static final String	LENGTHS_LINE	= "[ %22s ] [ %6s ] In [ %12s ] Out [ %12s ] Allocated [ %12s ]%s";
+	private static final String	SLOWEST_LINE	= "[ %9s ] [ %22s ] [ %s ]%s";
+
+	private static String formatMillis(long nanos) {
+		return String.format("%.3fms", nanos / 1000000.0);
+	}
+
+	private List<String> formatLines() {
+		List<String> lines = new ArrayList<>();
+		lines.add("[ Timings: ]");
+		Totals allTotals = getAllTotals();
+		lines.add(formatTotals("All Actions", allTotals));
+		for (Map.Entry<String, Totals> totals : totalsByAction.entrySet()) {
+			lines.add(formatTotals(totals.getKey(), totals.getValue()));
+		}
+		lines.add(formatLengths("All Actions", allTotals));
+		for (Map.Entry<String, Totals> totals : totalsByAction.entrySet()) {
+			lines.add(formatLengths(totals.getKey(), totals.getValue()));
+		}
+		lines.add("[ Slowest resources: ]");
+		for (Entry entry : getSlowest()) {
+			lines.add(String.format(SLOWEST_LINE, formatMillis(entry.getTotalNanos()), entry.actionName, entry.name,
+				""));
+		}
+		return lines;
+	}
+
+	private static String formatTotals(String actionName, Totals totals) {
+		return String.format(TOTALS_LINE, actionName, totals.count, formatMillis(totals.readNanos),
+			formatMillis(totals.transformNanos), formatMillis(totals.writeNanos), "");
+	}
+
+	private static String formatLengths(String actionName, Totals totals) {
+		return String.format(LENGTHS_LINE, actionName, totals.count, totals.inputLength, totals.outputLength,
+			totals.allocatedBytes, "");
+	}
+
+	public void display(PrintStream stream) {
+		for (String line : formatLines()) {
+			stream.print(line);
+			stream.print("\n");
+		}
+	}
+
+	public void display(Logger logger) {
+		for (String line : formatLines()) {
+			logger.info(line);
+		}
+	}
+
+	//
+
+	/**
+	 * Write these timings as a JSON object. Times are written in nanoseconds.
+	 *
+	 * @param output The output to which to write the timings.
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public void writeJson(Appendable output) throws IOException {
+		output.append("{\"actions\":[");
+		boolean isFirst = true;
+		for (Map.Entry<String, Totals> actionTotals : totalsByAction.entrySet()) {
+			if (!isFirst) {
+				output.append(',');
+			}
+			isFirst = false;
+
+			Totals totals = actionTotals.getValue();
+			output.append("{\"action\":");
+			appendJson(output, actionTotals.getKey());
+			output.append(",\"count\":")
+				.append(Integer.toString(totals.count));
+			appendTimes(output, totals.readNanos, totals.transformNanos, totals.writeNanos);
+			appendLengths(output, totals.inputLength, totals.outputLength, totals.allocatedBytes);
+			output.append('}');
+		}
+
+		output.append("],\"slowest\":[");
+		isFirst = true;
+		for (Entry entry : getSlowest()) {
+			if (!isFirst) {
+				output.append(',');
+			}
+			isFirst = false;
+
+			output.append("{\"name\":");
+			appendJson(output, entry.name);
+			output.append(",\"action\":");
+			appendJson(output, entry.actionName);
+			appendTimes(output, entry.readNanos, entry.transformNanos, entry.writeNanos);
+			appendLengths(output, entry.inputLength, entry.outputLength, entry.allocatedBytes);
+			output.append('}');
+		}
+		output.append("]}");
+	}
+
+	private static void appendTimes(Appendable output, long readNanos, long transformNanos, long writeNanos)
+		throws IOException {
+		output.append(",\"readNanos\":")
+			.append(Long.toString(readNanos))
+			.append(",\"transformNanos\":")
+			.append(Long.toString(transformNanos))
+			.append(",\"writeNanos\":")
+			.append(Long.toString(writeNanos));
+	}
+
+	private static void appendLengths(Appendable output, long inputLength, long outputLength, long allocatedBytes)
+		throws IOException {
+		output.append(",\"inputBytes\":")
+			.append(Long.toString(inputLength))
+			.append(",\"outputBytes\":")
+			.append(Long.toString(outputLength))
+			.append(",\"allocatedBytes\":")
+			.append(Long.toString(allocatedBytes));
+	}
+
+	/**
+	 * Write a JSON string.
+	 *
+	 * @param output The output to which to write the string.
+	 * @param text The text of the string. Null is written as a JSON null.
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public static void appendJson(Appendable output, String text) throws IOException {
+		if (text == null) {
+			output.append("null");
+			return;
+		}
+		output.append('"');
+		for (int charNo = 0; charNo < text.length(); charNo++) {
+			char c = text.charAt(charNo);
+			switch (c) {
+				case '"':
+					output.append("\\\"");
+					break;
+				case '\\':
+					output.append("\\\\");
+					break;
+				case '\n':
+					output.append("\\n");
+					break;
+				case '\r':
+					output.append("\\r");
+					break;
+				case '\t':
+					output.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						output.append(String.format("\\u%04x", (int) c));
+					} else {
+						output.append(c);
+					}
+			}
+		}
+		output.append('"');
+	}
+}
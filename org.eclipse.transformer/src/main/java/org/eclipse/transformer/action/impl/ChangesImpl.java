@@ -33,6 +33,13 @@ public class ChangesImpl implements Changes {
 		outputResourceName = null;
 
 		replacements = 0;
+
+		readNanos = 0L;
+		transformNanos = 0L;
+		writeNanos = 0L;
+		inputLength = 0L;
+		outputLength = 0L;
+		allocatedBytes = 0L;
 	}
 
 	//
@@ -90,6 +97,76 @@ public class ChangesImpl implements Changes {
 		return (replacements > 0);
 	}
 
+	// Timings: The time spent reading, transforming, and writing the
+	// resource, the lengths of the resource, and the bytes allocated while
+	// transforming the resource. Times are in nanoseconds. Phases which are
+	// performed by the caller of the action are not included.
+
+	private long	readNanos;
+	private long	transformNanos;
+	private long	writeNanos;
+	private long	inputLength;
+	private long	outputLength;
+	private long	allocatedBytes;
+
+	public long getReadNanos() {
+		return readNanos;
+	}
+
+	public long getTransformNanos() {
+		return transformNanos;
+	}
+
+	public long getWriteNanos() {
+		return writeNanos;
+	}
+
+	public long getInputLength() {
+		return inputLength;
+	}
+
+	public long getOutputLength() {
+		return outputLength;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public void addReadNanos(long nanos) {
+		readNanos += nanos;
+	}
+
+	public void addTransformNanos(long nanos) {
+		transformNanos += nanos;
+	}
+
+	public void addWriteNanos(long nanos) {
+		writeNanos += nanos;
+	}
+
+	public void setLengths(long inputLength, long outputLength) {
+		this.inputLength = inputLength;
+		this.outputLength = outputLength;
+	}
+
+	public void addAllocatedBytes(long bytes) {
+		allocatedBytes += bytes;
+	}
+
+	/**
+	 * Create a timing entry from the timings of these changes.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @param actionName The name of the action which transformed the
+	 *            resource.
+	 * @return A new timing entry.
+	 */
+	public ActionTimings.Entry newTiming(String resourceName, String actionName) {
+		return new ActionTimings.Entry(resourceName, actionName, readNanos, transformNanos, writeNanos, inputLength,
+			outputLength, allocatedBytes);
+	}
+
 	//
 
 	@Override
@@ -193,10 +193,14 @@ public class ClassActionImpl extends ActionImpl {
 		}
 	}
 
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
 	private String debugDumpLine(StringBuilder builder, byte[] bytes, int offset, int width) {
 		for (int byteNo = 0; byteNo < width; byteNo++) {
 			byte nextByte = bytes[offset + byteNo];
-			builder.append(String.format("%02x ", nextByte));
+			builder.append(HEX_DIGITS[(nextByte >> 4) & 0x0F])
+				.append(HEX_DIGITS[nextByte & 0x0F])
+				.append(' ');
 		}
 		String line = builder.toString();
 		builder.setLength(0);
@@ -279,11 +283,64 @@ public class ClassActionImpl extends ActionImpl {
 
 	//
 
+	private boolean rewriteConstants = true;
+
+	/**
+	 * Set whether classes are transformed by rewriting their constant pool,
+	 * when possible. When not set, classes are always fully parsed and
+	 * rebuilt.
+	 *
+	 * @param rewriteConstants True or false telling if classes are transformed
+	 *            by rewriting their constant pool.
+	 */
+	void setRewriteConstants(boolean rewriteConstants) {
+		this.rewriteConstants = rewriteConstants;
+	}
+
+	//
+
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+		Object event = TransformEvents.CLASS.begin();
+		ByteData outputData = transform(inputName, inputBytes, inputLength);
+		if (event != null) {
+			TransformEvents.CLASS.commit(event, inputName, getActionType(), inputLength,
+				((outputData == null) ? inputLength : outputData.length), hasChanges());
+		}
+		return outputData;
+	}
+
+	private ByteData transform(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
+		boolean isDebugEnabled = isDebugEnabled();
+		if (isDebugEnabled) {
+			debug("Read [ {} ] Bytes [ {} ]", inputName, inputLength);
+			debugDump(inputBytes, 0, inputLength);
+		}
+
+		// Most classes do not reference any value which is changed by the
+		// rules. Detect these by scanning the raw constant pool, and skip the
+		// full parse of the class.
+
+		SignatureRuleImpl signatureRule = getSignatureRule();
+		if (!signatureRule.hasConstantStrings(inputName) && !signatureRule.getConstantPoolScanner()
+			.matches(inputBytes, 0, inputLength)) {
+			setResourceNames(inputName, inputName);
+			if (getIsVerbose()) {
+				verbose("  Class bytes: {} {} (no matching constants)", inputName, inputLength);
+			}
+			return null;
+		}
+
+		// Most transformations change only the constant pool. Unless the class
+		// has attributes which are not known, rewrite just the constant pool,
+		// and copy the rest of the class bytes.
 
-		debug("Read [ {} ] Bytes [ {} ]", inputName, inputLength);
-		debugDump(inputBytes, 0, inputLength);
+		if (rewriteConstants) {
+			ConstantPoolRewriter rewriter = ConstantPoolRewriter.scan(this, inputName, inputBytes, inputLength);
+			if (rewriter != null) {
+				return rewrite(rewriter, inputName, inputLength);
+			}
+		}
 
 		ClassFile inputClass;
 		try {
@@ -295,24 +352,26 @@ public class ClassActionImpl extends ActionImpl {
 			return null;
 		}
 
-		debug("Class [ {} ] as [ {} ] ", inputName, inputClass.this_class);
-		debug("  Super [ {} ]", inputClass.super_class);
-		if (inputClass.interfaces != null) {
-			debug("  Interfaces [ {} ]", inputClass.interfaces.length);
-			for (String interfaceName : inputClass.interfaces) {
-				debug("    [ {} ]", interfaceName);
+		if (isDebugEnabled) {
+			debug("Class [ {} ] as [ {} ] ", inputName, inputClass.this_class);
+			debug("  Super [ {} ]", inputClass.super_class);
+			if (inputClass.interfaces != null) {
+				debug("  Interfaces [ {} ]", inputClass.interfaces.length);
+				for (String interfaceName : inputClass.interfaces) {
+					debug("    [ {} ]", interfaceName);
+				}
 			}
-		}
-		if (inputClass.fields != null) {
-			debug("  Fields [ {} ]", inputClass.fields.length);
-			for (FieldInfo field : inputClass.fields) {
-				debug("    [ {} ] [ {} ]", field.name, field.descriptor);
+			if (inputClass.fields != null) {
+				debug("  Fields [ {} ]", inputClass.fields.length);
+				for (FieldInfo field : inputClass.fields) {
+					debug("    [ {} ] [ {} ]", field.name, field.descriptor);
+				}
 			}
-		}
-		if (inputClass.methods != null) {
-			debug("  Methods [ {} ]", inputClass.methods.length);
-			for (MethodInfo method : inputClass.methods) {
-				debug("    [ {} ] [ {} ]", method.name, method.descriptor);
+			if (inputClass.methods != null) {
+				debug("  Methods [ {} ]", inputClass.methods.length);
+				for (MethodInfo method : inputClass.methods) {
+					debug("    [ {} ] [ {} ]", method.name, method.descriptor);
+				}
 			}
 		}
 
@@ -425,7 +484,9 @@ public class ClassActionImpl extends ActionImpl {
 		}
 
 		MutableConstantPool constants = classBuilder.constant_pool();
-		debug("  Constant pool: {}", constants.size());
+		if (isDebugEnabled) {
+			debug("  Constant pool: {}", constants.size());
+		}
 
 		int modifiedConstants = transform(constants, inputName);
 		if (modifiedConstants > 0) {
@@ -433,7 +494,9 @@ public class ClassActionImpl extends ActionImpl {
 		}
 
 		if (!hasNonResourceNameChanges()) {
-			verbose("  Class bytes: {} {}", inputName, inputLength);
+			if (getIsVerbose()) {
+				verbose("  Class bytes: {} {}", inputName, inputLength);
+			}
 			return null;
 		}
 
@@ -447,7 +510,77 @@ public class ClassActionImpl extends ActionImpl {
 		}
 
 		byte[] outputBytes = outputClassData.toByteArray();
-		verbose("  Class size: {}: {} -> {}", inputName, inputLength, outputBytes.length);
+		if (getIsVerbose()) {
+			verbose("  Class size: {}: {} -> {}", inputName, inputLength, outputBytes.length);
+		}
+
+		return new ByteData(outputName, outputBytes, 0, outputBytes.length);
+	}
+
+	private ByteData rewrite(ConstantPoolRewriter rewriter, String inputName, int inputLength)
+		throws TransformException {
+
+		String inputClassName = rewriter.getInputClassName();
+		String outputClassName = rewriter.getOutputClassName();
+
+		String outputName;
+		if (outputClassName != null) {
+			outputName = relocateClass(getLogger(), inputName, inputClassName, outputClassName);
+			verbose("Class name [ {} ] -> [ {} ]", inputName, outputName);
+		} else {
+			outputClassName = inputClassName;
+			outputName = inputName;
+		}
+
+		setClassNames(inputClassName, outputClassName);
+		setResourceNames(inputName, outputName);
+
+		String inputSuperName = rewriter.getInputSuperName();
+		if (inputSuperName != null) {
+			String outputSuperName = rewriter.getOutputSuperName();
+			setSuperClassNames(inputSuperName, ((outputSuperName == null) ? inputSuperName : outputSuperName));
+		}
+
+		for (int interfaceNo = rewriter.getModifiedInterfaces(); interfaceNo > 0; interfaceNo--) {
+			addModifiedInterface();
+		}
+		for (int fieldNo = rewriter.getModifiedFields(); fieldNo > 0; fieldNo--) {
+			addModifiedField();
+		}
+		for (int methodNo = rewriter.getModifiedMethods(); methodNo > 0; methodNo--) {
+			addModifiedMethod();
+		}
+		for (int attributeNo = rewriter.getModifiedAttributes(); attributeNo > 0; attributeNo--) {
+			addModifiedAttribute();
+		}
+
+		MutableConstantPool constants = rewriter.getConstants();
+		if (isDebugEnabled()) {
+			debug("  Constant pool: {}", constants.size());
+		}
+
+		int modifiedConstants = transform(constants, inputName);
+		if (modifiedConstants > 0) {
+			setModifiedConstants(modifiedConstants);
+		}
+
+		if (!hasNonResourceNameChanges()) {
+			if (getIsVerbose()) {
+				verbose("  Class bytes: {} {}", inputName, inputLength);
+			}
+			return null;
+		}
+
+		byte[] outputBytes;
+		try {
+			outputBytes = rewriter.write(constants); // throws IOException
+		} catch (IOException e) {
+			throw new TransformException("Failed to write transformed class bytes", e);
+		}
+
+		if (getIsVerbose()) {
+			verbose("  Class size: {}: {} -> {}", inputName, inputLength, outputBytes.length);
+		}
 
 		return new ByteData(outputName, outputBytes, 0, outputBytes.length);
 	}
@@ -939,7 +1072,7 @@ public class ClassActionImpl extends ActionImpl {
 		return null;
 	}
 
-	private Object transformConstantValue(Object inputValue, String inputName) {
+	Object transformConstantValue(Object inputValue, String inputName) {
 		if (inputValue instanceof String) {
 			String inputString = (String) inputValue;
 			String transformCase = "constant"; // dotted package format
@@ -1191,10 +1324,14 @@ public class ClassActionImpl extends ActionImpl {
 	private int transform(MutableConstantPool constants, String inputName) throws TransformException {
 		int modifiedConstants = 0;
 
+		boolean isDebugEnabled = isDebugEnabled();
+
 		int numConstants = constants.size();
 		for (int constantNo = 1; constantNo < numConstants; constantNo++) {
-			debug(String.format("Constant [ %3s ] [ %16s ] [ %s ]", constantNo, constants.tag(constantNo),
-				constants.entry(constantNo)));
+			if (isDebugEnabled) {
+				debug(String.format("Constant [ %3s ] [ %16s ] [ %s ]", constantNo, constants.tag(constantNo),
+					constants.entry(constantNo)));
+			}
 
 			switch (constants.tag(constantNo)) {
 				case ConstantPool.CONSTANT_Class : {
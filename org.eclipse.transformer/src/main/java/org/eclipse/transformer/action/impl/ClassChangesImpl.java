@@ -31,6 +31,8 @@ public class ClassChangesImpl extends ChangesImpl {
 		modifiedAttributes = 0;
 
 		modifiedConstants = 0;
+
+		super.clearChanges();
 	}
 
 	@Override
@@ -0,0 +1,887 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.Utf8Cache;
+
+import aQute.bnd.classfile.AnnotationDefaultAttribute;
+import aQute.bnd.classfile.BootstrapMethodsAttribute;
+import aQute.bnd.classfile.CodeAttribute;
+import aQute.bnd.classfile.ConstantPool;
+import aQute.bnd.classfile.ConstantPool.ClassInfo;
+import aQute.bnd.classfile.ConstantPool.DynamicInfo;
+import aQute.bnd.classfile.ConstantPool.FieldrefInfo;
+import aQute.bnd.classfile.ConstantPool.InterfaceMethodrefInfo;
+import aQute.bnd.classfile.ConstantPool.InvokeDynamicInfo;
+import aQute.bnd.classfile.ConstantPool.MethodHandleInfo;
+import aQute.bnd.classfile.ConstantPool.MethodTypeInfo;
+import aQute.bnd.classfile.ConstantPool.MethodrefInfo;
+import aQute.bnd.classfile.ConstantPool.ModuleInfo;
+import aQute.bnd.classfile.ConstantPool.NameAndTypeInfo;
+import aQute.bnd.classfile.ConstantPool.PackageInfo;
+import aQute.bnd.classfile.ConstantPool.StringInfo;
+import aQute.bnd.classfile.ConstantValueAttribute;
+import aQute.bnd.classfile.DeprecatedAttribute;
+import aQute.bnd.classfile.EnclosingMethodAttribute;
+import aQute.bnd.classfile.ExceptionsAttribute;
+import aQute.bnd.classfile.InnerClassesAttribute;
+import aQute.bnd.classfile.LineNumberTableAttribute;
+import aQute.bnd.classfile.LocalVariableTableAttribute;
+import aQute.bnd.classfile.LocalVariableTypeTableAttribute;
+import aQute.bnd.classfile.MethodParametersAttribute;
+import aQute.bnd.classfile.NestHostAttribute;
+import aQute.bnd.classfile.NestMembersAttribute;
+import aQute.bnd.classfile.RuntimeInvisibleAnnotationsAttribute;
+import aQute.bnd.classfile.RuntimeInvisibleParameterAnnotationsAttribute;
+import aQute.bnd.classfile.RuntimeInvisibleTypeAnnotationsAttribute;
+import aQute.bnd.classfile.RuntimeVisibleAnnotationsAttribute;
+import aQute.bnd.classfile.RuntimeVisibleParameterAnnotationsAttribute;
+import aQute.bnd.classfile.RuntimeVisibleTypeAnnotationsAttribute;
+import aQute.bnd.classfile.SignatureAttribute;
+import aQute.bnd.classfile.SourceDebugExtensionAttribute;
+import aQute.bnd.classfile.SourceFileAttribute;
+import aQute.bnd.classfile.StackMapTableAttribute;
+import aQute.bnd.classfile.SyntheticAttribute;
+import aQute.bnd.classfile.builder.MutableConstantPool;
+import aQute.bnd.classfile.preview.PermittedSubclassesAttribute;
+import aQute.lib.io.ByteBufferDataOutput;
+
+/**
+ * Rewriter of raw class bytes which changes only the constant pool.
+ * <p>
+ * Nearly all class transformations change only names and descriptors, which
+ * are held by the constant pool. Other parts of the class reference these
+ * by index. The rewriter scans the members and attributes of the class for
+ * the indexes of the constants which they reference, without building an
+ * object model of the class. The constant pool is transformed, and the rest
+ * of the class is copied byte-for-byte. Only those indexes are patched which
+ * must reference a different constant than before, for example, the
+ * descriptor of a field when the descriptor constant is shared with a
+ * string value which is transformed differently.
+ * <p>
+ * The rewritten class has the same content as the class which is written by
+ * the full transformation of {@link ClassActionImpl}: Each reference is
+ * transformed using the same rules as are used by the full transformation.
+ * <p>
+ * Scanning fails when the class has an attribute which the rewriter does not
+ * know: The body of an unknown attribute may embed names inline, or may
+ * reference constants in a way which the rewriter cannot patch. The class
+ * must then be transformed by the full transformation.
+ * <p>
+ * The UTF8 constants of the class are obtained from the UTF8 constants cache
+ * of the signature rule, which is keyed by the encoded bytes of the constants.
+ * Descriptors and signatures which are shared by many classes are decoded
+ * once, and the transformation caches are then keyed by the same string
+ * instances.
+ */
+class ConstantPoolRewriter {
+	private static final int	CLASS_MAGIC			= 0xCAFEBABE;
+
+	// Kinds of constant references, as recorded in the low bits of the
+	// recorded offsets.
+
+	private static final int	UTF8_USE			= 0;
+	private static final int	CLASS_USE			= 1;
+	private static final int	STRING_USE			= 2;
+	private static final int	NAME_AND_TYPE_USE	= 3;
+
+	private static final int	USE_KIND_BITS		= 2;
+	private static final int	USE_KIND_MASK		= (1 << USE_KIND_BITS) - 1;
+
+	/**
+	 * Scan raw class bytes.
+	 *
+	 * @param action The class action which is transforming the class.
+	 * @param inputName The name of the class resource.
+	 * @param bytes The class bytes.
+	 * @param length The length of the class bytes.
+	 * @return A rewriter of the class. Null if the class cannot be rewritten,
+	 *         and must be transformed by the full transformation.
+	 */
+	static ConstantPoolRewriter scan(ClassActionImpl action, String inputName, byte[] bytes, int length) {
+		ConstantPoolRewriter rewriter = new ConstantPoolRewriter(action, inputName, bytes, length);
+		try {
+			rewriter.scan();
+		} catch (IOException | RuntimeException e) {
+			if (action.isDebugEnabled()) {
+				action.debug("Full transformation of [ {} ]: {}", inputName, e.toString());
+			}
+			return null;
+		}
+		return rewriter;
+	}
+
+	private ConstantPoolRewriter(ClassActionImpl action, String inputName, byte[] bytes, int length) {
+		this.action = action;
+		this.inputName = inputName;
+		this.bytes = bytes;
+		this.length = length;
+
+		this.uses = new int[64];
+		this.useValues = new String[64];
+	}
+
+	private final ClassActionImpl	action;
+	private final String			inputName;
+	private final byte[]			bytes;
+	private final int				length;
+
+	private ConstantPool			inputConstants;
+	private int						constantsEnd;
+
+	private int						next;
+	private int						lastOffset;
+
+	private String					inputClassName;
+	private String					outputClassName;
+	private String					inputSuperName;
+	private String					outputSuperName;
+
+	private int						modifiedInterfaces;
+	private int						modifiedFields;
+	private int						modifiedMethods;
+	private int						modifiedAttributes;
+
+	// The constant references of the class, in the order in which they
+	// appear. Each use is recorded as the offset of the reference, shifted
+	// to make room for the kind of the reference. A use value is recorded
+	// when the reference is transformed.
+
+	private int[]					uses;
+	private String[]				useValues;
+	private int						useCount;
+
+	public String getInputClassName() {
+		return inputClassName;
+	}
+
+	/**
+	 * Answer the transformed name of the class.
+	 *
+	 * @return The transformed name of the class. Null if the name is not
+	 *         changed.
+	 */
+	public String getOutputClassName() {
+		return outputClassName;
+	}
+
+	/**
+	 * Answer the name of the super class.
+	 *
+	 * @return The name of the super class. Null if the class has no super
+	 *         class.
+	 */
+	public String getInputSuperName() {
+		return inputSuperName;
+	}
+
+	/**
+	 * Answer the transformed name of the super class.
+	 *
+	 * @return The transformed name of the super class. Null if the name is
+	 *         not changed.
+	 */
+	public String getOutputSuperName() {
+		return outputSuperName;
+	}
+
+	public int getModifiedInterfaces() {
+		return modifiedInterfaces;
+	}
+
+	public int getModifiedFields() {
+		return modifiedFields;
+	}
+
+	public int getModifiedMethods() {
+		return modifiedMethods;
+	}
+
+	public int getModifiedAttributes() {
+		return modifiedAttributes;
+	}
+
+	/**
+	 * Answer a copy of the constant pool of the class, to be transformed
+	 * before the class is written.
+	 *
+	 * @return A copy of the constant pool of the class.
+	 */
+	public MutableConstantPool getConstants() {
+		return new MutableConstantPool(inputConstants);
+	}
+
+	//
+
+	private void scan() throws IOException {
+		if ((length < 10) || (readInt(0) != CLASS_MAGIC)) {
+			throw new IOException("Not a class");
+		}
+
+		next = 8; // magic, minor_version, major_version
+		inputConstants = readConstants(action.getSignatureRule()
+			.getUtf8ConstantsCache());
+		constantsEnd = next;
+
+		skip(2); // access_flags
+
+		inputClassName = className();
+		outputClassName = action.transformBinaryType(inputClassName);
+		use(CLASS_USE, outputClassName);
+
+		inputSuperName = optionalClassName();
+		if (inputSuperName != null) {
+			outputSuperName = action.transformBinaryType(inputSuperName);
+			use(CLASS_USE, outputSuperName);
+		}
+
+		for (int interfaceNo = u2(); interfaceNo > 0; interfaceNo--) {
+			if (use(CLASS_USE, action.transformBinaryType(className()))) {
+				modifiedInterfaces++;
+			}
+		}
+
+		for (int fieldNo = u2(); fieldNo > 0; fieldNo--) {
+			if (member(SignatureType.FIELD)) {
+				modifiedFields++;
+			}
+		}
+
+		for (int methodNo = u2(); methodNo > 0; methodNo--) {
+			if (member(SignatureType.METHOD)) {
+				modifiedMethods++;
+			}
+		}
+
+		for (int attributeNo = u2(); attributeNo > 0; attributeNo--) {
+			if (attribute(SignatureType.CLASS)) {
+				modifiedAttributes++;
+			}
+		}
+
+		if (next != length) {
+			throw new IOException("Unexpected data after attributes");
+		}
+	}
+
+	/**
+	 * Read the constant pool, as is done by
+	 * {@link ConstantPool#read(java.io.DataInput)}, except that UTF8
+	 * constants are obtained from a cache.
+	 */
+	private ConstantPool readConstants(Utf8Cache utf8Constants) throws IOException {
+		int constantCount = u2();
+		Object[] constants = new Object[constantCount];
+		for (int constantNo = 1; constantNo < constantCount; constantNo++) {
+			int tag = u1();
+			switch (tag) {
+				case ConstantPool.CONSTANT_Utf8 : {
+					int utf8Length = u2();
+					skip(utf8Length);
+					constants[constantNo] = utf8Constants.get(bytes, next - utf8Length, utf8Length);
+					break;
+				}
+				case ConstantPool.CONSTANT_Integer :
+					constants[constantNo] = Integer.valueOf(u4());
+					break;
+				case ConstantPool.CONSTANT_Float :
+					constants[constantNo] = Float.valueOf(Float.intBitsToFloat(u4()));
+					break;
+				case ConstantPool.CONSTANT_Long :
+					constants[constantNo] = Long.valueOf(u8());
+					constantNo++; // Longs use two constants.
+					break;
+				case ConstantPool.CONSTANT_Double :
+					constants[constantNo] = Double.valueOf(Double.longBitsToDouble(u8()));
+					constantNo++; // Doubles use two constants.
+					break;
+				case ConstantPool.CONSTANT_Class :
+					constants[constantNo] = new ClassInfo(u2());
+					break;
+				case ConstantPool.CONSTANT_String :
+					constants[constantNo] = new StringInfo(u2());
+					break;
+				case ConstantPool.CONSTANT_Fieldref :
+					constants[constantNo] = new FieldrefInfo(u2(), u2());
+					break;
+				case ConstantPool.CONSTANT_Methodref :
+					constants[constantNo] = new MethodrefInfo(u2(), u2());
+					break;
+				case ConstantPool.CONSTANT_InterfaceMethodref :
+					constants[constantNo] = new InterfaceMethodrefInfo(u2(), u2());
+					break;
+				case ConstantPool.CONSTANT_NameAndType :
+					constants[constantNo] = new NameAndTypeInfo(u2(), u2());
+					break;
+				case ConstantPool.CONSTANT_MethodHandle :
+					constants[constantNo] = new MethodHandleInfo(u1(), u2());
+					break;
+				case ConstantPool.CONSTANT_MethodType :
+					constants[constantNo] = new MethodTypeInfo(u2());
+					break;
+				case ConstantPool.CONSTANT_Dynamic :
+					constants[constantNo] = new DynamicInfo(u2(), u2());
+					break;
+				case ConstantPool.CONSTANT_InvokeDynamic :
+					constants[constantNo] = new InvokeDynamicInfo(u2(), u2());
+					break;
+				case ConstantPool.CONSTANT_Module :
+					constants[constantNo] = new ModuleInfo(u2());
+					break;
+				case ConstantPool.CONSTANT_Package :
+					constants[constantNo] = new PackageInfo(u2());
+					break;
+				default :
+					throw new IOException("Unrecognized constant pool tag [ " + tag + " ] at [ " + constantNo + " ]");
+			}
+		}
+		return new ConstantPool(constants);
+	}
+
+	private boolean member(SignatureType signatureType) throws IOException {
+		skip(2); // access_flags
+		reference(UTF8_USE); // name
+		boolean changed = use(UTF8_USE, action.transformDescriptor(utf8()));
+		return attributes(signatureType) | changed;
+	}
+
+	private boolean attributes(SignatureType signatureType) throws IOException {
+		boolean changed = false;
+		for (int attributeNo = u2(); attributeNo > 0; attributeNo--) {
+			changed |= attribute(signatureType);
+		}
+		return changed;
+	}
+
+	private boolean attribute(SignatureType signatureType) throws IOException {
+		String name = utf8();
+		use(UTF8_USE, null);
+
+		int attributeLength = u4();
+		int end = next + attributeLength;
+		if ((attributeLength < 0) || (end > length)) {
+			throw new IOException("Attribute [ " + name + " ] overflows the class");
+		}
+
+		boolean changed = false;
+
+		switch (name) {
+			case SignatureAttribute.NAME :
+				changed = use(UTF8_USE, action.transform(utf8(), signatureType));
+				break;
+
+			case ExceptionsAttribute.NAME :
+			case NestMembersAttribute.NAME :
+				for (int classNo = u2(); classNo > 0; classNo--) {
+					changed |= use(CLASS_USE, action.transformBinaryType(className()));
+				}
+				break;
+
+			case NestHostAttribute.NAME :
+				changed = use(CLASS_USE, action.transformBinaryType(className()));
+				break;
+
+			case PermittedSubclassesAttribute.NAME :
+				// Permitted subclasses are not transformed.
+				for (int classNo = u2(); classNo > 0; classNo--) {
+					reference(CLASS_USE);
+				}
+				break;
+
+			case CodeAttribute.NAME : {
+				skip(4); // max_stack, max_locals
+				int codeLength = u4();
+				skip(codeLength); // Instructions reference constants directly.
+				for (int handlerNo = u2(); handlerNo > 0; handlerNo--) {
+					skip(6); // start_pc, end_pc, handler_pc
+					String catchType = optionalClassName();
+					if (catchType != null) {
+						changed |= use(CLASS_USE, action.transformBinaryType(catchType));
+					}
+				}
+				changed |= attributes(SignatureType.METHOD);
+				break;
+			}
+
+			case EnclosingMethodAttribute.NAME : {
+				changed = use(CLASS_USE, action.transformBinaryType(className()));
+				int methodOffset = next;
+				int methodIndex = u2();
+				if (methodIndex != 0) {
+					lastOffset = methodOffset;
+					NameAndTypeInfo methodInfo = inputConstants.entry(methodIndex);
+					String inputDescriptor = inputConstants.utf8(methodInfo.descriptor_index);
+					changed |= use(NAME_AND_TYPE_USE, action.transformDescriptor(inputDescriptor));
+				}
+				break;
+			}
+
+			case StackMapTableAttribute.NAME :
+				for (int frameNo = u2(); frameNo > 0; frameNo--) {
+					changed |= frame();
+				}
+				break;
+
+			case InnerClassesAttribute.NAME :
+				for (int classNo = u2(); classNo > 0; classNo--) {
+					changed |= use(CLASS_USE, action.transformBinaryType(className()));
+					String outerClass = optionalClassName();
+					if (outerClass != null) {
+						changed |= use(CLASS_USE, action.transformBinaryType(outerClass));
+					}
+					if (optionalUtf8() != null) { // inner_name
+						use(UTF8_USE, null);
+					}
+					skip(2); // inner_class_access_flags
+				}
+				break;
+
+			case LocalVariableTableAttribute.NAME :
+				for (int varNo = u2(); varNo > 0; varNo--) {
+					skip(4); // start_pc, length
+					reference(UTF8_USE); // name
+					changed |= use(UTF8_USE, action.transformDescriptor(utf8()));
+					skip(2); // index
+				}
+				break;
+
+			case LocalVariableTypeTableAttribute.NAME :
+				for (int varNo = u2(); varNo > 0; varNo--) {
+					skip(4); // start_pc, length
+					reference(UTF8_USE); // name
+					changed |= use(UTF8_USE, action.transform(utf8(), SignatureType.FIELD));
+					skip(2); // index
+				}
+				break;
+
+			case RuntimeVisibleAnnotationsAttribute.NAME :
+			case RuntimeInvisibleAnnotationsAttribute.NAME :
+				changed = annotations();
+				break;
+
+			case RuntimeVisibleParameterAnnotationsAttribute.NAME :
+			case RuntimeInvisibleParameterAnnotationsAttribute.NAME :
+				for (int parmNo = u1(); parmNo > 0; parmNo--) {
+					changed |= annotations();
+				}
+				break;
+
+			case RuntimeVisibleTypeAnnotationsAttribute.NAME :
+			case RuntimeInvisibleTypeAnnotationsAttribute.NAME :
+				for (int annoNo = u2(); annoNo > 0; annoNo--) {
+					targetInfo();
+					skip(2 * u1()); // type_path
+					changed |= annotation();
+				}
+				break;
+
+			case AnnotationDefaultAttribute.NAME :
+				changed = elementValue();
+				break;
+
+			case ConstantValueAttribute.NAME : {
+				int valueOffset = next;
+				int valueIndex = u2();
+				if (inputConstants.tag(valueIndex) == ConstantPool.CONSTANT_String) {
+					lastOffset = valueOffset;
+					Object outputValue = action.transformConstantValue(inputConstants.string(valueIndex), inputName);
+					changed = use(STRING_USE, (String) outputValue);
+				}
+				break;
+			}
+
+			case SourceFileAttribute.NAME :
+				reference(UTF8_USE);
+				break;
+
+			case MethodParametersAttribute.NAME :
+				for (int parmNo = u1(); parmNo > 0; parmNo--) {
+					if (optionalUtf8() != null) { // name
+						use(UTF8_USE, null);
+					}
+					skip(2); // access_flags
+				}
+				break;
+
+			// These attributes do not reference constants, or reference only
+			// constants which are not changed by the transformation.
+			// The source debug extension embeds file names inline, but its
+			// content is not transformed by the full transformation either.
+
+			case LineNumberTableAttribute.NAME :
+			case BootstrapMethodsAttribute.NAME :
+			case SourceDebugExtensionAttribute.NAME :
+			case DeprecatedAttribute.NAME :
+			case SyntheticAttribute.NAME :
+				next = end;
+				break;
+
+			default :
+				throw new IOException("Unknown attribute [ " + name + " ]");
+		}
+
+		if (next != end) {
+			throw new IOException("Attribute [ " + name + " ] length mismatch");
+		}
+		return changed;
+	}
+
+	private boolean frame() throws IOException {
+		int frameType = u1();
+		if (frameType < 64) { // same_frame
+			return false;
+		} else if (frameType < 128) { // same_locals_1_stack_item_frame
+			return verificationType();
+		} else if (frameType < 247) {
+			throw new IOException("Reserved frame type [ " + frameType + " ]");
+		} else if (frameType == 247) { // same_locals_1_stack_item_frame_extended
+			skip(2);
+			return verificationType();
+		} else if (frameType < 252) { // chop_frame, same_frame_extended
+			skip(2);
+			return false;
+		} else if (frameType < 255) { // append_frame
+			skip(2);
+			boolean changed = false;
+			for (int localNo = frameType - 251; localNo > 0; localNo--) {
+				changed |= verificationType();
+			}
+			return changed;
+		} else { // full_frame
+			skip(2);
+			boolean changed = false;
+			for (int localNo = u2(); localNo > 0; localNo--) {
+				changed |= verificationType();
+			}
+			for (int stackNo = u2(); stackNo > 0; stackNo--) {
+				changed |= verificationType();
+			}
+			return changed;
+		}
+	}
+
+	private boolean verificationType() throws IOException {
+		switch (u1()) {
+			case 7 : // Object_variable_info
+				return use(CLASS_USE, action.transformBinaryType(className()));
+			case 8 : // Uninitialized_variable_info
+				skip(2);
+				return false;
+			default :
+				return false;
+		}
+	}
+
+	private void targetInfo() throws IOException {
+		int targetType = u1();
+		switch (targetType) {
+			case 0x00 : // type_parameter_target
+			case 0x01 :
+			case 0x16 : // formal_parameter_target
+				skip(1);
+				break;
+			case 0x10 : // supertype_target
+			case 0x11 : // type_parameter_bound_target
+			case 0x12 :
+			case 0x17 : // throws_target
+			case 0x42 : // catch_target
+			case 0x43 : // offset_target
+			case 0x44 :
+			case 0x45 :
+			case 0x46 :
+				skip(2);
+				break;
+			case 0x13 : // empty_target
+			case 0x14 :
+			case 0x15 :
+				break;
+			case 0x40 : // localvar_target
+			case 0x41 :
+				skip(6 * u2());
+				break;
+			case 0x47 : // type_argument_target
+			case 0x48 :
+			case 0x49 :
+			case 0x4A :
+			case 0x4B :
+				skip(3);
+				break;
+			default :
+				throw new IOException("Unknown type annotation target [ " + targetType + " ]");
+		}
+	}
+
+	private boolean annotations() throws IOException {
+		boolean changed = false;
+		for (int annoNo = u2(); annoNo > 0; annoNo--) {
+			changed |= annotation();
+		}
+		return changed;
+	}
+
+	private boolean annotation() throws IOException {
+		boolean changed = use(UTF8_USE, action.transformDescriptor(utf8()));
+		for (int valueNo = u2(); valueNo > 0; valueNo--) {
+			reference(UTF8_USE); // element_name
+			changed |= elementValue();
+		}
+		return changed;
+	}
+
+	private boolean elementValue() throws IOException {
+		int tag = u1();
+		switch (tag) {
+			case 'B' :
+			case 'C' :
+			case 'D' :
+			case 'F' :
+			case 'I' :
+			case 'J' :
+			case 'S' :
+			case 'Z' :
+				skip(2); // Numeric constants are not changed.
+				return false;
+
+			case 's' : {
+				String inputString = utf8();
+				String outputString = action.transformDirectString(inputString);
+				if (outputString == null) {
+					outputString = action.transformConstantString(inputString, inputName);
+				}
+				return use(UTF8_USE, outputString);
+			}
+
+			case 'e' : {
+				boolean changed = use(UTF8_USE, action.transformDescriptor(utf8()));
+				reference(UTF8_USE); // const_name
+				return changed;
+			}
+
+			case 'c' :
+				return use(UTF8_USE, action.transformDescriptor(utf8()));
+
+			case '@' :
+				return annotation();
+
+			case '[' : {
+				boolean changed = false;
+				for (int valueNo = u2(); valueNo > 0; valueNo--) {
+					changed |= elementValue();
+				}
+				return changed;
+			}
+
+			default :
+				throw new IOException("Unknown element value tag [ " + tag + " ]");
+		}
+	}
+
+	//
+
+	/**
+	 * Record the use of a constant at the last read offset.
+	 *
+	 * @param kind The kind of the constant reference.
+	 * @param outputValue The transformed value of the reference. Null if the
+	 *            reference is not transformed.
+	 * @return True or false telling if the reference is transformed.
+	 */
+	private boolean use(int kind, String outputValue) {
+		if (useCount == uses.length) {
+			uses = Arrays.copyOf(uses, useCount * 2);
+			useValues = Arrays.copyOf(useValues, useCount * 2);
+		}
+		uses[useCount] = (lastOffset << USE_KIND_BITS) | kind;
+		useValues[useCount] = outputValue;
+		useCount++;
+		return (outputValue != null);
+	}
+
+	/**
+	 * Read and record a reference which is not transformed.
+	 *
+	 * @param kind The kind of the constant reference.
+	 * @throws IOException Thrown if the reference is not valid.
+	 */
+	private void reference(int kind) throws IOException {
+		if (kind == CLASS_USE) {
+			className();
+		} else {
+			utf8();
+		}
+		use(kind, null);
+	}
+
+	/**
+	 * Write the class using a transformed constant pool.
+	 * <p>
+	 * Each reference must resolve to the transformed value of the reference,
+	 * or, if the reference is not transformed, to the value of the reference
+	 * in the input class. Each reference which does not resolve to that value
+	 * in the transformed constant pool is patched to reference a constant
+	 * which has that value. Constants are added to the transformed constant
+	 * pool as necessary.
+	 *
+	 * @param outputConstants The transformed constant pool.
+	 * @return The rewritten class bytes.
+	 * @throws IOException Thrown if the class bytes cannot be written.
+	 */
+	public byte[] write(MutableConstantPool outputConstants) throws IOException {
+		int[] patches = null;
+		int patchCount = 0;
+
+		for (int useNo = 0; useNo < useCount; useNo++) {
+			int offset = uses[useNo] >>> USE_KIND_BITS;
+			int index = readShort(offset);
+			String outputValue = useValues[useNo];
+
+			int outputIndex;
+			switch (uses[useNo] & USE_KIND_MASK) {
+				case UTF8_USE : {
+					String value = (outputValue != null) ? outputValue : inputConstants.utf8(index);
+					outputIndex = value.equals(outputConstants.utf8(index)) ? index : outputConstants.utf8Info(value);
+					break;
+				}
+				case CLASS_USE : {
+					String value = (outputValue != null) ? outputValue : inputConstants.className(index);
+					outputIndex = value.equals(outputConstants.className(index)) ? index
+						: outputConstants.classInfo(value);
+					break;
+				}
+				case STRING_USE : {
+					String value = (outputValue != null) ? outputValue : inputConstants.string(index);
+					outputIndex = value.equals(outputConstants.string(index)) ? index
+						: outputConstants.stringInfo(value);
+					break;
+				}
+				default : { // NAME_AND_TYPE_USE
+					NameAndTypeInfo inputInfo = inputConstants.entry(index);
+					String name = inputConstants.utf8(inputInfo.name_index);
+					String descriptor = (outputValue != null) ? outputValue
+						: inputConstants.utf8(inputInfo.descriptor_index);
+					NameAndTypeInfo outputInfo = outputConstants.entry(index);
+					outputIndex = (name.equals(outputConstants.utf8(outputInfo.name_index))
+						&& descriptor.equals(outputConstants.utf8(outputInfo.descriptor_index))) ? index
+							: outputConstants.nameAndTypeInfo(name, descriptor);
+					break;
+				}
+			}
+
+			if (outputIndex != index) {
+				if (patches == null) {
+					patches = new int[16];
+				} else if (patchCount == patches.length) {
+					patches = Arrays.copyOf(patches, patchCount * 2);
+				}
+				patches[patchCount++] = offset;
+				patches[patchCount++] = outputIndex;
+			}
+		}
+
+		if ((patchCount > 0) && action.isDebugEnabled()) {
+			action.debug("  Patched references [ {} ]", patchCount / 2);
+		}
+
+		// Uses were recorded in the order of their offsets, which means the
+		// patches are in that order, too.
+
+		ByteBufferDataOutput output = new ByteBufferDataOutput(length + FileUtils.PAGE_SIZE);
+		output.write(bytes, 0, 8); // magic, minor_version, major_version
+		outputConstants.write(output);
+
+		int copied = constantsEnd;
+		for (int patchNo = 0; patchNo < patchCount; patchNo += 2) {
+			int offset = patches[patchNo];
+			output.write(bytes, copied, offset - copied);
+			output.writeShort(patches[patchNo + 1]);
+			copied = offset + 2;
+		}
+		output.write(bytes, copied, length - copied);
+
+		return output.toByteArray();
+	}
+
+	//
+
+	// Constant readers: Each sets the offset of the reference which is
+	// recorded by the next use. A reference to a constant of the wrong
+	// type fails with a class cast exception, which fails the scan.
+
+	private String utf8() throws IOException {
+		String value = optionalUtf8();
+		if (value == null) {
+			throw new IOException("Missing UTF8 constant at [ " + lastOffset + " ]");
+		}
+		return value;
+	}
+
+	private String optionalUtf8() throws IOException {
+		lastOffset = next;
+		int index = u2();
+		return ((index == 0) ? null : inputConstants.utf8(index));
+	}
+
+	private String className() throws IOException {
+		String value = optionalClassName();
+		if (value == null) {
+			throw new IOException("Missing class constant at [ " + lastOffset + " ]");
+		}
+		return value;
+	}
+
+	private String optionalClassName() throws IOException {
+		lastOffset = next;
+		int index = u2();
+		return ((index == 0) ? null : inputConstants.className(index));
+	}
+
+	private void skip(int count) throws IOException {
+		if ((count < 0) || (next + count > length)) {
+			throw new IOException("Truncated class");
+		}
+		next += count;
+	}
+
+	private int u1() throws IOException {
+		skip(1);
+		return bytes[next - 1] & 0xFF;
+	}
+
+	private int u2() throws IOException {
+		skip(2);
+		return readShort(next - 2);
+	}
+
+	private int u4() throws IOException {
+		skip(4);
+		return readInt(next - 4);
+	}
+
+	private long u8() throws IOException {
+		skip(8);
+		return ((long) readInt(next - 8) << 32) | (readInt(next - 4) & 0xFFFFFFFFL);
+	}
+
+	private int readShort(int offset) {
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
+	private int readInt(int offset) {
+		return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+			| ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+	}
+}
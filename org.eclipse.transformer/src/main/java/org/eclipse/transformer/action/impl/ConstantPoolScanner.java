@@ -0,0 +1,215 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scanner of the constant pool of raw class bytes.
+ * <p>
+ * The scanner tells if any UTF8 constant of a class contains any of a set of
+ * keys. When no UTF8 constant contains a key, the class cannot be changed by
+ * the transformation rules, and the full parse of the class may be skipped.
+ * <p>
+ * Scanning does not allocate objects. The scanner is immutable, and may be
+ * shared between threads.
+ */
+public class ConstantPoolScanner {
+	// Constant pool tags, per the JVM specification.
+
+	private static final int	CONSTANT_Utf8				= 1;
+	private static final int	CONSTANT_Integer			= 3;
+	private static final int	CONSTANT_Float				= 4;
+	private static final int	CONSTANT_Long				= 5;
+	private static final int	CONSTANT_Double				= 6;
+	private static final int	CONSTANT_Class				= 7;
+	private static final int	CONSTANT_String				= 8;
+	private static final int	CONSTANT_Fieldref			= 9;
+	private static final int	CONSTANT_Methodref			= 10;
+	private static final int	CONSTANT_InterfaceMethodref	= 11;
+	private static final int	CONSTANT_NameAndType		= 12;
+	private static final int	CONSTANT_MethodHandle		= 15;
+	private static final int	CONSTANT_MethodType			= 16;
+	private static final int	CONSTANT_Dynamic			= 17;
+	private static final int	CONSTANT_InvokeDynamic		= 18;
+	private static final int	CONSTANT_Module				= 19;
+	private static final int	CONSTANT_Package			= 20;
+
+	private static final int	CLASS_MAGIC					= 0xCAFEBABE;
+
+	/**
+	 * Create a scanner for a collection of keys. Empty keys are ignored.
+	 *
+	 * @param keys The keys for which to scan.
+	 */
+	public ConstantPoolScanner(Collection<String> keys) {
+		Set<String> useKeys = new LinkedHashSet<>();
+		for (String key : keys) {
+			if ((key != null) && !key.isEmpty()) {
+				useKeys.add(key);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		List<byte[]>[] keysByFirst = new List[256];
+		for (String key : useKeys) {
+			byte[] keyBytes = key.getBytes(UTF_8);
+			int first = keyBytes[0] & 0xFF;
+			if (keysByFirst[first] == null) {
+				keysByFirst[first] = new ArrayList<>();
+			}
+			keysByFirst[first].add(keyBytes);
+		}
+
+		this.keyCount = useKeys.size();
+		this.keysByFirst = new byte[256][][];
+		for (int first = 0; first < 256; first++) {
+			if (keysByFirst[first] != null) {
+				this.keysByFirst[first] = keysByFirst[first].toArray(new byte[0][]);
+			}
+		}
+	}
+
+	private final int			keyCount;
+	private final byte[][][]	keysByFirst;
+
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * Tell if any UTF8 constant of raw class bytes contains a key.
+	 * <p>
+	 * Answer true if the class bytes cannot be scanned: The full parse of the
+	 * class will detect and report the problem.
+	 *
+	 * @param classBytes Raw class bytes.
+	 * @param offset The offset of the class bytes.
+	 * @param length The length of the class bytes.
+	 * @return True or false telling if any UTF8 constant contains a key.
+	 */
+	public boolean matches(byte[] classBytes, int offset, int length) {
+		if (keyCount == 0) {
+			return false;
+		}
+
+		int limit = offset + length;
+		if ((length < 10) || (readInt(classBytes, offset) != CLASS_MAGIC)) {
+			return true;
+		}
+
+		int count = readShort(classBytes, offset + 8);
+		int next = offset + 10;
+
+		for (int constantNo = 1; constantNo < count; constantNo++) {
+			if (next >= limit) {
+				return true;
+			}
+
+			int tag = classBytes[next] & 0xFF;
+			switch (tag) {
+				case CONSTANT_Utf8 : {
+					if (next + 3 > limit) {
+						return true;
+					}
+					int utf8Length = readShort(classBytes, next + 1);
+					int utf8Start = next + 3;
+					int utf8End = utf8Start + utf8Length;
+					if (utf8End > limit) {
+						return true;
+					}
+					if (contains(classBytes, utf8Start, utf8End)) {
+						return true;
+					}
+					next = utf8End;
+					break;
+				}
+
+				case CONSTANT_Class :
+				case CONSTANT_String :
+				case CONSTANT_MethodType :
+				case CONSTANT_Module :
+				case CONSTANT_Package :
+					next += 3;
+					break;
+
+				case CONSTANT_MethodHandle :
+					next += 4;
+					break;
+
+				case CONSTANT_Integer :
+				case CONSTANT_Float :
+				case CONSTANT_Fieldref :
+				case CONSTANT_Methodref :
+				case CONSTANT_InterfaceMethodref :
+				case CONSTANT_NameAndType :
+				case CONSTANT_Dynamic :
+				case CONSTANT_InvokeDynamic :
+					next += 5;
+					break;
+
+				case CONSTANT_Long :
+				case CONSTANT_Double :
+					next += 9;
+					constantNo++; // Long and double values use two slots.
+					break;
+
+				default :
+					return true; // Unknown constant: Do a full parse.
+			}
+		}
+
+		return false;
+	}
+
+	private boolean contains(byte[] bytes, int start, int end) {
+		for (int offset = start; offset < end; offset++) {
+			byte[][] candidates = keysByFirst[bytes[offset] & 0xFF];
+			if (candidates == null) {
+				continue;
+			}
+			for (byte[] candidate : candidates) {
+				if (regionMatches(bytes, offset, end, candidate)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean regionMatches(byte[] bytes, int offset, int end, byte[] key) {
+		if (offset + key.length > end) {
+			return false;
+		}
+		for (int keyNo = 1; keyNo < key.length; keyNo++) {
+			if (bytes[offset + keyNo] != key[keyNo]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int readShort(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
+	private static int readInt(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8)
+			| (bytes[offset + 3] & 0xFF);
+	}
+}
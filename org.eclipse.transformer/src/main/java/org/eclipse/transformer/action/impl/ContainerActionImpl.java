@@ -12,10 +12,22 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -28,8 +40,12 @@ import org.eclipse.transformer.action.ContainerChanges;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.ZipFileReader;
+import org.eclipse.transformer.util.ZipFileWriter;
 import org.slf4j.Logger;
 
+import aQute.lib.io.ByteBufferOutputStream;
+
 public abstract class ContainerActionImpl extends ActionImpl implements ContainerAction {
 
 	public <A extends ActionImpl> A addUsing(ActionInit<A> init) {
@@ -124,6 +140,376 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		getActiveChanges().record(action);
 	}
 
+	// Parallel processing of entries.
+	//
+	// When an executor is set, non-container entries are read on the calling
+	// thread, then transformed by the executor using per-thread copies of the
+	// accepted actions. Results are written, and changes are recorded, in
+	// entry order. Nested containers are still processed on the calling
+	// thread, as streams.
+
+	private ExecutorService	executor;
+	private int				maxPending;
+
+	/**
+	 * Set an executor to be used to transform entries of this container.
+	 *
+	 * @param useExecutor The executor to use. Null to process entries on the
+	 *            calling thread.
+	 * @param useMaxPending The maximum number of entries which may be held in
+	 *            memory while waiting to be written.
+	 */
+	public void setExecutor(ExecutorService useExecutor, int useMaxPending) {
+		this.executor = useExecutor;
+		this.maxPending = ((useMaxPending < 1) ? 1 : useMaxPending);
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	private final ThreadLocal<Map<ActionImpl, ActionImpl>> workerActions = ThreadLocal
+		.withInitial(IdentityHashMap::new);
+
+	/**
+	 * Answer the copy of an action which is to be used by the current thread.
+	 * Copies of the actions of a thread share one input buffer, which shares
+	 * the buffer pool of this action.
+	 *
+	 * @param action The action which is to be copied.
+	 * @return The copy of the action for the current thread.
+	 */
+	protected ActionImpl getWorkerAction(ActionImpl action) {
+		Map<ActionImpl, ActionImpl> actions = workerActions.get();
+		ActionImpl workerAction = actions.get(action);
+		if (workerAction == null) {
+			InputBufferImpl workerBuffer;
+			if (actions.isEmpty()) {
+				workerBuffer = new InputBufferImpl(action.getBuffer());
+			} else {
+				workerBuffer = actions.values()
+					.iterator()
+					.next()
+					.getBuffer();
+			}
+			workerAction = action.copyUsing(workerBuffer);
+			actions.put(action, workerAction);
+		}
+		return workerAction;
+	}
+
+	/**
+	 * The result of transforming an entry. The changes data and the timing
+	 * are captured when the entry is transformed, since a worker action is
+	 * reused for later entries. The timing is null when timings are not
+	 * recorded. The nested changes are null unless the action is a container.
+	 */
+	protected static class EntryResult {
+		public final ByteData				inputData;
+		public final ByteData				outputData;
+		public final String					outputName;
+		public final boolean				hasChanges;
+		public final ActionTimings.Entry	timing;
+		public final ContainerChangesImpl	nestedChanges;
+
+		public EntryResult(ByteData inputData, ByteData outputData, String outputName, boolean hasChanges,
+			ActionTimings.Entry timing, ContainerChangesImpl nestedChanges) {
+			this.inputData = inputData;
+			this.outputData = outputData;
+			this.outputName = ((outputName == null) ? inputData.name : outputName);
+			this.hasChanges = hasChanges;
+			this.timing = timing;
+			this.nestedChanges = nestedChanges;
+		}
+
+		/**
+		 * Tell if the entry was not changed: The action answered the input
+		 * data, and did not rename the entry.
+		 *
+		 * @return True or false telling if the entry was not changed.
+		 */
+		public boolean isUnchanged() {
+			return (outputData == inputData) && outputName.equals(inputData.name);
+		}
+	}
+
+	/**
+	 * An entry which is waiting to be written. The action is null for entries
+	 * which were not transformed.
+	 */
+	protected static class PendingEntry {
+		public final String					inputName;
+		public final ZipFileReader.Entry	zipEntry;
+		public final ActionImpl				action;
+		public final long					readNanos;
+		public final Future<EntryResult>	result;
+
+		public PendingEntry(String inputName, ZipFileReader.Entry zipEntry, ActionImpl action, long readNanos,
+			Future<EntryResult> result) {
+			this.inputName = inputName;
+			this.zipEntry = zipEntry;
+			this.action = action;
+			this.readNanos = readNanos;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Writer of completed entries.
+	 */
+	@FunctionalInterface
+	protected interface EntryWriter {
+		void write(PendingEntry pending, EntryResult result) throws IOException;
+	}
+
+	protected EntryResult transform(ActionImpl action, ByteData inputData) {
+		ByteData outputData = action.apply(inputData.name, inputData);
+		ChangesImpl lastChanges = action.getLastActiveChanges();
+		ContainerChangesImpl nestedChanges = ((lastChanges instanceof ContainerChangesImpl)
+			? ((ContainerChangesImpl) lastChanges).copy()
+			: null);
+		return new EntryResult(inputData, outputData, lastChanges.getOutputResourceName(), lastChanges.hasChanges(),
+			(action.isTimed() ? lastChanges.newTiming(inputData.name, action.getName()) : null), nestedChanges);
+	}
+
+	protected PendingEntry submit(ActionImpl action, ZipFileReader.Entry zipEntry, long readNanos,
+		ByteData inputData) {
+		Future<EntryResult> result = getExecutor().submit(() -> transform(getWorkerAction(action), inputData));
+
+		return new PendingEntry(inputData.name, zipEntry, action, readNanos, result);
+	}
+
+	protected void complete(String inputPath, PendingEntry pending, EntryWriter entryWriter)
+		throws TransformException, IOException {
+
+		EntryResult entryResult;
+		try {
+			entryResult = pending.result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			throw new TransformException(
+				"Interrupted while processing [ " + pending.inputName + " ] from [ " + inputPath + " ]", e);
+		} catch (ExecutionException e) {
+			throw new TransformException(
+				"Failure while processing [ " + pending.inputName + " ] from [ " + inputPath + " ]", e.getCause());
+		}
+
+		// Transformed entries are read into pooled buffers, except for
+		// entries which are read into the input buffer. The buffers are
+		// released whether or not the entry is written.
+
+		try {
+			if (pending.action != null) {
+				debug("Resource [ {} ] Action [ {} ]: Changes [ {} ]", pending.inputName, pending.action.getName(),
+					entryResult.hasChanges);
+				getActiveChanges().record(pending.action, entryResult.hasChanges);
+				if (entryResult.nestedChanges != null) {
+					entryResult.nestedChanges.addNestedInto(getActiveChanges());
+				}
+			}
+
+			long writeStart = timingStart();
+			entryWriter.write(pending, entryResult); // throws IOException
+			long writeNanos = timingSince(writeStart);
+
+			if (isTimed()) {
+				if (entryResult == null) {
+					long length = ((pending.zipEntry == null) ? 0L : pending.zipEntry.size);
+					recordTiming(new ActionTimings.Entry(pending.inputName, ActionTimings.COPY_ACTION_NAME,
+						pending.readNanos, 0L, writeNanos, length, length, 0L));
+				} else if (entryResult.timing != null) {
+					entryResult.timing.addReadNanos(pending.readNanos);
+					entryResult.timing.addWriteNanos(writeNanos);
+					recordTiming(entryResult.timing);
+				}
+			}
+		} finally {
+			if ((entryResult != null) && (entryResult.inputData.data != getInputBuffer())) {
+				getBuffer().releaseBuffer(entryResult.inputData.data);
+			}
+		}
+	}
+
+	protected void completeAll(String inputPath, Deque<PendingEntry> pendingEntries, EntryWriter entryWriter)
+		throws TransformException, IOException {
+		PendingEntry pending;
+		while ((pending = pendingEntries.poll()) != null) {
+			complete(inputPath, pending, entryWriter);
+		}
+	}
+
+	/**
+	 * Record the timing of an entry of this container.
+	 *
+	 * @param timing The timing of the entry. Nothing is recorded if the
+	 *            timing is null.
+	 */
+	protected void recordTiming(ActionTimings.Entry timing) {
+		if (timing != null) {
+			getActiveChanges().getTimings()
+				.record(timing);
+		}
+	}
+
+	/**
+	 * Record the timing of an entry which was transformed by an action.
+	 *
+	 * @param action The action which transformed the entry.
+	 * @param inputName The name of the entry.
+	 * @param writeNanos Time spent writing the entry, in addition to the time
+	 *            recorded by the action.
+	 */
+	protected void recordTiming(ActionImpl action, String inputName, long writeNanos) {
+		if (!isTimed()) {
+			return;
+		}
+		ActionTimings.Entry timing = action.getLastActiveChanges()
+			.newTiming(inputName, action.getName());
+		timing.addWriteNanos(writeNanos);
+		recordTiming(timing);
+	}
+
+	protected void cancelAll(Deque<PendingEntry> pendingEntries) {
+		PendingEntry pending;
+		while ((pending = pendingEntries.poll()) != null) {
+			pending.result.cancel(true);
+		}
+	}
+
+	// Nested archives.
+	//
+	// When a memo is set, the outputs of nested archives are memoized, and
+	// nested archives which are the same as a previously transformed
+	// nested archive reuse the previous output. When no memo is set, nested
+	// archives are streamed.
+
+	private NestedArchiveMemo nestedMemo;
+
+	public void setNestedMemo(NestedArchiveMemo nestedMemo) {
+		this.nestedMemo = nestedMemo;
+	}
+
+	public NestedArchiveMemo getNestedMemo() {
+		return nestedMemo;
+	}
+
+	/**
+	 * Transform a nested archive. Reuse the output of a previous
+	 * transformation of the same archive, if one is available.
+	 *
+	 * @param action The action which is to transform the nested archive.
+	 * @param inputName The name of the nested archive.
+	 * @param inputStream The stream from which to read the nested archive.
+	 * @param inputLength The length of the nested archive. -1 if the length
+	 *            is not known.
+	 * @param inputCrc The CRC of the nested archive. -1 if the CRC is not
+	 *            known.
+	 * @param outputStream The stream to which to write the transformed
+	 *            nested archive.
+	 * @throws TransformException Thrown if the transformation failed.
+	 * @throws IOException Thrown if a read or write failed.
+	 */
+	protected void applyNested(ActionImpl action, String inputName, InputStream inputStream, long inputLength,
+		long inputCrc, OutputStream outputStream) throws TransformException, IOException {
+
+		// A nested archive is timed as a whole. The timings of the entries
+		// of the nested archive are recorded as nested timings.
+
+		if (!isTimed()) {
+			applyNested(action, inputName, inputStream, inputLength, inputCrc, outputStream, getNestedMemo());
+			return;
+		}
+
+		long startNanos = System.nanoTime();
+		CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+		applyNested(action, inputName, inputStream, inputLength, inputCrc, countingStream, getNestedMemo());
+		recordTiming(new ActionTimings.Entry(inputName, action.getName(), 0L, System.nanoTime() - startNanos, 0L,
+			Math.max(inputLength, 0L), countingStream.getCount(), 0L));
+	}
+
+	/**
+	 * An output stream which counts the bytes written to it. Used to
+	 * record the output length of a nested archive.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+
+		CountingOutputStream(OutputStream outputStream) {
+			super(outputStream);
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+			count += length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// The stream of a nested archive is closed by its container.
+		}
+	}
+
+	private void applyNested(ActionImpl action, String inputName, InputStream inputStream, long inputLength,
+		long inputCrc, OutputStream outputStream, NestedArchiveMemo memo) throws TransformException, IOException {
+
+		ByteData inputData = null;
+		if ((memo != null) && (inputLength <= memo.getMaxLength())) {
+			inputData = FileUtils.readAtMost(inputName, inputStream, memo.getMaxLength() + 1); // throws
+																								// IOException
+			if (inputData.length > memo.getMaxLength()) {
+				inputStream = FileUtils.join(inputData, inputStream);
+				inputData = null;
+			}
+		}
+
+		if (inputData == null) {
+			action.apply(inputName, inputStream, inputLength, outputStream);
+			recordTransform(action, inputName);
+			return;
+		}
+
+		NestedArchiveMemo.Key key = memo.getKey(action, inputData, inputCrc);
+		NestedArchiveMemo.Result result = memo.get(key, inputData);
+		if (result != null) {
+			debug("Resource [ {} ] Action [ {} ]: Reused output [ {} ]", inputName, action.getName(),
+				result.outputData.length);
+
+			result.outputData.write(outputStream); // throws IOException
+			getActiveChanges().record(action, result.hasChanges);
+			result.changes.addNestedInto(getActiveChanges());
+			return;
+		}
+
+		ByteBufferOutputStream outputBuffer = new ByteBufferOutputStream(inputData.length);
+		action.apply(inputName, inputData.asStream(), inputData.length, outputBuffer);
+		recordTransform(action, inputName);
+
+		byte[] outputBytes = outputBuffer.toByteArray();
+		ByteData outputData = new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		outputData.write(outputStream); // throws IOException
+
+		ChangesImpl changes = action.getLastActiveChanges();
+		if (changes instanceof ContainerChangesImpl) {
+			memo.put(key, inputData, outputData, action.hadChanges(), (ContainerChangesImpl) changes);
+		}
+	}
+
 	// Byte base container conversion is not supported.
 
 	@Override
@@ -136,6 +522,239 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		throw new UnsupportedOperationException();
 	}
 
+	// Zip files are read using random access. This allows entries which are
+	// not changed to be copied without being decompressed and recompressed.
+	//
+	// Zip files which cannot be read using random access are processed as
+	// streams.
+
+	@Override
+	public void apply(String inputName, File inputFile, File outputFile) throws TransformException {
+		ZipFileReader zipReader = openZipFile(inputFile);
+		if (zipReader == null) {
+			super.apply(inputName, inputFile, outputFile);
+			return;
+		}
+
+		try {
+			startRecording(inputName);
+
+			try {
+				setResourceNames(inputName, inputName);
+				Object event = TransformEvents.ARCHIVE.begin();
+
+				ZipFileWriter zipWriter = openZipFileWriter(outputFile);
+				try {
+					apply(inputName, zipReader, zipWriter);
+					// throws TransformException
+
+					try {
+						zipWriter.finish(); // throws IOException
+					} catch (IOException e) {
+						throw new TransformException("Failed to complete output [ " + inputName + " ]", e);
+					}
+
+					if (event != null) {
+						TransformEvents.ARCHIVE.commit(event, inputName, getActionType(), inputFile.length(),
+							zipWriter.getPosition(), hasChanges());
+					}
+
+				} finally {
+					try {
+						zipWriter.close(); // throws IOException
+					} catch (IOException e) {
+						throw new TransformException("Failed to close output [ " + outputFile.getAbsolutePath() + " ]",
+							e);
+					}
+				}
+
+			} finally {
+				stopRecording(inputName);
+			}
+
+		} finally {
+			try {
+				zipReader.close(); // throws IOException
+			} catch (IOException e) {
+				throw new TransformException("Failed to close input [ " + inputFile.getAbsolutePath() + " ]", e);
+			}
+		}
+	}
+
+	/**
+	 * Open a zip file for random access reading.
+	 *
+	 * @param inputFile The file which is to be read.
+	 * @return A reader of the file. Null if the file must be read as a stream.
+	 */
+	protected ZipFileReader openZipFile(File inputFile) {
+		if (!inputFile.isFile()) {
+			return null;
+		}
+
+		ZipFileReader zipReader;
+		try {
+			zipReader = ZipFileReader.open(inputFile); // throws IOException
+		} catch (IOException e) {
+			debug("Input [ {} ] cannot be read as a zip file: {}", inputFile.getAbsolutePath(), e.getMessage());
+			return null;
+		}
+
+		if (zipReader == null) {
+			debug("Input [ {} ] cannot be read using random access", inputFile.getAbsolutePath());
+		}
+		return zipReader;
+	}
+
+	protected ZipFileWriter openZipFileWriter(File outputFile) throws TransformException {
+		try {
+			File outputParent = outputFile.getAbsoluteFile()
+				.getParentFile();
+			if (outputParent != null) {
+				Files.createDirectories(outputParent.toPath()); // throws IOException
+			}
+			FileChannel outputChannel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING); // throws IOException
+			return new ZipFileWriter(outputChannel);
+		} catch (IOException e) {
+			throw new TransformException("Failed to open output [ " + outputFile.getAbsolutePath() + " ]", e);
+		}
+	}
+
+	protected void apply(String inputPath, ZipFileReader zipReader, ZipFileWriter zipWriter)
+		throws TransformException {
+
+		String prevName = null;
+		String inputName = null;
+
+		// Entries are written in order. Entries which are not transformed
+		// are queued behind the entries which are being transformed. When
+		// there is no executor, each entry is written immediately.
+
+		boolean useExecutor = (getExecutor() != null);
+		int pendingLimit = (useExecutor ? getMaxPending() : 0);
+		Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+
+		zipWriter.setComment(zipReader.getComment());
+
+		EntryWriter entryWriter = (PendingEntry pending, EntryResult entryResult) -> {
+			if ((entryResult == null) || entryResult.isUnchanged()) {
+				zipWriter.copy(zipReader, pending.zipEntry); // throws IOException
+			} else {
+				zipWriter.write(entryResult.outputName, pending.zipEntry, entryResult.outputData);
+				// throws IOException
+			}
+		};
+
+		try {
+			for (ZipFileReader.Entry inputEntry : zipReader.getEntries()) {
+				inputName = inputEntry.name;
+				long inputLength = inputEntry.size;
+
+				if (isDebugEnabled()) {
+					debug("[ {}.{} ] [ {} ] Size [ {} ]", getClass().getSimpleName(), "apply", inputName,
+						inputLength);
+				}
+
+				boolean selected = select(inputName);
+				ActionImpl acceptedAction = acceptAction(inputName);
+
+				PendingEntry pending;
+
+				if (!selected || (acceptedAction == null)) {
+					if (acceptedAction == null) {
+						recordUnaccepted(inputName);
+					} else {
+						recordUnselected(acceptedAction, inputName);
+					}
+
+					pending = new PendingEntry(inputName, inputEntry, null, 0L,
+						CompletableFuture.completedFuture(null));
+
+				} else if (acceptedAction.useStreams(inputLength)) {
+					// Nested archives and large entries are transformed as
+					// streams, on this thread.
+
+					completeAll(inputPath, pendingEntries, entryWriter);
+
+					String outputName = acceptedAction.getStreamOutputName(inputName);
+					try (InputStream entryInput = zipReader.getInputStream(inputEntry);
+						OutputStream entryOutput = zipWriter.startEntry(outputName, inputEntry)) {
+						if (acceptedAction.useStreams()) {
+							applyNested(acceptedAction, inputName, entryInput, inputLength, inputEntry.crc,
+								entryOutput);
+						} else {
+							acceptedAction.apply(inputName, entryInput, inputLength, entryOutput);
+							recordTransform(acceptedAction, inputName);
+							recordTiming(acceptedAction, inputName, 0L);
+						}
+					}
+
+					prevName = inputName;
+					inputName = null;
+					continue;
+
+				} else {
+					int intInputLength = FileUtils.verifyArray(0, inputLength);
+
+					// Entries which are transformed by the executor are read
+					// into pooled buffers. Otherwise, entries are transformed
+					// and written before the next entry is read, and are read
+					// into the reusable input buffer.
+
+					long readStart = timingStart();
+					ByteData inputData;
+					try (InputStream entryInput = zipReader.getInputStream(inputEntry)) {
+						if (useExecutor) {
+							inputData = FileUtils.read(inputName, entryInput, getBuffer().takeBuffer(intInputLength),
+								intInputLength); // throws IOException
+						} else {
+							inputData = read(inputName, entryInput, intInputLength); // throws TransformException
+						}
+					}
+
+					long readNanos = timingSince(readStart);
+
+					if (useExecutor && (acceptedAction.getInit() != null)) {
+						pending = submit(acceptedAction, inputEntry, readNanos, inputData);
+					} else {
+						EntryResult entryResult = transform(acceptedAction, inputData);
+						pending = new PendingEntry(inputName, inputEntry, acceptedAction, readNanos,
+							CompletableFuture.completedFuture(entryResult));
+					}
+				}
+
+				pendingEntries.add(pending);
+				while (pendingEntries.size() > pendingLimit) {
+					complete(inputPath, pendingEntries.poll(), entryWriter);
+				}
+
+				prevName = inputName;
+				inputName = null;
+			}
+
+			completeAll(inputPath, pendingEntries, entryWriter);
+
+		} catch (IOException e) {
+			cancelAll(pendingEntries);
+
+			String message;
+			if (inputName != null) { // Actively processing an entry.
+				message = "Failure while processing [ " + inputName + " ] from [ " + inputPath + " ]";
+			} else if (prevName != null) { // Moving to a new entry but not the
+											// first entry.
+				message = "Failure after processing [ " + prevName + " ] from [ " + inputPath + " ]";
+			} else { // Moving to the first entry.
+				message = "Failed to process first entry of [ " + inputPath + " ]";
+			}
+			throw new TransformException(message, e);
+
+		} catch (TransformException | RuntimeException e) {
+			cancelAll(pendingEntries);
+			throw e;
+		}
+	}
+
 	// Containers default to process input streams as zip archives.
 
 	@Override
@@ -146,6 +765,7 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 
 		try {
 			setResourceNames(inputPath, inputPath);
+			Object event = TransformEvents.ARCHIVE.begin();
 
 			// Use Zip streams instead of Jar streams.
 			//
@@ -167,6 +787,10 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				}
 			}
 
+			if (event != null) {
+				TransformEvents.ARCHIVE.commit(event, inputPath, getActionType(), inputCount, -1L, hasChanges());
+			}
+
 		} finally {
 			stopRecording(inputPath);
 		}
@@ -178,6 +802,16 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		String prevName = null;
 		String inputName = null;
 
+		boolean useExecutor = (getExecutor() != null);
+		Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+
+		EntryWriter entryWriter = (PendingEntry pending, EntryResult entryResult) -> {
+			ZipEntry outputEntry = new ZipEntry(entryResult.outputName);
+			zipOutputStream.putNextEntry(outputEntry); // throws IOException
+			entryResult.outputData.write(zipOutputStream); // throws IOException
+			zipOutputStream.closeEntry(); // throws IOException
+		};
+
 		try {
 			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
 
@@ -186,104 +820,195 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				inputName = inputEntry.getName();
 				long inputLength = inputEntry.getSize();
 
-				debug("[ {}.{} ] [ {} ] Size [ {} ]", getClass().getSimpleName(), "apply", inputName, inputLength);
+				if (isDebugEnabled()) {
+					debug("[ {}.{} ] [ {} ] Size [ {} ]", getClass().getSimpleName(), "apply", inputName,
+						inputLength);
+				}
 
 				boolean selected = select(inputName);
-				Action acceptedAction = acceptAction(inputName);
+				ActionImpl acceptedAction = acceptAction(inputName);
 
-				if (!selected || (acceptedAction == null)) {
-					if (acceptedAction == null) {
-						recordUnaccepted(inputName);
-					} else {
-						recordUnselected(acceptedAction, inputName);
-					}
+				// Entries which have an unknown length are transformed as
+				// streams if their head is larger than the stream threshold.
 
-					// TODO: Should more of the entry details be transferred?
+				InputStream entryInput = zipInputStream;
+				ByteData headData = null;
+				boolean useStream = false;
 
-					ZipEntry outputEntry = new ZipEntry(inputName);
-					zipOutputStream.putNextEntry(outputEntry); // throws
-																// IOException
-					FileUtils.transfer(zipInputStream, zipOutputStream, buffer); // throws
-																					// IOException
-					zipOutputStream.closeEntry(); // throws IOException
+				// The head is read into a pooled buffer, which is released
+				// once the entry is written, or, when the entry is given to a
+				// worker, once the worker result is written.
 
-				} else {
-					// long inputCRC = inputEntry.getCrc();
-					//
-					// int inputMethod = inputEntry.getMethod();
-					// long inputCompressed = inputEntry.getCompressedSize();
-					//
-					// FileTime inputCreation = inputEntry.getCreationTime();
-					// FileTime inputAccess = inputEntry.getLastAccessTime();
-					// FileTime inputModified =
-					// inputEntry.getLastModifiedTime();
-					//
-					// String className = getClass().getSimpleName();
-					// String methodName = "applyZip";
-					//
-					// debug( "[ {}.{} ] [ {} ] Size [ {} ] CRC [ {} ]",
-					// className, methodName, inputName, inputLength, inputCRC);
-					// debug( "[ {}.{} ] [ {} ] Compressed size [ {} ] Method [
-					// {} ]",
-					// className, methodName, inputName, inputCompressed,
-					// inputMethod);
-					// debug( "[ {}.{} ] [ {} ] Created [ {} ] Accessed [ {} ]
-					// Modified [ {} ]",
-					// className, methodName, inputName, inputCreation,
-					// inputAccess, inputModified);
-
-					// Archive type actions are processed using streams,
-					// while non-archive type actions do a full read of the
-					// entry
-					// data and process the resulting byte array.
-					//
-					// Ideally, a single pattern would be used for both cases,
-					// but
-					// but that is not possible:
-					//
-					// A full read of a nested archive is not possible because
-					// the nested
-					// archive can be very large.
-					//
-					// A read of non-archive data must be performed, since
-					// non-archive data
-					// may change the name associated with the data, and that
-					// can only be
-					// determined after reading the data.
-
-					if (acceptedAction.useStreams()) {
-						// TODO: Should more of the entry details be
-						// transferred?
+				ByteData pooledHead = null;
 
-						ZipEntry outputEntry = new ZipEntry(inputName);
-						zipOutputStream.putNextEntry(outputEntry); // throws
-																	// IOException
+				if (selected && (acceptedAction != null)) {
+					if (inputLength == -1L) {
+						headData = acceptedAction.readHead(inputName, zipInputStream);
+						pooledHead = headData;
+					}
+					if (headData == null) {
+						useStream = acceptedAction.useStreams(inputLength);
+					} else if (headData.length > acceptedAction.getStreamThreshold()) {
+						entryInput = FileUtils.join(headData, zipInputStream);
+						headData = null;
+						useStream = true;
+					} else {
+						entryInput = headData.asStream();
+						inputLength = headData.length;
+					}
+				}
 
-						acceptedAction.apply(inputName, zipInputStream, inputLength, zipOutputStream);
-						recordTransform(acceptedAction, inputName);
-						zipOutputStream.closeEntry(); // throws IOException
+				boolean useWorker = (useExecutor && selected && (acceptedAction != null) && !useStream
+					&& (acceptedAction.getInit() != null));
 
+				if (useWorker) {
+					long readStart = timingStart();
+					ByteData inputData;
+					if (headData != null) {
+						inputData = headData;
+						pooledHead = null;
 					} else {
 						int intInputLength;
+						byte[] inputBuffer;
 						if (inputLength == -1L) {
 							intInputLength = -1;
+							inputBuffer = getBuffer().takeBuffer(FileUtils.BUFFER_ADJUSTMENT);
 						} else {
 							intInputLength = FileUtils.verifyArray(0, inputLength);
+							inputBuffer = getBuffer().takeBuffer(intInputLength);
 						}
+						inputData = FileUtils.read(inputName, zipInputStream, inputBuffer, intInputLength);
+						// throws IOException
+					}
+
+					long readNanos = timingSince(readStart);
+
+					if (pendingEntries.size() >= getMaxPending()) {
+						complete(inputPath, pendingEntries.poll(), entryWriter);
+					}
+					pendingEntries.add(submit(acceptedAction, null, readNanos, inputData));
 
-						InputStreamData outputData = acceptedAction.apply(inputName, zipInputStream, intInputLength);
-						recordTransform(acceptedAction, inputName);
+					prevName = inputName;
+					inputName = null;
+					continue;
+				}
+
+				try {
+					// Entries must be written in order: Complete any entries
+					// which are still being processed before writing this entry.
+					completeAll(inputPath, pendingEntries, entryWriter);
+
+					if (!selected || (acceptedAction == null)) {
+						if (acceptedAction == null) {
+							recordUnaccepted(inputName);
+						} else {
+							recordUnselected(acceptedAction, inputName);
+						}
 
-						// TODO: Should more of the entry details be
-						// transferred?
+						// TODO: Should more of the entry details be transferred?
 
-						ZipEntry outputEntry = new ZipEntry(acceptedAction.getLastActiveChanges()
-							.getOutputResourceName());
+						long writeStart = timingStart();
+						ZipEntry outputEntry = new ZipEntry(inputName);
 						zipOutputStream.putNextEntry(outputEntry); // throws
 																	// IOException
-						FileUtils.transfer(outputData.stream, zipOutputStream, buffer); // throws
-																						// IOException
+						long length = FileUtils.transfer(zipInputStream, zipOutputStream, buffer); // throws
+																									// IOException
 						zipOutputStream.closeEntry(); // throws IOException
+						if (isTimed()) {
+							recordTiming(new ActionTimings.Entry(inputName, ActionTimings.COPY_ACTION_NAME, 0L, 0L,
+								timingSince(writeStart), length, length, 0L));
+						}
+
+					} else {
+						// long inputCRC = inputEntry.getCrc();
+						//
+						// int inputMethod = inputEntry.getMethod();
+						// long inputCompressed = inputEntry.getCompressedSize();
+						//
+						// FileTime inputCreation = inputEntry.getCreationTime();
+						// FileTime inputAccess = inputEntry.getLastAccessTime();
+						// FileTime inputModified =
+						// inputEntry.getLastModifiedTime();
+						//
+						// String className = getClass().getSimpleName();
+						// String methodName = "applyZip";
+						//
+						// debug( "[ {}.{} ] [ {} ] Size [ {} ] CRC [ {} ]",
+						// className, methodName, inputName, inputLength, inputCRC);
+						// debug( "[ {}.{} ] [ {} ] Compressed size [ {} ] Method [
+						// {} ]",
+						// className, methodName, inputName, inputCompressed,
+						// inputMethod);
+						// debug( "[ {}.{} ] [ {} ] Created [ {} ] Accessed [ {} ]
+						// Modified [ {} ]",
+						// className, methodName, inputName, inputCreation,
+						// inputAccess, inputModified);
+
+						// Archive type actions are processed using streams,
+						// while non-archive type actions do a full read of the
+						// entry
+						// data and process the resulting byte array.
+						//
+						// Ideally, a single pattern would be used for both cases,
+						// but
+						// but that is not possible:
+						//
+						// A full read of a nested archive is not possible because
+						// the nested
+						// archive can be very large.
+						//
+						// A read of non-archive data must be performed, since
+						// non-archive data
+						// may change the name associated with the data, and that
+						// can only be
+						// determined after reading the data.
+
+						if (useStream) {
+							// TODO: Should more of the entry details be
+							// transferred?
+
+							ZipEntry outputEntry = new ZipEntry(acceptedAction.getStreamOutputName(inputName));
+							zipOutputStream.putNextEntry(outputEntry); // throws
+																		// IOException
+
+							if (acceptedAction.useStreams()) {
+								applyNested(acceptedAction, inputName, entryInput, inputLength, inputEntry.getCrc(),
+									zipOutputStream);
+							} else {
+								acceptedAction.applyStream(inputName, entryInput, zipOutputStream);
+								recordTransform(acceptedAction, inputName);
+								recordTiming(acceptedAction, inputName, 0L);
+							}
+							zipOutputStream.closeEntry(); // throws IOException
+
+						} else {
+							int intInputLength;
+							if (inputLength == -1L) {
+								intInputLength = -1;
+							} else {
+								intInputLength = FileUtils.verifyArray(0, inputLength);
+							}
+
+							InputStreamData outputData = acceptedAction.apply(inputName, entryInput, intInputLength);
+							recordTransform(acceptedAction, inputName);
+
+							// TODO: Should more of the entry details be
+							// transferred?
+
+							long writeStart = timingStart();
+							ZipEntry outputEntry = new ZipEntry(acceptedAction.getLastActiveChanges()
+								.getOutputResourceName());
+							zipOutputStream.putNextEntry(outputEntry); // throws
+																		// IOException
+							FileUtils.transfer(outputData.stream, zipOutputStream, buffer); // throws
+																							// IOException
+							zipOutputStream.closeEntry(); // throws IOException
+							recordTiming(acceptedAction, inputName, timingSince(writeStart));
+						}
+					}
+				} finally {
+					if (pooledHead != null) {
+						acceptedAction.releaseHead(pooledHead);
 					}
 				}
 
@@ -291,7 +1016,11 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				inputName = null;
 			}
 
+			completeAll(inputPath, pendingEntries, entryWriter);
+
 		} catch (IOException e) {
+			cancelAll(pendingEntries);
+
 			String message;
 			if (inputName != null) { // Actively processing an entry.
 				message = "Failure while processing [ " + inputName + " ] from [ " + inputPath + " ]";
@@ -302,6 +1031,10 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				message = "Failed to process first entry of [ " + inputPath + " ]";
 			}
 			throw new TransformException(message, e);
+
+		} catch (TransformException | RuntimeException e) {
+			cancelAll(pendingEntries);
+			throw e;
 		}
 	}
 }
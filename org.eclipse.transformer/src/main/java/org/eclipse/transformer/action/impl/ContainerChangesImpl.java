@@ -11,11 +11,13 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.eclipse.transformer.action.Action;
@@ -24,7 +26,7 @@ import org.slf4j.Logger;
 
 public class ContainerChangesImpl extends ChangesImpl implements ContainerChanges {
 
-	protected ContainerChangesImpl() {
+	public ContainerChangesImpl() {
 		super();
 
 		this.changedByAction = new HashMap<>();
@@ -38,6 +40,8 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		this.allResources = 0;
 
 		this.allNestedChanges = null;
+
+		this.timings = new ActionTimings();
 	}
 
 	//
@@ -61,6 +65,8 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 
 		allNestedChanges = null;
 
+		timings.clear();
+
 		super.clearChanges();
 	}
 
@@ -203,6 +209,21 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 
 	//
 
+	private final ActionTimings timings;
+
+	/**
+	 * Answer the timings of the resources of the container. Nested archives
+	 * are timed as single resources. The timings of the resources of nested
+	 * archives are added to the nested changes.
+	 *
+	 * @return The timings of the resources of the container.
+	 */
+	public ActionTimings getTimings() {
+		return timings;
+	}
+
+	//
+
 	private ContainerChangesImpl allNestedChanges;
 
 	@Override
@@ -245,6 +266,35 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		this.allSelected += otherChanges.getAllSelected();
 		this.allUnselected += otherChanges.getAllUnselected();
 		this.allResources += otherChanges.getAllResources();
+
+		if (otherChanges instanceof ContainerChangesImpl) {
+			this.timings.add(((ContainerChangesImpl) otherChanges).getTimings());
+		}
+	}
+
+	/**
+	 * Create a copy of these changes, including the resource names and the
+	 * nested changes. Timings are not copied: A copy is used when a previous
+	 * output is reused, which does not repeat the timed work.
+	 *
+	 * @return A copy of these changes.
+	 */
+	public ContainerChangesImpl copy() {
+		ContainerChangesImpl copy = new ContainerChangesImpl();
+
+		copy.setInputResourceName(getInputResourceName());
+		copy.setOutputResourceName(getOutputResourceName());
+		copy.addReplacements(getReplacements());
+
+		copy.add(this);
+		copy.timings.clear();
+		if (allNestedChanges != null) {
+			copy.allNestedChanges = new ContainerChangesImpl();
+			copy.allNestedChanges.add(allNestedChanges);
+			copy.allNestedChanges.timings.clear();
+		}
+
+		return copy;
 	}
 
 	private void addChangeMap(Map<String, int[]> thisChangeMap, Map<String, int[]> otherChangeMap) {
@@ -260,6 +310,114 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		}
 	}
 
+	// Summaries: Changes may be stored as properties, and loaded later to
+	// display the changes of a transformation which is not performed again.
+
+	private static final String	SUMMARY_REPLACEMENTS	= "replacements";
+	private static final String	SUMMARY_ALL_CHANGED		= "allChanged";
+	private static final String	SUMMARY_ALL_UNCHANGED	= "allUnchanged";
+	private static final String	SUMMARY_ALL_SELECTED	= "allSelected";
+	private static final String	SUMMARY_ALL_UNSELECTED	= "allUnselected";
+	private static final String	SUMMARY_ALL_RESOURCES	= "allResources";
+	private static final String	SUMMARY_CHANGED			= "changed.";
+	private static final String	SUMMARY_UNCHANGED		= "unchanged.";
+	private static final String	SUMMARY_NESTED			= "nested.";
+
+	/**
+	 * Create changes from a stored summary. The resource names are not
+	 * stored, and are not set.
+	 *
+	 * @param summary Summary properties, as stored by
+	 *            {@link #storeSummary(Properties)}.
+	 * @return Changes created from the summary.
+	 * @throws IllegalArgumentException Thrown if the summary is not valid.
+	 */
+	public static ContainerChangesImpl loadSummary(Properties summary) {
+		ContainerChangesImpl changes = new ContainerChangesImpl();
+		changes.loadSummary(summary, "");
+		return changes;
+	}
+
+	/**
+	 * Store a summary of these changes. The summary contains the change
+	 * counts, including the nested change counts, but not the resource names.
+	 *
+	 * @param summary Properties into which to store the summary.
+	 */
+	public void storeSummary(Properties summary) {
+		storeSummary(summary, "");
+	}
+
+	protected void storeSummary(Properties summary, String prefix) {
+		summary.setProperty(prefix + SUMMARY_REPLACEMENTS, Integer.toString(getReplacements()));
+
+		summary.setProperty(prefix + SUMMARY_ALL_CHANGED, Integer.toString(allChanged));
+		summary.setProperty(prefix + SUMMARY_ALL_UNCHANGED, Integer.toString(allUnchanged));
+		summary.setProperty(prefix + SUMMARY_ALL_SELECTED, Integer.toString(allSelected));
+		summary.setProperty(prefix + SUMMARY_ALL_UNSELECTED, Integer.toString(allUnselected));
+		summary.setProperty(prefix + SUMMARY_ALL_RESOURCES, Integer.toString(allResources));
+
+		for (Map.Entry<String, int[]> changedEntry : changedByAction.entrySet()) {
+			summary.setProperty(prefix + SUMMARY_CHANGED + changedEntry.getKey(),
+				Integer.toString(changedEntry.getValue()[0]));
+		}
+		for (Map.Entry<String, int[]> unchangedEntry : unchangedByAction.entrySet()) {
+			summary.setProperty(prefix + SUMMARY_UNCHANGED + unchangedEntry.getKey(),
+				Integer.toString(unchangedEntry.getValue()[0]));
+		}
+
+		if (allNestedChanges != null) {
+			allNestedChanges.storeSummary(summary, prefix + SUMMARY_NESTED);
+		}
+	}
+
+	protected void loadSummary(Properties summary, String prefix) {
+		addReplacements(getSummaryCount(summary, prefix + SUMMARY_REPLACEMENTS));
+
+		allChanged = getSummaryCount(summary, prefix + SUMMARY_ALL_CHANGED);
+		allUnchanged = getSummaryCount(summary, prefix + SUMMARY_ALL_UNCHANGED);
+		allSelected = getSummaryCount(summary, prefix + SUMMARY_ALL_SELECTED);
+		allUnselected = getSummaryCount(summary, prefix + SUMMARY_ALL_UNSELECTED);
+		allResources = getSummaryCount(summary, prefix + SUMMARY_ALL_RESOURCES);
+
+		String changedPrefix = prefix + SUMMARY_CHANGED;
+		String unchangedPrefix = prefix + SUMMARY_UNCHANGED;
+		String nestedPrefix = prefix + SUMMARY_NESTED;
+
+		boolean hasNested = false;
+		for (String propertyName : summary.stringPropertyNames()) {
+			if (propertyName.startsWith(changedPrefix)) {
+				changedByAction.put(propertyName.substring(changedPrefix.length()), new int[] {
+					getSummaryCount(summary, propertyName)
+				});
+			} else if (propertyName.startsWith(unchangedPrefix)) {
+				unchangedByAction.put(propertyName.substring(unchangedPrefix.length()), new int[] {
+					getSummaryCount(summary, propertyName)
+				});
+			} else if (propertyName.startsWith(nestedPrefix)) {
+				hasNested = true;
+			}
+		}
+
+		if (hasNested) {
+			allNestedChanges = new ContainerChangesImpl();
+			allNestedChanges.loadSummary(summary, nestedPrefix);
+		}
+	}
+
+	private static int getSummaryCount(Properties summary, String propertyName) {
+		String countText = summary.getProperty(propertyName);
+		if (countText == null) {
+			throw new IllegalArgumentException("Summary property [ " + propertyName + " ] is missing");
+		}
+		try {
+			return Integer.parseInt(countText);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(
+				"Summary property [ " + propertyName + " ] value [ " + countText + " ] is not valid", e);
+		}
+	}
+
 	//
 
 	private static final String	DASH_LINE		= "================================================================================";
@@ -347,6 +505,12 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		stream.print(DASH_LINE);
 		stream.print("\n");
 
+		if (!timings.isEmpty()) {
+			timings.display(stream);
+			stream.print(DASH_LINE);
+			stream.print("\n");
+		}
+
 		if (allNestedChanges != null) {
 			stream.printf("[ Nested changes: ]\n");
 			stream.printf(SMALL_DASH_LINE);
@@ -355,6 +519,12 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 			allNestedChanges.displayChanges(stream);
 			stream.printf(DASH_LINE);
 			stream.print("\n");
+
+			if (!allNestedChanges.timings.isEmpty()) {
+				allNestedChanges.timings.display(stream);
+				stream.print(DASH_LINE);
+				stream.print("\n");
+			}
 		}
 	}
 
@@ -377,12 +547,46 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		displayChanges(logger);
 		logger.info(DASH_LINE);
 
+		if (!timings.isEmpty()) {
+			timings.display(logger);
+			logger.info(DASH_LINE);
+		}
+
 		if (allNestedChanges != null) {
 			logger.info("[ Nested changes: ]");
 			logger.info(SMALL_DASH_LINE);
 			allNestedChanges.displayChanges(logger);
 			logger.info(DASH_LINE);
+
+			if (!allNestedChanges.timings.isEmpty()) {
+				allNestedChanges.timings.display(logger);
+				logger.info(DASH_LINE);
+			}
+		}
+	}
+
+	/**
+	 * Write the timings of these changes as a JSON object, which has the
+	 * timings of the immediate resources, and the timings of the resources
+	 * of nested archives.
+	 *
+	 * @param output The output to which to write the timings.
+	 * @param inputPath The path of the input.
+	 * @param outputPath The path of the output.
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public void writeTimings(Appendable output, String inputPath, String outputPath) throws IOException {
+		output.append("{\"input\":");
+		ActionTimings.appendJson(output, inputPath);
+		output.append(",\"output\":");
+		ActionTimings.appendJson(output, outputPath);
+		output.append(",\"immediate\":");
+		timings.writeJson(output);
+		if (allNestedChanges != null) {
+			output.append(",\"nested\":");
+			allNestedChanges.timings.writeJson(output);
 		}
+		output.append("}\n");
 	}
 
 	@Override
@@ -12,10 +12,27 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.transformer.TransformException;
-import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.util.TransformCache;
 import org.slf4j.Logger;
 
 public class DirectoryActionImpl extends ContainerActionImpl {
@@ -66,43 +83,542 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 		}
 	}
 
+	/**
+	 * Transform the changed files of an input directory which was transformed
+	 * to an output directory. Changed directories are transformed entirely.
+	 * The outputs of changed files and directories which no longer exist are
+	 * removed. Paths which are not within the input directory are ignored.
+	 * <p>
+	 * When a manifest fingerprint is set, the manifest of the output
+	 * directory is updated, and changed files which were not modified
+	 * according to the manifest are not transformed again.
+	 *
+	 * @param inputPath The name of the input directory.
+	 * @param inputFile The input directory.
+	 * @param outputFile The output directory.
+	 * @param changedPaths The changed paths, which are resolved against the
+	 *            path of the input directory. The entire input directory is
+	 *            transformed if the changed paths include the input
+	 *            directory.
+	 * @throws TransformException Thrown if a changed file could not be
+	 *             transformed.
+	 */
+	public void applyChanged(String inputPath, File inputFile, File outputFile, Collection<Path> changedPaths)
+		throws TransformException {
+
+		startRecording(inputPath);
+		try {
+			setResourceNames(inputPath, inputPath);
+			transform(".", inputFile, outputFile, changedPaths);
+		} finally {
+			stopRecording(inputPath);
+		}
+	}
+
+	// Directories are walked on the calling thread. When an executor is set,
+	// files which are not archives are transformed by the executor, using
+	// per-thread copies of the accepted actions. The files which are being
+	// transformed are limited both by count and by total length.
+
+	/** Default maximum total length of files which are being transformed. */
+	public static final long	DEFAULT_MAX_PENDING_LENGTH	= 256L * 1024L * 1024L;
+
+	private long				maxPendingLength			= DEFAULT_MAX_PENDING_LENGTH;
+
+	public long getMaxPendingLength() {
+		return maxPendingLength;
+	}
+
+	/**
+	 * Set the maximum total length of files which are being transformed. A
+	 * file which is longer than the maximum is transformed when no other
+	 * files are being transformed.
+	 *
+	 * @param maxPendingLength The maximum total length of files which are
+	 *            being transformed.
+	 */
+	public void setMaxPendingLength(long maxPendingLength) {
+		this.maxPendingLength = maxPendingLength;
+	}
+
+	// Incremental transformation: When a manifest fingerprint is set, a
+	// manifest of the input files is stored next to the output directory.
+	// Later transformations which use the same fingerprint transform only
+	// files which are new or which were modified, and remove the outputs of
+	// files which were deleted.
+
+	private String manifestFingerprint;
+
+	public String getManifestFingerprint() {
+		return manifestFingerprint;
+	}
+
+	/**
+	 * Set the fingerprint of the rules used by transformations. Setting a
+	 * fingerprint enables incremental transformation of directories.
+	 *
+	 * @param manifestFingerprint The fingerprint of the rules used by
+	 *            transformations. Null to disable incremental transformation.
+	 */
+	public void setManifestFingerprint(String manifestFingerprint) {
+		this.manifestFingerprint = manifestFingerprint;
+	}
+
+	/**
+	 * The result of transforming a file. The changes data and the timing are
+	 * captured when the file is transformed, since a worker action is reused
+	 * for later files.
+	 */
+	protected static class FileResult {
+		public final boolean				hasChanges;
+		public final ActionTimings.Entry	timing;
+
+		public FileResult(boolean hasChanges, ActionTimings.Entry timing) {
+			this.hasChanges = hasChanges;
+			this.timing = timing;
+		}
+	}
+
+	/**
+	 * A file which is being transformed by the executor.
+	 */
+	protected static class PendingFile {
+		public final String						inputPath;
+		public final long						inputLength;
+		public final ActionImpl					action;
+		public final Future<FileResult>			result;
+		public final DirectoryManifest.Entry	manifestEntry;
+
+		public PendingFile(String inputPath, long inputLength, ActionImpl action, Future<FileResult> result,
+			DirectoryManifest.Entry manifestEntry) {
+			this.inputPath = inputPath;
+			this.inputLength = inputLength;
+			this.action = action;
+			this.result = result;
+			this.manifestEntry = manifestEntry;
+		}
+	}
+
+	/**
+	 * Carrier of a transform exception through a file visitor.
+	 */
+	private static class VisitException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		VisitException(TransformException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized TransformException getCause() {
+			return (TransformException) super.getCause();
+		}
+	}
+
 	protected void transform(String inputPath, File inputFile, File outputFile) throws TransformException {
+		transform(inputPath, inputFile, outputFile, null);
+	}
 
-		inputPath = inputPath + '/' + inputFile.getName();
+	protected void transform(String inputPath, File inputFile, File outputFile, Collection<Path> changedPaths)
+		throws TransformException {
 
 		// Note the asymmetry between the handling of the root directory,
 		// which is selected by a composite action, and the handling of
-		// sub-directories,
-		// which are handled automatically by the directory action.
+		// sub-directories, which are handled automatically by the directory
+		// action.
 		//
 		// This means that the directory action processes the entire tree
 		// of child directories.
 		//
 		// The alternative would be to put the directory action as a child of
-		// itself,
-		// and have sub-directories be accepted using composite action
+		// itself, and have sub-directories be accepted using composite action
 		// selection.
 
-		if (inputFile.isDirectory()) {
-			if (!outputFile.exists()) {
-				outputFile.mkdir();
+		String rootPath = inputPath + '/' + inputFile.getName();
+		Path inputRoot = inputFile.toPath();
+		Path outputRoot = outputFile.toPath();
+
+		boolean isComplete = ((changedPaths == null) || changedPaths.contains(inputRoot));
+
+		Deque<PendingFile> pendingFiles = new ArrayDeque<>();
+		long[] pendingLength = new long[1];
+
+		// The prior manifest is deleted while the transformation is in
+		// progress: A failed transformation leaves no manifest, which causes
+		// the next transformation to transform all files.
+
+		String useFingerprint = getManifestFingerprint();
+		File manifestFile;
+		DirectoryManifest priorManifest;
+		DirectoryManifest manifest;
+		if (useFingerprint != null) {
+			manifestFile = DirectoryManifest.getManifestFile(outputFile);
+			priorManifest = DirectoryManifest.load(manifestFile, useFingerprint);
+			// When transforming changed files, the entries of the files
+			// which did not change are kept.
+			manifest = (isComplete ? new DirectoryManifest(useFingerprint) : priorManifest);
+			try {
+				Files.deleteIfExists(manifestFile.toPath());
+			} catch (IOException e) {
+				throw new TransformException("Failed to delete manifest [ " + manifestFile.getAbsolutePath() + " ]",
+					e);
 			}
+		} else {
+			manifestFile = null;
+			priorManifest = null;
+			manifest = null;
+		}
 
-			for (File childInputFile : inputFile.listFiles()) {
-				File childOutputFile = new File(outputFile, childInputFile.getName());
-				transform(inputPath, childInputFile, childOutputFile);
+		FileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path inputDir, BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(resolveOutput(inputRoot, outputRoot, inputDir));
+				return FileVisitResult.CONTINUE;
 			}
 
-		} else {
-			Action selectedAction = acceptAction(inputPath, inputFile);
-			if (selectedAction == null) {
-				recordUnaccepted(inputPath);
-			} else if (!select(inputPath)) {
-				recordUnselected(selectedAction, inputPath);
+			@Override
+			public FileVisitResult visitFile(Path inputPath, BasicFileAttributes attrs) throws IOException {
+				String childPath = getChildPath(rootPath, inputRoot, inputPath);
+				File childOutputFile = resolveOutput(inputRoot, outputRoot, inputPath).toFile();
+				try {
+					DirectoryManifest.Entry manifestEntry;
+					if (manifest != null) {
+						String relativePath = childPath.substring(rootPath.length() + 1);
+						manifestEntry = checkManifest(priorManifest.remove(relativePath), inputPath.toFile(),
+							childOutputFile, attrs);
+						manifest.put(relativePath, manifestEntry);
+						if (manifestEntry.getOutcome() != 0) {
+							debug("Resource [ {} ]: Not modified", childPath);
+							manifestEntry.record(getActiveChanges());
+							return FileVisitResult.CONTINUE;
+						}
+					} else {
+						manifestEntry = null;
+					}
+
+					transformFile(childPath, inputPath.toFile(), childOutputFile, attrs.size(), pendingFiles,
+						pendingLength, manifestEntry);
+				} catch (TransformException e) {
+					throw new VisitException(e);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		};
+
+		try {
+			if (isComplete) {
+				Files.walkFileTree(inputRoot, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
+				// throws IOException
 			} else {
-				selectedAction.apply(inputPath, inputFile, outputFile);
-				recordTransform(selectedAction, inputPath);
+				for (Path changedPath : changedPaths) {
+					if (!changedPath.startsWith(inputRoot) || hasChangedParent(inputRoot, changedPath, changedPaths)) {
+						continue;
+					} else if (Files.exists(changedPath)) {
+						Files.createDirectories(resolveOutput(inputRoot, outputRoot, changedPath.getParent()));
+						Files.walkFileTree(changedPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+							visitor);
+					} else {
+						removeOutput(inputRoot, outputRoot, changedPath, manifest);
+					}
+				}
+			}
+
+			PendingFile pending;
+			while ((pending = pendingFiles.poll()) != null) {
+				complete(pending, pendingLength);
+			}
+
+			if (manifest != null) {
+				if (isComplete) {
+					removeDeleted(priorManifest, inputRoot, outputRoot);
+				}
+				manifest.store(manifestFile); // throws IOException
+			}
+
+		} catch (VisitException e) {
+			cancelFiles(pendingFiles);
+			throw e.getCause();
+
+		} catch (IOException e) {
+			cancelFiles(pendingFiles);
+			throw new TransformException("Failed to process directory [ " + rootPath + " ]", e);
+
+		} catch (TransformException | RuntimeException e) {
+			cancelFiles(pendingFiles);
+			throw e;
+		}
+	}
+
+	// A path which is within a changed directory is handled when the
+	// changed directory is handled.
+	private static boolean hasChangedParent(Path inputRoot, Path changedPath, Collection<Path> changedPaths) {
+		for (Path parent = changedPath.getParent(); (parent != null) && !parent.equals(inputRoot); parent = parent
+			.getParent()) {
+			if (changedPaths.contains(parent)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Path resolveOutput(Path inputRoot, Path outputRoot, Path inputPath) {
+		return outputRoot.resolve(inputRoot.relativize(inputPath)
+			.toString());
+	}
+
+	private static String getChildPath(String rootPath, Path inputRoot, Path inputPath) {
+		StringBuilder childPath = new StringBuilder(rootPath);
+		for (Path pathElement : inputRoot.relativize(inputPath)) {
+			childPath.append('/')
+				.append(pathElement.toString());
+		}
+		return childPath.toString();
+	}
+
+	/**
+	 * Compare a file to its prior manifest entry. Answer a new entry for the
+	 * file. The new entry has the outcome of the prior entry if the file was
+	 * not modified, and has no outcome if the file is to be transformed.
+	 * <p>
+	 * A file which has the same last modified time and the same length as
+	 * its prior entry is not modified. A file which has the same length but a
+	 * different last modified time is digested, and is not modified if the
+	 * digest is the same as the digest of its prior entry. Digests are not
+	 * computed for new files, which means that a file which is touched for the
+	 * first time is transformed again. The digest is then kept, so that later
+	 * touches of the file are detected using the digest.
+	 */
+	protected DirectoryManifest.Entry checkManifest(DirectoryManifest.Entry priorEntry, File inputFile,
+		File outputFile, BasicFileAttributes attrs) throws TransformException {
+
+		long modified = attrs.lastModifiedTime()
+			.toMillis();
+		long length = attrs.size();
+
+		if (priorEntry == null) {
+			return new DirectoryManifest.Entry(modified, length, null);
+		}
+
+		String digest;
+		boolean isModified;
+		if (priorEntry.length != length) {
+			digest = null;
+			isModified = true;
+		} else if (priorEntry.modified == modified) {
+			digest = priorEntry.digest;
+			isModified = false;
+		} else {
+			try {
+				digest = TransformCache.digest(inputFile);
+			} catch (IOException e) {
+				throw new TransformException("Failed to digest [ " + inputFile.getAbsolutePath() + " ]", e);
+			}
+			isModified = !digest.equals(priorEntry.digest);
+		}
+
+		DirectoryManifest.Entry entry = new DirectoryManifest.Entry(modified, length, digest);
+		if (!isModified && (!priorEntry.hasOutput() || outputFile.isFile())) {
+			entry.setOutcome(priorEntry.getOutcome(), priorEntry.getActionName());
+		}
+		return entry;
+	}
+
+	/**
+	 * Remove the outputs of files which were deleted from the input
+	 * directory, and remove output directories which were emptied by
+	 * removing those outputs, and which no longer have an input directory.
+	 */
+	protected void removeDeleted(DirectoryManifest priorManifest, Path inputRoot, Path outputRoot)
+		throws IOException {
+
+		for (Map.Entry<String, DirectoryManifest.Entry> deleted : priorManifest.getEntries()
+			.entrySet()) {
+			if (!deleted.getValue()
+				.hasOutput()) {
+				continue;
+			}
+
+			String relativePath = deleted.getKey();
+			debug("Resource [ {} ]: Deleted", relativePath);
+			Path outputPath = outputRoot.resolve(relativePath);
+			Files.deleteIfExists(outputPath);
+			removeEmptied(inputRoot, outputRoot, outputPath.getParent());
+		}
+	}
+
+	/**
+	 * Remove the output of a file or of a directory which was deleted from
+	 * the input directory, and remove output directories which were emptied
+	 * by removing the output, and which no longer have an input directory.
+	 */
+	protected void removeOutput(Path inputRoot, Path outputRoot, Path inputPath, DirectoryManifest manifest)
+		throws IOException {
+
+		String relativePath = getChildPath("", inputRoot, inputPath).substring(1);
+		debug("Resource [ {} ]: Deleted", relativePath);
+
+		if (manifest != null) {
+			String relativePrefix = relativePath + '/';
+			manifest.getEntries()
+				.keySet()
+				.removeIf(path -> path.equals(relativePath) || path.startsWith(relativePrefix));
+		}
+
+		Path outputPath = resolveOutput(inputRoot, outputRoot, inputPath);
+		if (Files.isDirectory(outputPath, LinkOption.NOFOLLOW_LINKS)) {
+			Files.walkFileTree(outputPath, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Files.delete(file);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+					if (e != null) {
+						throw e;
+					}
+					Files.delete(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} else {
+			Files.deleteIfExists(outputPath);
+		}
+		removeEmptied(inputRoot, outputRoot, outputPath.getParent());
+	}
+
+	private static void removeEmptied(Path inputRoot, Path outputRoot, Path outputParent) throws IOException {
+		while ((outputParent != null) && !outputParent.equals(outputRoot)
+			&& !Files.exists(resolveInput(inputRoot, outputRoot, outputParent)) && isEmptyDirectory(outputParent)) {
+			Files.delete(outputParent);
+			outputParent = outputParent.getParent();
+		}
+	}
+
+	private static Path resolveInput(Path inputRoot, Path outputRoot, Path outputPath) {
+		return inputRoot.resolve(outputRoot.relativize(outputPath)
+			.toString());
+	}
+
+	private static boolean isEmptyDirectory(Path path) throws IOException {
+		if (!Files.isDirectory(path)) {
+			return false;
+		}
+		try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+			return !children.iterator()
+				.hasNext();
+		}
+	}
+
+	protected void transformFile(String inputPath, File inputFile, File outputFile, long inputLength,
+		Deque<PendingFile> pendingFiles, long[] pendingLength, DirectoryManifest.Entry manifestEntry)
+		throws TransformException {
+
+		ActionImpl selectedAction = acceptAction(inputPath, inputFile);
+		if (selectedAction == null) {
+			recordUnaccepted(inputPath);
+			if (manifestEntry != null) {
+				manifestEntry.setOutcome(DirectoryManifest.OUTCOME_UNACCEPTED, null);
+			}
+			return;
+		} else if (!select(inputPath)) {
+			recordUnselected(selectedAction, inputPath);
+			if (manifestEntry != null) {
+				manifestEntry.setOutcome(DirectoryManifest.OUTCOME_UNSELECTED, selectedAction.getName());
 			}
+			return;
+		}
+
+		// Archives are transformed on this thread: Their entries may
+		// be transformed by the executor.
+
+		boolean useWorker = ((getExecutor() != null) && (selectedAction.getInit() != null)
+			&& !(selectedAction instanceof ContainerActionImpl));
+		if (!useWorker) {
+			long startNanos = timingStart();
+			selectedAction.apply(inputPath, inputFile, outputFile);
+			recordTransform(selectedAction, inputPath);
+			recordTiming(newTiming(selectedAction, inputPath, inputLength, outputFile, timingSince(startNanos)));
+			setOutcome(manifestEntry, selectedAction, selectedAction.hadChanges());
+			return;
+		}
+
+		while (!pendingFiles.isEmpty() && ((pendingFiles.size() >= getMaxPending())
+			|| (pendingLength[0] + inputLength > getMaxPendingLength()))) {
+			complete(pendingFiles.poll(), pendingLength);
+		}
+
+		Future<FileResult> result = getExecutor().submit(() -> {
+			ActionImpl workerAction = getWorkerAction(selectedAction);
+			long startNanos = workerAction.timingStart();
+			workerAction.apply(inputPath, inputFile, outputFile);
+			return new FileResult(workerAction.hadChanges(),
+				newTiming(workerAction, inputPath, inputLength, outputFile, workerAction.timingSince(startNanos)));
+		});
+
+		pendingFiles.add(new PendingFile(inputPath, inputLength, selectedAction, result, manifestEntry));
+		pendingLength[0] += inputLength;
+	}
+
+	/**
+	 * Create the timing of a file which was transformed by an action.
+	 * Archives are timed as a whole. The timings of their entries are
+	 * recorded as nested timings.
+	 *
+	 * @param action The action which transformed the file.
+	 * @param inputPath The path of the file.
+	 * @param inputLength The length of the file.
+	 * @param outputFile The file to which the file was written.
+	 * @param elapsedNanos Time spent transforming the file.
+	 * @return The timing of the file. Null if timings are not recorded.
+	 */
+	protected ActionTimings.Entry newTiming(ActionImpl action, String inputPath, long inputLength, File outputFile,
+		long elapsedNanos) {
+		if (!action.isTimed()) {
+			return null;
+		}
+		if (action instanceof ContainerActionImpl) {
+			return new ActionTimings.Entry(inputPath, action.getName(), 0L, elapsedNanos, 0L, inputLength,
+				outputFile.length(), 0L);
+		}
+		return action.getLastActiveChanges()
+			.newTiming(inputPath, action.getName());
+	}
+
+	protected void complete(PendingFile pending, long[] pendingLength) throws TransformException {
+		FileResult result;
+		try {
+			result = pending.result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			throw new TransformException("Interrupted while processing [ " + pending.inputPath + " ]", e);
+		} catch (ExecutionException e) {
+			throw new TransformException("Failure while processing [ " + pending.inputPath + " ]", e.getCause());
+		}
+
+		pendingLength[0] -= pending.inputLength;
+
+		debug("Resource [ {} ] Action [ {} ]: Changes [ {} ]", pending.inputPath, pending.action.getName(),
+			result.hasChanges);
+		getActiveChanges().record(pending.action, result.hasChanges);
+		recordTiming(result.timing);
+		setOutcome(pending.manifestEntry, pending.action, result.hasChanges);
+	}
+
+	private static void setOutcome(DirectoryManifest.Entry manifestEntry, ActionImpl action, boolean hasChanges) {
+		if (manifestEntry != null) {
+			manifestEntry.setOutcome(
+				(hasChanges ? DirectoryManifest.OUTCOME_CHANGED : DirectoryManifest.OUTCOME_UNCHANGED),
+				action.getName());
+		}
+	}
+
+	protected void cancelFiles(Deque<PendingFile> pendingFiles) {
+		PendingFile pending;
+		while ((pending = pendingFiles.poll()) != null) {
+			pending.result.cancel(true);
 		}
 	}
 }
@@ -0,0 +1,225 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.transformer.action.ContainerChanges;
+
+/**
+ * Record of the files of an input directory, as of the last transformation of
+ * the directory.
+ * <p>
+ * Each file is recorded by its path relative to the input directory, with
+ * its last modified time, its length, its digest, when one was computed, and
+ * the outcome of its transformation. The manifest also records a fingerprint
+ * of the rules which were used: A manifest which was written using different
+ * rules is ignored.
+ */
+public class DirectoryManifest {
+	/** Suffix of manifest files, which are placed next to output directories. */
+	public static final String	MANIFEST_SUFFIX		= ".transformer-manifest";
+
+	// Relative paths never start with '/'.
+	private static final String	FINGERPRINT_KEY		= "/fingerprint";
+
+	public static final char	OUTCOME_UNACCEPTED	= 'U';
+	public static final char	OUTCOME_UNSELECTED	= 'S';
+	public static final char	OUTCOME_UNCHANGED	= 'N';
+	public static final char	OUTCOME_CHANGED		= 'C';
+
+	/**
+	 * Answer the manifest file of an output directory.
+	 *
+	 * @param outputDirectory An output directory.
+	 * @return The manifest file of the output directory.
+	 */
+	public static File getManifestFile(File outputDirectory) {
+		File absoluteOutput = outputDirectory.getAbsoluteFile();
+		return new File(absoluteOutput.getParentFile(), absoluteOutput.getName() + MANIFEST_SUFFIX);
+	}
+
+	public DirectoryManifest(String fingerprint) {
+		this.fingerprint = fingerprint;
+		this.entries = new HashMap<>();
+	}
+
+	private final String				fingerprint;
+	private final Map<String, Entry>	entries;
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public Map<String, Entry> getEntries() {
+		return entries;
+	}
+
+	public Entry get(String relativePath) {
+		return entries.get(relativePath);
+	}
+
+	public Entry remove(String relativePath) {
+		return entries.remove(relativePath);
+	}
+
+	public void put(String relativePath, Entry entry) {
+		entries.put(relativePath, entry);
+	}
+
+	/**
+	 * A file of the input directory.
+	 */
+	public static class Entry {
+		public Entry(long modified, long length, String digest) {
+			this.modified = modified;
+			this.length = length;
+			this.digest = digest;
+		}
+
+		public final long	modified;
+		public final long	length;
+		/** Digest of the file. Null if no digest was computed. */
+		public final String	digest;
+
+		private char		outcome;
+		private String		actionName;
+
+		public char getOutcome() {
+			return outcome;
+		}
+
+		public String getActionName() {
+			return actionName;
+		}
+
+		public void setOutcome(char outcome, String actionName) {
+			this.outcome = outcome;
+			this.actionName = actionName;
+		}
+
+		/**
+		 * Tell if an output was written for the file.
+		 *
+		 * @return True or false telling if an output was written.
+		 */
+		public boolean hasOutput() {
+			return ((outcome == OUTCOME_CHANGED) || (outcome == OUTCOME_UNCHANGED));
+		}
+
+		/**
+		 * Record the outcome of the file into container changes. This is
+		 * used when the file is not transformed again. Only the immediate
+		 * changes of the file are recorded.
+		 *
+		 * @param changes Changes into which to record the outcome.
+		 */
+		public void record(ContainerChanges changes) {
+			if (outcome == OUTCOME_UNACCEPTED) {
+				changes.record();
+			} else {
+				changes.record(actionName, (outcome == OUTCOME_CHANGED));
+			}
+		}
+
+		String toText() {
+			StringBuilder text = new StringBuilder();
+			text.append(modified)
+				.append(',')
+				.append(length)
+				.append(',')
+				.append((digest == null) ? "" : digest)
+				.append(',')
+				.append(outcome);
+			if (actionName != null) {
+				text.append(actionName);
+			}
+			return text.toString();
+		}
+
+		static Entry fromText(String text) {
+			String[] parts = text.split(",", 4);
+			if ((parts.length != 4) || parts[3].isEmpty()) {
+				throw new IllegalArgumentException("Incorrectly formatted manifest entry [ " + text + " ]");
+			}
+			Entry entry = new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+				(parts[2].isEmpty() ? null : parts[2]));
+			String outcomeText = parts[3];
+			entry.setOutcome(outcomeText.charAt(0), ((outcomeText.length() == 1) ? null : outcomeText.substring(1)));
+			return entry;
+		}
+	}
+
+	//
+
+	/**
+	 * Load a manifest file. Answer an empty manifest if the file does not
+	 * exist, cannot be read, or was written using rules which have a
+	 * different fingerprint.
+	 *
+	 * @param manifestFile The manifest file which is to be loaded.
+	 * @param fingerprint The fingerprint of the current rules.
+	 * @return The manifest which was loaded.
+	 */
+	public static DirectoryManifest load(File manifestFile, String fingerprint) {
+		DirectoryManifest manifest = new DirectoryManifest(fingerprint);
+		if (!manifestFile.isFile()) {
+			return manifest;
+		}
+
+		Properties properties = new Properties();
+		try (InputStream inputStream = Files.newInputStream(manifestFile.toPath())) {
+			properties.load(inputStream);
+		} catch (IOException e) {
+			return manifest;
+		}
+		if (!fingerprint.equals(properties.getProperty(FINGERPRINT_KEY))) {
+			return manifest;
+		}
+
+		try {
+			for (String relativePath : properties.stringPropertyNames()) {
+				if (!relativePath.equals(FINGERPRINT_KEY)) {
+					manifest.put(relativePath, Entry.fromText(properties.getProperty(relativePath)));
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			manifest.entries.clear();
+		}
+		return manifest;
+	}
+
+	/**
+	 * Store this manifest.
+	 *
+	 * @param manifestFile The file to which to store the manifest.
+	 * @throws IOException Thrown if the manifest could not be stored.
+	 */
+	public void store(File manifestFile) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(FINGERPRINT_KEY, fingerprint);
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			properties.setProperty(entry.getKey(), entry.getValue()
+				.toText());
+		}
+		try (OutputStream outputStream = Files.newOutputStream(manifestFile.toPath())) {
+			properties.store(outputStream, "Transformer directory manifest");
+		}
+	}
+}
@@ -11,11 +11,51 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.eclipse.transformer.action.InputBuffer;
+import org.eclipse.transformer.util.FileUtils;
 
+/**
+ * Input buffer of an action tree, and a pool of reusable buffers.
+ * <p>
+ * The input buffer is used by a single thread. Worker threads use their own
+ * input buffer, which shares the pool of the input buffer of the action tree.
+ * <p>
+ * The pool is safe for concurrent use. Pooled buffers are kept in size
+ * classes, by powers of two. A buffer which is taken from a size class is at
+ * least as long as the size class. Buffers which are shorter than the
+ * minimum size class or longer than the maximum size class are not pooled,
+ * and the total length of pooled buffers is limited.
+ */
 public class InputBufferImpl implements InputBuffer {
+	/** Log2 of the length of the shortest pooled buffers. */
+	public static final int		MIN_SIZE_CLASS				= 12;
+
+	/** Log2 of the length of the longest pooled buffers. */
+	public static final int		MAX_SIZE_CLASS				= 24;
+
+	/** Default maximum total length of pooled buffers. */
+	public static final long	DEFAULT_MAX_RETAINED_LENGTH	= 64L * 1024L * 1024L;
+
 	public InputBufferImpl() {
+		this(new Pool(DEFAULT_MAX_RETAINED_LENGTH));
+	}
+
+	/**
+	 * Create an input buffer which shares the pool of another input buffer.
+	 *
+	 * @param sharedBuffer The input buffer the pool of which is shared.
+	 */
+	public InputBufferImpl(InputBufferImpl sharedBuffer) {
+		this(sharedBuffer.pool);
+	}
+
+	private InputBufferImpl(Pool pool) {
 		this.inputBuffer = null;
+		this.pool = pool;
 	}
 
 	private byte[] inputBuffer;
@@ -29,4 +69,125 @@ public class InputBufferImpl implements InputBuffer {
 	public void setInputBuffer(byte[] inputBuffer) {
 		this.inputBuffer = inputBuffer;
 	}
+
+	//
+
+	private final Pool pool;
+
+	/**
+	 * Take a buffer from the pool. Allocate a new buffer if no pooled buffer
+	 * is available.
+	 *
+	 * @param minLength The minimum length of the buffer.
+	 * @return A buffer which is at least as long as the minimum length.
+	 */
+	public byte[] takeBuffer(int minLength) {
+		return pool.take(minLength);
+	}
+
+	/**
+	 * Return a buffer to the pool. The buffer must not be used after being
+	 * returned. The buffer is discarded if it is not of a pooled length, or
+	 * if the pool is full.
+	 *
+	 * @param buffer The buffer which is to be returned.
+	 */
+	public void releaseBuffer(byte[] buffer) {
+		pool.release(buffer);
+	}
+
+	/**
+	 * Answer the count of buffers which were allocated because no pooled
+	 * buffer was available.
+	 *
+	 * @return The count of buffers which were allocated.
+	 */
+	public long getAllocations() {
+		return pool.allocations.get();
+	}
+
+	/**
+	 * Answer the count of buffers which were taken from the pool: The count
+	 * of allocations which were avoided.
+	 *
+	 * @return The count of buffers which were taken from the pool.
+	 */
+	public long getReuses() {
+		return pool.reuses.get();
+	}
+
+	public long getRetainedLength() {
+		return pool.retainedLength.get();
+	}
+
+	public long getPeakRetainedLength() {
+		return pool.peakRetainedLength.get();
+	}
+
+	public long getMaxRetainedLength() {
+		return pool.maxRetainedLength;
+	}
+
+	protected static int getSizeClass(int minLength) {
+		if (minLength <= (1 << MIN_SIZE_CLASS)) {
+			return MIN_SIZE_CLASS;
+		}
+		return 32 - Integer.numberOfLeadingZeros(minLength - 1);
+	}
+
+	private static class Pool {
+		final long							maxRetainedLength;
+		final Queue<byte[]>[]				sizeClasses;
+
+		final AtomicLong					retainedLength		= new AtomicLong();
+		final AtomicLong					peakRetainedLength	= new AtomicLong();
+		final AtomicLong					allocations			= new AtomicLong();
+		final AtomicLong					reuses				= new AtomicLong();
+
+		@SuppressWarnings("unchecked")
+		Pool(long maxRetainedLength) {
+			this.maxRetainedLength = maxRetainedLength;
+			this.sizeClasses = new Queue[MAX_SIZE_CLASS + 1];
+			for (int sizeClass = MIN_SIZE_CLASS; sizeClass <= MAX_SIZE_CLASS; sizeClass++) {
+				sizeClasses[sizeClass] = new ConcurrentLinkedQueue<>();
+			}
+		}
+
+		byte[] take(int minLength) {
+			FileUtils.verifyArray(0, minLength);
+
+			int sizeClass = getSizeClass(minLength);
+			if (sizeClass > MAX_SIZE_CLASS) {
+				allocations.incrementAndGet();
+				return new byte[minLength];
+			}
+
+			byte[] buffer = sizeClasses[sizeClass].poll();
+			if (buffer == null) {
+				allocations.incrementAndGet();
+				return new byte[1 << sizeClass];
+			}
+
+			retainedLength.addAndGet(-buffer.length);
+			reuses.incrementAndGet();
+			return buffer;
+		}
+
+		void release(byte[] buffer) {
+			// Buffers are placed in the largest size class which they fill.
+			int sizeClass = 31 - Integer.numberOfLeadingZeros(buffer.length);
+			if ((sizeClass < MIN_SIZE_CLASS) || (sizeClass > MAX_SIZE_CLASS)) {
+				return;
+			}
+
+			long nextRetainedLength = retainedLength.addAndGet(buffer.length);
+			if (nextRetainedLength > maxRetainedLength) {
+				retainedLength.addAndGet(-buffer.length);
+				return;
+			}
+			peakRetainedLength.accumulateAndGet(nextRetainedLength, Math::max);
+
+			sizeClasses[sizeClass].offer(buffer);
+		}
+	}
 }
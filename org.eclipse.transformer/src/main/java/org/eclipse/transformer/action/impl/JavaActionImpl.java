@@ -11,30 +11,22 @@
 
 package org.eclipse.transformer.action.impl;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.util.Map;
+import java.io.OutputStream;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.util.ByteData;
 import org.slf4j.Logger;
 
-import aQute.lib.io.ByteBufferInputStream;
-import aQute.lib.io.ByteBufferOutputStream;
-
 public class JavaActionImpl extends ActionImpl {
 
 	public JavaActionImpl(Logger logger, boolean isTerse, boolean isVerbose, InputBufferImpl buffer,
 		SelectionRuleImpl selectionRule, SignatureRuleImpl signatureRule) {
 
 		super(logger, isTerse, isVerbose, buffer, selectionRule, signatureRule);
+
+		setStreamThreshold(DEFAULT_STREAM_THRESHOLD);
 	}
 
 	//
@@ -58,136 +50,21 @@ public class JavaActionImpl extends ActionImpl {
 
 	//
 
-	/**
-	 * Replace all embedded packages of specified text with replacement
-	 * packages.
-	 *
-	 * @param text Text embedding zero, one, or more package names.
-	 * @return The text with all embedded package names replaced. Null if no
-	 *         replacements were performed.
-	 */
-	protected String replacePackages(String text) {
-		// System.out.println("replacePackages: Initial text [ " + text + " ]");
-
-		String initialText = text;
-
-		for (Map.Entry<String, String> renameEntry : getPackageRenames().entrySet()) {
-			String key = renameEntry.getKey();
-			int keyLen = key.length();
-
-			boolean matchSubpackages = SignatureRuleImpl.containsWildcard(key);
-			if (matchSubpackages) {
-				key = SignatureRuleImpl.stripWildcard(key);
-			}
-
-			// System.out.println("replacePackages: Next target [ " + key + "
-			// ]");
-			int textLimit = text.length() - keyLen;
-
-			int lastMatchEnd = 0;
-			while (lastMatchEnd <= textLimit) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if (matchStart == -1) {
-					break;
-				}
-
-				if (!SignatureRuleImpl.isTruePackageMatch(text, matchStart, keyLen, matchSubpackages)) {
-					lastMatchEnd = matchStart + keyLen;
-					continue;
-				}
-
-				String value = renameEntry.getValue();
-				int valueLen = value.length();
-
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
-
-				// int tailLenBeforeReplaceVersion = tail.length();
-				// tail = replacePackageVersion(tail,
-				// getPackageVersions().get(value));
-				// int tailLenAfterReplaceVersion = tail.length();
-
-				text = head + value + tail;
-
-				lastMatchEnd = matchStart + valueLen;
-
-				// Replacing the key or the version can increase or decrease the
-				// text length.
-				textLimit += (valueLen - keyLen);
-				// textLimit += (tailLenAfterReplaceVersion -
-				// tailLenBeforeReplaceVersion);
-
-				// System.out.println("Next text [ " + text + " ]");
-			}
-		}
-
-		if (initialText == text) {
-			// System.out.println("Final text is unchanged");
-			return null;
-		} else {
-			// System.out.println("Final text [ " + text + " ]");
-			return text;
-		}
-	}
+	// Java sources are transformed as text. Sources which are held in memory
+	// are transformed the same as streamed sources, which means that line
+	// terminators are kept either way.
 
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
-
-		String outputName = null;
-		// String outputName = renameInput(inputName); // TODO
-		// if ( outputName == null ) {
-		outputName = inputName;
-		// } else {
-		// info("Input class name [ {} ]", inputName);
-		// info("Output class name [ {} ]", outputName);
-		// }
-		setResourceNames(inputName, outputName);
-
-		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputLength);
-		InputStreamReader inputReader = new InputStreamReader(inputStream, UTF_8);
-
-		BufferedReader reader = new BufferedReader(inputReader);
-
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputBytes.length);
-		OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
-
-		BufferedWriter writer = new BufferedWriter(outputWriter);
-
-		try {
-			transform(reader, writer); // throws IOException
-		} catch (IOException e) {
-			error("Failed to transform [ {} ]", e, inputName);
-			return null;
-		}
-
-		try {
-			writer.flush(); // throws
-		} catch (IOException e) {
-			error("Failed to flush [ {} ]", e, inputName);
-			return null;
-		}
-
-		if (!hasNonResourceNameChanges()) {
-			return null;
-		}
-
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		return applyAsStream(inputName, inputBytes, inputLength);
 	}
 
-	protected void transform(BufferedReader reader, BufferedWriter writer) throws IOException {
-
-		String inputLine;
-		while ((inputLine = reader.readLine()) != null) {
-			String outputLine = replacePackages(inputLine);
-			if (outputLine == null) {
-				outputLine = inputLine;
-			} else {
-				addReplacement();
-			}
-			writer.write(outputLine);
-			writer.write('\n');
-		}
+	@Override
+	protected void transformStream(String inputName, InputStream inputStream, OutputStream outputStream)
+		throws TransformException {
+
+		PackageRenameMatcher matcher = getSignatureRule().getPackageMatcher();
+		replaceStream(inputName, matcher.getMatcher(), matcher, inputStream, outputStream);
 	}
 
 	// TODO: Copied from ServiceConfigActionImpl; need to update
@@ -24,13 +24,13 @@ import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.KeywordMatcher;
 import org.eclipse.transformer.util.ManifestWriter;
 import org.slf4j.Logger;
 
 import aQute.bnd.header.Attrs;
 import aQute.bnd.header.OSGiHeader;
 import aQute.bnd.header.Parameters;
-import aQute.lib.io.ByteBufferOutputStream;
 
 public class ManifestActionImpl extends ActionImpl {
 	public static final String	META_INF				= "META-INF/";
@@ -126,19 +126,20 @@ public class ManifestActionImpl extends ActionImpl {
 			return null;
 		}
 
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(initialCount);
-		try {
-			write(finalManifest, outputStream); // throws IOException
-		} catch (IOException e) {
-			error("Failed to write manifest [ {} ]", e, initialName);
-			return null;
-		}
+		try (PooledOutputStream outputStream = newOutputStream(initialCount)) {
+			try {
+				write(finalManifest, outputStream); // throws IOException
+			} catch (IOException e) {
+				error("Failed to write manifest [ {} ]", e, initialName);
+				return null;
+			}
 
-		byte[] finalBytes = outputStream.toByteArray();
-		debug("[ {}.{} ]: [ {} ] Active transform; final bytes [ {} ]", className, methodName, initialName,
-			finalBytes.length);
+			byte[] finalBytes = outputStream.toByteArray();
+			debug("[ {}.{} ]: [ {} ] Active transform; final bytes [ {} ]", className, methodName, initialName,
+				finalBytes.length);
 
-		return new ByteData(initialName, finalBytes);
+			return new ByteData(initialName, finalBytes);
+		}
 	}
 
 	protected void transform(String inputName, Manifest initialManifest, Manifest finalManifest) {
@@ -314,58 +315,41 @@ public class ManifestActionImpl extends ActionImpl {
 
 		String initialText = text;
 
-		for (Map.Entry<String, String> renameEntry : getPackageRenames().entrySet()) {
-			String key = renameEntry.getKey();
-			int keyLen = key.length();
-
-			boolean matchSubpackages = SignatureRuleImpl.containsWildcard(key);
-			if (matchSubpackages) {
-				key = SignatureRuleImpl.stripWildcard(key);
-			}
-
-			// System.out.println("Next target [ " + key + " ]");
-
-			int textLimit = text.length() - keyLen;
-
-			int lastMatchEnd = 0;
-			while (lastMatchEnd <= textLimit) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if (matchStart == -1) {
-					break;
-				}
-
-				if (!SignatureRuleImpl.isTruePackageMatch(text, matchStart, keyLen, matchSubpackages)) {
-					lastMatchEnd = matchStart + keyLen;
-					continue;
-				}
+		// Matches are located using the compiled matcher of the package
+		// renames. The text is rebuilt on each match, since the version of
+		// the matched package, which is in the tail of the text, may also be
+		// replaced.
 
-				String value = renameEntry.getValue();
-				int valueLen = value.length();
+		PackageRenameMatcher matcher = getSignatureRule().getPackageMatcher();
+		KeywordMatcher keywords = matcher.getMatcher();
 
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
+		int lastMatchEnd = 0;
+		while (lastMatchEnd < text.length()) {
+			long match = matcher.find(text, lastMatchEnd);
+			if (match == KeywordMatcher.NO_MATCH) {
+				break;
+			}
+			int matchStart = KeywordMatcher.getMatchStart(match);
+			int keyNo = KeywordMatcher.getMatchKey(match);
 
-				int tailLenBeforeReplaceVersion = tail.length();
+			String key = keywords.getKey(keyNo);
+			String value = keywords.getValue(keyNo);
 
-				String newVersion = getPackageVersions().get(value);
-				if (newVersion != null) {
-					tail = replacePackageVersion(tail, newVersion);
-				} else {
-					debug("replacePackages [ {} ]: [ {} -> {} ]; leaving version", initialText, key, value);
-				}
+			String head = text.substring(0, matchStart);
+			String tail = text.substring(matchStart + key.length());
 
-				text = head + value + tail;
-				int tailLenAfterReplaceVersion = tail.length();
+			String newVersion = getPackageVersions().get(value);
+			if (newVersion != null) {
+				tail = replacePackageVersion(tail, newVersion);
+			} else {
+				debug("replacePackages [ {} ]: [ {} -> {} ]; leaving version", initialText, key, value);
+			}
 
-				lastMatchEnd = matchStart + valueLen;
+			text = head + value + tail;
 
-				// Replacing the key or the version can increase or decrease the
-				// text length.
-				textLimit += (valueLen - keyLen);
-				textLimit += (tailLenAfterReplaceVersion - tailLenBeforeReplaceVersion);
+			lastMatchEnd = matchStart + value.length();
 
-				// System.out.println("Next text [ " + text + " ]");
-			}
+			// System.out.println("Next text [ " + text + " ]");
 		}
 
 		if (initialText == text) {
@@ -0,0 +1,238 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.TransformCache;
+
+/**
+ * Memo of transformed nested archives, used for the duration of a single
+ * transformation.
+ * <p>
+ * Archives often embed the same nested archive several times. For example, an
+ * enterprise archive may embed the same library jar in several web archives.
+ * The memo records the output of each transformed nested archive, keyed by the
+ * action which transformed the archive, and by the CRC and length of the
+ * archive bytes. A match is confirmed using a digest of the archive bytes.
+ * <p>
+ * Only nested archives which are no longer than a maximum length are
+ * memoized. Memoized outputs are limited to a maximum total length: Outputs
+ * are not added once that total is reached.
+ * <p>
+ * Nested archives which may be memoized are read fully into memory before
+ * they are transformed, instead of being streamed. The default limits are
+ * therefore a small fraction of the maximum heap size.
+ */
+public class NestedArchiveMemo {
+	/** Default maximum length of a memoized nested archive. */
+	public static final int		DEFAULT_MAX_LENGTH			= 64 * 1024 * 1024;
+
+	/** Default maximum total length of memoized outputs. */
+	public static final long	DEFAULT_MAX_TOTAL_LENGTH	= 512L * 1024L * 1024L;
+
+	/**
+	 * Fraction of the maximum heap size which is allowed for memoized
+	 * outputs, as a divisor of the maximum heap size.
+	 */
+	public static final int		HEAP_DIVISOR				= 16;
+
+	/**
+	 * Create a memo which uses the default limits, reduced to fit within a
+	 * fraction of the maximum heap size.
+	 */
+	public NestedArchiveMemo() {
+		this(defaultMaxLength(), defaultMaxTotalLength());
+	}
+
+	private static long defaultMaxTotalLength() {
+		return Math.min(DEFAULT_MAX_TOTAL_LENGTH, Runtime.getRuntime()
+			.maxMemory() / HEAP_DIVISOR);
+	}
+
+	// A nested archive is held in memory together with its output. The
+	// maximum length leaves room for several archives to be in progress.
+
+	private static int defaultMaxLength() {
+		return (int) Math.min(DEFAULT_MAX_LENGTH, defaultMaxTotalLength() / 4);
+	}
+
+	public NestedArchiveMemo(int maxLength, long maxTotalLength) {
+		this.maxLength = maxLength;
+		this.maxTotalLength = maxTotalLength;
+		this.results = new HashMap<>();
+	}
+
+	private final int	maxLength;
+	private final long	maxTotalLength;
+
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	public long getMaxTotalLength() {
+		return maxTotalLength;
+	}
+
+	//
+
+	/**
+	 * Key of a memoized nested archive. Keys of different archives may be
+	 * equal: Results also record a digest of the archive bytes.
+	 */
+	public static final class Key {
+		public final ActionImpl	action;
+		public final long		crc;
+		public final int		length;
+
+		public Key(ActionImpl action, long crc, int length) {
+			this.action = action;
+			this.crc = crc;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key otherKey = (Key) other;
+			return (action == otherKey.action) && (crc == otherKey.crc) && (length == otherKey.length);
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(action) * 31 + Long.hashCode(crc)) * 31 + length;
+		}
+	}
+
+	/**
+	 * The result of transforming a nested archive. The changes are a copy of
+	 * the changes made by the transformation.
+	 */
+	public static final class Result {
+		public final byte[]					digest;
+		public final ByteData				outputData;
+		public final boolean				hasChanges;
+		public final ContainerChangesImpl	changes;
+
+		public Result(byte[] digest, ByteData outputData, boolean hasChanges, ContainerChangesImpl changes) {
+			this.digest = digest;
+			this.outputData = outputData;
+			this.hasChanges = hasChanges;
+			this.changes = changes;
+		}
+	}
+
+	private final Map<Key, Result>	results;
+	private long					totalLength;
+
+	private int						hits;
+	private int						misses;
+
+	/**
+	 * Create the key of a nested archive.
+	 *
+	 * @param action The action which transforms the archive.
+	 * @param inputData The bytes of the archive.
+	 * @param crc The CRC of the archive bytes. -1 if the CRC is not known.
+	 * @return The key of the archive.
+	 */
+	public Key getKey(ActionImpl action, ByteData inputData, long crc) {
+		if (crc == -1L) {
+			CRC32 inputCrc = new CRC32();
+			inputCrc.update(inputData.data, inputData.offset, inputData.length);
+			crc = inputCrc.getValue();
+		}
+		return new Key(action, crc, inputData.length);
+	}
+
+	protected static byte[] digest(ByteData inputData) {
+		MessageDigest digest = TransformCache.createDigest();
+		digest.update(inputData.data, inputData.offset, inputData.length);
+		return digest.digest();
+	}
+
+	/**
+	 * Answer the memoized result of transforming a nested archive.
+	 *
+	 * @param key The key of the archive.
+	 * @param inputData The bytes of the archive.
+	 * @return The memoized result. Null if no result is memoized.
+	 */
+	public Result get(Key key, ByteData inputData) {
+		Result result;
+		synchronized (this) {
+			result = results.get(key);
+		}
+		if ((result != null) && !MessageDigest.isEqual(result.digest, digest(inputData))) {
+			result = null;
+		}
+
+		synchronized (this) {
+			if (result == null) {
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Memoize the result of transforming a nested archive. The result is not
+	 * memoized if the maximum total length would be exceeded.
+	 *
+	 * @param key The key of the archive.
+	 * @param inputData The bytes of the archive.
+	 * @param outputData The transformed bytes of the archive.
+	 * @param hasChanges True or false telling if the archive was changed.
+	 * @param changes The changes made to the archive. A copy is memoized.
+	 */
+	public void put(Key key, ByteData inputData, ByteData outputData, boolean hasChanges,
+		ContainerChangesImpl changes) {
+
+		synchronized (this) {
+			if ((totalLength + outputData.length > maxTotalLength) || results.containsKey(key)) {
+				return;
+			}
+		}
+
+		Result result = new Result(digest(inputData), outputData, hasChanges, changes.copy());
+
+		synchronized (this) {
+			if (results.putIfAbsent(key, result) == null) {
+				totalLength += outputData.length;
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return results.size();
+	}
+
+	public synchronized long getTotalLength() {
+		return totalLength;
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+}
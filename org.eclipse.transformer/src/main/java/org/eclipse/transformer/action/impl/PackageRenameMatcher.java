@@ -0,0 +1,87 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.transformer.util.KeywordMatcher;
+
+/**
+ * Matcher of package names embedded in text.
+ * <p>
+ * All package rename keys are matched in a single scan of the text. Matches
+ * are accepted using {@link SignatureRuleImpl#isTruePackageMatch}, with
+ * wildcard keys (keys which end with ".*") matching sub-packages.
+ * <p>
+ * The matcher is immutable, and may be shared between threads.
+ */
+public class PackageRenameMatcher implements KeywordMatcher.MatchFilter {
+	/**
+	 * Create a matcher for package renames.
+	 *
+	 * @param packageRenames Package names mapped to replacement package names.
+	 */
+	public PackageRenameMatcher(Map<String, String> packageRenames) {
+		List<String> keys = new ArrayList<>(packageRenames.size());
+		List<String> values = new ArrayList<>(packageRenames.size());
+		boolean[] useMatchSubpackages = new boolean[packageRenames.size()];
+
+		for (Map.Entry<String, String> renameEntry : packageRenames.entrySet()) {
+			String key = renameEntry.getKey();
+			if (SignatureRuleImpl.containsWildcard(key)) {
+				useMatchSubpackages[keys.size()] = true;
+				key = SignatureRuleImpl.stripWildcard(key);
+			}
+			keys.add(key);
+			values.add(renameEntry.getValue());
+		}
+
+		this.matcher = new KeywordMatcher(keys, values);
+		this.matchSubpackages = useMatchSubpackages;
+	}
+
+	private final KeywordMatcher	matcher;
+	private final boolean[]			matchSubpackages;
+
+	public KeywordMatcher getMatcher() {
+		return matcher;
+	}
+
+	@Override
+	public boolean accept(String text, int matchStart, int keyLen, int keyNo) {
+		return SignatureRuleImpl.isTruePackageMatch(text, matchStart, keyLen, matchSubpackages[keyNo]);
+	}
+
+	/**
+	 * Locate the first package match of text.
+	 *
+	 * @param text The text which is to be scanned.
+	 * @param fromIndex The location at which to start scanning.
+	 * @return The encoded match. See {@link KeywordMatcher#find}.
+	 */
+	public long find(String text, int fromIndex) {
+		return matcher.find(text, fromIndex, this);
+	}
+
+	/**
+	 * Replace all embedded packages of text with replacement packages.
+	 *
+	 * @param text Text embedding zero, one, or more package names.
+	 * @return The text with all embedded package names replaced. Null if no
+	 *         replacements were performed.
+	 */
+	public String replace(String text) {
+		return matcher.replace(text, this);
+	}
+}
@@ -0,0 +1,131 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lookup of package renames by package name segments.
+ * <p>
+ * Package names are looked up using either '.' or '/' separators. A package
+ * name matches a rename key which is the same package name, or which is a
+ * wildcard key (a key which ends with ".*") of a parent package. When several
+ * wildcard keys match, the longest key is used. A lookup takes time
+ * proportional to the count of segments of the package name.
+ * <p>
+ * The trie is immutable, and may be shared between threads.
+ */
+public class PackageRenameTrie {
+	/**
+	 * Create a trie of package renames.
+	 *
+	 * @param packageRenames Package names mapped to replacement package names.
+	 *            Keys and values use '.' separators.
+	 */
+	public PackageRenameTrie(Map<String, String> packageRenames) {
+		Node useRoot = new Node();
+
+		for (Map.Entry<String, String> renameEntry : packageRenames.entrySet()) {
+			String key = renameEntry.getKey();
+			boolean matchSubpackages = SignatureRuleImpl.containsWildcard(key);
+			if (matchSubpackages) {
+				key = SignatureRuleImpl.stripWildcard(key);
+			}
+
+			Node node = useRoot;
+			for (String segment : key.split("\\.", -1)) {
+				node = node.children.computeIfAbsent(segment, s -> new Node());
+			}
+
+			Rename rename = new Rename(renameEntry.getValue());
+			if (matchSubpackages) {
+				node.subpackageRename = rename;
+				if (node.exactRename == null) {
+					node.exactRename = rename;
+				}
+			} else {
+				node.exactRename = rename;
+			}
+		}
+
+		this.root = useRoot;
+	}
+
+	private static final class Rename {
+		final String	dottedName;
+		final String	slashedName;
+
+		Rename(String dottedName) {
+			this.dottedName = dottedName;
+			this.slashedName = dottedName.replace('.', '/');
+		}
+
+		String getName(char separator) {
+			return ((separator == '/') ? slashedName : dottedName);
+		}
+	}
+
+	private static final class Node {
+		final Map<String, Node>	children	= new HashMap<>();
+		Rename					exactRename;
+		Rename					subpackageRename;
+	}
+
+	private final Node root;
+
+	/**
+	 * Replace a package name.
+	 *
+	 * @param packageName The package name which is to be replaced.
+	 * @param separator The separator used by the package name, either '.' or
+	 *            '/'. The replacement uses the same separator.
+	 * @return The replacement package name. Null if no rename matches the
+	 *         package name.
+	 */
+	public String replace(String packageName, char separator) {
+		int length = packageName.length();
+
+		Node node = root;
+		Rename subpackageRename = null;
+		int subpackageEnd = -1;
+
+		int segmentStart = 0;
+		while (true) {
+			int segmentEnd = packageName.indexOf(separator, segmentStart);
+			if (segmentEnd == -1) {
+				segmentEnd = length;
+			}
+
+			node = node.children.get(packageName.substring(segmentStart, segmentEnd));
+			if (node == null) {
+				break;
+			} else if (segmentEnd == length) {
+				if (node.exactRename != null) {
+					return node.exactRename.getName(separator);
+				}
+				break;
+			}
+
+			if (node.subpackageRename != null) {
+				subpackageRename = node.subpackageRename;
+				subpackageEnd = segmentEnd;
+			}
+			segmentStart = segmentEnd + 1;
+		}
+
+		if (subpackageRename == null) {
+			return null;
+		}
+		return subpackageRename.getName(separator) + packageName.substring(subpackageEnd);
+	}
+}
@@ -0,0 +1,89 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Output stream which collects bytes into buffers taken from a buffer pool.
+ * Closing the stream returns the current buffer to the pool: The collected
+ * bytes must be obtained before the stream is closed.
+ */
+public class PooledOutputStream extends OutputStream {
+	public PooledOutputStream(InputBufferImpl pool, int initialLength) {
+		this.pool = pool;
+		this.buffer = pool.takeBuffer(initialLength);
+		this.count = 0;
+	}
+
+	private final InputBufferImpl	pool;
+	private byte[]					buffer;
+	private int						count;
+
+	public int size() {
+		return count;
+	}
+
+	private void ensureCapacity(int addedCount) throws IOException {
+		if (buffer == null) {
+			throw new IOException("Stream closed");
+		}
+		int minLength = FileUtils.verifyArray(count, addedCount) + count;
+		if (minLength <= buffer.length) {
+			return;
+		}
+
+		// Pooled buffers are sized by powers of two: Double the buffer.
+		int nextLength = (int) Math.min(buffer.length * 2L, FileUtils.MAX_ARRAY_LENGTH);
+		byte[] nextBuffer = pool.takeBuffer(Math.max(minLength, nextLength));
+		System.arraycopy(buffer, 0, nextBuffer, 0, count);
+		pool.releaseBuffer(buffer);
+		buffer = nextBuffer;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureCapacity(1);
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, buffer, count, length);
+		count += length;
+	}
+
+	/**
+	 * Answer a copy of the collected bytes.
+	 *
+	 * @return A copy of the collected bytes.
+	 */
+	public byte[] toByteArray() {
+		if (buffer == null) {
+			throw new IllegalStateException("Stream closed");
+		}
+		return Arrays.copyOf(buffer, count);
+	}
+
+	@Override
+	public void close() {
+		if (buffer != null) {
+			pool.releaseBuffer(buffer);
+			buffer = null;
+		}
+	}
+}
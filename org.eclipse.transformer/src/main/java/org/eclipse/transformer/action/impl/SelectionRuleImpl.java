@@ -65,6 +65,25 @@ public class SelectionRuleImpl implements SelectionRule {
 		return logger;
 	}
 
+	// Selection is done for every resource: Use fixed arity logging methods,
+	// which do not allocate a parameter array when debug logging is not
+	// enabled.
+
+	public void debug(String message, Object parm) {
+		getLogger().debug(message, parm);
+	}
+
+	public void debug(String message, Object parm1, Object parm2) {
+		getLogger().debug(message, parm1, parm2);
+	}
+
+	public void debug(String message, Object parm1, Object parm2, Object parm3) {
+		Logger useLogger = getLogger();
+		if (useLogger.isDebugEnabled()) {
+			useLogger.debug(message, parm1, parm2, parm3);
+		}
+	}
+
 	public void debug(String message, Object... parms) {
 		getLogger().debug(message, parms);
 	}
@@ -27,7 +27,6 @@ import org.eclipse.transformer.util.ByteData;
 import org.slf4j.Logger;
 
 import aQute.lib.io.ByteBufferInputStream;
-import aQute.lib.io.ByteBufferOutputStream;
 
 /**
  * Transform service configuration bytes. Per:
@@ -120,31 +119,32 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 
 		BufferedReader reader = new BufferedReader(inputReader);
 
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputLength);
-		OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
+		try (PooledOutputStream outputStream = newOutputStream(inputLength)) {
+			OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
 
-		BufferedWriter writer = new BufferedWriter(outputWriter);
+			BufferedWriter writer = new BufferedWriter(outputWriter);
 
-		try {
-			transform(reader, writer); // throws IOException
-		} catch (IOException e) {
-			error("Failed to transform [ {} ]", e, inputName);
-			return null;
-		}
+			try {
+				transform(reader, writer); // throws IOException
+			} catch (IOException e) {
+				error("Failed to transform [ {} ]", e, inputName);
+				return null;
+			}
 
-		try {
-			writer.flush(); // throws
-		} catch (IOException e) {
-			error("Failed to flush [ {} ]", e, inputName);
-			return null;
-		}
+			try {
+				writer.flush(); // throws
+			} catch (IOException e) {
+				error("Failed to flush [ {} ]", e, inputName);
+				return null;
+			}
 
-		if (!hasNonResourceNameChanges()) {
-			return null;
-		}
+			if (!hasNonResourceNameChanges()) {
+				return null;
+			}
 
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+			byte[] outputBytes = outputStream.toByteArray();
+			return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		}
 	}
 
 	protected void transform(BufferedReader reader, BufferedWriter writer) throws IOException {
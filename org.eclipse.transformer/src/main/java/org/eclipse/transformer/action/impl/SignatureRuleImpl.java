@@ -11,17 +11,22 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.util.BoundedCache;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.KeywordMatcher;
+import org.eclipse.transformer.util.Utf8Cache;
 import org.slf4j.Logger;
 
 import aQute.bnd.signatures.ArrayTypeSignature;
@@ -46,6 +51,15 @@ public class SignatureRuleImpl implements SignatureRule {
 		Map<String, Map<String, String>> masterTextUpdates, Map<String, String> directStrings,
 		Map<String, Map<String, String>> perClassConstant) {
 
+		this(logger, renames, versions, bundleUpdates, masterTextUpdates, directStrings, perClassConstant,
+			BoundedCache.DEFAULT_CAPACITY);
+	}
+
+	public SignatureRuleImpl(Logger logger,
+		Map<String, String> renames, Map<String, String> versions, Map<String, BundleData> bundleUpdates,
+		Map<String, Map<String, String>> masterTextUpdates, Map<String, String> directStrings,
+		Map<String, Map<String, String>> perClassConstant, int cacheCapacity) {
+
 		this.logger = logger;
 
 		Map<String, String> useRenames;
@@ -129,14 +143,10 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 		this.directStrings = useDirectStrings;
 
-		this.unchangedBinaryTypes = new HashSet<>();
-		this.changedBinaryTypes = new HashMap<>();
-
-		this.unchangedSignatures = new HashSet<>();
-		this.changedSignatures = new HashMap<>();
-
-		this.unchangedDescriptors = new HashSet<>();
-		this.changedDescriptors = new HashMap<>();
+		this.binaryTypes = new BoundedCache<>("Binary types", cacheCapacity);
+		this.signatures = new BoundedCache<>("Signatures", cacheCapacity);
+		this.descriptors = new BoundedCache<>("Descriptors", cacheCapacity);
+		this.utf8Constants = new Utf8Cache("UTF8 constants", cacheCapacity);
 
 		Map<String, Map<String, String>> perClass;
 		if ((perClassConstant == null) || perClassConstant.isEmpty()) {
@@ -145,6 +155,52 @@ public class SignatureRuleImpl implements SignatureRule {
 			perClass = new HashMap<>(perClassConstant);
 		}
 		this.perClassConstantStrings = perClass;
+
+		List<String> scanKeys = new ArrayList<>();
+		addScanKeys(scanKeys, this.dottedPackageRenames.keySet());
+		addScanKeys(scanKeys, this.slashedPackageRenames.keySet());
+		scanKeys.addAll(this.directStrings.keySet());
+		this.constantPoolScanner = new ConstantPoolScanner(scanKeys);
+
+		this.packageTrie = new PackageRenameTrie(this.dottedPackageRenames);
+		this.dottedPackageMatcher = new PackageRenameMatcher(this.dottedPackageRenames);
+		this.slashedPackageMatcher = new PackageRenameMatcher(this.slashedPackageRenames);
+		this.packageMatchers = Collections.synchronizedMap(new IdentityHashMap<>());
+		this.packageMatchers.put(this.dottedPackageRenames, this.dottedPackageMatcher);
+		this.packageMatchers.put(this.slashedPackageRenames, this.slashedPackageMatcher);
+
+		this.textMatchers = Collections.synchronizedMap(new IdentityHashMap<>());
+		if (this.specificTextUpdates != null) {
+			List<Map<String, String>> allSubstitutions = new ArrayList<>(this.specificTextUpdates.values());
+			allSubstitutions.addAll(this.wildCardTextUpdates.values());
+			for (Map<String, String> substitutions : allSubstitutions) {
+				this.textMatchers.computeIfAbsent(substitutions, KeywordMatcher::new);
+			}
+		}
+	}
+
+	private static void addScanKeys(List<String> scanKeys, Collection<String> packageNames) {
+		for (String packageName : packageNames) {
+			// Wildcard keys are matched using the text before the wildcard.
+			if (packageName.endsWith(".*") || packageName.endsWith("/*")) {
+				packageName = packageName.substring(0, packageName.length() - 2);
+			}
+			scanKeys.add(packageName);
+		}
+	}
+
+	//
+
+	private final ConstantPoolScanner constantPoolScanner;
+
+	/**
+	 * Answer the scanner which tells if raw class bytes contain any value
+	 * which can be changed by these rules.
+	 *
+	 * @return The constant pool scanner of these rules.
+	 */
+	public ConstantPoolScanner getConstantPoolScanner() {
+		return constantPoolScanner;
 	}
 
 	//
@@ -173,6 +229,12 @@ public class SignatureRuleImpl implements SignatureRule {
 	private final Map<String, Map<String, String>>	specificTextUpdates;
 	private final Map<Pattern, Map<String, String>>	wildCardTextUpdates;
 
+	// Text substitution matchers, compiled once per substitutions map, and
+	// keyed by the identity of the substitutions map. Matchers of the rules
+	// are compiled when the rules are created. Matchers of other maps are
+	// compiled when first used.
+	private final Map<Map<String, String>, KeywordMatcher>	textMatchers;
+
 	public Map<String, Map<String, String>> getSpecificTextUpdates() {
 		return specificTextUpdates;
 	}
@@ -192,6 +254,10 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	private final Map<String, Map<String, String>> perClassConstantStrings;
 
+	public boolean hasConstantStrings(String clazz) {
+		return perClassConstantStrings.containsKey(clazz);
+	}
+
 	@Override
 	public String getConstantString(String initialValue, String clazz) {
 		Map<String, String> m = perClassConstantStrings.get(clazz);
@@ -233,6 +299,28 @@ public class SignatureRuleImpl implements SignatureRule {
 	protected final Map<String, String>	dottedPackageRenames;
 	protected final Map<String, String>	slashedPackageRenames;
 
+	// Package rename matchers, compiled once from the package renames.
+	// Matchers of other renames maps are compiled when first used, and are
+	// keyed by the identity of the renames map.
+
+	private final PackageRenameMatcher								dottedPackageMatcher;
+	private final PackageRenameMatcher								slashedPackageMatcher;
+	private final Map<Map<String, String>, PackageRenameMatcher>	packageMatchers;
+
+	// Package rename lookup, by package name segments, compiled once from
+	// the package renames.
+
+	private final PackageRenameTrie		packageTrie;
+
+	/**
+	 * Answer the matcher of the dotted package renames.
+	 *
+	 * @return The matcher of the dotted package renames.
+	 */
+	public PackageRenameMatcher getPackageMatcher() {
+		return dottedPackageMatcher;
+	}
+
 	@Override
 	public Map<String, String> getPackageRenames() {
 		return dottedPackageRenames;
@@ -249,7 +337,8 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	/**
 	 * Replace a single package according to the package rename rules. Package
-	 * names must match exactly.
+	 * names must match exactly, or must be a sub-package of a wildcard rename,
+	 * in which case the longest wildcard rename is used.
 	 *
 	 * @param initialName The package name which is to be replaced.
 	 * @return The replacement for the initial package name. Null if no
@@ -257,13 +346,14 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String replacePackage(String initialName) {
-		return dottedPackageRenames.getOrDefault(initialName, null);
+		return packageTrie.replace(initialName, '.');
 	}
 
 	/**
 	 * Replace a single package according to the package rename rules. The
 	 * package name has '/' separators, not '.' separators. Package names must
-	 * match exactly.
+	 * match exactly, or must be a sub-package of a wildcard rename, in which
+	 * case the longest wildcard rename is used.
 	 *
 	 * @param initialName The package name which is to be replaced.
 	 * @return The replacement for the initial package name. Null if no
@@ -271,10 +361,7 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String replaceBinaryPackage(String initialName) {
-		String finalName = slashedPackageRenames.getOrDefault(initialName, null);
-		// System.out.println("Initial binary [ " + initialName + " ] Final [ "
-		// + finalName + " ]");
-		return finalName;
+		return packageTrie.replace(initialName, '/');
 	}
 
 	@Override
@@ -293,56 +380,15 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String replacePackages(String text, Map<String, String> packageRenames) {
-		// System.out.println("Initial text [ " + text + " ]");
-
-		String initialText = text;
-
-		for (Map.Entry<String, String> renameEntry : packageRenames.entrySet()) {
-			String key = renameEntry.getKey();
-			int keyLen = key.length();
-
-			boolean matchSubpackages = containsWildcard(key);
-			if (matchSubpackages) {
-				key = stripWildcard(key);
-			}
-
-			// System.out.println("Next target [ " + key + " ]");
-
-			int textLimit = text.length() - keyLen;
-
-			int lastMatchEnd = 0;
-			while (lastMatchEnd <= textLimit) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if (matchStart == -1) {
-					break;
-				}
-
-				if (!isTruePackageMatch(text, matchStart, keyLen, matchSubpackages)) {
-					lastMatchEnd = matchStart + keyLen;
-					continue;
-				}
-
-				String value = renameEntry.getValue();
-				int valueLen = value.length();
-
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
-				text = head + value + tail;
-
-				lastMatchEnd = matchStart + valueLen;
-				textLimit += (valueLen - keyLen);
-
-				// System.out.println("Next text [ " + text + " ]");
-			}
-		}
-
-		if (initialText == text) {
-			// System.out.println("RETURN Final text is unchanged");
-			return null;
+		PackageRenameMatcher matcher;
+		if (packageRenames == dottedPackageRenames) {
+			matcher = dottedPackageMatcher;
+		} else if (packageRenames == slashedPackageRenames) {
+			matcher = slashedPackageMatcher;
 		} else {
-			// System.out.println("RETURN Final text [ " + text + " ]");
-			return text;
+			matcher = packageMatchers.computeIfAbsent(packageRenames, PackageRenameMatcher::new);
 		}
+		return matcher.replace(text);
 	}
 
 	/**
@@ -462,44 +508,53 @@ public class SignatureRuleImpl implements SignatureRule {
 				"Input [ " + inputFileName + " ] selected for TEXT transformation, but found no substitutions");
 		}
 
-		String initialText = text;
-
-		for (Map.Entry<String, String> entry : substitutions.entrySet()) {
-			String key = entry.getKey();
-			int keyLen = key.length();
+		return getTextMatcher(substitutions).replace(text, null);
+	}
 
-			int textLimit = text.length() - keyLen;
+	/**
+	 * Answer the matcher of the text substitutions of an input file.
+	 *
+	 * @param inputFileName The name of the input file.
+	 * @return The matcher of the text substitutions of the input file. Null if
+	 *         there are no text substitutions for the file.
+	 */
+	public KeywordMatcher getTextMatcher(String inputFileName) {
+		Map<String, String> substitutions = getTextSubstitutions(inputFileName);
+		if (substitutions == null) {
+			return null;
+		}
+		return getTextMatcher(substitutions);
+	}
 
-			int lastMatchEnd = 0;
-			while (lastMatchEnd <= textLimit) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if (matchStart == -1) {
-					break;
-				}
+	private KeywordMatcher getTextMatcher(Map<String, String> substitutions) {
+		return textMatchers.computeIfAbsent(substitutions, KeywordMatcher::new);
+	}
 
-				String value = entry.getValue();
-				int valueLen = value.length();
+	//
 
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
-				text = head + value + tail;
+	/**
+	 * Marker value used by the caches for values which are not changed by the
+	 * transformation rules. Compared by identity.
+	 */
+	private static final String UNCHANGED = new String("<unchanged>");
 
-				lastMatchEnd = matchStart + valueLen;
-				textLimit += (valueLen - keyLen);
-			}
-		}
+	/**
+	 * Cache of the UTF8 constants of transformed classes, keyed by their
+	 * encoded bytes. Classes which share constants share the string instances
+	 * of the constants, which makes lookups of the constants in the other
+	 * caches cheap.
+	 */
+	private final Utf8Cache utf8Constants;
 
-		if (initialText == text) {
-			return null;
-		} else {
-			return text;
-		}
+	public Utf8Cache getUtf8ConstantsCache() {
+		return utf8Constants;
 	}
 
-	//
+	private final BoundedCache<String, String> binaryTypes;
 
-	private final Map<String, String>	changedBinaryTypes;
-	private final Set<String>			unchangedBinaryTypes;
+	public BoundedCache<String, String> getBinaryTypesCache() {
+		return binaryTypes;
+	}
 
 	@Override
 	public String transformConstantAsBinaryType(String inputConstant) {
@@ -534,13 +589,11 @@ public class SignatureRuleImpl implements SignatureRule {
 	protected String transformBinaryType(String inputName, boolean allowSimpleSubstitution) {
 		// System.out.println("Input type [ " + inputName + " ]");
 
-		if (unchangedBinaryTypes.contains(inputName)) {
+		String outputName = binaryTypes.get(inputName);
+		if (outputName == UNCHANGED) {
 			// System.out.println("Unchanged (Prior)");
 			return null;
-		}
-
-		String outputName = changedBinaryTypes.get(inputName);
-		if (outputName != null) {
+		} else if (outputName != null) {
 			// System.out.println("Change to [ " + outputName + " ] (Prior)");
 			return outputName;
 		}
@@ -579,10 +632,10 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 
 		if (outputName == null) {
-			unchangedBinaryTypes.add(inputName);
+			binaryTypes.put(inputName, UNCHANGED);
 			// System.out.println("Unchanged");
 		} else {
-			changedBinaryTypes.put(inputName, outputName);
+			binaryTypes.put(inputName, outputName);
 			// System.out.println("Change to [ " + outputName + " ]");
 		}
 
@@ -606,8 +659,11 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 	}
 
-	private final Set<String>			unchangedDescriptors;
-	private final Map<String, String>	changedDescriptors;
+	private final BoundedCache<String, String> descriptors;
+
+	public BoundedCache<String, String> getDescriptorsCache() {
+		return descriptors;
+	}
 
 	@Override
 	public String transformDescriptor(String inputDescriptor) {
@@ -616,12 +672,10 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	@Override
 	public String transformDescriptor(String inputDescriptor, boolean allowSimpleSubstitution) {
-		if (unchangedDescriptors.contains(inputDescriptor)) {
+		String outputDescriptor = descriptors.get(inputDescriptor);
+		if (outputDescriptor == UNCHANGED) {
 			return null;
-		}
-
-		String outputDescriptor = changedDescriptors.get(inputDescriptor);
-		if (outputDescriptor != null) {
+		} else if (outputDescriptor != null) {
 			return outputDescriptor;
 		}
 
@@ -653,9 +707,9 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 
 		if (outputDescriptor == null) {
-			unchangedDescriptors.add(inputDescriptor);
+			descriptors.put(inputDescriptor, UNCHANGED);
 		} else {
-			changedDescriptors.put(inputDescriptor, outputDescriptor);
+			descriptors.put(inputDescriptor, outputDescriptor);
 		}
 		return outputDescriptor;
 	}
@@ -667,8 +721,11 @@ public class SignatureRuleImpl implements SignatureRule {
 	 * values across signature types.
 	 */
 
-	private final Set<String>			unchangedSignatures;
-	private final Map<String, String>	changedSignatures;
+	private final BoundedCache<String, String> signatures;
+
+	public BoundedCache<String, String> getSignaturesCache() {
+		return signatures;
+	}
 
 	/**
 	 * Transform a class, field, or method signature. Answer a wrapped null if
@@ -681,12 +738,10 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String transform(String input, SignatureType signatureType) {
-		if (unchangedSignatures.contains(input)) {
+		String output = signatures.get(input);
+		if (output == UNCHANGED) {
 			return null;
-		}
-
-		String output = changedSignatures.get(input);
-		if (output != null) {
+		} else if (output != null) {
 			return output;
 		}
 
@@ -723,9 +778,9 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 
 		if (output == null) {
-			unchangedSignatures.add(input);
+			signatures.put(input, UNCHANGED);
 		} else {
-			changedSignatures.put(input, output);
+			signatures.put(input, output);
 		}
 
 		return output;
@@ -11,30 +11,24 @@
 
 package org.eclipse.transformer.action.impl;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.KeywordMatcher;
 import org.slf4j.Logger;
 
-import aQute.lib.io.ByteBufferInputStream;
-import aQute.lib.io.ByteBufferOutputStream;
-
 public class TextActionImpl extends ActionImpl {
 
 	public TextActionImpl(Logger logger, boolean isTerse, boolean isVerbose, InputBufferImpl buffer,
 		SelectionRuleImpl selectionRule, SignatureRuleImpl signatureRule) {
 
 		super(logger, isTerse, isVerbose, buffer, selectionRule, signatureRule);
+
+		setStreamThreshold(DEFAULT_STREAM_THRESHOLD);
 	}
 
 	//
@@ -64,59 +58,23 @@ public class TextActionImpl extends ActionImpl {
 
 	//
 
+	// Text which is held in memory is transformed the same as streamed text,
+	// which means that line terminators are kept either way.
+
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength) throws TransformException {
-
-		String outputName = inputName;
-
-		setResourceNames(inputName, outputName);
-
-		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputLength);
-		InputStreamReader inputReader = new InputStreamReader(inputStream, UTF_8);
-
-		BufferedReader reader = new BufferedReader(inputReader);
-
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputBytes.length);
-		OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
-
-		BufferedWriter writer = new BufferedWriter(outputWriter);
-
-		try {
-			transform(inputName, reader, writer); // throws IOException
-		} catch (IOException e) {
-			error("Failed to transform [ {} ]", e, inputName);
-			return null;
-		}
-
-		try {
-			writer.flush(); // throws
-		} catch (IOException e) {
-			error("Failed to flush [ {} ]", e, inputName);
-			return null;
-		}
-
-		if (!hasNonResourceNameChanges()) {
-			return null;
-		}
-
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		return applyAsStream(inputName, inputBytes, inputLength);
 	}
 
-	//
+	@Override
+	protected void transformStream(String inputName, InputStream inputStream, OutputStream outputStream)
+		throws TransformException {
 
-	protected void transform(String inputName, BufferedReader reader, BufferedWriter writer) throws IOException {
-
-		String inputLine;
-		while ((inputLine = reader.readLine()) != null) {
-			String outputLine = replaceText(inputName, inputLine);
-			if (outputLine == null) {
-				outputLine = inputLine;
-			} else {
-				addReplacement();
-			}
-			writer.write(outputLine);
-			writer.write('\n');
+		KeywordMatcher matcher = signatureRule.getTextMatcher(inputName);
+		if (matcher == null) {
+			throw new IllegalStateException(
+				"Input [ " + inputName + " ] selected for TEXT transformation, but found no substitutions");
 		}
+		replaceStream(inputName, matcher, null, inputStream, outputStream);
 	}
 }
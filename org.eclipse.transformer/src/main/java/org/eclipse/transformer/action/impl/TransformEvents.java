@@ -0,0 +1,277 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.transformer.action.ActionType;
+
+/**
+ * Java Flight Recorder events of transformations.
+ * <p>
+ * Events are emitted for transformed archives, for transformed resources, and
+ * for transformed classes. Each event has the name of the resource, the type
+ * of the action which transformed the resource, the input and output lengths,
+ * and whether the resource was changed. The duration of the event is the
+ * duration of the transformation.
+ * <p>
+ * The transformer is built for Java 8, which does not provide the flight
+ * recorder API. The flight recorder is used reflectively, and the event types
+ * are defined using the event factory of the flight recorder. To avoid the
+ * cost of starting the flight recorder, the event types are not defined until
+ * the flight recorder has been initialized by a recording. When the flight
+ * recorder is not available, or when a recording has not enabled an event
+ * type, {@link #begin()} answers null and no event is created.
+ */
+public class TransformEvents {
+	/** Category of the transformer events. */
+	public static final String			CATEGORY	= "Eclipse Transformer";
+
+	/** Event of the transformation of an archive. */
+	public static final TransformEvents	ARCHIVE		= new TransformEvents("org.eclipse.transformer.Archive",
+		"Archive Transformation", "Transformation of an archive, including its entries");
+
+	/** Event of the transformation of a resource. */
+	public static final TransformEvents	RESOURCE	= new TransformEvents("org.eclipse.transformer.Resource",
+		"Resource Transformation", "Transformation of a resource, including its read and write");
+
+	/** Event of the transformation of a class. */
+	public static final TransformEvents	CLASS		= new TransformEvents("org.eclipse.transformer.Class",
+		"Class Transformation", "Transformation of the bytes of a class");
+
+	// Indexes of the event fields, in the order in which the fields are
+	// defined.
+
+	private static final int			RESOURCE_NAME_FIELD	= 0;
+	private static final int			ACTION_TYPE_FIELD	= 1;
+	private static final int			INPUT_LENGTH_FIELD	= 2;
+	private static final int			OUTPUT_LENGTH_FIELD	= 3;
+	private static final int			CHANGED_FIELD		= 4;
+
+	private static final MethodHandle	IS_INITIALIZED;
+
+	static {
+		MethodHandle isInitialized;
+		try {
+			isInitialized = MethodHandles.publicLookup()
+				.unreflect(loadClass("jdk.jfr.FlightRecorder").getMethod("isInitialized"));
+		} catch (Exception | LinkageError e) {
+			isInitialized = null;
+		}
+		IS_INITIALIZED = isInitialized;
+	}
+
+	private static Class<?> loadClass(String className) throws ClassNotFoundException {
+		// The flight recorder classes are loaded through the system class
+		// loader, since a bundle class loader usually does not delegate the
+		// 'jdk' packages.
+		return Class.forName(className, false, ClassLoader.getSystemClassLoader());
+	}
+
+	private static boolean isRecorderInitialized() {
+		if (IS_INITIALIZED == null) {
+			return false;
+		}
+		try {
+			return (boolean) IS_INITIALIZED.invokeExact();
+		} catch (Throwable th) {
+			return false;
+		}
+	}
+
+	private TransformEvents(String name, String label, String description) {
+		this.name = name;
+		this.label = label;
+		this.description = description;
+	}
+
+	private final String		name;
+	private final String		label;
+	private final String		description;
+
+	private volatile Handles	handles;
+	private volatile boolean	failed;
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Tell if the flight recorder is available.
+	 *
+	 * @return True or false telling if the flight recorder is available.
+	 */
+	public boolean isAvailable() {
+		return (IS_INITIALIZED != null) && !failed;
+	}
+
+	/**
+	 * Tell if a recording has enabled this event type.
+	 *
+	 * @return True or false telling if this event type is enabled.
+	 */
+	public boolean isEnabled() {
+		Handles useHandles = getHandles();
+		if (useHandles == null) {
+			return false;
+		}
+		try {
+			return (boolean) useHandles.isEnabled.invokeExact();
+		} catch (Throwable th) {
+			return false;
+		}
+	}
+
+	private Handles getHandles() {
+		Handles useHandles = handles;
+		if ((useHandles == null) && !failed && isRecorderInitialized()) {
+			synchronized (this) {
+				useHandles = handles;
+				if ((useHandles == null) && !failed) {
+					try {
+						handles = useHandles = new Handles(name, label, description);
+					} catch (Exception | LinkageError e) {
+						failed = true;
+					}
+				}
+			}
+		}
+		return useHandles;
+	}
+
+	/**
+	 * Begin an event of this type.
+	 *
+	 * @return The started event. Null if this event type is not enabled.
+	 */
+	public Object begin() {
+		if (!isEnabled()) {
+			return null;
+		}
+		try {
+			Handles useHandles = handles;
+			Object event = (Object) useHandles.newEvent.invokeExact();
+			useHandles.begin.invokeExact(event);
+			return event;
+		} catch (Throwable th) {
+			return null;
+		}
+	}
+
+	/**
+	 * Complete an event of this type. The event ends when it is committed.
+	 *
+	 * @param event An event obtained from {@link #begin()}. Nothing is done
+	 *            if the event is null.
+	 * @param resourceName The name of the transformed resource.
+	 * @param actionType The type of the action which transformed the
+	 *            resource.
+	 * @param inputLength The length of the resource. -1 if the length is not
+	 *            known.
+	 * @param outputLength The length of the transformed resource. -1 if the
+	 *            length is not known.
+	 * @param changed True or false telling if the resource was changed.
+	 */
+	public void commit(Object event, String resourceName, ActionType actionType, long inputLength,
+		long outputLength, boolean changed) {
+		if (event == null) {
+			return;
+		}
+		try {
+			Handles useHandles = handles;
+			MethodHandle set = useHandles.set;
+			set.invokeExact(event, RESOURCE_NAME_FIELD, (Object) resourceName);
+			set.invokeExact(event, ACTION_TYPE_FIELD, (Object) actionType.name());
+			set.invokeExact(event, INPUT_LENGTH_FIELD, (Object) Long.valueOf(inputLength));
+			set.invokeExact(event, OUTPUT_LENGTH_FIELD, (Object) Long.valueOf(outputLength));
+			set.invokeExact(event, CHANGED_FIELD, (Object) Boolean.valueOf(changed));
+			useHandles.commit.invokeExact(event);
+		} catch (Throwable th) {
+			// Events are informational: A failure to emit an event must not
+			// fail the transformation.
+		}
+	}
+
+	//
+
+	/**
+	 * Handles to a defined event type.
+	 */
+	private static class Handles {
+		final MethodHandle	isEnabled;
+		final MethodHandle	newEvent;
+		final MethodHandle	begin;
+		final MethodHandle	set;
+		final MethodHandle	commit;
+
+		Handles(String name, String label, String description) throws Exception {
+			Class<?> annotationClass = loadClass("jdk.jfr.AnnotationElement");
+			Constructor<?> newAnnotation = annotationClass.getConstructor(Class.class, Object.class);
+			Class<?> descriptorClass = loadClass("jdk.jfr.ValueDescriptor");
+			Constructor<?> newDescriptor = descriptorClass.getConstructor(Class.class, String.class, List.class);
+			Class<?> labelClass = loadClass("jdk.jfr.Label");
+
+			List<Object> eventAnnotations = new ArrayList<>();
+			eventAnnotations.add(newAnnotation.newInstance(loadClass("jdk.jfr.Name"), name));
+			eventAnnotations.add(newAnnotation.newInstance(labelClass, label));
+			eventAnnotations.add(newAnnotation.newInstance(loadClass("jdk.jfr.Description"), description));
+			eventAnnotations.add(newAnnotation.newInstance(loadClass("jdk.jfr.Category"), new String[] {
+				CATEGORY
+			}));
+			eventAnnotations.add(newAnnotation.newInstance(loadClass("jdk.jfr.StackTrace"), Boolean.FALSE));
+
+			Object bytesAnnotation = newAnnotation.newInstance(loadClass("jdk.jfr.DataAmount"), "BYTES");
+
+			// Fields must be added in the order of the field indexes.
+
+			List<Object> fields = new ArrayList<>();
+			fields.add(newDescriptor.newInstance(String.class, "resourceName",
+				Arrays.asList(newAnnotation.newInstance(labelClass, "Resource Name"))));
+			fields.add(newDescriptor.newInstance(String.class, "actionType",
+				Arrays.asList(newAnnotation.newInstance(labelClass, "Action Type"))));
+			fields.add(newDescriptor.newInstance(long.class, "inputLength",
+				Arrays.asList(newAnnotation.newInstance(labelClass, "Input Length"), bytesAnnotation)));
+			fields.add(newDescriptor.newInstance(long.class, "outputLength",
+				Arrays.asList(newAnnotation.newInstance(labelClass, "Output Length"), bytesAnnotation)));
+			fields.add(newDescriptor.newInstance(boolean.class, "changed",
+				Arrays.asList(newAnnotation.newInstance(labelClass, "Changed"))));
+
+			Class<?> factoryClass = loadClass("jdk.jfr.EventFactory");
+			Object factory = factoryClass.getMethod("create", List.class, List.class)
+				.invoke(null, eventAnnotations, fields);
+			Object eventType = factoryClass.getMethod("getEventType")
+				.invoke(factory);
+
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> eventClass = loadClass("jdk.jfr.Event");
+
+			isEnabled = lookup.unreflect(loadClass("jdk.jfr.EventType").getMethod("isEnabled"))
+				.bindTo(eventType)
+				.asType(MethodType.methodType(boolean.class));
+			newEvent = lookup.unreflect(factoryClass.getMethod("newEvent"))
+				.bindTo(factory)
+				.asType(MethodType.methodType(Object.class));
+			begin = lookup.unreflect(eventClass.getMethod("begin"))
+				.asType(MethodType.methodType(void.class, Object.class));
+			set = lookup.unreflect(eventClass.getMethod("set", int.class, Object.class))
+				.asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+			commit = lookup.unreflect(eventClass.getMethod("commit"))
+				.asType(MethodType.methodType(void.class, Object.class));
+		}
+	}
+}
@@ -36,7 +36,6 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import aQute.lib.io.ByteBufferInputStream;
-import aQute.lib.io.ByteBufferOutputStream;
 
 public class XmlActionImpl extends ActionImpl {
 
@@ -92,16 +91,16 @@ public class XmlActionImpl extends ActionImpl {
 		setResourceNames(inputName, inputName);
 
 		InputStream inputStream = new ByteBufferInputStream(inputBytes, 0, inputCount);
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputCount);
+		try (PooledOutputStream outputStream = newOutputStream(inputCount)) {
+			transformUsingSaxParser(inputName, inputStream, outputStream);
 
-		transformUsingSaxParser(inputName, inputStream, outputStream);
+			if (!hasNonResourceNameChanges()) {
+				return null;
 
-		if (!hasNonResourceNameChanges()) {
-			return null;
-
-		} else {
-			byte[] outputBytes = outputStream.toByteArray();
-			return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+			} else {
+				byte[] outputBytes = outputStream.toByteArray();
+				return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+			}
 		}
 	}
 
@@ -117,32 +116,33 @@ public class XmlActionImpl extends ActionImpl {
 
 		BufferedReader reader = new BufferedReader(inputReader);
 
-		ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputBytes.length);
-		OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
+		try (PooledOutputStream outputStream = newOutputStream(inputLength)) {
+			OutputStreamWriter outputWriter = new OutputStreamWriter(outputStream, UTF_8);
 
-		BufferedWriter writer = new BufferedWriter(outputWriter);
+			BufferedWriter writer = new BufferedWriter(outputWriter);
 
-		try {
-			transformAsPlainText(inputName, reader, writer); // throws
-																// IOException
-		} catch (IOException e) {
-			error("Failed to transform [ {} ]", e, inputName);
-			return null;
-		}
+			try {
+				transformAsPlainText(inputName, reader, writer); // throws
+																	// IOException
+			} catch (IOException e) {
+				error("Failed to transform [ {} ]", e, inputName);
+				return null;
+			}
 
-		try {
-			writer.flush(); // throws
-		} catch (IOException e) {
-			error("Failed to flush [ {} ]", e, inputName);
-			return null;
-		}
+			try {
+				writer.flush(); // throws
+			} catch (IOException e) {
+				error("Failed to flush [ {} ]", e, inputName);
+				return null;
+			}
 
-		if (!hasNonResourceNameChanges()) {
-			return null;
-		}
+			if (!hasNonResourceNameChanges()) {
+				return null;
+			}
 
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+			byte[] outputBytes = outputStream.toByteArray();
+			return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		}
 	}
 
 	//
@@ -0,0 +1,203 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache which may be shared between threads.
+ * <p>
+ * The cache is split into segments, each of which is locked independently.
+ * Keys are assigned to segments by their hash code. Each segment evicts its
+ * least recently used entry when the segment is full.
+ * <p>
+ * Hit, miss, and eviction counts are kept for the cache.
+ *
+ * @param <K> The type of the cache keys.
+ * @param <V> The type of the cache values.
+ */
+public class BoundedCache<K, V> {
+	public static final int	DEFAULT_CAPACITY	= 64 * 1024;
+	public static final int	DEFAULT_SEGMENTS	= 16;
+
+	public BoundedCache(String name) {
+		this(name, DEFAULT_CAPACITY, DEFAULT_SEGMENTS);
+	}
+
+	public BoundedCache(String name, int capacity) {
+		this(name, capacity, DEFAULT_SEGMENTS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public BoundedCache(String name, int capacity, int segmentCount) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Cache [ " + name + " ] capacity [ " + capacity + " ] less than one");
+		}
+
+		// Use a power of two number of segments, so that the segment
+		// can be selected by masking the key hash.
+
+		int useSegments = 1;
+		while ((useSegments < segmentCount) && (useSegments < capacity)) {
+			useSegments <<= 1;
+		}
+
+		this.name = name;
+		this.capacity = capacity;
+
+		int segmentCapacity = (capacity + useSegments - 1) / useSegments;
+
+		this.segmentMask = useSegments - 1;
+		this.segments = new Segment[useSegments];
+		for (int segmentNo = 0; segmentNo < useSegments; segmentNo++) {
+			this.segments[segmentNo] = new Segment<>(segmentCapacity, this.evictions);
+		}
+	}
+
+	//
+
+	private final String name;
+
+	public String getName() {
+		return name;
+	}
+
+	private final int capacity;
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	//
+
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long	serialVersionUID	= 1L;
+
+		private final int			segmentCapacity;
+		private final LongAdder		evictions;
+
+		public Segment(int segmentCapacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+
+			this.segmentCapacity = segmentCapacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if (size() > segmentCapacity) {
+				evictions.increment();
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private final Segment<K, V>[]	segments;
+	private final int				segmentMask;
+
+	private Segment<K, V> segmentFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & segmentMask];
+	}
+
+	/**
+	 * Answer the value stored for a key. Update the hit or miss count.
+	 *
+	 * @param key The key which is to be retrieved.
+	 * @return The value stored for the key. Null if no value is stored.
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+
+		if (value == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Store a value for a key. Evict the least recently used entry of the
+	 * segment of the key if the segment is full.
+	 *
+	 * @param key The key which is to be stored.
+	 * @param value The value to store for the key. Must not be null.
+	 */
+	public void put(K key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Cache [ " + name + " ] null value for [ " + key + " ]");
+		}
+
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	//
+
+	private final LongAdder	hits		= new LongAdder();
+	private final LongAdder	misses		= new LongAdder();
+	private final LongAdder	evictions	= new LongAdder();
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public void resetCounts() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "Cache [ " + name + " ] Size [ " + size() + " ] Capacity [ " + capacity + " ] Hits [ " + getHits()
+			+ " ] Misses [ " + getMisses() + " ] Evictions [ " + getEvictions() + " ]";
+	}
+}
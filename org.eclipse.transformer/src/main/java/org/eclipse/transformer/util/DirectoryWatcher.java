@@ -0,0 +1,171 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watcher of the changes to a directory tree.
+ * <p>
+ * All directories of the tree are watched, including directories which are
+ * created while the tree is watched. Changes are coalesced: Changed paths are
+ * answered once no further changes are seen for a quiet period, and a path
+ * which is changed several times during that period is answered once.
+ */
+public class DirectoryWatcher implements Closeable {
+	/** Default quiet period, in milliseconds. */
+	public static final long DEFAULT_QUIET_PERIOD = 100L;
+
+	public DirectoryWatcher(Path root) throws IOException {
+		this(root, DEFAULT_QUIET_PERIOD);
+	}
+
+	public DirectoryWatcher(Path root, long quietPeriod) throws IOException {
+		this.root = root;
+		this.quietPeriod = quietPeriod;
+
+		this.watchService = root.getFileSystem()
+			.newWatchService();
+		this.watchedDirectories = new ConcurrentHashMap<>();
+
+		register(root);
+	}
+
+	private final Path					root;
+	private final long					quietPeriod;
+
+	private final WatchService			watchService;
+	private final Map<WatchKey, Path>	watchedDirectories;
+
+	public Path getRoot() {
+		return root;
+	}
+
+	public long getQuietPeriod() {
+		return quietPeriod;
+	}
+
+	/**
+	 * Answer the count of directories which are being watched.
+	 *
+	 * @return The count of directories which are being watched.
+	 */
+	public int getWatchedCount() {
+		return watchedDirectories.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	protected void register(Path start) throws IOException {
+		Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+			new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+					watchedDirectories.put(key, dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+	}
+
+	/**
+	 * Wait for changes to the tree.
+	 * <p>
+	 * Changed paths are answered in the order in which they were first
+	 * changed. Changed paths include created and modified files, created
+	 * directories, and deleted files and directories. The root of the tree is
+	 * answered if changes were lost, in which case the entire tree must be
+	 * examined.
+	 *
+	 * @return The changed paths. Null if the watcher was closed.
+	 * @throws IOException Thrown if a created directory could not be watched.
+	 * @throws InterruptedException Thrown if interrupted while waiting.
+	 */
+	public Set<Path> take() throws IOException, InterruptedException {
+		Set<Path> changedPaths = new LinkedHashSet<>();
+		try {
+			while (changedPaths.isEmpty()) {
+				WatchKey key = watchService.take();
+				while (key != null) {
+					addChanges(key, changedPaths);
+					key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			return null;
+		}
+		return changedPaths;
+	}
+
+	protected void addChanges(WatchKey key, Set<Path> changedPaths) throws IOException {
+		Path dir = watchedDirectories.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			WatchEvent.Kind<?> kind = event.kind();
+			if (kind == OVERFLOW) {
+				changedPaths.add(root);
+				register(root);
+				continue;
+			} else if (dir == null) {
+				continue;
+			}
+
+			Path path = dir.resolve((Path) event.context());
+
+			// A directory is modified when its children are changed. The
+			// changed children are reported separately.
+			if ((kind == ENTRY_MODIFY) && Files.isDirectory(path)) {
+				continue;
+			}
+
+			changedPaths.add(path);
+
+			if ((kind == ENTRY_CREATE) && Files.isDirectory(path)) {
+				try {
+					register(path);
+				} catch (NoSuchFileException e) {
+					// The directory was deleted after it was created.
+				}
+			}
+		}
+
+		if (!key.reset()) {
+			watchedDirectories.remove(key);
+		}
+	}
+}
@@ -12,10 +12,13 @@
 package org.eclipse.transformer.util;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.URL;
+import java.util.Arrays;
 
 import aQute.lib.utf8properties.UTF8Properties;
 
@@ -85,12 +88,15 @@ public class FileUtils {
 
 	/**
 	 * Read data from an input stream into a buffer. Allocate a new buffer if
-	 * the parameter buffer is too small for the requested read.
+	 * the parameter buffer is too small for the requested read. When the count
+	 * is not known, the parameter buffer is grown as needed.
 	 *
 	 * @param inputName A name associated with the input stram.
 	 * @param inputStream The stream from which to read bytes.
 	 * @param buffer A buffer into which to place the read bytes.
-	 * @param count The number of bytes to read.
+	 * @param count The number of bytes to read. {@code -1} if the count of
+	 *            bytes is not known, in which case all remaining bytes are
+	 *            read.
 	 * @return The final buffer which contains the read bytes. The same as the
 	 *         parameter buffer if that buffer had a sufficient capacity to read
 	 *         the requested count of bytes. A new buffer if the parameter
@@ -101,7 +107,10 @@ public class FileUtils {
 		throws IOException {
 
 		if (count == -1) {
-			return read(inputName, inputStream, new byte[BUFFER_ADJUSTMENT]);
+			if ((buffer == null) || (buffer.length == 0)) {
+				buffer = new byte[BUFFER_ADJUSTMENT];
+			}
+			return read(inputName, inputStream, buffer);
 
 		} else {
 			count = verifyArray(0, count);
@@ -131,12 +140,73 @@ public class FileUtils {
 		}
 	}
 
+	/**
+	 * Read at most a maximum count of bytes from an input stream. Fewer bytes
+	 * are read if the end of the stream is reached.
+	 *
+	 * @param inputName A name associated with the input stream.
+	 * @param inputStream The stream from which to read bytes.
+	 * @param maxCount The maximum count of bytes to read.
+	 * @return The read bytes.
+	 * @throws IOException Thrown if an error occurred during a read.
+	 */
+	public static ByteData readAtMost(String inputName, InputStream inputStream, int maxCount) throws IOException {
+		byte[] buffer = new byte[Math.min(maxCount, BUFFER_ADJUSTMENT)];
+
+		int bytesUsed = 0;
+		while (bytesUsed < maxCount) {
+			if (bytesUsed == buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.min(maxCount, getGrowthLength(buffer.length)));
+			}
+			int bytesRead = inputStream.read(buffer, bytesUsed, buffer.length - bytesUsed); // throws
+																							// IOException
+			if (bytesRead == -1) {
+				break;
+			}
+			bytesUsed += bytesRead;
+		}
+
+		return new ByteData(inputName, buffer, 0, bytesUsed);
+	}
+
+	/**
+	 * Answer a stream which reads the bytes of a head, then the remaining
+	 * bytes of an input stream. The input stream is not closed when the end
+	 * of the joined stream is reached or when the joined stream is closed.
+	 *
+	 * @param headData Bytes which were previously read from the input stream.
+	 * @param inputStream The stream from which to read the remaining bytes.
+	 * @return A stream which joins the head to the input stream.
+	 */
+	public static InputStream join(ByteData headData, InputStream inputStream) {
+		InputStream restStream = new FilterInputStream(inputStream) {
+			@Override
+			public void close() {
+				// Leave the input stream open.
+			}
+		};
+		return new SequenceInputStream(headData.asStream(), restStream);
+	}
+
 	//
 
 	public static ByteData read(String inputName, InputStream inputStream) throws IOException {
 		return read(inputName, inputStream, new byte[BUFFER_ADJUSTMENT]);
 	}
 
+	/**
+	 * Read all remaining data from an input stream into a buffer. When the
+	 * buffer is filled, a new buffer is allocated, doubling the capacity, and
+	 * the read data is copied into the new buffer. The count of bytes which
+	 * are copied is at most the count of bytes which are read.
+	 *
+	 * @param inputName A name associated with the input stream.
+	 * @param inputStream The stream from which to read bytes.
+	 * @param buffer A buffer into which to place the read bytes.
+	 * @return The read bytes. These use the parameter buffer if that buffer
+	 *         had a sufficient capacity to read all of the bytes.
+	 * @throws IOException Thrown if an error occurred during a read.
+	 */
 	public static ByteData read(String inputName, InputStream inputStream, byte[] buffer) throws IOException {
 		int bytesUsed = 0;
 		int bytesRemaining = buffer.length;
@@ -148,30 +218,36 @@ public class FileUtils {
 			bytesRemaining -= bytesRead;
 
 			if (bytesRemaining == 0) {
-				int bytesAdded = MAX_ARRAY_LENGTH - bytesUsed;
-				if (bytesAdded == 0) {
+				if (bytesUsed == MAX_ARRAY_LENGTH) {
 					if (inputStream.read() == -1) {
 						break;
 					} else {
 						throw new IOException(
 							"Overflow of [ " + inputName + " ] after reading [ " + bytesUsed + " ] bytes");
 					}
-				} else if (bytesAdded > BUFFER_ADJUSTMENT) {
-					bytesAdded = BUFFER_ADJUSTMENT;
 				}
 
-				int nextLength = bytesUsed + BUFFER_ADJUSTMENT;
-				bytesRemaining = BUFFER_ADJUSTMENT;
-
-				byte[] nextBuffer = new byte[nextLength];
-				System.arraycopy(buffer, 0, nextBuffer, 0, bytesUsed);
-				buffer = nextBuffer;
+				buffer = Arrays.copyOf(buffer, getGrowthLength(bytesUsed));
+				bytesRemaining = buffer.length - bytesUsed;
 			}
 		}
 
 		return new ByteData(inputName, buffer, 0, bytesUsed);
 	}
 
+	/**
+	 * Answer the length of a buffer which replaces a filled buffer. The length
+	 * is doubled, but is at least increased by {@link #BUFFER_ADJUSTMENT}, and
+	 * is no larger than {@link #MAX_ARRAY_LENGTH}.
+	 *
+	 * @param length The length of the filled buffer.
+	 * @return The length of the replacement buffer.
+	 */
+	public static int getGrowthLength(int length) {
+		long nextLength = Math.max(length * 2L, (long) length + BUFFER_ADJUSTMENT);
+		return (int) Math.min(nextLength, MAX_ARRAY_LENGTH);
+	}
+
 	public static long transfer(InputStream inputStream, OutputStream outputStream) throws IOException {
 		byte[] buffer = new byte[BUFFER_ADJUSTMENT];
 
@@ -0,0 +1,425 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Multiple keyword matcher, using the Aho-Corasick algorithm.
+ * <p>
+ * The matcher is compiled once from keyword and replacement value pairs. Text
+ * is then scanned once for all keywords, instead of once per keyword.
+ * <p>
+ * When several keywords match, the match which starts first is used, and of
+ * matches which start at the same location, the longest match is used. An
+ * optional filter may reject matches, for example, matches which are a part of
+ * a longer name.
+ * <p>
+ * The matcher is immutable, and may be shared between threads.
+ */
+public class KeywordMatcher {
+	/**
+	 * Filter of keyword matches.
+	 */
+	@FunctionalInterface
+	public interface MatchFilter {
+		/**
+		 * Tell if a match of a keyword is accepted.
+		 *
+		 * @param text The text which was scanned.
+		 * @param matchStart The start of the match in the text.
+		 * @param keyLen The length of the matched keyword.
+		 * @param keyNo The number of the matched keyword.
+		 * @return True or false telling if the match is accepted.
+		 */
+		boolean accept(String text, int matchStart, int keyLen, int keyNo);
+	}
+
+	/** Value answered by {@link #find} when no match is found. */
+	public static final long	NO_MATCH			= -1L;
+
+	/** Count of characters read at a time when replacing streamed text. */
+	public static final int		STREAM_CHUNK_LENGTH	= 8 * 1024;
+
+	/**
+	 * Create a matcher for the keys and values of a map. Empty keys are
+	 * ignored.
+	 *
+	 * @param replacements Keywords mapped to their replacement values.
+	 */
+	public KeywordMatcher(Map<String, String> replacements) {
+		this(new ArrayList<>(replacements.keySet()), new ArrayList<>(replacements.values()));
+	}
+
+	/**
+	 * Create a matcher for lists of keywords and replacement values. Empty
+	 * keywords are never matched. The same keyword may be present more than
+	 * once, in which case the filter selects which of the keywords is used.
+	 *
+	 * @param keys The keywords.
+	 * @param values The replacement values of the keywords.
+	 */
+	public KeywordMatcher(List<String> keys, List<String> values) {
+		if (keys.size() != values.size()) {
+			throw new IllegalArgumentException(
+				"Key count [ " + keys.size() + " ] differs from value count [ " + values.size() + " ]");
+		}
+
+		this.keys = keys.toArray(new String[0]);
+		this.values = values.toArray(new String[0]);
+
+		// Build the trie of the keywords.
+
+		List<TreeMap<Character, Integer>> children = new ArrayList<>();
+		List<List<Integer>> keysAt = new ArrayList<>();
+		children.add(new TreeMap<>());
+		keysAt.add(null);
+
+		int useMaxKeyLength = 0;
+		for (int keyNo = 0; keyNo < this.keys.length; keyNo++) {
+			String key = this.keys[keyNo];
+			if (key.isEmpty()) {
+				continue;
+			}
+			useMaxKeyLength = Math.max(useMaxKeyLength, key.length());
+
+			int node = 0;
+			for (int charNo = 0; charNo < key.length(); charNo++) {
+				Character c = Character.valueOf(key.charAt(charNo));
+				Integer child = children.get(node)
+					.get(c);
+				if (child == null) {
+					child = Integer.valueOf(children.size());
+					children.add(new TreeMap<>());
+					keysAt.add(null);
+					children.get(node)
+						.put(c, child);
+				}
+				node = child.intValue();
+			}
+			if (keysAt.get(node) == null) {
+				keysAt.set(node, new ArrayList<>(1));
+			}
+			keysAt.get(node)
+				.add(Integer.valueOf(keyNo));
+		}
+		this.maxKeyLength = useMaxKeyLength;
+
+		int nodeCount = children.size();
+		this.edgeChars = new char[nodeCount][];
+		this.edgeTargets = new int[nodeCount][];
+		this.nodeKeys = new int[nodeCount][];
+		this.depths = new int[nodeCount];
+		this.failures = new int[nodeCount];
+		this.outputs = new int[nodeCount];
+
+		for (int node = 0; node < nodeCount; node++) {
+			TreeMap<Character, Integer> nodeChildren = children.get(node);
+			char[] chars = new char[nodeChildren.size()];
+			int[] targets = new int[nodeChildren.size()];
+			int edgeNo = 0;
+			for (Map.Entry<Character, Integer> edge : nodeChildren.entrySet()) {
+				chars[edgeNo] = edge.getKey()
+					.charValue();
+				targets[edgeNo] = edge.getValue()
+					.intValue();
+				edgeNo++;
+			}
+			edgeChars[node] = chars;
+			edgeTargets[node] = targets;
+
+			List<Integer> keyNos = keysAt.get(node);
+			if (keyNos != null) {
+				int[] useKeyNos = new int[keyNos.size()];
+				for (int keyNo = 0; keyNo < useKeyNos.length; keyNo++) {
+					useKeyNos[keyNo] = keyNos.get(keyNo)
+						.intValue();
+				}
+				nodeKeys[node] = useKeyNos;
+			}
+		}
+
+		// Compute the failure and output links, breadth first.
+		//
+		// The failure link of a node is the node of the longest proper suffix
+		// of the node's text which is also in the trie. The output link of a
+		// node is the node, reached through failure links and starting with
+		// the node itself, which is the end of at least one keyword.
+
+		Arrays.fill(outputs, -1);
+
+		Deque<Integer> queue = new ArrayDeque<>();
+		queue.add(Integer.valueOf(0));
+		while (!queue.isEmpty()) {
+			int node = queue.remove()
+				.intValue();
+
+			if (node != 0) {
+				outputs[node] = (nodeKeys[node] != null) ? node : outputs[failures[node]];
+			}
+
+			char[] chars = edgeChars[node];
+			int[] targets = edgeTargets[node];
+			for (int edgeNo = 0; edgeNo < chars.length; edgeNo++) {
+				int child = targets[edgeNo];
+				depths[child] = depths[node] + 1;
+				failures[child] = (node == 0) ? 0 : transition(failures[node], chars[edgeNo]);
+				queue.add(Integer.valueOf(child));
+			}
+		}
+	}
+
+	private final String[]	keys;
+	private final String[]	values;
+	private final int		maxKeyLength;
+
+	private final char[][]	edgeChars;
+	private final int[][]	edgeTargets;
+	private final int[][]	nodeKeys;
+	private final int[]		depths;
+	private final int[]		failures;
+	private final int[]		outputs;
+
+	public int size() {
+		return keys.length;
+	}
+
+	public String getKey(int keyNo) {
+		return keys[keyNo];
+	}
+
+	public String getValue(int keyNo) {
+		return values[keyNo];
+	}
+
+	private int transition(int node, char c) {
+		while (true) {
+			char[] chars = edgeChars[node];
+			if (chars.length != 0) {
+				int edgeNo = Arrays.binarySearch(chars, c);
+				if (edgeNo >= 0) {
+					return edgeTargets[node][edgeNo];
+				}
+			}
+			if (node == 0) {
+				return 0;
+			}
+			node = failures[node];
+		}
+	}
+
+	//
+
+	/**
+	 * Locate the first accepted keyword match of text, starting at a
+	 * specified location. Of matches which start at the same location, the
+	 * longest accepted match is answered.
+	 *
+	 * @param text The text which is to be scanned.
+	 * @param fromIndex The location at which to start scanning.
+	 * @param filter Optional filter of matches. Null to accept all matches.
+	 * @return The match, encoded as the match start in the high 32 bits and
+	 *         the keyword number in the low 32 bits. {@link #NO_MATCH} if no
+	 *         match was found.
+	 */
+	public long find(String text, int fromIndex, MatchFilter filter) {
+		if (maxKeyLength == 0) {
+			return NO_MATCH;
+		}
+
+		int textLength = text.length();
+
+		int bestStart = -1;
+		int bestLength = 0;
+		int bestKeyNo = -1;
+
+		int node = 0;
+		for (int charNo = fromIndex; charNo < textLength; charNo++) {
+			// No match which ends here or later can start before the best
+			// match.
+			if ((bestStart != -1) && (charNo - maxKeyLength >= bestStart)) {
+				break;
+			}
+
+			node = transition(node, text.charAt(charNo));
+
+			for (int output = outputs[node]; output > 0; output = outputs[failures[output]]) {
+				int keyLen = depths[output];
+				int matchStart = charNo - keyLen + 1;
+				if ((bestStart != -1) && ((matchStart > bestStart) || (keyLen <= bestLength))) {
+					continue;
+				}
+				for (int keyNo : nodeKeys[output]) {
+					if ((filter == null) || filter.accept(text, matchStart, keyLen, keyNo)) {
+						bestStart = matchStart;
+						bestLength = keyLen;
+						bestKeyNo = keyNo;
+						break;
+					}
+				}
+			}
+		}
+
+		if (bestStart == -1) {
+			return NO_MATCH;
+		} else {
+			return (((long) bestStart) << 32) | bestKeyNo;
+		}
+	}
+
+	public static int getMatchStart(long match) {
+		return (int) (match >>> 32);
+	}
+
+	public static int getMatchKey(long match) {
+		return (int) match;
+	}
+
+	/**
+	 * Replace all accepted keyword matches of text with their replacement
+	 * values. Matches are located from the start of the text, and do not
+	 * overlap. Replacement values are not scanned for further matches.
+	 *
+	 * @param text The text which is to be scanned.
+	 * @param filter Optional filter of matches. Null to accept all matches.
+	 * @return The text with matches replaced. Null if no match was found.
+	 */
+	public String replace(String text, MatchFilter filter) {
+		StringBuilder output = null;
+
+		int textLength = text.length();
+		int lastMatchEnd = 0;
+		while (lastMatchEnd < textLength) {
+			long match = find(text, lastMatchEnd, filter);
+			if (match == NO_MATCH) {
+				break;
+			}
+			int matchStart = getMatchStart(match);
+			int keyNo = getMatchKey(match);
+
+			if (output == null) {
+				output = new StringBuilder(textLength + 16);
+			}
+			output.append(text, lastMatchEnd, matchStart)
+				.append(values[keyNo]);
+
+			lastMatchEnd = matchStart + keys[keyNo].length();
+		}
+
+		if (output == null) {
+			return null;
+		}
+		output.append(text, lastMatchEnd, textLength);
+		return output.toString();
+	}
+
+	/**
+	 * Replace all accepted keyword matches of streamed text.
+	 * <p>
+	 * Text is read in chunks. The unwritten tail of each chunk is retained and
+	 * scanned again with the next chunk, so that matches which span chunks are
+	 * found, and so that the filter sees the characters which surround a
+	 * match. Matches are the same as would be found by
+	 * {@link #replace(String, MatchFilter)} on the entire text.
+	 *
+	 * @param reader The reader of the text.
+	 * @param writer The writer to which to write the replaced text.
+	 * @param filter Optional filter of matches. Null to accept all matches.
+	 * @return The count of lines which had at least one replacement.
+	 * @throws IOException Thrown if the read or write failed.
+	 */
+	public int replace(Reader reader, Writer writer, MatchFilter filter) throws IOException {
+		// A match must be complete before it is accepted, and the filter may
+		// examine the two characters which follow a match.
+		int lookAhead = maxKeyLength + 2;
+
+		char[] chunk = new char[STREAM_CHUNK_LENGTH];
+		StringBuilder window = new StringBuilder(STREAM_CHUNK_LENGTH + lookAhead + 1);
+
+		// Characters of the window before 'nextChar' were written. The
+		// character immediately before 'nextChar' is retained as context
+		// for the filter.
+		int nextChar = 0;
+
+		long lineNo = 0L;
+		long lastChangedLine = -1L;
+		int changedLines = 0;
+
+		boolean atEnd = false;
+		while (!atEnd) {
+			int charsRead = reader.read(chunk);
+			if (charsRead == -1) {
+				atEnd = true;
+			} else {
+				window.append(chunk, 0, charsRead);
+			}
+
+			// Only matches which start before the limit are decided.
+			int limit = (atEnd ? window.length() : window.length() - lookAhead);
+			if (limit <= nextChar) {
+				continue;
+			}
+
+			String text = window.toString();
+			while (nextChar < limit) {
+				long match = find(text, nextChar, filter);
+				int matchStart = ((match == NO_MATCH) ? limit : getMatchStart(match));
+				if (matchStart >= limit) {
+					lineNo += countLines(text, nextChar, limit);
+					writer.write(text, nextChar, limit - nextChar);
+					nextChar = limit;
+					break;
+				}
+
+				int keyNo = getMatchKey(match);
+				String key = keys[keyNo];
+
+				lineNo += countLines(text, nextChar, matchStart);
+				if (lineNo != lastChangedLine) {
+					lastChangedLine = lineNo;
+					changedLines++;
+				}
+
+				writer.write(text, nextChar, matchStart - nextChar);
+				writer.write(values[keyNo]);
+
+				nextChar = matchStart + key.length();
+				lineNo += countLines(key, 0, key.length());
+			}
+
+			int retainFrom = Math.max(nextChar - 1, 0);
+			window.delete(0, retainFrom);
+			nextChar -= retainFrom;
+		}
+
+		return changedLines;
+	}
+
+	private static int countLines(String text, int start, int end) {
+		int lines = 0;
+		for (int charNo = start; charNo < end; charNo++) {
+			if (text.charAt(charNo) == '\n') {
+				lines++;
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,210 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Content addressed store of transformation results.
+ * <p>
+ * Results are keyed by a digest of the input bytes combined with a
+ * fingerprint of the transformation rules. Each result is an output file and
+ * a summary of the changes which were made to produce the output file.
+ * <p>
+ * Results are written to temporary files, which are then moved into place.
+ * The summary is moved last, and a result is used only if its summary is
+ * present. Several processes may share a cache directory.
+ */
+public class TransformCache {
+	/** Algorithm used to digest inputs and rules. */
+	public static final String	DIGEST_ALGORITHM	= "SHA-256";
+
+	public static final String	OUTPUT_EXTENSION	= ".out";
+	public static final String	SUMMARY_EXTENSION	= ".properties";
+
+	public TransformCache(File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	private final File cacheDirectory;
+
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	//
+
+	public static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every java platform is required to support SHA-256.
+			throw new IllegalStateException("Digest algorithm [ " + DIGEST_ALGORITHM + " ] is not available", e);
+		}
+	}
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	public static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int byteNo = 0; byteNo < bytes.length; byteNo++) {
+			int nextByte = bytes[byteNo] & 0xFF;
+			hex[byteNo * 2] = HEX_DIGITS[nextByte >>> 4];
+			hex[byteNo * 2 + 1] = HEX_DIGITS[nextByte & 0x0F];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Digest the bytes of a file.
+	 *
+	 * @param inputFile The file which is to be digested.
+	 * @return The digest of the file, as hexadecimal text.
+	 * @throws IOException Thrown if the file could not be read.
+	 */
+	public static String digest(File inputFile) throws IOException {
+		MessageDigest digest = createDigest();
+		byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+		try (InputStream inputStream = Files.newInputStream(inputFile.toPath())) {
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Answer the key of the result of transforming an input file.
+	 *
+	 * @param inputFile The input file.
+	 * @param rulesFingerprint A fingerprint of the rules which are used to
+	 *            transform the input file.
+	 * @return The key of the transformation result.
+	 * @throws IOException Thrown if the input file could not be read.
+	 */
+	public String getKey(File inputFile, String rulesFingerprint) throws IOException {
+		MessageDigest digest = createDigest();
+		digest.update(digest(inputFile).getBytes(UTF_8));
+		digest.update((byte) '/');
+		digest.update(rulesFingerprint.getBytes(UTF_8));
+		return toHex(digest.digest());
+	}
+
+	protected File getEntryDirectory(String key) {
+		// Spread entries across sub-directories, as is usual for content
+		// addressed stores.
+		return new File(cacheDirectory, key.substring(0, 2));
+	}
+
+	public File getOutputFile(String key) {
+		return new File(getEntryDirectory(key), key + OUTPUT_EXTENSION);
+	}
+
+	public File getSummaryFile(String key) {
+		return new File(getEntryDirectory(key), key + SUMMARY_EXTENSION);
+	}
+
+	//
+
+	/**
+	 * Restore a transformation result. The cached output file is copied to
+	 * the output file. The output file is written using a temporary file,
+	 * which is then moved into place.
+	 * <p>
+	 * The output file is a copy, not a link: Later updates of the output file
+	 * do not change the cached output file.
+	 *
+	 * @param key The key of the result.
+	 * @param outputFile The file which is to receive the cached output.
+	 * @return The summary of the result. Null if the result is not cached.
+	 * @throws IOException Thrown if the result could not be restored.
+	 */
+	public Properties restore(String key, File outputFile) throws IOException {
+		File summaryFile = getSummaryFile(key);
+		File cachedOutputFile = getOutputFile(key);
+		if (!summaryFile.isFile() || !cachedOutputFile.isFile()) {
+			return null;
+		}
+
+		Properties summary = new Properties();
+		try (InputStream inputStream = Files.newInputStream(summaryFile.toPath())) {
+			summary.load(inputStream);
+		}
+
+		Path outputPath = outputFile.toPath()
+			.toAbsolutePath();
+		Path outputTempPath = Files.createTempFile(outputPath.getParent(), outputFile.getName(), ".tmp");
+		try {
+			Files.copy(cachedOutputFile.toPath(), outputTempPath, StandardCopyOption.REPLACE_EXISTING);
+			move(outputTempPath, outputPath);
+		} finally {
+			Files.deleteIfExists(outputTempPath);
+		}
+
+		return summary;
+	}
+
+	/**
+	 * Store a transformation result. The output file is copied into the
+	 * cache.
+	 *
+	 * @param key The key of the result.
+	 * @param outputFile The output file of the result.
+	 * @param summary The summary of the result.
+	 * @throws IOException Thrown if the result could not be stored.
+	 */
+	public void store(String key, File outputFile, Properties summary) throws IOException {
+		File entryDirectory = getEntryDirectory(key);
+		Path entryPath = entryDirectory.toPath();
+		Files.createDirectories(entryPath);
+
+		Path outputTempPath = Files.createTempFile(entryPath, key, OUTPUT_EXTENSION + ".tmp");
+		try {
+			Files.copy(outputFile.toPath(), outputTempPath, StandardCopyOption.REPLACE_EXISTING);
+			move(outputTempPath, getOutputFile(key).toPath());
+		} finally {
+			Files.deleteIfExists(outputTempPath);
+		}
+
+		Path summaryTempPath = Files.createTempFile(entryPath, key, SUMMARY_EXTENSION + ".tmp");
+		try {
+			try (OutputStream outputStream = Files.newOutputStream(summaryTempPath)) {
+				summary.store(outputStream, null);
+			}
+			move(summaryTempPath, getSummaryFile(key).toPath());
+		} finally {
+			Files.deleteIfExists(summaryTempPath);
+		}
+	}
+
+	private static void move(Path sourcePath, Path targetPath) throws IOException {
+		try {
+			Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
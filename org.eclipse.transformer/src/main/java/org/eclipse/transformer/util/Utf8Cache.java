@@ -0,0 +1,375 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache of strings, keyed by their modified UTF-8 encoding,
+ * which may be shared between threads.
+ * <p>
+ * Class constant pools store strings as modified UTF-8 bytes. The cache is
+ * keyed by slices of a byte array, which are hashed and compared in place: A
+ * string which is in the cache is answered without decoding the bytes and
+ * without allocating. The same string instance is answered for equal bytes,
+ * which means that the strings of different classes share their hash codes
+ * and are usually equal by identity.
+ * <p>
+ * The cache is split into segments, each of which is locked independently.
+ * Each segment is an open addressing hash table, which is cleared when the
+ * segment is full.
+ * <p>
+ * Hit, miss, and eviction counts are kept for the cache.
+ */
+public class Utf8Cache {
+	public Utf8Cache(String name) {
+		this(name, BoundedCache.DEFAULT_CAPACITY, BoundedCache.DEFAULT_SEGMENTS);
+	}
+
+	public Utf8Cache(String name, int capacity) {
+		this(name, capacity, BoundedCache.DEFAULT_SEGMENTS);
+	}
+
+	public Utf8Cache(String name, int capacity, int segmentCount) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Cache [ " + name + " ] capacity [ " + capacity + " ] less than one");
+		}
+
+		// Use a power of two number of segments, so that the segment
+		// can be selected by masking the key hash.
+
+		int useSegments = 1;
+		while ((useSegments < segmentCount) && (useSegments < capacity)) {
+			useSegments <<= 1;
+		}
+
+		this.name = name;
+		this.capacity = capacity;
+
+		int segmentCapacity = (capacity + useSegments - 1) / useSegments;
+
+		this.segmentShift = Integer.numberOfTrailingZeros(useSegments);
+		this.segmentMask = useSegments - 1;
+		this.segments = new Segment[useSegments];
+		for (int segmentNo = 0; segmentNo < useSegments; segmentNo++) {
+			this.segments[segmentNo] = new Segment(segmentCapacity);
+		}
+	}
+
+	//
+
+	private final String name;
+
+	public String getName() {
+		return name;
+	}
+
+	private final int capacity;
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	//
+
+	/**
+	 * A segment of the cache: An open addressing hash table which uses linear
+	 * probing. The table is grown as strings are added, up to twice the
+	 * capacity of the segment, which keeps probe sequences short.
+	 */
+	private static class Segment {
+		private static final int	INITIAL_SLOTS	= 64;
+
+		private final int			segmentCapacity;
+
+		private byte[][]			keys;
+		private int[]				hashes;
+		private String[]			values;
+		private int					size;
+
+		Segment(int segmentCapacity) {
+			this.segmentCapacity = segmentCapacity;
+			allocate(INITIAL_SLOTS);
+		}
+
+		private void allocate(int slots) {
+			keys = new byte[slots][];
+			hashes = new int[slots];
+			values = new String[slots];
+		}
+
+		String get(int hash, byte[] bytes, int offset, int length) {
+			int slotMask = keys.length - 1;
+			for (int slot = hash & slotMask;; slot = (slot + 1) & slotMask) {
+				byte[] key = keys[slot];
+				if (key == null) {
+					return null;
+				}
+				if ((hashes[slot] == hash) && equals(key, bytes, offset, length)) {
+					return values[slot];
+				}
+			}
+		}
+
+		/**
+		 * Store a string. The segment must not already have the key.
+		 *
+		 * @return The number of strings which were evicted to make room for
+		 *         the string.
+		 */
+		int put(int hash, byte[] key, String value) {
+			int evicted = 0;
+			if (size == segmentCapacity) {
+				evicted = size;
+				clear();
+			} else if (2 * (size + 1) > keys.length) {
+				grow();
+			}
+			insert(hash, key, value);
+			size++;
+			return evicted;
+		}
+
+		private void insert(int hash, byte[] key, String value) {
+			int slotMask = keys.length - 1;
+			int slot = hash & slotMask;
+			while (keys[slot] != null) {
+				slot = (slot + 1) & slotMask;
+			}
+			keys[slot] = key;
+			hashes[slot] = hash;
+			values[slot] = value;
+		}
+
+		private void grow() {
+			byte[][] oldKeys = keys;
+			int[] oldHashes = hashes;
+			String[] oldValues = values;
+
+			allocate(oldKeys.length * 2);
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldKeys[slot] != null) {
+					insert(oldHashes[slot], oldKeys[slot], oldValues[slot]);
+				}
+			}
+		}
+
+		void clear() {
+			Arrays.fill(keys, null);
+			Arrays.fill(values, null);
+			size = 0;
+		}
+
+		int size() {
+			return size;
+		}
+
+		private static boolean equals(byte[] key, byte[] bytes, int offset, int length) {
+			if (key.length != length) {
+				return false;
+			}
+			for (int byteNo = 0; byteNo < length; byteNo++) {
+				if (key[byteNo] != bytes[offset + byteNo]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final Segment[]	segments;
+	private final int		segmentShift;
+	private final int		segmentMask;
+
+	private static int hash(byte[] bytes, int offset, int length) {
+		int hash = 0;
+		for (int byteNo = offset, end = offset + length; byteNo < end; byteNo++) {
+			hash = 31 * hash + bytes[byteNo];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Answer the string which is encoded by modified UTF-8 bytes. Update the
+	 * hit or miss count. The bytes are decoded and the string is stored if the
+	 * cache does not have the string.
+	 *
+	 * @param bytes Bytes which contain the encoded string.
+	 * @param offset The offset of the encoded string.
+	 * @param length The number of bytes of the encoded string.
+	 * @return The decoded string.
+	 * @throws UTFDataFormatException Thrown if the bytes are not valid
+	 *             modified UTF-8.
+	 */
+	public String get(byte[] bytes, int offset, int length) throws UTFDataFormatException {
+		int hash = hash(bytes, offset, length);
+
+		// The low bits of the hash select the segment; the remaining bits
+		// select the slot within the segment.
+
+		Segment segment = segments[hash & segmentMask];
+		int segmentHash = hash >>> segmentShift;
+
+		String value;
+		synchronized (segment) {
+			value = segment.get(segmentHash, bytes, offset, length);
+		}
+		if (value != null) {
+			hits.increment();
+			return value;
+		}
+
+		misses.increment();
+		value = decode(bytes, offset, length);
+		byte[] key = Arrays.copyOfRange(bytes, offset, offset + length);
+
+		synchronized (segment) {
+			// Another thread may have stored the string.
+			String storedValue = segment.get(segmentHash, bytes, offset, length);
+			if (storedValue != null) {
+				return storedValue;
+			}
+			int evicted = segment.put(segmentHash, key, value);
+			if (evicted != 0) {
+				evictions.add(evicted);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Decode modified UTF-8 bytes, as is done by
+	 * {@link java.io.DataInput#readUTF()}.
+	 *
+	 * @param bytes Bytes which contain the encoded string.
+	 * @param offset The offset of the encoded string.
+	 * @param length The number of bytes of the encoded string.
+	 * @return The decoded string.
+	 * @throws UTFDataFormatException Thrown if the bytes are not valid
+	 *             modified UTF-8.
+	 */
+	public static String decode(byte[] bytes, int offset, int length) throws UTFDataFormatException {
+		int end = offset + length;
+
+		// Nearly all constants are ASCII, which decode directly.
+
+		int next = offset;
+		while ((next < end) && (bytes[next] >= 0)) {
+			next++;
+		}
+		if (next == end) {
+			return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+		}
+
+		char[] chars = new char[length];
+		int charCount = 0;
+		for (next = offset; next < end;) {
+			int b1 = bytes[next] & 0xFF;
+			switch (b1 >> 4) {
+				case 0 :
+				case 1 :
+				case 2 :
+				case 3 :
+				case 4 :
+				case 5 :
+				case 6 :
+				case 7 :
+					chars[charCount++] = (char) b1;
+					next++;
+					break;
+
+				case 12 :
+				case 13 : {
+					if (next + 2 > end) {
+						throw new UTFDataFormatException("Truncated character at [ " + (next - offset) + " ]");
+					}
+					int b2 = bytes[next + 1];
+					if ((b2 & 0xC0) != 0x80) {
+						throw new UTFDataFormatException("Malformed character at [ " + (next - offset) + " ]");
+					}
+					chars[charCount++] = (char) (((b1 & 0x1F) << 6) | (b2 & 0x3F));
+					next += 2;
+					break;
+				}
+
+				case 14 : {
+					if (next + 3 > end) {
+						throw new UTFDataFormatException("Truncated character at [ " + (next - offset) + " ]");
+					}
+					int b2 = bytes[next + 1];
+					int b3 = bytes[next + 2];
+					if (((b2 & 0xC0) != 0x80) || ((b3 & 0xC0) != 0x80)) {
+						throw new UTFDataFormatException("Malformed character at [ " + (next - offset) + " ]");
+					}
+					chars[charCount++] = (char) (((b1 & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+					next += 3;
+					break;
+				}
+
+				default :
+					throw new UTFDataFormatException("Malformed character at [ " + (next - offset) + " ]");
+			}
+		}
+		return new String(chars, 0, charCount);
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	//
+
+	private final LongAdder	hits		= new LongAdder();
+	private final LongAdder	misses		= new LongAdder();
+	private final LongAdder	evictions	= new LongAdder();
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public void resetCounts() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "Cache [ " + name + " ] Size [ " + size() + " ] Capacity [ " + capacity + " ] Hits [ " + getHits()
+			+ " ] Misses [ " + getMisses() + " ] Evictions [ " + getEvictions() + " ]";
+	}
+}
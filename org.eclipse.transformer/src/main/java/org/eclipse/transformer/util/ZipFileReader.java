@@ -0,0 +1,626 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Random access reader of zip files. Entries are read from the central
+ * directory of the zip file using a file channel.
+ * <p>
+ * Entry data may be read either as inflated data, or as the raw, compressed,
+ * bytes of the entry. The raw bytes may be copied to a {@link ZipFileWriter}
+ * without decompressing and recompressing the entry. Inflated data is
+ * verified against the CRC of the entry.
+ * <p>
+ * Entry names are decoded as UTF-8 when the language encoding flag of the
+ * entry is set, and are otherwise decoded as code page 437. The raw bytes of
+ * entry names are kept, so that copied entries retain their names exactly.
+ * <p>
+ * Only simple zip files are supported: Zip files which use Zip64 extensions,
+ * which are split across several disks, which have leading data, or which
+ * contain encrypted entries, are not supported. {@link #open(File)} answers
+ * null for these zip files, and the caller is expected to fall back to
+ * reading the zip file as a stream.
+ */
+public class ZipFileReader implements Closeable {
+	public static final int	LOCAL_SIGNATURE			= 0x04034b50;
+	public static final int	CENTRAL_SIGNATURE		= 0x02014b50;
+	public static final int	END_SIGNATURE			= 0x06054b50;
+	public static final int	ZIP64_LOCATOR_SIGNATURE	= 0x07064b50;
+	public static final int	DESCRIPTOR_SIGNATURE	= 0x08074b50;
+
+	public static final int	LOCAL_HEADER_SIZE		= 30;
+	public static final int	CENTRAL_HEADER_SIZE		= 46;
+	public static final int	END_SIZE				= 22;
+	public static final int	ZIP64_LOCATOR_SIZE		= 20;
+
+	public static final int	MAX_COMMENT_SIZE		= 0xFFFF;
+
+	public static final int	FLAG_ENCRYPTED			= 0x0001;
+	public static final int	FLAG_DESCRIPTOR			= 0x0008;
+	public static final int	FLAG_UTF8				= 0x0800;
+
+	public static final long	MAX_UINT32			= 0xFFFFFFFFL;
+	public static final int		MAX_UINT16			= 0xFFFF;
+
+	/**
+	 * An entry read from the central directory of a zip file.
+	 */
+	public static class Entry {
+		public String	name;
+		/** The encoded name, as read from or as written to the zip file. */
+		public byte[]	nameBytes;
+
+		public int		versionMadeBy;
+		public int		versionNeeded;
+		public int		flags;
+		public int		method;
+		public int		dosTime;
+		public int		dosDate;
+		public long		crc;
+		public long		compressedSize;
+		public long		size;
+		public byte[]	extra;
+		public byte[]	comment;
+		public int		internalAttributes;
+		public long		externalAttributes;
+		public long		localOffset;
+
+		/** Offset of the entry data. Read from the local header, on demand. */
+		public long		dataOffset	= -1L;
+		/** Extra data from the local header. Read on demand. */
+		public byte[]	localExtra;
+
+		public boolean isDirectory() {
+			return name.endsWith("/");
+		}
+
+		@Override
+		public String toString() {
+			return "Entry [ " + name + " ] Method [ " + method + " ] Size [ " + size + " ] Compressed [ "
+				+ compressedSize + " ]";
+		}
+	}
+
+	/**
+	 * Open a zip file for random access reading.
+	 *
+	 * @param file The zip file which is to be read.
+	 * @return A reader for the zip file. Null if the file is not a zip file
+	 *         which is supported for random access reading.
+	 * @throws IOException Thrown if the file could not be read.
+	 */
+	public static ZipFileReader open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			byte[][] comment = new byte[1][];
+			List<Entry> entries = readCentralDirectory(channel, comment);
+			if (entries == null) {
+				channel.close();
+				return null;
+			}
+			return new ZipFileReader(file, channel, entries, comment[0]);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	protected ZipFileReader(File file, FileChannel channel, List<Entry> entries, byte[] comment) {
+		this.file = file;
+		this.channel = channel;
+		this.entries = Collections.unmodifiableList(entries);
+		this.comment = comment;
+	}
+
+	private final File			file;
+	private final FileChannel	channel;
+	private final List<Entry>	entries;
+	private final byte[]		comment;
+
+	public File getFile() {
+		return file;
+	}
+
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Answer the comment of the zip file, as stored in the end record.
+	 *
+	 * @return The comment of the zip file. Empty if the zip file has no
+	 *         comment.
+	 */
+	public byte[] getComment() {
+		return comment;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	//
+
+	protected static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			int actual = channel.read(buffer, position + buffer.position());
+			if (actual == -1) {
+				throw new IOException("Premature end-of-file at [ " + (position + buffer.position()) + " ]");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	protected static int uint16(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset) & 0xFFFF;
+	}
+
+	protected static long uint32(ByteBuffer buffer, int offset) {
+		return buffer.getInt(offset) & MAX_UINT32;
+	}
+
+	/**
+	 * Read the central directory of a zip file.
+	 *
+	 * @param channel The channel of the zip file.
+	 * @param comment Storage for the comment of the zip file.
+	 * @return The entries of the zip file. Null if the zip file is not
+	 *         supported for random access reading.
+	 * @throws IOException Thrown if the central directory could not be read.
+	 */
+	protected static List<Entry> readCentralDirectory(FileChannel channel, byte[][] comment) throws IOException {
+		long fileSize = channel.size();
+		if (fileSize < END_SIZE) {
+			return null;
+		}
+
+		// The end record is at the end of the file, followed by a comment of
+		// at most 64K bytes. Search backwards for the end record signature.
+
+		int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+		long tailPosition = fileSize - tailSize;
+		ByteBuffer tail = readFully(channel, tailPosition, tailSize);
+
+		int endOffset = -1;
+		for (int offset = tailSize - END_SIZE; offset >= 0; offset--) {
+			if ((tail.getInt(offset) == END_SIGNATURE)
+				&& (offset + END_SIZE + uint16(tail, offset + 20) == tailSize)) {
+				endOffset = offset;
+				break;
+			}
+		}
+		if (endOffset == -1) {
+			return null;
+		}
+
+		if ((endOffset >= ZIP64_LOCATOR_SIZE)
+			&& (tail.getInt(endOffset - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE)) {
+			return null; // Zip64 is not supported.
+		}
+
+		int diskNo = uint16(tail, endOffset + 4);
+		int centralDiskNo = uint16(tail, endOffset + 6);
+		int diskEntries = uint16(tail, endOffset + 8);
+		int totalEntries = uint16(tail, endOffset + 10);
+		long centralSize = uint32(tail, endOffset + 12);
+		long centralOffset = uint32(tail, endOffset + 16);
+
+		if ((diskNo != 0) || (centralDiskNo != 0) || (diskEntries != totalEntries)) {
+			return null; // Split archives are not supported.
+		}
+		if ((totalEntries == MAX_UINT16) || (centralSize == MAX_UINT32) || (centralOffset == MAX_UINT32)) {
+			return null; // Zip64 is not supported.
+		}
+
+		long endPosition = tailPosition + endOffset;
+		if (centralOffset + centralSize != endPosition) {
+			return null; // Leading data is not supported.
+		}
+		if (centralSize > FileUtils.MAX_ARRAY_LENGTH) {
+			return null;
+		}
+
+		int zipCommentLength = uint16(tail, endOffset + 20);
+		comment[0] = new byte[zipCommentLength];
+		System.arraycopy(tail.array(), endOffset + END_SIZE, comment[0], 0, zipCommentLength);
+
+		ByteBuffer central = readFully(channel, centralOffset, (int) centralSize);
+
+		List<Entry> entries = new ArrayList<>(totalEntries);
+		int offset = 0;
+		for (int entryNo = 0; entryNo < totalEntries; entryNo++) {
+			if ((offset + CENTRAL_HEADER_SIZE > centralSize) || (central.getInt(offset) != CENTRAL_SIGNATURE)) {
+				throw new IOException("Invalid central directory entry [ " + entryNo + " ] at [ "
+					+ (centralOffset + offset) + " ]");
+			}
+
+			Entry entry = new Entry();
+			entry.versionMadeBy = uint16(central, offset + 4);
+			entry.versionNeeded = uint16(central, offset + 6);
+			entry.flags = uint16(central, offset + 8);
+			entry.method = uint16(central, offset + 10);
+			entry.dosTime = uint16(central, offset + 12);
+			entry.dosDate = uint16(central, offset + 14);
+			entry.crc = uint32(central, offset + 16);
+			entry.compressedSize = uint32(central, offset + 20);
+			entry.size = uint32(central, offset + 24);
+			int nameLength = uint16(central, offset + 28);
+			int extraLength = uint16(central, offset + 30);
+			int commentLength = uint16(central, offset + 32);
+			int entryDiskNo = uint16(central, offset + 34);
+			entry.internalAttributes = uint16(central, offset + 36);
+			entry.externalAttributes = uint32(central, offset + 38);
+			entry.localOffset = uint32(central, offset + 42);
+
+			if ((entry.flags & FLAG_ENCRYPTED) != 0) {
+				return null; // Encryption is not supported.
+			}
+			if ((entryDiskNo != 0) || (entry.compressedSize == MAX_UINT32) || (entry.size == MAX_UINT32)
+				|| (entry.localOffset == MAX_UINT32)) {
+				return null; // Zip64 is not supported.
+			}
+
+			int variableOffset = offset + CENTRAL_HEADER_SIZE;
+			int nextOffset = variableOffset + nameLength + extraLength + commentLength;
+			if (nextOffset > centralSize) {
+				throw new IOException("Invalid central directory entry [ " + entryNo + " ] at [ "
+					+ (centralOffset + offset) + " ]");
+			}
+
+			entry.nameBytes = new byte[nameLength];
+			System.arraycopy(central.array(), variableOffset, entry.nameBytes, 0, nameLength);
+			entry.name = decodeName(entry.nameBytes, entry.flags);
+			entry.extra = new byte[extraLength];
+			System.arraycopy(central.array(), variableOffset + nameLength, entry.extra, 0, extraLength);
+			entry.comment = new byte[commentLength];
+			System.arraycopy(central.array(), variableOffset + nameLength + extraLength, entry.comment, 0,
+				commentLength);
+
+			entries.add(entry);
+			offset = nextOffset;
+		}
+
+		return entries;
+	}
+
+	// Names which are not flagged as UTF-8 are encoded using code page 437,
+	// which matches ASCII for the first 128 characters.
+
+	private static final String CP437_HIGH = "\u00C7\u00FC\u00E9\u00E2\u00E4\u00E0\u00E5\u00E7"
+		+ "\u00EA\u00EB\u00E8\u00EF\u00EE\u00EC\u00C4\u00C5\u00C9\u00E6\u00C6\u00F4\u00F6\u00F2"
+		+ "\u00FB\u00F9\u00FF\u00D6\u00DC\u00A2\u00A3\u00A5\u20A7\u0192\u00E1\u00ED\u00F3\u00FA"
+		+ "\u00F1\u00D1\u00AA\u00BA\u00BF\u2310\u00AC\u00BD\u00BC\u00A1\u00AB\u00BB\u2591\u2592"
+		+ "\u2593\u2502\u2524\u2561\u2562\u2556\u2555\u2563\u2551\u2557\u255D\u255C\u255B\u2510"
+		+ "\u2514\u2534\u252C\u251C\u2500\u253C\u255E\u255F\u255A\u2554\u2569\u2566\u2560\u2550"
+		+ "\u256C\u2567\u2568\u2564\u2565\u2559\u2558\u2552\u2553\u256B\u256A\u2518\u250C\u2588"
+		+ "\u2584\u258C\u2590\u2580\u03B1\u00DF\u0393\u03C0\u03A3\u03C3\u00B5\u03C4\u03A6\u0398"
+		+ "\u03A9\u03B4\u221E\u03C6\u03B5\u2229\u2261\u00B1\u2265\u2264\u2320\u2321\u00F7\u2248"
+		+ "\u00B0\u2219\u00B7\u221A\u207F\u00B2\u25A0\u00A0";
+
+	/**
+	 * Decode the name of an entry.
+	 *
+	 * @param nameBytes The encoded name.
+	 * @param flags The general purpose flags of the entry.
+	 * @return The decoded name.
+	 */
+	public static String decodeName(byte[] nameBytes, int flags) {
+		if ((flags & FLAG_UTF8) != 0) {
+			return new String(nameBytes, UTF_8);
+		}
+
+		int byteNo = 0;
+		while ((byteNo < nameBytes.length) && (nameBytes[byteNo] >= 0)) {
+			byteNo++;
+		}
+		if (byteNo == nameBytes.length) {
+			return new String(nameBytes, ISO_8859_1);
+		}
+
+		char[] chars = new char[nameBytes.length];
+		for (byteNo = 0; byteNo < nameBytes.length; byteNo++) {
+			int b = nameBytes[byteNo] & 0xFF;
+			chars[byteNo] = ((b < 0x80) ? (char) b : CP437_HIGH.charAt(b - 0x80));
+		}
+		return new String(chars);
+	}
+
+	//
+
+	/**
+	 * Locate the data of an entry. This requires a read of the local header of
+	 * the entry, since the local extra data is not necessarily the same as the
+	 * central extra data.
+	 *
+	 * @param entry The entry which is to be located.
+	 * @return The offset to the data of the entry.
+	 * @throws IOException Thrown if the local header could not be read.
+	 */
+	public long getDataOffset(Entry entry) throws IOException {
+		if (entry.dataOffset == -1L) {
+			ByteBuffer local = readFully(channel, entry.localOffset, LOCAL_HEADER_SIZE);
+			if (local.getInt(0) != LOCAL_SIGNATURE) {
+				throw new IOException("Invalid local header [ " + entry.name + " ] at [ " + entry.localOffset + " ]");
+			}
+			int nameLength = uint16(local, 26);
+			int extraLength = uint16(local, 28);
+
+			long extraOffset = entry.localOffset + LOCAL_HEADER_SIZE + nameLength;
+			entry.localExtra = readFully(channel, extraOffset, extraLength).array();
+			entry.dataOffset = extraOffset + extraLength;
+		}
+		return entry.dataOffset;
+	}
+
+	/**
+	 * Answer the local extra data of an entry.
+	 *
+	 * @param entry The entry for which to answer local extra data.
+	 * @return The local extra data of the entry.
+	 * @throws IOException Thrown if the local header could not be read.
+	 */
+	public byte[] getLocalExtra(Entry entry) throws IOException {
+		getDataOffset(entry);
+		return entry.localExtra;
+	}
+
+	/**
+	 * Copy the raw, compressed, data of an entry to a channel.
+	 *
+	 * @param entry The entry which is to be copied.
+	 * @param target The channel to which to copy the entry data.
+	 * @throws IOException Thrown if the copy failed.
+	 */
+	public void transferRaw(Entry entry, WritableByteChannel target) throws IOException {
+		long position = getDataOffset(entry);
+		long remaining = entry.compressedSize;
+		if (position + remaining > channel.size()) {
+			throw new IOException("Premature end-of-file [ " + entry.name + " ] at [ " + channel.size() + " ]");
+		}
+		while (remaining > 0) {
+			long actual = channel.transferTo(position, remaining, target);
+			if (actual <= 0) {
+				// The transfer made no progress: Copy the remaining data
+				// through a buffer.
+				copyRaw(entry, position, remaining, target);
+				return;
+			}
+			position += actual;
+			remaining -= actual;
+		}
+	}
+
+	/**
+	 * Copy raw data of an entry to a channel using reads and writes.
+	 *
+	 * @param entry The entry which is being copied.
+	 * @param position The position of the data which is to be copied.
+	 * @param remaining The length of the data which is to be copied.
+	 * @param target The channel to which to copy the data.
+	 * @throws IOException Thrown if the copy failed, or if the target channel
+	 *             did not accept the data.
+	 */
+	protected void copyRaw(Entry entry, long position, long remaining, WritableByteChannel target)
+		throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(remaining, FileUtils.PAGE_SIZE * 16));
+		while (remaining > 0) {
+			buffer.clear();
+			if (buffer.remaining() > remaining) {
+				buffer.limit((int) remaining);
+			}
+			int actual = channel.read(buffer, position);
+			if (actual == -1) {
+				throw new IOException("Premature end-of-file [ " + entry.name + " ] at [ " + position + " ]");
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				if (target.write(buffer) <= 0) {
+					throw new IOException("Failed to copy [ " + entry.name + " ]: No data was written at [ "
+						+ (position + buffer.position()) + " ]");
+				}
+			}
+			position += actual;
+			remaining -= actual;
+		}
+	}
+
+	/**
+	 * Open a stream of the uncompressed data of an entry. When the data is
+	 * read to its end, the size and CRC of the data are verified against the
+	 * central directory.
+	 *
+	 * @param entry The entry which is to be read.
+	 * @return A stream of the uncompressed data of the entry.
+	 * @throws IOException Thrown if the entry could not be opened.
+	 */
+	public InputStream getInputStream(Entry entry) throws IOException {
+		return new VerifyingInputStream(entry, getRawInputStream(entry));
+	}
+
+	protected InputStream getRawInputStream(Entry entry) throws IOException {
+		long dataOffset = getDataOffset(entry);
+
+		if (entry.method == ZipEntry.STORED) {
+			return new RegionInputStream(channel, dataOffset, entry.compressedSize, false);
+
+		} else if (entry.method == ZipEntry.DEFLATED) {
+			// Raw inflation needs an extra dummy byte at the end of the input.
+			InputStream rawStream = new RegionInputStream(channel, dataOffset, entry.compressedSize, true);
+			Inflater inflater = new Inflater(true);
+			return new InflaterInputStream(rawStream, inflater, FileUtils.PAGE_SIZE) {
+				private boolean isClosed;
+
+				@Override
+				public void close() throws IOException {
+					if (!isClosed) {
+						isClosed = true;
+						inflater.end();
+						super.close();
+					}
+				}
+			};
+
+		} else {
+			throw new IOException("Unsupported compression method [ " + entry.method + " ] for [ " + entry.name + " ]");
+		}
+	}
+
+	/**
+	 * Stream which verifies the size and the CRC of the data of an entry once
+	 * the end of the data is reached.
+	 */
+	protected static class VerifyingInputStream extends InputStream {
+		private final Entry			entry;
+		private final InputStream	inputStream;
+		private final CRC32			crc;
+		private long				size;
+		private boolean				isVerified;
+
+		public VerifyingInputStream(Entry entry, InputStream inputStream) {
+			this.entry = entry;
+			this.inputStream = inputStream;
+			this.crc = new CRC32();
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = inputStream.read();
+			if (b == -1) {
+				verify();
+			} else {
+				crc.update(b);
+				size++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int actual = inputStream.read(bytes, offset, length);
+			if (actual == -1) {
+				verify();
+			} else {
+				crc.update(bytes, offset, actual);
+				size += actual;
+			}
+			return actual;
+		}
+
+		private void verify() throws ZipException {
+			if (isVerified) {
+				return;
+			}
+			isVerified = true;
+			if (size != entry.size) {
+				throw new ZipException(
+					"Invalid size [ " + size + " ] of [ " + entry.name + " ]: Expected [ " + entry.size + " ]");
+			}
+			if (crc.getValue() != entry.crc) {
+				throw new ZipException("Invalid CRC [ " + Long.toHexString(crc.getValue()) + " ] of [ " + entry.name
+					+ " ]: Expected [ " + Long.toHexString(entry.crc) + " ]");
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			return inputStream.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Stream over a region of a file channel. Reads use absolute positions, so
+	 * the position of the channel is not changed.
+	 */
+	protected static class RegionInputStream extends InputStream {
+		private final FileChannel	channel;
+		private long				position;
+		private long				remaining;
+		private boolean				addDummy;
+
+		public RegionInputStream(FileChannel channel, long position, long length, boolean addDummy) {
+			this.channel = channel;
+			this.position = position;
+			this.remaining = length;
+			this.addDummy = addDummy;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			int actual = read(single, 0, 1);
+			return ((actual == -1) ? -1 : (single[0] & 0xFF));
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (remaining <= 0) {
+				if (addDummy) {
+					addDummy = false;
+					bytes[offset] = 0;
+					return 1;
+				}
+				return -1;
+			}
+
+			int requested = (int) Math.min(length, remaining);
+			int actual = channel.read(ByteBuffer.wrap(bytes, offset, requested), position);
+			if (actual == -1) {
+				throw new IOException("Premature end-of-file at [ " + position + " ]");
+			}
+			position += actual;
+			remaining -= actual;
+			return actual;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(Integer.MAX_VALUE, remaining);
+		}
+	}
+}
@@ -0,0 +1,525 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.eclipse.transformer.util.ZipFileReader.Entry;
+
+/**
+ * Writer of zip files to a file channel.
+ * <p>
+ * Entries may be written in three ways: As a raw copy of an entry of a
+ * {@link ZipFileReader}, which copies the compressed bytes of the entry
+ * without decompressing them; as a complete byte array, which is compressed
+ * and written with its sizes in the local header; or as a stream, which is
+ * compressed as it is written and which is followed by a data descriptor.
+ * <p>
+ * Data is written to the channel through a large direct buffer, which avoids
+ * copying the data to a temporary native buffer on each write, and which
+ * keeps the count of writes low. Direct buffers are pooled, as allocating a
+ * direct buffer is expensive. The central directory is assembled in memory
+ * and is written together with the last of the entry data.
+ * <p>
+ * Zip64 extensions are not supported: An {@link IOException} is thrown if the
+ * zip file would require them.
+ */
+public class ZipFileWriter implements Closeable {
+	public static final int	VERSION_STORED		= 10;
+	public static final int	VERSION_DEFLATED	= 20;
+
+	// Lengths of the fixed parts of a central directory entry, and of the
+	// end of central directory record.
+	private static final int	CENTRAL_LENGTH		= 46;
+	private static final int	END_LENGTH			= 22;
+
+	/** Capacity of the direct buffers used to write to the channel. */
+	public static final int	DIRECT_BUFFER_SIZE	= 1024 * 1024;
+	/** Maximum count of direct buffers which are kept for reuse. */
+	public static final int	MAX_POOLED_BUFFERS	= 4;
+
+	private static final BlockingQueue<ByteBuffer> pooledBuffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+	private static ByteBuffer acquireBuffer() {
+		ByteBuffer pooledBuffer = pooledBuffers.poll();
+		if (pooledBuffer == null) {
+			return ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		pooledBuffer.clear();
+		return pooledBuffer;
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		pooledBuffers.offer(buffer); // Discard the buffer if the pool is full.
+	}
+
+	public ZipFileWriter(FileChannel channel) {
+		this.channel = channel;
+		this.buffer = acquireBuffer();
+		this.centralEntries = new ArrayList<>();
+		this.position = 0L;
+		this.comment = new byte[0];
+	}
+
+	private final FileChannel	channel;
+	private ByteBuffer			buffer;
+	private final List<Entry>	centralEntries;
+	private long				position;
+	private byte[]				comment;
+
+	/** The entry which is being written as a stream. */
+	private Entry				streamEntry;
+
+	public long getPosition() {
+		return position;
+	}
+
+	public byte[] getComment() {
+		return comment;
+	}
+
+	/**
+	 * Set the comment of the zip file, which is written in the end record.
+	 *
+	 * @param comment The comment of the zip file. Null for no comment.
+	 */
+	public void setComment(byte[] comment) {
+		if ((comment != null) && (comment.length > ZipFileReader.MAX_COMMENT_SIZE)) {
+			throw new IllegalArgumentException("Comment length [ " + comment.length + " ] exceeds [ "
+				+ ZipFileReader.MAX_COMMENT_SIZE + " ]");
+		}
+		this.comment = ((comment == null) ? new byte[0] : comment);
+	}
+
+	//
+
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void ensure(int needed) throws IOException {
+		if (buffer.remaining() < needed) {
+			flushBuffer();
+		}
+	}
+
+	private void putShort(int value) throws IOException {
+		ensure(2);
+		buffer.putShort((short) value);
+		position += 2;
+	}
+
+	private void putInt(long value) throws IOException {
+		ensure(4);
+		buffer.putInt((int) value);
+		position += 4;
+	}
+
+	private void putBytes(byte[] bytes, int offset, int length) throws IOException {
+		while (length > 0) {
+			ensure(1);
+			int count = Math.min(length, buffer.remaining());
+			buffer.put(bytes, offset, count);
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	private void putBytes(byte[] bytes) throws IOException {
+		putBytes(bytes, 0, bytes.length);
+	}
+
+	private void verifyOffset(String name) throws IOException {
+		if (position >= ZipFileReader.MAX_UINT32) {
+			throw new IOException("Zip64 is not supported: Offset [ " + position + " ] of [ " + name + " ]");
+		}
+	}
+
+	private void writeLocalHeader(Entry entry, byte[] localExtra) throws IOException {
+		byte[] nameBytes = entry.nameBytes;
+
+		putInt(ZipFileReader.LOCAL_SIGNATURE);
+		putShort(entry.versionNeeded);
+		putShort(entry.flags);
+		putShort(entry.method);
+		putShort(entry.dosTime);
+		putShort(entry.dosDate);
+		if ((entry.flags & ZipFileReader.FLAG_DESCRIPTOR) != 0) {
+			putInt(0L);
+			putInt(0L);
+			putInt(0L);
+		} else {
+			putInt(entry.crc);
+			putInt(entry.compressedSize);
+			putInt(entry.size);
+		}
+		putShort(nameBytes.length);
+		putShort(localExtra.length);
+		putBytes(nameBytes);
+		putBytes(localExtra);
+	}
+
+	private static Entry newEntry(String name, Entry template, int method, int flags) {
+		Entry entry = new Entry();
+		entry.name = name;
+		entry.nameBytes = name.getBytes(UTF_8);
+		entry.method = method;
+		entry.versionNeeded = ((method == ZipEntry.STORED) ? VERSION_STORED : VERSION_DEFLATED);
+		entry.versionMadeBy = entry.versionNeeded;
+		entry.flags = ZipFileReader.FLAG_UTF8 | flags;
+		entry.extra = new byte[0];
+		entry.comment = new byte[0];
+
+		if (template != null) {
+			entry.dosTime = template.dosTime;
+			entry.dosDate = template.dosDate;
+		} else {
+			int[] dosTimeAndDate = toDos(System.currentTimeMillis());
+			entry.dosTime = dosTimeAndDate[0];
+			entry.dosDate = dosTimeAndDate[1];
+		}
+		return entry;
+	}
+
+	/**
+	 * Convert a java time to DOS time and date values.
+	 *
+	 * @param javaTime A java time, in milliseconds.
+	 * @return The DOS time and date values of the java time.
+	 */
+	public static int[] toDos(long javaTime) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(javaTime);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980) {
+			return new int[] {
+				0, (1 << 5) | 1
+			};
+		}
+		int dosTime = (calendar.get(Calendar.HOUR_OF_DAY) << 11) | (calendar.get(Calendar.MINUTE) << 5)
+			| (calendar.get(Calendar.SECOND) >> 1);
+		int dosDate = ((year - 1980) << 9) | ((calendar.get(Calendar.MONTH) + 1) << 5)
+			| calendar.get(Calendar.DAY_OF_MONTH);
+		return new int[] {
+			dosTime, dosDate
+		};
+	}
+
+	//
+
+	/**
+	 * Copy an entry from a zip file without decompressing the entry. The
+	 * entry details, including the encoded name, CRC, compression method,
+	 * sizes, times, and attributes, are retained.
+	 *
+	 * @param reader The zip file which contains the entry.
+	 * @param inputEntry The entry which is to be copied.
+	 * @throws IOException Thrown if the copy failed.
+	 */
+	public void copy(ZipFileReader reader, Entry inputEntry) throws IOException {
+		verifyOffset(inputEntry.name);
+
+		byte[] localExtra = reader.getLocalExtra(inputEntry);
+
+		Entry entry = new Entry();
+		entry.name = inputEntry.name;
+		entry.nameBytes = ((inputEntry.nameBytes == null) ? inputEntry.name.getBytes(UTF_8) : inputEntry.nameBytes);
+		entry.versionMadeBy = inputEntry.versionMadeBy;
+		entry.versionNeeded = inputEntry.versionNeeded;
+		// The copy has sizes in the local header: No data descriptor is
+		// written.
+		entry.flags = inputEntry.flags & ~ZipFileReader.FLAG_DESCRIPTOR;
+		entry.method = inputEntry.method;
+		entry.dosTime = inputEntry.dosTime;
+		entry.dosDate = inputEntry.dosDate;
+		entry.crc = inputEntry.crc;
+		entry.compressedSize = inputEntry.compressedSize;
+		entry.size = inputEntry.size;
+		entry.extra = inputEntry.extra;
+		entry.comment = inputEntry.comment;
+		entry.internalAttributes = inputEntry.internalAttributes;
+		entry.externalAttributes = inputEntry.externalAttributes;
+		entry.localOffset = position;
+
+		writeLocalHeader(entry, localExtra);
+
+		flushBuffer();
+		reader.transferRaw(inputEntry, channel);
+		position += inputEntry.compressedSize;
+
+		centralEntries.add(entry);
+	}
+
+	/**
+	 * Write an entry using data which is available as a byte array. The data
+	 * is compressed before writing the entry header.
+	 *
+	 * @param name The name of the entry.
+	 * @param template An entry from which to copy the entry times. Null to use
+	 *            the current time.
+	 * @param data The entry data.
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public void write(String name, Entry template, ByteData data) throws IOException {
+		verifyOffset(name);
+
+		CRC32 crc = new CRC32();
+		crc.update(data.data, data.offset, data.length);
+
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(data.data, data.offset, data.length);
+			deflater.finish();
+
+			byte[] compressed = new byte[Math.max(FileUtils.PAGE_SIZE, data.length + (data.length >> 3) + 64)];
+			int compressedLength = 0;
+			while (!deflater.finished()) {
+				if (compressedLength == compressed.length) {
+					byte[] nextCompressed = new byte[compressed.length * 2];
+					System.arraycopy(compressed, 0, nextCompressed, 0, compressedLength);
+					compressed = nextCompressed;
+				}
+				compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+			}
+
+			Entry entry = newEntry(name, template, ZipEntry.DEFLATED, 0);
+			entry.crc = crc.getValue();
+			entry.size = data.length;
+			entry.compressedSize = compressedLength;
+			entry.localOffset = position;
+
+			writeLocalHeader(entry, entry.extra);
+			putBytes(compressed, 0, compressedLength);
+
+			centralEntries.add(entry);
+
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Start writing an entry as a stream. The entry must be completed by
+	 * closing the returned stream. Closing the returned stream does not close
+	 * the writer.
+	 *
+	 * @param name The name of the entry.
+	 * @param template An entry from which to copy the entry times. Null to use
+	 *            the current time.
+	 * @return A stream to which to write the entry data.
+	 * @throws IOException Thrown if the entry could not be started.
+	 */
+	public OutputStream startEntry(String name, Entry template) throws IOException {
+		if (streamEntry != null) {
+			throw new IOException("Entry [ " + streamEntry.name + " ] was not closed before [ " + name + " ]");
+		}
+		verifyOffset(name);
+
+		Entry entry = newEntry(name, template, ZipEntry.DEFLATED, ZipFileReader.FLAG_DESCRIPTOR);
+		entry.localOffset = position;
+		writeLocalHeader(entry, entry.extra);
+
+		streamEntry = entry;
+
+		return new OutputStream() {
+			private final CRC32		crc				= new CRC32();
+			private final Deflater	deflater		= new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			private final byte[]	compressed		= new byte[FileUtils.PAGE_SIZE * 4];
+			private long			size;
+			private long			compressedSize;
+			private boolean			isClosed;
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] {
+					(byte) b
+				}, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+				if (isClosed) {
+					throw new IOException("Entry [ " + entry.name + " ] is closed");
+				}
+				if (length == 0) {
+					return;
+				}
+				crc.update(bytes, offset, length);
+				size += length;
+				deflater.setInput(bytes, offset, length);
+				while (!deflater.needsInput()) {
+					drain();
+				}
+			}
+
+			private void drain() throws IOException {
+				int count = deflater.deflate(compressed, 0, compressed.length);
+				if (count > 0) {
+					putBytes(compressed, 0, count);
+					compressedSize += count;
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (isClosed) {
+					return;
+				}
+				isClosed = true;
+
+				try {
+					deflater.finish();
+					while (!deflater.finished()) {
+						drain();
+					}
+				} finally {
+					deflater.end();
+				}
+
+				if ((size >= ZipFileReader.MAX_UINT32) || (compressedSize >= ZipFileReader.MAX_UINT32)) {
+					throw new IOException("Zip64 is not supported: Size [ " + size + " ] of [ " + entry.name + " ]");
+				}
+
+				entry.crc = crc.getValue();
+				entry.size = size;
+				entry.compressedSize = compressedSize;
+
+				putInt(ZipFileReader.DESCRIPTOR_SIGNATURE);
+				putInt(entry.crc);
+				putInt(entry.compressedSize);
+				putInt(entry.size);
+
+				centralEntries.add(entry);
+				streamEntry = null;
+			}
+		};
+	}
+
+	/**
+	 * Complete the zip file by writing the central directory. The channel is
+	 * not closed.
+	 *
+	 * @throws IOException Thrown if the central directory could not be
+	 *             written.
+	 */
+	public void finish() throws IOException {
+		if (streamEntry != null) {
+			throw new IOException("Entry [ " + streamEntry.name + " ] was not closed");
+		}
+		if (centralEntries.size() >= ZipFileReader.MAX_UINT16) {
+			throw new IOException("Zip64 is not supported: Entry count [ " + centralEntries.size() + " ]");
+		}
+		verifyOffset("central directory");
+
+		long centralOffset = position;
+
+		long centralLength = END_LENGTH + comment.length;
+		for (Entry entry : centralEntries) {
+			centralLength += CENTRAL_LENGTH + entry.nameBytes.length + entry.extra.length + entry.comment.length;
+		}
+		long centralSize = centralLength - END_LENGTH - comment.length;
+		if (centralOffset + centralSize >= ZipFileReader.MAX_UINT32) {
+			throw new IOException("Zip64 is not supported: Central directory size [ " + centralSize + " ]");
+		}
+
+		// Use the remainder of the buffer when the central directory fits.
+		// Otherwise, write the buffer and the central directory together.
+
+		ByteBuffer central = ((centralLength <= buffer.remaining()) ? buffer
+			: ByteBuffer.allocateDirect((int) centralLength)
+				.order(ByteOrder.LITTLE_ENDIAN));
+
+		for (Entry entry : centralEntries) {
+			byte[] nameBytes = entry.nameBytes;
+
+			central.putInt(ZipFileReader.CENTRAL_SIGNATURE);
+			central.putShort((short) entry.versionMadeBy);
+			central.putShort((short) entry.versionNeeded);
+			central.putShort((short) entry.flags);
+			central.putShort((short) entry.method);
+			central.putShort((short) entry.dosTime);
+			central.putShort((short) entry.dosDate);
+			central.putInt((int) entry.crc);
+			central.putInt((int) entry.compressedSize);
+			central.putInt((int) entry.size);
+			central.putShort((short) nameBytes.length);
+			central.putShort((short) entry.extra.length);
+			central.putShort((short) entry.comment.length);
+			central.putShort((short) 0); // Disk number
+			central.putShort((short) entry.internalAttributes);
+			central.putInt((int) entry.externalAttributes);
+			central.putInt((int) entry.localOffset);
+			central.put(nameBytes);
+			central.put(entry.extra);
+			central.put(entry.comment);
+		}
+
+		central.putInt(ZipFileReader.END_SIGNATURE);
+		central.putShort((short) 0); // Disk number
+		central.putShort((short) 0); // Central directory disk number
+		central.putShort((short) centralEntries.size());
+		central.putShort((short) centralEntries.size());
+		central.putInt((int) centralSize);
+		central.putInt((int) centralOffset);
+		central.putShort((short) comment.length);
+		central.put(comment);
+
+		position += centralLength;
+
+		if (central == buffer) {
+			flushBuffer();
+		} else {
+			buffer.flip();
+			central.flip();
+			ByteBuffer[] buffers = new ByteBuffer[] {
+				buffer, central
+			};
+			while (central.hasRemaining()) {
+				channel.write(buffers);
+			}
+			buffer.clear();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			channel.close();
+		} finally {
+			if (buffer != null) {
+				releaseBuffer(buffer);
+				buffer = null;
+			}
+		}
+	}
+}
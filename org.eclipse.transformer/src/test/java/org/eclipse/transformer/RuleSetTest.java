@@ -0,0 +1,116 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.action.BundleData;
+import org.eclipse.transformer.action.impl.BundleDataImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RuleSetTest {
+	Logger logger = LoggerFactory.getLogger(RuleSetTest.class);
+
+	RuleSet createRuleSet(Map<String, String> renames) {
+		return new RuleSet(logger, null, null, false, renames, null, null, null, null, null, null);
+	}
+
+	@Test
+	public void rule_data() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.ejb.*", "jakarta.ejb");
+
+		Map<String, String> orderedRenames = new LinkedHashMap<>();
+		orderedRenames.put("javax.ejb.*", "jakarta.ejb");
+		orderedRenames.put("javax.servlet", "jakarta.servlet");
+
+		RuleSet ruleSet = createRuleSet(renames);
+		assertThat(ruleSet.getFingerprint()).isEqualTo(createRuleSet(orderedRenames).getFingerprint())
+			.isNotEqualTo(createRuleSet(Collections.singletonMap("javax.servlet", "jakarta.servlet"))
+				.getFingerprint());
+
+		// The rules data is copied, and cannot be modified.
+		renames.clear();
+		assertThat(ruleSet.getPackageRenames()).containsOnlyKeys("javax.servlet", "javax.ejb.*");
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> ruleSet.getPackageRenames()
+			.put("javax.jms", "jakarta.jms"));
+		assertThat(ruleSet.getSignatureRule()
+			.replacePackage("javax.ejb.spi")).isEqualTo("jakarta.ejb.spi");
+	}
+
+	@Test
+	public void compiled_rules(@TempDir Path tempDir) throws Exception {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.ejb.*", "jakarta.ejb");
+		Map<String, BundleData> bundles = Collections.singletonMap("com.acme.web",
+			new BundleDataImpl("com.acme.web.jakarta", "2.0", true, " Jakarta", false, "Acme web \u00e9dition"));
+		Map<String, Map<String, String>> textUpdates = Collections.singletonMap("*.xml",
+			Collections.singletonMap("javax.servlet", "jakarta.servlet"));
+
+		RuleSet ruleSet = new RuleSet(logger, Collections.singleton("*.jar"), Collections.emptySet(), true, renames,
+			Collections.singletonMap("jakarta.servlet", "[5.0,6)"), bundles,
+			Collections.singletonMap("*.xml", "servlet.properties"), textUpdates, null, null);
+
+		File rulesFile = tempDir.resolve("jakarta" + RuleSetFile.EXTENSION)
+			.toFile();
+		RuleSetFile.write(ruleSet, rulesFile);
+
+		RuleSet compiledRuleSet = RuleSetFile.read(logger, rulesFile);
+		assertThat(compiledRuleSet.getFingerprint()).isEqualTo(ruleSet.getFingerprint());
+		assertThat(compiledRuleSet.isInvert()).isTrue();
+		assertThat(compiledRuleSet.getIncludes()).containsExactly("*.jar");
+		assertThat(compiledRuleSet.getExcludes()).isEmpty();
+		assertThat(compiledRuleSet.getPackageRenames()).isEqualTo(renames);
+		assertThat(compiledRuleSet.getBundleUpdates()
+			.get("com.acme.web")
+			.getPrintString()).isEqualTo(bundles.get("com.acme.web")
+				.getPrintString());
+		assertThat(compiledRuleSet.getMasterTextUpdates()).isEqualTo(textUpdates);
+		assertThat(compiledRuleSet.getDirectStrings()).isNull();
+		assertThat(compiledRuleSet.getSignatureRule()
+			.replacePackage("javax.ejb.spi")).isEqualTo("jakarta.ejb.spi");
+
+		// A file which was read may be compiled again.
+		RuleSetFile.write(compiledRuleSet, rulesFile);
+		assertThat(RuleSetFile.read(logger, rulesFile)
+			.getFingerprint()).isEqualTo(ruleSet.getFingerprint());
+
+		// Truncated and foreign files are rejected.
+		byte[] rulesBytes = Files.readAllBytes(rulesFile.toPath());
+		File truncatedFile = tempDir.resolve("truncated" + RuleSetFile.EXTENSION)
+			.toFile();
+		Files.write(truncatedFile.toPath(), Arrays.copyOf(rulesBytes, rulesBytes.length - 1));
+		assertThatExceptionOfType(IOException.class).isThrownBy(() -> RuleSetFile.read(logger, truncatedFile));
+		File foreignFile = tempDir.resolve("foreign" + RuleSetFile.EXTENSION)
+			.toFile();
+		Files.write(foreignFile.toPath(), "javax.servlet=jakarta.servlet".getBytes(UTF_8));
+		assertThatExceptionOfType(IOException.class).isThrownBy(() -> RuleSetFile.read(logger, foreignFile))
+			.withMessageContaining("Not a compiled rules file");
+	}
+}
@@ -16,6 +16,7 @@ import static org.assertj.core.api.Assertions.fail;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -26,21 +27,31 @@ import java.util.stream.Stream;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.assertj.core.api.recursive.comparison.RecursiveComparisonConfiguration;
 import org.eclipse.transformer.action.Action;
+import org.eclipse.transformer.util.ByteData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import aQute.bnd.classfile.AnnotationInfo;
 import aQute.bnd.classfile.Attribute;
 import aQute.bnd.classfile.ClassFile;
+import aQute.bnd.classfile.ConstantValueAttribute;
 import aQute.bnd.classfile.ElementInfo;
+import aQute.bnd.classfile.ElementValueInfo;
 import aQute.bnd.classfile.EnclosingMethodAttribute;
+import aQute.bnd.classfile.ExceptionsAttribute;
+import aQute.bnd.classfile.FieldInfo;
+import aQute.bnd.classfile.MethodInfo;
 import aQute.bnd.classfile.ModuleAttribute;
 import aQute.bnd.classfile.ModuleMainClassAttribute;
 import aQute.bnd.classfile.ModulePackagesAttribute;
 import aQute.bnd.classfile.NestHostAttribute;
 import aQute.bnd.classfile.NestMembersAttribute;
+import aQute.bnd.classfile.RuntimeVisibleAnnotationsAttribute;
+import aQute.bnd.classfile.SignatureAttribute;
+import aQute.bnd.classfile.UnrecognizedAttribute;
 import aQute.bnd.classfile.builder.ClassFileBuilder;
 import aQute.bnd.classfile.builder.ModuleInfoBuilder;
 import aQute.lib.io.ByteBufferDataInput;
@@ -272,4 +283,143 @@ public class ClassActionTest {
 
 	}
 
+
+	@Test
+	public void constant_pool_prescan() throws Exception {
+		ClassFileBuilder builder = new ClassFileBuilder(Modifier.PUBLIC, ClassFile.MAJOR_VERSION, 0, "scan/Test",
+			"original/base/Base");
+		builder.attributes(new NestHostAttribute("other/host/NestHost"));
+		ByteBufferDataOutput dataOutput = new ByteBufferDataOutput();
+		builder.build()
+			.write(dataOutput);
+		byte[] classBytes = dataOutput.toByteArray();
+
+		assertThat(new ConstantPoolScanner(Arrays.asList("original/base")).matches(classBytes, 0, classBytes.length))
+			.as("scan for referenced package")
+			.isTrue();
+		assertThat(new ConstantPoolScanner(Arrays.asList("other/host")).matches(classBytes, 0, classBytes.length))
+			.as("scan for attribute package")
+			.isTrue();
+		assertThat(new ConstantPoolScanner(Arrays.asList("original.base", "unused/pkg")).matches(classBytes, 0,
+			classBytes.length))
+			.as("scan for unreferenced packages")
+			.isFalse();
+
+		// A class which has no matching constants is passed through.
+
+		Map<String, String> renames = new HashMap<>();
+		renames.put("unused.pkg", "transformed.pkg");
+		ClassActionImpl classAction = new ClassActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, Collections.emptyMap()));
+		ByteData inputData = new ByteData(testName, classBytes);
+		assertThat(classAction.apply(testName, inputData)).as("unchanged class")
+			.isSameAs(inputData);
+		assertThat(classAction.hadChanges()).as("unchanged class changes")
+			.isFalse();
+	}
+
+	@Test
+	public void constant_pool_rewrite() throws Exception {
+		// The annotation value and the constant value share a UTF8 constant,
+		// but only the constant value is transformed.
+
+		ClassFileBuilder builder = new ClassFileBuilder(Modifier.PUBLIC | Modifier.ABSTRACT, ClassFile.MAJOR_VERSION,
+			0, "rewrite/Test", "original/pkg/Base", "original/pkg/Api");
+		builder.fields(new FieldInfo(Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL, "NAME",
+			"Ljava/lang/String;", new Attribute[] {
+				new ConstantValueAttribute("original.pkg.Foo")
+			}));
+		builder.fields(new FieldInfo(Modifier.PRIVATE, "foos", "Ljava/util/List;", new Attribute[] {
+			new SignatureAttribute("Ljava/util/List<Loriginal/pkg/Foo;>;")
+		}));
+		builder.methods(new MethodInfo(Modifier.PUBLIC | Modifier.ABSTRACT, "run", "(Loriginal/pkg/Foo;)V",
+			new Attribute[] {
+				new ExceptionsAttribute(new String[] {
+					"original/pkg/Failure"
+				})
+			}));
+		builder.attributes(new RuntimeVisibleAnnotationsAttribute(new AnnotationInfo[] {
+			new AnnotationInfo("Loriginal/pkg/Anno;", new ElementValueInfo[] {
+				new ElementValueInfo("value", "original.pkg.Foo")
+			})
+		}));
+		ByteBufferDataOutput dataOutput = new ByteBufferDataOutput();
+		builder.build()
+			.write(dataOutput);
+		byte[] classBytes = dataOutput.toByteArray();
+
+		ClassActionImpl classAction = newRewriteAction();
+		assertThat(ConstantPoolRewriter.scan(classAction, testName, classBytes, classBytes.length))
+			.as("rewriter of known attributes")
+			.isNotNull();
+
+		ClassFile rewritten = assertRewrite(classBytes);
+
+		assertThat(rewritten.super_class).as("rewritten super class")
+			.isEqualTo("transformed/pkg/Base");
+		assertThat(rewritten.methods[0].descriptor).as("rewritten method descriptor")
+			.isEqualTo("(Ltransformed/pkg/Foo;)V");
+		assertThat(attribute(ConstantValueAttribute.class, rewritten.fields[0])).as("rewritten constant value")
+			.get()
+			.extracting(attribute -> attribute.value)
+			.isEqualTo("transformed.pkg.Foo");
+		assertThat(attribute(RuntimeVisibleAnnotationsAttribute.class, rewritten)).as("rewritten annotation")
+			.get()
+			.extracting(attribute -> attribute.annotations[0].values[0].value)
+			.isEqualTo("original.pkg.Foo");
+
+		// A class which has an unknown attribute is fully transformed.
+
+		builder.attributes(new UnrecognizedAttribute("Unknown", ByteBuffer.wrap(new byte[] {
+			0, 1
+		})));
+		dataOutput = new ByteBufferDataOutput();
+		builder.build()
+			.write(dataOutput);
+		classBytes = dataOutput.toByteArray();
+
+		assertThat(ConstantPoolRewriter.scan(classAction, testName, classBytes, classBytes.length))
+			.as("rewriter of unknown attribute")
+			.isNull();
+
+		assertRewrite(classBytes);
+	}
+
+	private ClassActionImpl newRewriteAction() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("original.pkg", "transformed.pkg");
+		return new ClassActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, Collections.emptyMap()));
+	}
+
+	// Transform class bytes by rewriting the constant pool, and by the full
+	// transformation, and verify that the results are the same.
+
+	private ClassFile assertRewrite(byte[] classBytes) throws Exception {
+		ClassActionImpl rewriteAction = newRewriteAction();
+		ByteData rewrittenData = rewriteAction.apply(testName, new ByteData(testName, classBytes));
+
+		ClassActionImpl fullAction = newRewriteAction();
+		fullAction.setRewriteConstants(false);
+		ByteData transformedData = fullAction.apply(testName, new ByteData(testName, classBytes));
+
+		ClassFile rewritten = ClassFile.parseClassFile(
+			ByteBufferDataInput.wrap(rewrittenData.data, rewrittenData.offset, rewrittenData.length));
+		ClassFile transformed = ClassFile.parseClassFile(
+			ByteBufferDataInput.wrap(transformedData.data, transformedData.offset, transformedData.length));
+
+		assertThat(rewritten).as("rewritten class")
+			.usingRecursiveComparison()
+			.ignoringFields("constant_pool")
+			.isEqualTo(transformed);
+		assertThat(rewriteAction.getLastActiveChanges()).as("rewritten class changes")
+			.usingRecursiveComparison()
+			.ignoringFields("readNanos", "transformNanos", "writeNanos", "inputLength", "outputLength",
+				"allocatedBytes")
+			.isEqualTo(fullAction.getLastActiveChanges());
+
+		return rewritten;
+	}
 }
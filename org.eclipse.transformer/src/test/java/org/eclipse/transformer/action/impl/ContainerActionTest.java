@@ -0,0 +1,504 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ContainerActionTest {
+	Logger	logger;
+	String	testName;
+
+	@BeforeEach
+	public void setUp(TestInfo testInfo) {
+		testName = testInfo.getTestClass()
+			.map(Class::getName)
+			.get() + "."
+			+ testInfo.getTestMethod()
+				.map(Method::getName)
+				.get();
+		logger = LoggerFactory.getLogger(testName);
+	}
+
+	JarActionImpl createJarAction() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+
+		CompositeActionImpl rootAction = new CompositeActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, Collections.emptyMap()));
+
+		JarActionImpl jarAction = rootAction.addUsing(JarActionImpl::new);
+		ServiceLoaderConfigActionImpl serviceConfigAction = rootAction.addUsing(ServiceLoaderConfigActionImpl::new);
+		jarAction.addAction(serviceConfigAction);
+		return jarAction;
+	}
+
+	void setTimed(ContainerActionImpl containerAction) {
+		if (containerAction.isTimed()) {
+			return; // Containers may contain themselves.
+		}
+		containerAction.setTimed(true);
+		for (ActionImpl action : containerAction.getActions()) {
+			if (action instanceof ContainerActionImpl) {
+				setTimed((ContainerActionImpl) action);
+			} else {
+				action.setTimed(true);
+			}
+		}
+	}
+
+	byte[] createJar(int entries) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+			for (int entryNo = 0; entryNo < entries; entryNo++) {
+				zipOutput.putNextEntry(new ZipEntry("META-INF/services/javax.servlet.Service" + entryNo));
+				zipOutput.write(("javax.servlet.ServiceImpl" + entryNo + "\n").getBytes(UTF_8));
+				zipOutput.closeEntry();
+
+				zipOutput.putNextEntry(new ZipEntry("data/entry" + entryNo + ".bin"));
+				zipOutput.write(new byte[] {
+					(byte) entryNo
+				});
+				zipOutput.closeEntry();
+			}
+		}
+		return output.toByteArray();
+	}
+
+	Map<String, String> readJar(byte[] jarBytes) throws Exception {
+		Map<String, String> entries = new LinkedHashMap<>();
+		try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(jarBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInput.getNextEntry()) != null) {
+				entries.put(entry.getName(), new String(FileUtils.read(entry.getName(), zipInput).data, UTF_8).trim());
+			}
+		}
+		return entries;
+	}
+
+	byte[] transform(JarActionImpl jarAction, byte[] jarBytes) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		jarAction.apply("test.jar", new ByteArrayInputStream(jarBytes), jarBytes.length, output);
+		return output.toByteArray();
+	}
+
+	@Test
+	public void parallel_transform() throws Exception {
+		byte[] jarBytes = createJar(50);
+
+		JarActionImpl serialAction = createJarAction();
+		Map<String, String> serialEntries = readJar(transform(serialAction, jarBytes));
+
+		JarActionImpl parallelAction = createJarAction();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			parallelAction.setExecutor(executor, 8);
+			Map<String, String> parallelEntries = readJar(transform(parallelAction, jarBytes));
+
+			assertThat(parallelEntries).containsExactlyEntriesOf(serialEntries);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(serialEntries).containsEntry("META-INF/services/jakarta.servlet.Service7",
+			"jakarta.servlet.ServiceImpl7");
+
+		ContainerChangesImpl serialChanges = serialAction.getLastActiveChanges();
+		ContainerChangesImpl parallelChanges = parallelAction.getLastActiveChanges();
+		assertThat(parallelChanges.getAllResources()).isEqualTo(serialChanges.getAllResources())
+			.isEqualTo(100);
+		assertThat(parallelChanges.getAllChanged()).isEqualTo(serialChanges.getAllChanged())
+			.isEqualTo(50);
+		assertThat(parallelChanges.getAllUnselected()).isEqualTo(serialChanges.getAllUnselected());
+	}
+
+	@Test
+	public void timings(@TempDir Path tempDir) throws Exception {
+		byte[] jarBytes = createJar(30);
+		File inputFile = tempDir.resolve("input.jar")
+			.toFile();
+		Files.write(inputFile.toPath(), jarBytes);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int pass = 0; pass < 3; pass++) {
+				JarActionImpl jarAction = createJarAction();
+				setTimed(jarAction);
+				if (pass == 1) {
+					jarAction.setExecutor(executor, 8);
+				}
+
+				if (pass == 2) {
+					transform(jarAction, jarBytes);
+				} else {
+					jarAction.apply("input.jar", inputFile, tempDir.resolve("output" + pass + ".jar")
+						.toFile());
+				}
+
+				ActionTimings timings = jarAction.getLastActiveChanges()
+					.getTimings();
+				Map<String, ActionTimings.Totals> totals = timings.getTotalsByAction();
+				assertThat(totals).containsOnlyKeys(ActionTimings.COPY_ACTION_NAME, "Service Config Action");
+				assertThat(totals.get(ActionTimings.COPY_ACTION_NAME)
+					.getCount()).isEqualTo(30);
+
+				ActionTimings.Totals serviceTotals = totals.get("Service Config Action");
+				assertThat(serviceTotals.getCount()).isEqualTo(30);
+				assertThat(serviceTotals.getTransformNanos()).isPositive();
+				assertThat(serviceTotals.getInputLength()).isPositive();
+				assertThat(serviceTotals.getOutputLength()).isEqualTo(serviceTotals.getInputLength() + 30 * 2);
+
+				assertThat(timings.getSlowest()).hasSize(ActionTimings.SLOWEST_COUNT)
+					.isSortedAccordingTo((ActionTimings.Entry e1, ActionTimings.Entry e2) -> Long
+						.compare(e2.getTotalNanos(), e1.getTotalNanos()));
+
+				StringBuilder json = new StringBuilder();
+				jarAction.getLastActiveChanges()
+					.writeTimings(json, "input.jar", "output.jar");
+				assertThat(json.toString()).startsWith("{\"input\":\"input.jar\",\"output\":\"output.jar\"")
+					.contains("{\"action\":\"Service Config Action\",\"count\":30,");
+			}
+
+			// Timings are only recorded when requested.
+			JarActionImpl untimedAction = createJarAction();
+			untimedAction.setExecutor(executor, 8);
+			untimedAction.apply("input.jar", inputFile, tempDir.resolve("untimed.jar")
+				.toFile());
+			assertThat(untimedAction.getLastActiveChanges()
+				.getTimings()
+				.isEmpty()).isTrue();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void file_transform(@TempDir Path tempDir) throws Exception {
+		byte[] jarBytes = createJar(20);
+
+		// Add a stored entry with a fixed time, to verify that unchanged
+		// entries are copied as is.
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutput = new ZipOutputStream(output);
+			ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(jarBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInput.getNextEntry()) != null) {
+				zipOutput.putNextEntry(new ZipEntry(entry.getName()));
+				FileUtils.transfer(zipInput, zipOutput);
+				zipOutput.closeEntry();
+			}
+
+			byte[] storedBytes = "stored data".getBytes(UTF_8);
+			CRC32 crc = new CRC32();
+			crc.update(storedBytes);
+			ZipEntry storedEntry = new ZipEntry("data/stored.txt");
+			storedEntry.setMethod(ZipEntry.STORED);
+			storedEntry.setSize(storedBytes.length);
+			storedEntry.setCrc(crc.getValue());
+			storedEntry.setTime(315532800000L + 86400000L);
+			zipOutput.putNextEntry(storedEntry);
+			zipOutput.write(storedBytes);
+			zipOutput.closeEntry();
+		}
+		jarBytes = output.toByteArray();
+
+		File inputFile = tempDir.resolve("input.jar")
+			.toFile();
+		Files.write(inputFile.toPath(), jarBytes);
+
+		Map<String, String> streamEntries = readJar(transform(createJarAction(), jarBytes));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int pass = 0; pass < 2; pass++) {
+				JarActionImpl jarAction = createJarAction();
+				if (pass == 1) {
+					jarAction.setExecutor(executor, 8);
+				}
+
+				File outputFile = tempDir.resolve("output" + pass + ".jar")
+					.toFile();
+				jarAction.apply("input.jar", inputFile, outputFile);
+
+				Map<String, String> fileEntries = readJar(Files.readAllBytes(outputFile.toPath()));
+				assertThat(fileEntries).containsExactlyEntriesOf(streamEntries);
+
+				ContainerChangesImpl changes = jarAction.getLastActiveChanges();
+				assertThat(changes.getAllResources()).isEqualTo(41);
+				assertThat(changes.getAllChanged()).isEqualTo(20);
+
+				try (ZipFile inputZip = new ZipFile(inputFile); ZipFile outputZip = new ZipFile(outputFile)) {
+					ZipEntry inputEntry = inputZip.getEntry("data/stored.txt");
+					ZipEntry outputEntry = outputZip.getEntry("data/stored.txt");
+					assertThat(outputEntry.getMethod()).isEqualTo(ZipEntry.STORED);
+					assertThat(outputEntry.getTime()).isEqualTo(inputEntry.getTime());
+					assertThat(outputEntry.getCrc()).isEqualTo(inputEntry.getCrc());
+
+					inputEntry = inputZip.getEntry("data/entry3.bin");
+					outputEntry = outputZip.getEntry("data/entry3.bin");
+					assertThat(outputEntry.getCompressedSize()).isEqualTo(inputEntry.getCompressedSize());
+					assertThat(outputEntry.getCrc()).isEqualTo(inputEntry.getCrc());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	JarActionImpl createTextJarAction(long streamThreshold) {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+
+		CompositeActionImpl rootAction = new CompositeActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(logger, renames, null, null, Collections.singletonMap("*.txt", renames), null,
+				Collections.emptyMap()));
+
+		JarActionImpl jarAction = rootAction.addUsing(JarActionImpl::new);
+		TextActionImpl textAction = rootAction.addUsing(TextActionImpl::new);
+		textAction.setStreamThreshold(streamThreshold);
+		jarAction.addAction(textAction);
+		return jarAction;
+	}
+
+	@Test
+	public void stream_transform(@TempDir Path tempDir) throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int lineNo = 0; lineNo < 2000; lineNo++) {
+			text.append("Line ")
+				.append(lineNo)
+				.append(" uses javax.servlet.Servlet")
+				.append(lineNo)
+				.append(" and javax.servlet.http")
+				.append((lineNo % 3 == 0) ? "\r\n" : "\n");
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+			zipOutput.putNextEntry(new ZipEntry("text/large.txt"));
+			zipOutput.write(text.toString()
+				.getBytes(UTF_8));
+			zipOutput.closeEntry();
+
+			zipOutput.putNextEntry(new ZipEntry("text/small.txt"));
+			zipOutput.write("javax.servlet.Filter".getBytes(UTF_8));
+			zipOutput.closeEntry();
+		}
+		byte[] jarBytes = output.toByteArray();
+
+		File inputFile = tempDir.resolve("input.jar")
+			.toFile();
+		Files.write(inputFile.toPath(), jarBytes);
+
+		// Without a threshold, entries are transformed in memory. Line
+		// terminators are kept, the same as when entries are streamed.
+		Map<String, String> expectedEntries = readJar(transform(createTextJarAction(-1L), jarBytes));
+		assertThat(expectedEntries.get("text/large.txt")).contains("jakarta.servlet.Servlet1999")
+			.contains("jakarta.servlet.http\r\nLine 1 ")
+			.doesNotContain("javax.servlet");
+		assertThat(expectedEntries.get("text/small.txt")).isEqualTo("jakarta.servlet.Filter");
+
+		JarActionImpl streamAction = createTextJarAction(1024L);
+		Map<String, String> streamEntries = readJar(transform(streamAction, jarBytes));
+		assertThat(streamEntries).containsExactlyEntriesOf(expectedEntries);
+
+		JarActionImpl fileAction = createTextJarAction(1024L);
+		File outputFile = tempDir.resolve("output.jar")
+			.toFile();
+		fileAction.apply("input.jar", inputFile, outputFile);
+		assertThat(readJar(Files.readAllBytes(outputFile.toPath()))).containsExactlyEntriesOf(expectedEntries);
+
+		for (JarActionImpl jarAction : new JarActionImpl[] {
+			streamAction, fileAction
+		}) {
+			ContainerChangesImpl changes = jarAction.getLastActiveChanges();
+			assertThat(changes.getAllResources()).isEqualTo(2);
+			assertThat(changes.getAllChanged()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	public void changes_summary() throws Exception {
+		JarActionImpl jarAction = createJarAction();
+		transform(jarAction, createJar(10));
+		ContainerChangesImpl changes = jarAction.getLastActiveChanges();
+
+		// The summary of changes is stored with cached outputs.
+		Properties summary = new Properties();
+		changes.storeSummary(summary);
+
+		ContainerChangesImpl restoredChanges = ContainerChangesImpl.loadSummary(summary);
+		assertThat(restoredChanges.getAllResources()).isEqualTo(changes.getAllResources())
+			.isEqualTo(20);
+		assertThat(restoredChanges.getAllChanged()).isEqualTo(changes.getAllChanged())
+			.isEqualTo(10);
+		assertThat(restoredChanges.getChanged("Service Config Action")).isEqualTo(10);
+		assertThat(restoredChanges.getUnchangedByAction()).containsOnlyKeys(changes.getUnchangedByAction()
+			.keySet());
+		assertThat(restoredChanges.hasNestedChanges()).isEqualTo(changes.hasNestedChanges());
+	}
+
+	@Test
+	public void nested_memo(@TempDir Path tempDir) throws Exception {
+		byte[] nestedBytes = createJar(5);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+			for (String nestedName : new String[] {
+				"lib/a.jar", "lib/b.jar", "other/a.jar"
+			}) {
+				zipOutput.putNextEntry(new ZipEntry(nestedName));
+				zipOutput.write(nestedBytes);
+				zipOutput.closeEntry();
+			}
+		}
+		byte[] zipBytes = output.toByteArray();
+
+		File inputFile = tempDir.resolve("input.zip")
+			.toFile();
+		Files.write(inputFile.toPath(), zipBytes);
+
+		ContainerChangesImpl[] allChanges = new ContainerChangesImpl[3];
+		byte[][] allOutputs = new byte[3][];
+
+		for (int pass = 0; pass < 3; pass++) {
+			JarActionImpl jarAction = createJarAction();
+			ZipActionImpl zipAction = jarAction.getAction()
+				.addUsing(ZipActionImpl::new);
+			zipAction.addAction(jarAction);
+			setTimed(zipAction);
+
+			NestedArchiveMemo memo = null;
+			if (pass > 0) {
+				memo = new NestedArchiveMemo();
+				zipAction.setNestedMemo(memo);
+			}
+
+			if (pass < 2) {
+				ByteArrayOutputStream zipOutput = new ByteArrayOutputStream();
+				zipAction.apply("input.zip", new ByteArrayInputStream(zipBytes), zipBytes.length, zipOutput);
+				allOutputs[pass] = zipOutput.toByteArray();
+			} else {
+				File outputFile = tempDir.resolve("output.zip")
+					.toFile();
+				zipAction.apply("input.zip", inputFile, outputFile);
+				allOutputs[pass] = Files.readAllBytes(outputFile.toPath());
+			}
+			allChanges[pass] = zipAction.getLastActiveChanges();
+
+			if (memo != null) {
+				assertThat(memo.size()).isEqualTo(1);
+				assertThat(memo.getHits()).isEqualTo(2);
+				assertThat(memo.getMisses()).isEqualTo(1);
+			}
+		}
+
+		assertThat(allOutputs[1]).isEqualTo(allOutputs[0]);
+
+		Map<String, String> expectedNested = readJar(transform(createJarAction(), nestedBytes));
+		for (int pass = 0; pass < 3; pass++) {
+			long outputLength = 0L;
+			try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(allOutputs[pass]))) {
+				ZipEntry entry;
+				while ((entry = zipInput.getNextEntry()) != null) {
+					ByteData entryData = FileUtils.read(entry.getName(), zipInput);
+					assertThat(readJar(Arrays.copyOf(entryData.data, entryData.length)))
+						.containsExactlyEntriesOf(expectedNested);
+					outputLength += entryData.length;
+				}
+			}
+
+			// Nested archives are timed with the length which was written.
+			assertThat(allChanges[pass].getTimings()
+				.getAllTotals()
+				.getOutputLength()).isEqualTo(outputLength);
+		}
+
+		for (ContainerChangesImpl changes : allChanges) {
+			assertThat(changes.getAllResources()).isEqualTo(3);
+			assertThat(changes.getAllChanged()).isEqualTo(3);
+			assertThat(changes.getNestedChanges()
+				.getAllResources()).isEqualTo(30);
+			assertThat(changes.getNestedChanges()
+				.getAllChanged()).isEqualTo(15);
+		}
+	}
+
+	@Test
+	public void pooled_entries() throws Exception {
+		// Entries which are transformed by the executor are read into pooled
+		// buffers, which are reused by later entries.
+		JarActionImpl jarAction = createJarAction();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			jarAction.setExecutor(executor, 4);
+			byte[] jarBytes = createJar(50);
+			assertThat(readJar(transform(jarAction, jarBytes)))
+				.containsExactlyEntriesOf(readJar(transform(createJarAction(), jarBytes)));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(jarAction.getBuffer()
+			.getReuses()).isGreaterThan(50);
+
+		// Pooled buffers are released when an entry fails to be written.
+		JarActionImpl failAction = createJarAction();
+		byte[] entryBuffer = failAction.getBuffer()
+			.takeBuffer(100);
+		long retainedLength = failAction.getBuffer()
+			.getRetainedLength();
+		ByteData entryData = new ByteData("entry.txt", entryBuffer, 0, 10);
+		ContainerActionImpl.PendingEntry pending = new ContainerActionImpl.PendingEntry("entry.txt", null, null, 0L,
+			CompletableFuture.completedFuture(
+				new ContainerActionImpl.EntryResult(entryData, entryData, null, false, null, null)));
+		assertThatExceptionOfType(IOException.class).isThrownBy(() -> failAction.complete("test.jar", pending,
+			(ContainerActionImpl.PendingEntry failPending, ContainerActionImpl.EntryResult failResult) -> {
+				throw new IOException("Write failure");
+			}));
+		assertThat(failAction.getBuffer()
+			.getRetainedLength()).isEqualTo(retainedLength + entryBuffer.length);
+	}
+}
@@ -0,0 +1,313 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DirectoryActionTest {
+	Logger	logger;
+	String	testName;
+
+	@BeforeEach
+	public void setUp(TestInfo testInfo) {
+		testName = testInfo.getTestClass()
+			.map(Class::getName)
+			.get() + "."
+			+ testInfo.getTestMethod()
+				.map(Method::getName)
+				.get();
+		logger = LoggerFactory.getLogger(testName);
+	}
+
+	byte[] createJar(int entries) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+			for (int entryNo = 0; entryNo < entries; entryNo++) {
+				zipOutput.putNextEntry(new ZipEntry("META-INF/services/javax.servlet.Service" + entryNo));
+				zipOutput.write(("javax.servlet.ServiceImpl" + entryNo + "\n").getBytes(UTF_8));
+				zipOutput.closeEntry();
+
+				zipOutput.putNextEntry(new ZipEntry("data/entry" + entryNo + ".bin"));
+				zipOutput.write(new byte[] {
+					(byte) entryNo
+				});
+				zipOutput.closeEntry();
+			}
+		}
+		return output.toByteArray();
+	}
+
+	Map<String, String> readJar(byte[] jarBytes) throws Exception {
+		Map<String, String> entries = new LinkedHashMap<>();
+		try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(jarBytes))) {
+			ZipEntry entry;
+			while ((entry = zipInput.getNextEntry()) != null) {
+				entries.put(entry.getName(), new String(FileUtils.read(entry.getName(), zipInput).data, UTF_8).trim());
+			}
+		}
+		return entries;
+	}
+
+	DirectoryActionImpl createDirectoryAction() {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+
+		CompositeActionImpl rootAction = new CompositeActionImpl(logger, false, false, new InputBufferImpl(),
+			new SelectionRuleImpl(logger, Collections.emptySet(), Collections.emptySet()),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, Collections.emptyMap()));
+
+		JarActionImpl jarAction = rootAction.addUsing(JarActionImpl::new);
+		jarAction.addAction(rootAction.addUsing(ServiceLoaderConfigActionImpl::new));
+
+		DirectoryActionImpl directoryAction = rootAction.addUsing(DirectoryActionImpl::new);
+		directoryAction.addAction(rootAction.addUsing(ServiceLoaderConfigActionImpl::new));
+		directoryAction.addAction(jarAction);
+		return directoryAction;
+	}
+
+	Map<String, String> readDirectory(Path root) throws Exception {
+		Map<String, String> files = new TreeMap<>();
+		try (Stream<Path> paths = Files.walk(root)) {
+			for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+				byte[] fileBytes = Files.readAllBytes(path);
+				String fileText = path.toString()
+					.endsWith(".jar") ? readJar(fileBytes).toString() : new String(fileBytes, UTF_8).trim();
+				files.put(root.relativize(path)
+					.toString(), fileText);
+			}
+		}
+		return files;
+	}
+
+	@Test
+	public void directory_transform(@TempDir Path tempDir) throws Exception {
+		Path inputRoot = tempDir.resolve("input");
+		for (int fileNo = 0; fileNo < 20; fileNo++) {
+			Path subDir = inputRoot.resolve("module" + (fileNo % 3) + "/META-INF/services");
+			Files.createDirectories(subDir);
+			Files.write(subDir.resolve("javax.servlet.Service" + fileNo),
+				("javax.servlet.ServiceImpl" + fileNo + "\n").getBytes(UTF_8));
+			Files.write(inputRoot.resolve("module" + (fileNo % 3) + "/data" + fileNo + ".bin"), new byte[] {
+				(byte) fileNo
+			});
+		}
+		Files.createDirectories(inputRoot.resolve("lib/empty"));
+		Files.write(inputRoot.resolve("lib/test.jar"), createJar(5));
+
+		Map<String, String> inputFiles = readDirectory(inputRoot);
+
+		DirectoryActionImpl serialAction = createDirectoryAction();
+		Path serialRoot = tempDir.resolve("serial");
+		serialAction.apply("input", inputRoot.toFile(), serialRoot.toFile());
+		Map<String, String> serialFiles = readDirectory(serialRoot);
+
+		assertThat(serialFiles).containsOnlyKeys(inputFiles.keySet()
+			.stream()
+			.filter(name -> !name.endsWith(".bin"))
+			.toArray(String[]::new));
+		assertThat(serialFiles.get("module1/META-INF/services/javax.servlet.Service4"))
+			.isEqualTo("jakarta.servlet.ServiceImpl4");
+		assertThat(Files.isDirectory(serialRoot.resolve("lib/empty"))).isTrue();
+
+		DirectoryActionImpl parallelAction = createDirectoryAction();
+		// Limit the pending files by length, as well as by count.
+		parallelAction.setMaxPendingLength(64L);
+		Path parallelRoot = tempDir.resolve("parallel");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			parallelAction.setExecutor(executor, 8);
+			parallelAction.apply("input", inputRoot.toFile(), parallelRoot.toFile());
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(readDirectory(parallelRoot)).containsExactlyEntriesOf(serialFiles);
+
+		ContainerChangesImpl serialChanges = serialAction.getLastActiveChanges();
+		ContainerChangesImpl parallelChanges = parallelAction.getLastActiveChanges();
+		assertThat(parallelChanges.getAllResources()).isEqualTo(serialChanges.getAllResources())
+			.isEqualTo(41);
+		assertThat(parallelChanges.getAllChanged()).isEqualTo(serialChanges.getAllChanged())
+			.isEqualTo(21);
+		assertThat(parallelChanges.getAllUnselected()).isEqualTo(serialChanges.getAllUnselected())
+			.isEqualTo(20);
+	}
+
+	@Test
+	public void directory_incremental(@TempDir Path tempDir) throws Exception {
+		Path inputRoot = tempDir.resolve("input");
+		Path servicesDir = inputRoot.resolve("module/META-INF/services");
+		Path goneDir = inputRoot.resolve("gone/META-INF/services");
+		Files.createDirectories(servicesDir);
+		Files.createDirectories(goneDir);
+		for (int fileNo = 0; fileNo < 4; fileNo++) {
+			Files.write(servicesDir.resolve("javax.servlet.Service" + fileNo),
+				("javax.servlet.ServiceImpl" + fileNo + "\n").getBytes(UTF_8));
+		}
+		Files.write(goneDir.resolve("javax.servlet.Gone"), "javax.servlet.GoneImpl\n".getBytes(UTF_8));
+		Files.write(inputRoot.resolve("module/data.bin"), new byte[] {
+			1
+		});
+
+		Path outputRoot = tempDir.resolve("output");
+		File manifestFile = DirectoryManifest.getManifestFile(outputRoot.toFile());
+
+		DirectoryActionImpl fullAction = createDirectoryAction();
+		fullAction.setManifestFingerprint("rules");
+		fullAction.apply("input", inputRoot.toFile(), outputRoot.toFile());
+		assertThat(manifestFile).isFile();
+		ContainerChangesImpl fullChanges = fullAction.getLastActiveChanges();
+		assertThat(fullChanges.getAllResources()).isEqualTo(6);
+		assertThat(fullChanges.getAllChanged()).isEqualTo(5);
+
+		// Mark outputs, to detect which are written again.
+		Path outputServices = outputRoot.resolve("module/META-INF/services");
+		for (int fileNo = 0; fileNo < 4; fileNo++) {
+			Files.write(outputServices.resolve("javax.servlet.Service" + fileNo), "marker".getBytes(UTF_8));
+		}
+
+		// Modify one input; touch another input, without modifying it; and
+		// delete a third input, with its directories.
+		Files.write(servicesDir.resolve("javax.servlet.Service1"), "javax.servlet.ServiceImplOne\n".getBytes(UTF_8));
+		Path touched = servicesDir.resolve("javax.servlet.Service2");
+		Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched)
+			.toMillis() + 10000L));
+		Files.delete(goneDir.resolve("javax.servlet.Gone"));
+		Files.delete(goneDir);
+		Files.delete(goneDir.getParent());
+		Files.delete(inputRoot.resolve("gone"));
+
+		DirectoryActionImpl incrementalAction = createDirectoryAction();
+		incrementalAction.setManifestFingerprint("rules");
+		incrementalAction.apply("input", inputRoot.toFile(), outputRoot.toFile());
+
+		Map<String, String> outputFiles = readDirectory(outputRoot);
+		assertThat(outputFiles.get("module/META-INF/services/javax.servlet.Service0")).isEqualTo("marker");
+		assertThat(outputFiles.get("module/META-INF/services/javax.servlet.Service1"))
+			.isEqualTo("jakarta.servlet.ServiceImplOne");
+		// No digest was recorded for the touched file: It is transformed
+		// again, and its digest is recorded.
+		assertThat(outputFiles.get("module/META-INF/services/javax.servlet.Service2"))
+			.isEqualTo("jakarta.servlet.ServiceImpl2");
+		assertThat(outputFiles).doesNotContainKey("gone/META-INF/services/javax.servlet.Gone");
+		assertThat(outputRoot.resolve("gone")).doesNotExist();
+
+		// Files which were not transformed again are recorded using their
+		// prior outcome.
+		ContainerChangesImpl incrementalChanges = incrementalAction.getLastActiveChanges();
+		assertThat(incrementalChanges.getAllResources()).isEqualTo(5);
+		assertThat(incrementalChanges.getAllChanged()).isEqualTo(4);
+		assertThat(incrementalChanges.getAllUnselected()).isEqualTo(1);
+
+		// Touching the file again does not cause it to be transformed again.
+		Files.write(outputServices.resolve("javax.servlet.Service2"), "marker".getBytes(UTF_8));
+		Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched)
+			.toMillis() + 10000L));
+		DirectoryActionImpl touchedAction = createDirectoryAction();
+		touchedAction.setManifestFingerprint("rules");
+		touchedAction.apply("input", inputRoot.toFile(), outputRoot.toFile());
+		assertThat(readDirectory(outputRoot).get("module/META-INF/services/javax.servlet.Service2"))
+			.isEqualTo("marker");
+
+		// Different rules cause all files to be transformed again.
+		DirectoryActionImpl changedRulesAction = createDirectoryAction();
+		changedRulesAction.setManifestFingerprint("other rules");
+		changedRulesAction.apply("input", inputRoot.toFile(), outputRoot.toFile());
+		assertThat(readDirectory(outputRoot).get("module/META-INF/services/javax.servlet.Service0"))
+			.isEqualTo("jakarta.servlet.ServiceImpl0");
+	}
+
+	@Test
+	public void directory_changed(@TempDir Path tempDir) throws Exception {
+		Path inputRoot = tempDir.resolve("input");
+		Path servicesDir = inputRoot.resolve("module/META-INF/services");
+		Files.createDirectories(servicesDir);
+		for (int fileNo = 0; fileNo < 3; fileNo++) {
+			Files.write(servicesDir.resolve("javax.servlet.Service" + fileNo),
+				("javax.servlet.ServiceImpl" + fileNo + "\n").getBytes(UTF_8));
+		}
+
+		Path outputRoot = tempDir.resolve("output");
+		DirectoryActionImpl fullAction = createDirectoryAction();
+		fullAction.setManifestFingerprint("rules");
+		fullAction.apply("input", inputRoot.toFile(), outputRoot.toFile());
+
+		// Modify a file, delete a file, and add a directory.
+		Path modified = Files.write(servicesDir.resolve("javax.servlet.Service0"),
+			"javax.servlet.ServiceImplZero\n".getBytes(UTF_8));
+		Path deleted = servicesDir.resolve("javax.servlet.Service1");
+		Files.delete(deleted);
+		Path addedDir = Files.createDirectories(inputRoot.resolve("added/META-INF/services"));
+		Path added = Files.write(addedDir.resolve("javax.servlet.Added"), "javax.servlet.AddedImpl\n".getBytes(UTF_8));
+		Files.write(outputRoot.resolve("module/META-INF/services/javax.servlet.Service2"), "marker".getBytes(UTF_8));
+
+		// The added file is within an added directory: It is transformed once.
+		DirectoryActionImpl changedAction = createDirectoryAction();
+		changedAction.setManifestFingerprint("rules");
+		changedAction.applyChanged("input", inputRoot.toFile(), outputRoot.toFile(),
+			new LinkedHashSet<>(Arrays.asList(modified, deleted, inputRoot.resolve("added"), addedDir, added)));
+
+		Map<String, String> outputFiles = readDirectory(outputRoot);
+		assertThat(outputFiles.get("module/META-INF/services/javax.servlet.Service0"))
+			.isEqualTo("jakarta.servlet.ServiceImplZero");
+		assertThat(outputFiles).doesNotContainKey("module/META-INF/services/javax.servlet.Service1");
+		assertThat(outputFiles.get("module/META-INF/services/javax.servlet.Service2")).isEqualTo("marker");
+		assertThat(outputFiles.get("added/META-INF/services/javax.servlet.Added"))
+			.isEqualTo("jakarta.servlet.AddedImpl");
+
+		ContainerChangesImpl changes = changedAction.getLastActiveChanges();
+		assertThat(changes.getAllResources()).isEqualTo(2);
+		assertThat(changes.getAllChanged()).isEqualTo(2);
+
+		// The manifest is updated: Another full transformation transforms
+		// nothing.
+		DirectoryManifest manifest = DirectoryManifest.load(DirectoryManifest.getManifestFile(outputRoot.toFile()),
+			"rules");
+		assertThat(manifest.getEntries()).containsOnlyKeys("module/META-INF/services/javax.servlet.Service0",
+			"module/META-INF/services/javax.servlet.Service2", "added/META-INF/services/javax.servlet.Added");
+
+		DirectoryActionImpl incrementalAction = createDirectoryAction();
+		incrementalAction.setManifestFingerprint("rules");
+		incrementalAction.apply("input", inputRoot.toFile(), outputRoot.toFile());
+		assertThat(readDirectory(outputRoot).get("module/META-INF/services/javax.servlet.Service2"))
+			.isEqualTo("marker");
+	}
+}
@@ -0,0 +1,55 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class InputBufferImplTest {
+
+	@Test
+	public void buffer_pool() throws Exception {
+		InputBufferImpl buffer = new InputBufferImpl();
+		byte[] small = buffer.takeBuffer(10);
+		byte[] large = buffer.takeBuffer(5000);
+		assertThat(small).hasSize(4096);
+		assertThat(large).hasSize(8192);
+
+		buffer.releaseBuffer(small);
+		buffer.releaseBuffer(large);
+		buffer.releaseBuffer(new byte[100]); // Too small to be pooled.
+		assertThat(buffer.getRetainedLength()).isEqualTo(4096 + 8192);
+
+		// Worker buffers share the pool.
+		InputBufferImpl workerBuffer = new InputBufferImpl(buffer);
+		assertThat(workerBuffer.takeBuffer(6000)).isSameAs(large);
+		assertThat(buffer.takeBuffer(4096)).isSameAs(small);
+		assertThat(buffer.getRetainedLength()).isZero();
+		assertThat(buffer.getPeakRetainedLength()).isEqualTo(4096 + 8192);
+		assertThat(buffer.getAllocations()).isEqualTo(2);
+		assertThat(buffer.getReuses()).isEqualTo(2);
+
+		try (PooledOutputStream outputStream = new PooledOutputStream(buffer, 16)) {
+			byte[] bytes = new byte[10000];
+			Arrays.fill(bytes, (byte) 'x');
+			outputStream.write(bytes);
+			outputStream.write('y');
+			byte[] outputBytes = outputStream.toByteArray();
+			assertThat(outputBytes).hasSize(10001);
+			assertThat(outputBytes[10000]).isEqualTo((byte) 'y');
+		}
+		assertThat(buffer.getRetainedLength()).isEqualTo(4096 + 16384);
+	}
+}
@@ -0,0 +1,43 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class PackageRenameTrieTest {
+
+	@Test
+	public void replace_package_trie() {
+		Map<String, String> renames = new LinkedHashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.ejb.*", "jakarta.ejb");
+		renames.put("javax.ejb.spi.*", "jakarta.ejb.service");
+		renames.put("javax.ejb.spi", "jakarta.ejb.spi");
+		PackageRenameTrie trie = new PackageRenameTrie(renames);
+
+		assertThat(trie.replace("javax.servlet", '.')).isEqualTo("jakarta.servlet");
+		assertThat(trie.replace("javax/servlet", '/')).isEqualTo("jakarta/servlet");
+		assertThat(trie.replace("javax.servlet.http", '.')).isNull();
+		assertThat(trie.replace("javax", '.')).isNull();
+
+		assertThat(trie.replace("javax.ejb", '.')).isEqualTo("jakarta.ejb");
+		assertThat(trie.replace("javax/ejb/embeddable", '/')).isEqualTo("jakarta/ejb/embeddable");
+		assertThat(trie.replace("javax.ejb.spi", '.')).isEqualTo("jakarta.ejb.spi");
+		assertThat(trie.replace("javax/ejb/spi/impl", '/')).isEqualTo("jakarta/ejb/service/impl");
+		assertThat(trie.replace("javax.ejbx", '.')).isNull();
+	}
+}
@@ -0,0 +1,73 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTest {
+
+	@Test
+	public void counts() {
+		BoundedCache<String, String> cache = new BoundedCache<>("test", 16);
+
+		assertThat(cache.get("a")).isNull();
+		cache.put("a", "b");
+		assertThat(cache.get("a")).isEqualTo("b");
+		assertThat(cache.get("a")).isEqualTo("b");
+
+		assertThat(cache.getHits()).isEqualTo(2);
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getEvictions()).isZero();
+	}
+
+	@Test
+	public void eviction() {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>("test", 64, 4);
+
+		for (int value = 0; value < 1000; value++) {
+			cache.put(value, value);
+		}
+
+		assertThat(cache.size()).isLessThanOrEqualTo(64);
+		assertThat(cache.getEvictions()).isEqualTo(1000 - cache.size());
+	}
+
+	@Test
+	public void concurrent_use() throws Exception {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>("test", 128);
+
+		List<Thread> threads = new ArrayList<>();
+		for (int threadNo = 0; threadNo < 4; threadNo++) {
+			Thread thread = new Thread(() -> {
+				for (int value = 0; value < 10000; value++) {
+					Integer key = value % 256;
+					if (cache.get(key) == null) {
+						cache.put(key, key);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(cache.size()).isLessThanOrEqualTo(128);
+		assertThat(cache.getHits() + cache.getMisses()).isEqualTo(40000);
+	}
+}
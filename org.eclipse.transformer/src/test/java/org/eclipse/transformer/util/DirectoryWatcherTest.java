@@ -0,0 +1,75 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DirectoryWatcherTest {
+
+	@Test
+	public void coalesced_changes(@TempDir Path root) throws Exception {
+		Path existingDir = Files.createDirectories(root.resolve("existing"));
+		Path modified = Files.write(existingDir.resolve("modified.txt"), "initial".getBytes(UTF_8));
+		Path deleted = Files.write(root.resolve("deleted.txt"), "deleted".getBytes(UTF_8));
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (DirectoryWatcher watcher = new DirectoryWatcher(root, 500L)) {
+			assertThat(watcher.getWatchedCount()).isEqualTo(2);
+
+			// Changes made within the quiet period are answered together,
+			// and a path which is changed several times is answered once.
+			Files.write(modified, "update1".getBytes(UTF_8));
+			Files.write(modified, "update2".getBytes(UTF_8));
+			Files.delete(deleted);
+			Path createdDir = Files.createDirectories(root.resolve("created"));
+
+			Set<Path> changedPaths = new HashSet<>();
+			long deadline = System.currentTimeMillis() + 10000L;
+			while (!changedPaths.containsAll(Arrays.asList(modified, deleted, createdDir))
+				&& (System.currentTimeMillis() < deadline)) {
+				changedPaths.addAll(watcher.take());
+			}
+			assertThat(changedPaths).contains(modified, deleted, createdDir)
+				.doesNotContain(existingDir);
+
+			// Created directories are watched.
+			assertThat(watcher.getWatchedCount()).isEqualTo(3);
+			Path createdFile = Files.write(createdDir.resolve("created.txt"), "created".getBytes(UTF_8));
+			changedPaths.clear();
+			while (!changedPaths.contains(createdFile) && (System.currentTimeMillis() < deadline)) {
+				changedPaths.addAll(watcher.take());
+			}
+			assertThat(changedPaths).contains(createdFile);
+
+			// Closing the watcher releases a waiting thread.
+			Future<Set<Path>> waiting = executor.submit(watcher::take);
+			watcher.close();
+			assertThat(waiting.get(10, TimeUnit.SECONDS)).isNull();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class FileUtilsTest {
+
+	/**
+	 * Answer a stream which returns at most a small count of bytes per read,
+	 * as a zip entry stream usually does.
+	 */
+	InputStream trickle(byte[] bytes) {
+		return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				return super.read(buffer, offset, Math.min(length, 1000));
+			}
+		};
+	}
+
+	@Test
+	public void read_unknown_count() throws Exception {
+		byte[] bytes = new byte[FileUtils.BUFFER_ADJUSTMENT * 5 + 123];
+		for (int byteNo = 0; byteNo < bytes.length; byteNo++) {
+			bytes[byteNo] = (byte) (byteNo * 7);
+		}
+
+		ByteData readData = FileUtils.read("test", trickle(bytes), null, -1);
+		assertThat(Arrays.copyOfRange(readData.data, readData.offset, readData.offset + readData.length))
+			.isEqualTo(bytes);
+
+		// A buffer which is large enough is used as is.
+		byte[] buffer = new byte[bytes.length + 1];
+		ByteData reusedData = FileUtils.read("test", trickle(bytes), buffer, -1);
+		assertThat(reusedData.data).isSameAs(buffer);
+		assertThat(reusedData.length).isEqualTo(bytes.length);
+
+		// A buffer which is too small is grown geometrically.
+		ByteData grownData = FileUtils.read("test", trickle(bytes), new byte[16], -1);
+		assertThat(grownData.length).isEqualTo(bytes.length);
+		assertThat(grownData.data.length).isLessThan(bytes.length * 2);
+		assertThat(Arrays.copyOfRange(grownData.data, 0, grownData.length)).isEqualTo(bytes);
+
+		assertThat(FileUtils.getGrowthLength(16)).isEqualTo(16 + FileUtils.BUFFER_ADJUSTMENT);
+		assertThat(FileUtils.getGrowthLength(FileUtils.BUFFER_ADJUSTMENT * 4))
+			.isEqualTo(FileUtils.BUFFER_ADJUSTMENT * 8);
+		assertThat(FileUtils.getGrowthLength(FileUtils.MAX_ARRAY_LENGTH - 10)).isEqualTo(FileUtils.MAX_ARRAY_LENGTH);
+	}
+}
@@ -0,0 +1,88 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.action.impl.PackageRenameMatcher;
+import org.junit.jupiter.api.Test;
+
+public class KeywordMatcherTest {
+
+	@Test
+	public void replace_text() {
+		Map<String, String> substitutions = new LinkedHashMap<>();
+		substitutions.put("he", "HE");
+		substitutions.put("she", "SHE");
+		substitutions.put("hers", "HERS");
+		substitutions.put("", "empty");
+		KeywordMatcher matcher = new KeywordMatcher(substitutions);
+
+		assertThat(matcher.replace("ushers and the hero", null)).isEqualTo("uSHErs and tHE HEro");
+		assertThat(matcher.replace("no match", null)).isNull();
+		assertThat(matcher.replace("", null)).isNull();
+
+		long match = matcher.find("the hers", 3, null);
+		assertThat(KeywordMatcher.getMatchStart(match)).isEqualTo(4);
+		assertThat(matcher.getKey(KeywordMatcher.getMatchKey(match))).isEqualTo("hers");
+	}
+
+	@Test
+	public void replace_packages() {
+		Map<String, String> renames = new LinkedHashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.servlet.http", "jakarta.servlet.http");
+		renames.put("javax.ejb.*", "jakarta.ejb");
+		PackageRenameMatcher matcher = new PackageRenameMatcher(renames);
+
+		assertThat(matcher.replace("javax.servlet.Servlet,javax.servlet.http.HttpServlet"))
+			.isEqualTo("jakarta.servlet.Servlet,jakarta.servlet.http.HttpServlet");
+		assertThat(matcher.replace("javax.servlet.jsp.JspPage;myjavax.servlet")).isNull();
+		assertThat(matcher.replace("javax.ejb.spi.HandleDelegate")).isEqualTo("jakarta.ejb.spi.HandleDelegate");
+		assertThat(matcher.replace("import javax.servlet.*;")).isEqualTo("import jakarta.servlet.*;");
+	}
+
+	@Test
+	public void replace_stream() throws Exception {
+		Map<String, String> renames = new LinkedHashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.ejb.*", "jakarta.ejb");
+		PackageRenameMatcher matcher = new PackageRenameMatcher(renames);
+
+		// Place matches at every offset around the chunk boundaries.
+		StringBuilder text = new StringBuilder();
+		int lineCount = 0;
+		while (text.length() < 3 * KeywordMatcher.STREAM_CHUNK_LENGTH) {
+			text.append(lineCount % 7 == 0 ? "x" : "")
+				.append("javax.servlet.Servlet;javax.ejb.spi.H javax.servletx\n");
+			lineCount++;
+		}
+		String input = text.toString();
+
+		StringWriter output = new StringWriter();
+		int changedLines = matcher.getMatcher()
+			.replace(new StringReader(input), output, matcher);
+
+		assertThat(output.toString()).isEqualTo(matcher.replace(input));
+		assertThat(changedLines).isEqualTo(lineCount);
+
+		output = new StringWriter();
+		assertThat(matcher.getMatcher()
+			.replace(new StringReader("no match"), output, matcher)).isZero();
+		assertThat(output.toString()).isEqualTo("no match");
+	}
+}
@@ -0,0 +1,67 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TransformCacheTest {
+
+	@Test
+	public void store_and_restore(@TempDir Path tempDir) throws Exception {
+		File inputFile = Files.write(tempDir.resolve("input.jar"), "input".getBytes(UTF_8))
+			.toFile();
+		File outputFile = Files.write(tempDir.resolve("output.jar"), "output".getBytes(UTF_8))
+			.toFile();
+
+		TransformCache cache = new TransformCache(tempDir.resolve("cache")
+			.toFile());
+		String key = cache.getKey(inputFile, "rules");
+		assertThat(key).isEqualTo(cache.getKey(inputFile, "rules"))
+			.isNotEqualTo(cache.getKey(inputFile, "other rules"));
+
+		File restoredFile = tempDir.resolve("restored.jar")
+			.toFile();
+		assertThat(cache.restore(key, restoredFile)).isNull();
+		assertThat(restoredFile).doesNotExist();
+
+		Properties summary = new Properties();
+		summary.setProperty("resources", "20");
+		summary.setProperty("changed", "10");
+		cache.store(key, outputFile, summary);
+
+		Properties restoredSummary = cache.restore(key, restoredFile);
+		assertThat(restoredSummary).isEqualTo(summary);
+		assertThat(Files.readAllBytes(restoredFile.toPath())).isEqualTo(Files.readAllBytes(outputFile.toPath()));
+
+		// Updating a restored output in place must not change the cached
+		// output.
+		Files.write(restoredFile.toPath(), new byte[] {
+			1, 2, 3
+		}, StandardOpenOption.APPEND);
+		assertThat(cache.restore(key, restoredFile)).isEqualTo(summary);
+		assertThat(Files.readAllBytes(restoredFile.toPath())).isEqualTo(Files.readAllBytes(outputFile.toPath()));
+
+		// A changed input has a different key.
+		Files.write(inputFile.toPath(), "changed input".getBytes(UTF_8));
+		assertThat(cache.restore(cache.getKey(inputFile, "rules"), restoredFile)).isNull();
+	}
+}
@@ -0,0 +1,118 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class Utf8CacheTest {
+
+	private static byte[] encode(String value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeUTF(value);
+		}
+		return bytes.toByteArray(); // Includes the two byte length.
+	}
+
+	@Test
+	public void counts() throws Exception {
+		Utf8Cache cache = new Utf8Cache("test", 16);
+
+		byte[] first = encode("Ljavax/servlet/Servlet;");
+		byte[] second = encode("Ljavax/servlet/Servlet;");
+
+		String value = cache.get(first, 2, first.length - 2);
+		assertThat(value).isEqualTo("Ljavax/servlet/Servlet;");
+		assertThat(cache.get(second, 2, second.length - 2)).isSameAs(value);
+		assertThat(cache.get(second, 2, second.length - 2)).isSameAs(value);
+
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.getHits()).isEqualTo(2);
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getEvictions()).isZero();
+	}
+
+	@Test
+	public void decode() throws Exception {
+		String[] values = {
+			"", "plain", "nul\u0000char", "caf\u00E9", "\u20AC sign", "\uD83D\uDE00 surrogates"
+		};
+		Utf8Cache cache = new Utf8Cache("test");
+		for (String value : values) {
+			byte[] bytes = encode(value);
+			assertThat(cache.get(bytes, 2, bytes.length - 2)).isEqualTo(value);
+			assertThat(cache.get(bytes, 2, bytes.length - 2)).isEqualTo(value);
+		}
+		assertThat(cache.getHits()).isEqualTo(values.length);
+
+		assertThatExceptionOfType(UTFDataFormatException.class).isThrownBy(() -> Utf8Cache.decode(new byte[] {
+			(byte) 0xE2, (byte) 0x82
+		}, 0, 2));
+		assertThatExceptionOfType(UTFDataFormatException.class).isThrownBy(() -> Utf8Cache.decode(new byte[] {
+			(byte) 0xC3, (byte) 0x29
+		}, 0, 2));
+	}
+
+	@Test
+	public void eviction() throws Exception {
+		Utf8Cache cache = new Utf8Cache("test", 64, 4);
+
+		for (int value = 0; value < 1000; value++) {
+			byte[] bytes = encode(Integer.toString(value));
+			cache.get(bytes, 2, bytes.length - 2);
+		}
+
+		assertThat(cache.size()).isLessThanOrEqualTo(64);
+		assertThat(cache.getEvictions()).isEqualTo(1000 - cache.size());
+	}
+
+	@Test
+	public void concurrent_use() throws Exception {
+		Utf8Cache cache = new Utf8Cache("test", 512);
+
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+		for (int threadNo = 0; threadNo < 4; threadNo++) {
+			Thread thread = new Thread(() -> {
+				try {
+					for (int value = 0; value < 10000; value++) {
+						byte[] bytes = encode("value" + (value % 256));
+						assertThat(cache.get(bytes, 2, bytes.length - 2)).isEqualTo("value" + (value % 256));
+					}
+				} catch (Throwable th) {
+					synchronized (failures) {
+						failures.add(th);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(failures).isEmpty();
+		assertThat(cache.size()).isLessThanOrEqualTo(256);
+		assertThat(cache.getHits() + cache.getMisses()).isEqualTo(40000);
+	}
+}
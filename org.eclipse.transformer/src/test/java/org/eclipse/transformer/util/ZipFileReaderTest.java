@@ -0,0 +1,188 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZipFileReaderTest {
+
+	Path writeZip(Path zipPath, Charset charset, String comment, String name, byte[] data) throws IOException {
+		try (ZipOutputStream zipOutput = new ZipOutputStream(Files.newOutputStream(zipPath), charset)) {
+			zipOutput.setComment(comment);
+			ZipEntry entry = new ZipEntry(name);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(data.length);
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			entry.setCrc(crc.getValue());
+			zipOutput.putNextEntry(entry);
+			zipOutput.write(data);
+			zipOutput.closeEntry();
+		}
+		return zipPath;
+	}
+
+	Path copyZip(ZipFileReader reader, Path outputPath) throws IOException {
+		try (ZipFileWriter writer = new ZipFileWriter(FileChannel.open(outputPath, StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+			writer.setComment(reader.getComment());
+			for (ZipFileReader.Entry entry : reader.getEntries()) {
+				writer.copy(reader, entry);
+			}
+			writer.finish();
+		}
+		return outputPath;
+	}
+
+	@Test
+	public void names_and_comment(@TempDir Path tempDir) throws Exception {
+		Charset cp437 = Charset.forName("IBM437");
+		String name = "caf\u00E9/\u00C7a\u2591.txt";
+		byte[] data = "data".getBytes(UTF_8);
+
+		Path inputPath = writeZip(tempDir.resolve("input.zip"), cp437, "Archive comment", name, data);
+
+		try (ZipFileReader reader = ZipFileReader.open(inputPath.toFile())) {
+			ZipFileReader.Entry entry = reader.getEntries()
+				.get(0);
+			assertThat(entry.flags & ZipFileReader.FLAG_UTF8).isZero();
+			assertThat(entry.name).isEqualTo(name);
+			assertThat(entry.nameBytes).isEqualTo(name.getBytes(cp437));
+			assertThat(new String(reader.getComment(), UTF_8)).isEqualTo("Archive comment");
+
+			// Copies retain the encoded name and the archive comment.
+			Path outputPath = copyZip(reader, tempDir.resolve("output.zip"));
+			try (ZipFile zipFile = new ZipFile(outputPath.toFile(), cp437)) {
+				assertThat(zipFile.getComment()).isEqualTo("Archive comment");
+				assertThat(zipFile.getEntry(name)).isNotNull();
+			}
+		}
+
+		// Names which are flagged as UTF-8 are decoded as UTF-8.
+		Path utf8Path = writeZip(tempDir.resolve("utf8.zip"), UTF_8, null, name, data);
+		try (ZipFileReader reader = ZipFileReader.open(utf8Path.toFile())) {
+			ZipFileReader.Entry entry = reader.getEntries()
+				.get(0);
+			assertThat(entry.flags & ZipFileReader.FLAG_UTF8).isNotZero();
+			assertThat(entry.name).isEqualTo(name);
+			assertThat(reader.getComment()).isEmpty();
+		}
+	}
+
+	@Test
+	public void crc_verification(@TempDir Path tempDir) throws Exception {
+		byte[] data = "0123456789".getBytes(UTF_8);
+		Path zipPath = writeZip(tempDir.resolve("input.zip"), UTF_8, null, "entry.txt", data);
+
+		try (ZipFileReader reader = ZipFileReader.open(zipPath.toFile());
+			InputStream input = reader.getInputStream(reader.getEntries()
+				.get(0))) {
+			assertThat(FileUtils.read("entry.txt", input).length).isEqualTo(data.length);
+		}
+
+		// Corrupt the stored data of the entry.
+		byte[] zipBytes = Files.readAllBytes(zipPath);
+		for (int byteNo = 0; byteNo < zipBytes.length; byteNo++) {
+			if ((zipBytes[byteNo] == '0') && (zipBytes[byteNo + 1] == '1')) {
+				zipBytes[byteNo] = 'X';
+				break;
+			}
+		}
+		Files.write(zipPath, zipBytes);
+
+		try (ZipFileReader reader = ZipFileReader.open(zipPath.toFile());
+			InputStream input = reader.getInputStream(reader.getEntries()
+				.get(0))) {
+			assertThatExceptionOfType(ZipException.class).isThrownBy(() -> FileUtils.read("entry.txt", input))
+				.withMessageContaining("Invalid CRC");
+		}
+	}
+
+	/**
+	 * A channel which accepts no data for a count of writes.
+	 */
+	static class StallingChannel implements WritableByteChannel {
+		private final WritableByteChannel	channel;
+		private int							stalls;
+
+		StallingChannel(OutputStream outputStream, int stalls) {
+			this.channel = Channels.newChannel(outputStream);
+			this.stalls = stalls;
+		}
+
+		@Override
+		public int write(ByteBuffer buffer) throws IOException {
+			if (stalls > 0) {
+				stalls--;
+				return 0;
+			}
+			return channel.write(buffer);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void transfer_without_progress(@TempDir Path tempDir) throws Exception {
+		byte[] data = new byte[100000];
+		for (int byteNo = 0; byteNo < data.length; byteNo++) {
+			data[byteNo] = (byte) byteNo;
+		}
+		Path zipPath = writeZip(tempDir.resolve("input.zip"), UTF_8, null, "entry.bin", data);
+
+		try (ZipFileReader reader = ZipFileReader.open(zipPath.toFile())) {
+			ZipFileReader.Entry entry = reader.getEntries()
+				.get(0);
+
+			// A transfer which makes no progress falls back to a copy.
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			reader.transferRaw(entry, new StallingChannel(output, 1));
+			assertThat(output.toByteArray()).isEqualTo(data);
+
+			// A copy which makes no progress fails.
+			assertThatExceptionOfType(IOException.class)
+				.isThrownBy(() -> reader.transferRaw(entry, new StallingChannel(new ByteArrayOutputStream(), 1000)))
+				.withMessageContaining("No data was written");
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZipFileWriterTest {
+
+	@Test
+	public void central_directory(@TempDir Path tempDir) throws Exception {
+		// Write the central directory both within the write buffer, and,
+		// when the central directory is larger than the write buffer,
+		// following the write buffer.
+		String longName = new String(new char[200]).replace('\0', 'n');
+		int largeCount = (ZipFileWriter.DIRECT_BUFFER_SIZE / longName.length()) + 100;
+
+		int[] entryCounts = {
+			10, largeCount
+		};
+		for (int entryCount : entryCounts) {
+			Path zipPath = tempDir.resolve("output" + entryCount + ".zip");
+			try (ZipFileWriter writer = new ZipFileWriter(FileChannel.open(zipPath, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+				for (int entryNo = 0; entryNo < entryCount; entryNo++) {
+					byte[] data = ("data" + entryNo).getBytes(UTF_8);
+					writer.write(longName + entryNo, null, new ByteData("test", data, 0, data.length));
+				}
+				writer.finish();
+				assertThat(writer.getPosition()).isEqualTo(zipPath.toFile()
+					.length());
+			}
+
+			try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+				assertThat(zipFile.size()).isEqualTo(entryCount);
+				int lastNo = entryCount - 1;
+				ZipEntry lastEntry = zipFile.getEntry(longName + lastNo);
+				try (InputStream lastInput = zipFile.getInputStream(lastEntry)) {
+					assertThat(new String(FileUtils.read(lastEntry.getName(), lastInput).data, 0,
+						(int) lastEntry.getSize(), UTF_8)).isEqualTo("data" + lastNo);
+				}
+			}
+
+			try (ZipFileReader reader = ZipFileReader.open(zipPath.toFile())) {
+				assertThat(reader.getEntries()).hasSize(entryCount);
+			}
+		}
+	}
+}